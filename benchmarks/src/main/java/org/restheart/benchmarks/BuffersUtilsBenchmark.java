@@ -0,0 +1,105 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-benchmarks
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.benchmarks;
+
+import io.undertow.connector.PooledByteBuffer;
+import io.undertow.util.ImmediatePooledByteBuffer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restheart.utils.BuffersUtils;
+
+/**
+ * Benchmarks of BuffersUtils, used to read and write the content of requests
+ * and responses held in pooled buffers of 16 Kbytes.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuffersUtilsBenchmark {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * the content size in bytes
+     */
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    private PooledByteBuffer[] content;
+    private PooledByteBuffer[] dest;
+    private ByteBuffer src;
+
+    @Setup
+    public void setup() {
+        var buffers = (size + BUFFER_SIZE - 1) / BUFFER_SIZE;
+
+        content = new PooledByteBuffer[buffers];
+        dest = new PooledByteBuffer[buffers];
+
+        var data = new byte[size];
+
+        for (int idx = 0; idx < size; idx++) {
+            data[idx] = (byte) ('a' + idx % 26);
+        }
+
+        for (int idx = 0; idx < buffers; idx++) {
+            var len = Math.min(BUFFER_SIZE, size - idx * BUFFER_SIZE);
+
+            content[idx] = new ImmediatePooledByteBuffer(ByteBuffer
+                    .wrap(data, idx * BUFFER_SIZE, len).slice());
+
+            // destination buffers are allocated upfront, so transfer()
+            // does not need the exchange to allocate them from the pool
+            dest[idx] = new ImmediatePooledByteBuffer(ByteBuffer
+                    .allocate(BUFFER_SIZE));
+        }
+
+        src = ByteBuffer.wrap(data);
+    }
+
+    @Benchmark
+    public ByteBuffer toByteBuffer() throws IOException {
+        return BuffersUtils.toByteBuffer(content);
+    }
+
+    @Benchmark
+    public int transfer() {
+        src.rewind();
+        return BuffersUtils.transfer(src, dest, null);
+    }
+}
@@ -0,0 +1,81 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-benchmarks
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restheart.mongodb.db.CursorPoolEntryKey;
+
+/**
+ * Benchmarks of the hashing and equality of CursorPoolEntryKey, computed on
+ * every lookup of the cursor pool.
+ *
+ * The collection is null: MongoCollection does not override hashCode() and
+ * equals(), so it only contributes an identity hash; this avoids a MongoClient
+ * and its connection attempts.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CursorPoolEntryKeyBenchmark {
+
+    private CursorPoolEntryKey key;
+    private CursorPoolEntryKey other;
+
+    @Setup
+    public void setup() {
+        var sort = BsonDocument.parse("{ \"_id\": -1 }");
+        var filter = BsonDocument.parse("{ \"$and\": [ { \"status\": \"active\" }, "
+                + "{ \"age\": { \"$gte\": 18 } }, { \"tags\": { \"$in\": [ \"a\", \"b\", \"c\" ] } } ] }");
+        var keys = BsonDocument.parse("{ \"name\": 1, \"age\": 1 }");
+
+        key = new CursorPoolEntryKey(null, null, sort, filter, keys, null, 1000, 0);
+
+        // equal to key but not identical, as the key used to lookup the pool
+        other = new CursorPoolEntryKey(null, null, sort.clone(), filter.clone(),
+                keys.clone(), null, 1000, 0);
+    }
+
+    @Benchmark
+    public int hashCodeOf() {
+        return key.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsTo() {
+        return key.equals(other);
+    }
+}
@@ -0,0 +1,167 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-benchmarks
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.benchmarks;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Methods;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restheart.exchange.ByteArrayProxyRequest;
+import org.restheart.exchange.ByteArrayProxyResponse;
+import org.restheart.exchange.PipelineInfo;
+import static org.restheart.exchange.PipelineInfo.PIPELINE_TYPE.PROXY;
+import org.restheart.exchange.ResolvedPipeline;
+import org.restheart.plugins.Interceptor;
+import static org.restheart.plugins.InterceptPoint.REQUEST_AFTER_AUTH;
+import static org.restheart.plugins.InterceptPoint.RESPONSE;
+import org.restheart.plugins.PipelineInterceptors;
+import org.restheart.plugins.PluginRecord;
+import org.restheart.plugins.ProxyInterceptor;
+import org.restheart.plugins.RegisterPlugin;
+
+/**
+ * Benchmarks of the interceptors resolution performed by
+ * RequestInterceptorsExecutor: the computation of the chains of a pipeline,
+ * done when the pipeline is plugged, and the per request lookup of the chain
+ * followed by the invocation of resolve() on each interceptor.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterceptorsResolutionBenchmark {
+
+    /**
+     * the number of registered interceptors
+     */
+    @Param({"10", "50"})
+    public int interceptors;
+
+    @SuppressWarnings("rawtypes")
+    private final Set<PluginRecord<Interceptor>> registered = new LinkedHashSet<>();
+
+    private ResolvedPipeline pipeline;
+    private PipelineInterceptors chains;
+    private ByteArrayProxyRequest request;
+    private ByteArrayProxyResponse response;
+
+    @Setup
+    @SuppressWarnings("rawtypes")
+    public void setup() {
+        for (int idx = 0; idx < interceptors; idx++) {
+            Interceptor instance = idx % 2 == 0
+                    ? new PathInterceptor("/anything/" + (idx % 4))
+                    : new MethodInterceptor();
+
+            registered.add(new PluginRecord<>("interceptor" + idx, "",
+                    true, instance.getClass().getName(), instance, Map.of()));
+        }
+
+        pipeline = new ResolvedPipeline(new PipelineInfo(PROXY, "/anything",
+                "anything"), null, true);
+
+        chains = PipelineInterceptors.of(registered, pipeline);
+
+        var exchange = new HttpServerExchange(null);
+        exchange.setRequestMethod(Methods.GET);
+        exchange.setRequestPath("/anything/0");
+        exchange.setRelativePath("/anything/0");
+
+        request = ByteArrayProxyRequest.of(exchange);
+        response = ByteArrayProxyResponse.of(exchange);
+    }
+
+    @Benchmark
+    public PipelineInterceptors computeChains() {
+        return PipelineInterceptors.of(registered, pipeline);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public int resolve() {
+        var resolved = 0;
+
+        for (var ri : chains.get(REQUEST_AFTER_AUTH)) {
+            if (ri.resolve(request, response)) {
+                resolved++;
+            }
+        }
+
+        return resolved;
+    }
+
+    @RegisterPlugin(name = "pathInterceptor",
+            description = "resolves requests with a given path",
+            interceptPoint = REQUEST_AFTER_AUTH)
+    public static class PathInterceptor implements ProxyInterceptor {
+
+        private final String path;
+
+        public PathInterceptor(String path) {
+            this.path = path;
+        }
+
+        @Override
+        public void handle(ByteArrayProxyRequest request,
+                ByteArrayProxyResponse response) {
+        }
+
+        @Override
+        public boolean resolve(ByteArrayProxyRequest request,
+                ByteArrayProxyResponse response) {
+            return path.equals(request.getPath());
+        }
+    }
+
+    @RegisterPlugin(name = "methodInterceptor",
+            description = "resolves POST requests",
+            interceptPoint = RESPONSE)
+    public static class MethodInterceptor implements ProxyInterceptor {
+
+        @Override
+        public void handle(ByteArrayProxyRequest request,
+                ByteArrayProxyResponse response) {
+        }
+
+        @Override
+        public boolean resolve(ByteArrayProxyRequest request,
+                ByteArrayProxyResponse response) {
+            return request.isPost();
+        }
+    }
+}
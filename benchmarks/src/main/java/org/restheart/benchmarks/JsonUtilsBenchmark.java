@@ -0,0 +1,105 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-benchmarks
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.benchmarks;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restheart.utils.JsonUtils;
+
+/**
+ * Benchmarks of JsonUtils: serialization, parsing, minification,
+ * flattening and properties extraction of a document similar to the ones
+ * handled by MongoService.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonUtilsBenchmark {
+
+    private static final String JSON = "{\n"
+            + "  \"_id\": { \"$oid\": \"5d0b6e9b6d2e4a0001c6e2f4\" },\n"
+            + "  \"name\": \"RESTHeart\",\n"
+            + "  \"tags\": [ \"mongodb\", \"rest\", \"api\", \"undertow\" ],\n"
+            + "  \"stats\": { \"stars\": 2500, \"forks\": 480, \"rating\": 4.8 },\n"
+            + "  \"releases\": [\n"
+            + "    { \"version\": \"4.1.0\", \"date\": { \"$date\": 1577836800000 }, \"notes\": { \"fixes\": 12, \"features\": 3 } },\n"
+            + "    { \"version\": \"5.0.0\", \"date\": { \"$date\": 1588291200000 }, \"notes\": { \"fixes\": 25, \"features\": 9 } }\n"
+            + "  ],\n"
+            + "  \"owner\": { \"name\": \"SoftInstigate\", \"address\": { \"city\": \"Imola\", \"country\": \"Italy\" } }\n"
+            + "}";
+
+    private BsonDocument doc;
+    private BsonDocument flat;
+
+    @Setup
+    public void setup() {
+        doc = JsonUtils.parse(JSON).asDocument();
+        flat = JsonUtils.flatten(doc, false);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return JsonUtils.toJson(doc);
+    }
+
+    @Benchmark
+    public BsonValue parse() {
+        return JsonUtils.parse(JSON);
+    }
+
+    @Benchmark
+    public String minify() {
+        return JsonUtils.minify(JSON);
+    }
+
+    @Benchmark
+    public BsonDocument flatten() {
+        return JsonUtils.flatten(doc, false);
+    }
+
+    @Benchmark
+    public BsonValue unflatten() {
+        return JsonUtils.unflatten(flat);
+    }
+
+    @Benchmark
+    public List<Optional<BsonValue>> getPropsFromPath() {
+        return JsonUtils.getPropsFromPath(doc, "$.releases.[*].notes.fixes");
+    }
+}
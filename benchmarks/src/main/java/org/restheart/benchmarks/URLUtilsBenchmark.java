@@ -0,0 +1,85 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-benchmarks
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.bson.BsonInt64;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restheart.exchange.ExchangeKeys.DOC_ID_TYPE;
+import org.restheart.mongodb.utils.URLUtils;
+import org.restheart.representation.UnsupportedDocumentIdException;
+
+/**
+ * Benchmarks of the encoding of document ids in URLs and of their decoding
+ * from URLs.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class URLUtilsBenchmark {
+
+    private final BsonValue oid = new BsonObjectId(new ObjectId("5d0b6e9b6d2e4a0001c6e2f4"));
+    private final BsonValue string = new BsonString("restheart");
+    private final BsonValue number = new BsonInt64(1234567890l);
+
+    @Benchmark
+    public String getIdStringOid() throws UnsupportedDocumentIdException {
+        return URLUtils.getIdString(oid);
+    }
+
+    @Benchmark
+    public String getIdStringString() throws UnsupportedDocumentIdException {
+        return URLUtils.getIdString(string);
+    }
+
+    @Benchmark
+    public String getIdStringNumber() throws UnsupportedDocumentIdException {
+        return URLUtils.getIdString(number);
+    }
+
+    @Benchmark
+    public BsonValue getDocumentIdFromURIStringOid() throws UnsupportedDocumentIdException {
+        return URLUtils.getDocumentIdFromURI("5d0b6e9b6d2e4a0001c6e2f4",
+                DOC_ID_TYPE.STRING_OID);
+    }
+
+    @Benchmark
+    public BsonValue getDocumentIdFromURIString() throws UnsupportedDocumentIdException {
+        return URLUtils.getDocumentIdFromURI("restheart", DOC_ID_TYPE.STRING);
+    }
+}
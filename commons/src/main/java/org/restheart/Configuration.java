@@ -42,11 +42,19 @@ import static org.restheart.ConfigurationKeys.AJP_LISTENER_KEY;
 import static org.restheart.ConfigurationKeys.AJP_PORT_KEY;
 import static org.restheart.ConfigurationKeys.ALLOW_UNESCAPED_CHARACTERS_IN_URL;
 import static org.restheart.ConfigurationKeys.ANSI_CONSOLE_KEY;
+import static org.restheart.ConfigurationKeys.ASYNC_INTERCEPTORS_OVERFLOW_CALLER_RUNS;
+import static org.restheart.ConfigurationKeys.ASYNC_INTERCEPTORS_OVERFLOW_KEY;
+import static org.restheart.ConfigurationKeys.ASYNC_INTERCEPTORS_QUEUE_SIZE_KEY;
+import static org.restheart.ConfigurationKeys.ASYNC_INTERCEPTORS_THREADS_KEY;
 import static org.restheart.ConfigurationKeys.AUTHENTICATORS_KEY;
 import static org.restheart.ConfigurationKeys.AUTHORIZERS_KEY;
 import static org.restheart.ConfigurationKeys.AUTH_MECHANISMS_KEY;
 import static org.restheart.ConfigurationKeys.BUFFER_SIZE_KEY;
 import static org.restheart.ConfigurationKeys.CERT_PASSWORD_KEY;
+import static org.restheart.ConfigurationKeys.COMPRESSION_EXCLUDED_MIME_TYPES_KEY;
+import static org.restheart.ConfigurationKeys.COMPRESSION_LEVEL_KEY;
+import static org.restheart.ConfigurationKeys.COMPRESSION_MIME_TYPES_KEY;
+import static org.restheart.ConfigurationKeys.COMPRESSION_MIN_SIZE_KEY;
 import static org.restheart.ConfigurationKeys.CONNECTION_OPTIONS_KEY;
 import static org.restheart.ConfigurationKeys.DEFAULT_AJP_HOST;
 import static org.restheart.ConfigurationKeys.DEFAULT_AJP_LISTENER;
@@ -69,22 +77,38 @@ import static org.restheart.ConfigurationKeys.HTTP_HOST_KEY;
 import static org.restheart.ConfigurationKeys.HTTP_LISTENER_KEY;
 import static org.restheart.ConfigurationKeys.HTTP_PORT_KEY;
 import static org.restheart.ConfigurationKeys.INSTANCE_NAME_KEY;
+import static org.restheart.ConfigurationKeys.HTTP2_ENABLED_KEY;
+import static org.restheart.ConfigurationKeys.HTTP2_HEADER_TABLE_SIZE_KEY;
+import static org.restheart.ConfigurationKeys.HTTP2_INITIAL_WINDOW_SIZE_KEY;
+import static org.restheart.ConfigurationKeys.HTTP2_MAX_CONCURRENT_STREAMS_KEY;
+import static org.restheart.ConfigurationKeys.HTTP2_MAX_FRAME_SIZE_KEY;
 import static org.restheart.ConfigurationKeys.IO_THREADS_KEY;
 import static org.restheart.ConfigurationKeys.KEYSTORE_FILE_KEY;
 import static org.restheart.ConfigurationKeys.KEYSTORE_PASSWORD_KEY;
 import static org.restheart.ConfigurationKeys.LOG_FILE_PATH_KEY;
 import static org.restheart.ConfigurationKeys.LOG_LEVEL_KEY;
 import static org.restheart.ConfigurationKeys.LOG_REQUESTS_LEVEL_KEY;
+import static org.restheart.ConfigurationKeys.PIPELINE_METRICS_ENABLED_KEY;
 import static org.restheart.ConfigurationKeys.PLUGINS_ARGS_KEY;
 import static org.restheart.ConfigurationKeys.PLUGINS_DIRECTORY_PATH_KEY;
 import static org.restheart.ConfigurationKeys.PROXY_KEY;
+import static org.restheart.ConfigurationKeys.REQUESTS_LIMIT_ADAPTIVE_KEY;
 import static org.restheart.ConfigurationKeys.REQUESTS_LIMIT_KEY;
+import static org.restheart.ConfigurationKeys.REQUESTS_LIMIT_MIN_KEY;
+import static org.restheart.ConfigurationKeys.REQUESTS_LIMIT_RETRY_AFTER_KEY;
+import static org.restheart.ConfigurationKeys.REQUESTS_LOG_ASYNC_KEY;
+import static org.restheart.ConfigurationKeys.REQUESTS_LOG_SAMPLE_RATE_KEY;
 import static org.restheart.ConfigurationKeys.REQUESTS_LOG_TRACE_HEADERS_KEY;
 import static org.restheart.ConfigurationKeys.SERVICES_KEY;
+import static org.restheart.ConfigurationKeys.STAGE_TIMINGS_ENABLED_KEY;
+import static org.restheart.ConfigurationKeys.STAGE_TIMINGS_SERVER_TIMING_HEADER_KEY;
 import static org.restheart.ConfigurationKeys.STATIC_RESOURCES_MOUNTS_KEY;
 import static org.restheart.ConfigurationKeys.TOKEN_MANAGER_KEY;
 import static org.restheart.ConfigurationKeys.USE_EMBEDDED_KEYSTORE_KEY;
+import static org.restheart.ConfigurationKeys.WORKER_EXECUTOR_DEFAULT;
+import static org.restheart.ConfigurationKeys.WORKER_EXECUTOR_KEY;
 import static org.restheart.ConfigurationKeys.WORKER_THREADS_KEY;
+import org.restheart.handlers.CompressionPolicy;
 import org.restheart.utils.URLUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -157,13 +181,28 @@ public class Configuration {
         defaultConf.put(ConfigurationKeys.REQUESTS_LOG_LEVEL_KEY, 0);
 
         defaultConf.put(REQUESTS_LOG_TRACE_HEADERS_KEY, Collections.emptyList());
+        defaultConf.put(REQUESTS_LOG_ASYNC_KEY, false);
+        defaultConf.put(REQUESTS_LOG_SAMPLE_RATE_KEY, 1.0);
+        defaultConf.put(STAGE_TIMINGS_ENABLED_KEY, false);
+        defaultConf.put(STAGE_TIMINGS_SERVER_TIMING_HEADER_KEY, false);
+        defaultConf.put(PIPELINE_METRICS_ENABLED_KEY, true);
 
         defaultConf.put(REQUESTS_LIMIT_KEY, 100);
+        defaultConf.put(REQUESTS_LIMIT_ADAPTIVE_KEY, false);
+        defaultConf.put(REQUESTS_LIMIT_MIN_KEY, 10);
+        defaultConf.put(REQUESTS_LIMIT_RETRY_AFTER_KEY, 1);
         defaultConf.put(IO_THREADS_KEY, 2);
         defaultConf.put(WORKER_THREADS_KEY, 32);
+        defaultConf.put(WORKER_EXECUTOR_KEY, WORKER_EXECUTOR_DEFAULT);
+        defaultConf.put(ASYNC_INTERCEPTORS_THREADS_KEY, 8);
+        defaultConf.put(ASYNC_INTERCEPTORS_QUEUE_SIZE_KEY, 1000);
+        defaultConf.put(ASYNC_INTERCEPTORS_OVERFLOW_KEY, ASYNC_INTERCEPTORS_OVERFLOW_CALLER_RUNS);
         defaultConf.put(BUFFER_SIZE_KEY, 16384);
         defaultConf.put(DIRECT_BUFFERS_KEY, true);
         defaultConf.put(FORCE_GZIP_ENCODING_KEY, false);
+        defaultConf.put(COMPRESSION_MIN_SIZE_KEY, CompressionPolicy.DEFAULT_MIN_SIZE);
+        defaultConf.put(COMPRESSION_LEVEL_KEY, -1);
+        defaultConf.put(HTTP2_ENABLED_KEY, false);
         defaultConf.put(CONNECTION_OPTIONS_KEY, Maps.newHashMap());
         defaultConf.put(ALLOW_UNESCAPED_CHARACTERS_IN_URL, true);
 
@@ -344,12 +383,33 @@ public class Configuration {
     private final boolean logToConsole;
     private final boolean logToFile;
     private final List<String> traceHeaders;
+    private final boolean requestsLogAsync;
+    private final double requestsLogSampleRate;
+    private final boolean stageTimingsEnabled;
+    private final boolean stageTimingsServerTimingHeader;
+    private final boolean pipelineMetricsEnabled;
     private final int requestsLimit;
+    private final boolean requestsLimitAdaptive;
+    private final int requestsLimitMin;
+    private final int requestsLimitRetryAfter;
     private final int ioThreads;
     private final int workerThreads;
+    private final String workerExecutor;
+    private final int asyncInterceptorsThreads;
+    private final int asyncInterceptorsQueueSize;
+    private final String asyncInterceptorsOverflow;
     private final int bufferSize;
     private final boolean directBuffers;
     private final boolean forceGzipEncoding;
+    private final int compressionMinSize;
+    private final int compressionLevel;
+    private final List<String> compressionMimeTypes;
+    private final List<String> compressionExcludedMimeTypes;
+    private final boolean http2Enabled;
+    private final int http2MaxConcurrentStreams;
+    private final int http2HeaderTableSize;
+    private final int http2InitialWindowSize;
+    private final int http2MaxFrameSize;
     private final Map<String, Object> connectionOptions;
     private final Integer logExchangeDump;
     private final boolean ansiConsole;
@@ -511,14 +571,36 @@ public class Configuration {
         logLevel = level;
 
         traceHeaders = getAsListOfStrings(conf, REQUESTS_LOG_TRACE_HEADERS_KEY, Collections.emptyList());
+        requestsLogAsync = getAsBoolean(conf, REQUESTS_LOG_ASYNC_KEY, false);
+        requestsLogSampleRate = getAsDouble(conf, REQUESTS_LOG_SAMPLE_RATE_KEY, 1.0);
+        stageTimingsEnabled = getAsBoolean(conf, STAGE_TIMINGS_ENABLED_KEY, false);
+        stageTimingsServerTimingHeader = getAsBoolean(conf, STAGE_TIMINGS_SERVER_TIMING_HEADER_KEY, false);
+        pipelineMetricsEnabled = getAsBoolean(conf, PIPELINE_METRICS_ENABLED_KEY, true);
 
         requestsLimit = getAsInteger(conf, REQUESTS_LIMIT_KEY, 100);
+        requestsLimitAdaptive = getAsBoolean(conf, REQUESTS_LIMIT_ADAPTIVE_KEY, false);
+        requestsLimitMin = getAsInteger(conf, REQUESTS_LIMIT_MIN_KEY, 10);
+        requestsLimitRetryAfter = getAsInteger(conf, REQUESTS_LIMIT_RETRY_AFTER_KEY, 1);
         ioThreads = getAsInteger(conf, IO_THREADS_KEY, 2);
         workerThreads = getAsInteger(conf, WORKER_THREADS_KEY, 32);
+        workerExecutor = getAsString(conf, WORKER_EXECUTOR_KEY, WORKER_EXECUTOR_DEFAULT);
+        asyncInterceptorsThreads = getAsInteger(conf, ASYNC_INTERCEPTORS_THREADS_KEY, 8);
+        asyncInterceptorsQueueSize = getAsInteger(conf, ASYNC_INTERCEPTORS_QUEUE_SIZE_KEY, 1000);
+        asyncInterceptorsOverflow = getAsString(conf, ASYNC_INTERCEPTORS_OVERFLOW_KEY, ASYNC_INTERCEPTORS_OVERFLOW_CALLER_RUNS);
         bufferSize = getAsInteger(conf, BUFFER_SIZE_KEY, 16384);
         directBuffers = getAsBoolean(conf, DIRECT_BUFFERS_KEY, true);
         forceGzipEncoding = getAsBoolean(conf, FORCE_GZIP_ENCODING_KEY, false);
+        compressionMinSize = getAsInteger(conf, COMPRESSION_MIN_SIZE_KEY, CompressionPolicy.DEFAULT_MIN_SIZE);
+        compressionLevel = getAsInteger(conf, COMPRESSION_LEVEL_KEY, -1);
+        compressionMimeTypes = getAsListOfStrings(conf, COMPRESSION_MIME_TYPES_KEY, Collections.emptyList());
+        compressionExcludedMimeTypes = getAsListOfStrings(conf, COMPRESSION_EXCLUDED_MIME_TYPES_KEY,
+                CompressionPolicy.DEFAULT_EXCLUDED_MIME_TYPES);
         logExchangeDump = getAsInteger(conf, LOG_REQUESTS_LEVEL_KEY, 0);
+        http2Enabled = getAsBoolean(conf, HTTP2_ENABLED_KEY, false);
+        http2MaxConcurrentStreams = getAsInteger(conf, HTTP2_MAX_CONCURRENT_STREAMS_KEY, -1);
+        http2HeaderTableSize = getAsInteger(conf, HTTP2_HEADER_TABLE_SIZE_KEY, -1);
+        http2InitialWindowSize = getAsInteger(conf, HTTP2_INITIAL_WINDOW_SIZE_KEY, -1);
+        http2MaxFrameSize = getAsInteger(conf, HTTP2_MAX_FRAME_SIZE_KEY, -1);
         connectionOptions = getAsMap(conf, CONNECTION_OPTIONS_KEY);
         allowUnescapedCharactersInUrl = getAsBoolean(conf, ALLOW_UNESCAPED_CHARACTERS_IN_URL, true);
     }
@@ -553,12 +635,33 @@ public class Configuration {
                 + ", logToConsole=" + logToConsole
                 + ", logToFile=" + logToFile
                 + ", traceHeaders=" + traceHeaders
+                + ", requestsLogAsync=" + requestsLogAsync
+                + ", requestsLogSampleRate=" + requestsLogSampleRate
+                + ", stageTimingsEnabled=" + stageTimingsEnabled
+                + ", stageTimingsServerTimingHeader=" + stageTimingsServerTimingHeader
+                + ", pipelineMetricsEnabled=" + pipelineMetricsEnabled
                 + ", requestsLimit=" + requestsLimit
+                + ", requestsLimitAdaptive=" + requestsLimitAdaptive
+                + ", requestsLimitMin=" + requestsLimitMin
+                + ", requestsLimitRetryAfter=" + requestsLimitRetryAfter
                 + ", ioThreads=" + ioThreads
                 + ", workerThreads=" + workerThreads
+                + ", workerExecutor=" + workerExecutor
+                + ", asyncInterceptorsThreads=" + asyncInterceptorsThreads
+                + ", asyncInterceptorsQueueSize=" + asyncInterceptorsQueueSize
+                + ", asyncInterceptorsOverflow=" + asyncInterceptorsOverflow
                 + ", bufferSize=" + bufferSize
                 + ", directBuffers=" + directBuffers
                 + ", forceGzipEncoding=" + forceGzipEncoding
+                + ", compressionMinSize=" + compressionMinSize
+                + ", compressionLevel=" + compressionLevel
+                + ", compressionMimeTypes=" + compressionMimeTypes
+                + ", compressionExcludedMimeTypes=" + compressionExcludedMimeTypes
+                + ", http2Enabled=" + http2Enabled
+                + ", http2MaxConcurrentStreams=" + http2MaxConcurrentStreams
+                + ", http2HeaderTableSize=" + http2HeaderTableSize
+                + ", http2InitialWindowSize=" + http2InitialWindowSize
+                + ", http2MaxFrameSize=" + http2MaxFrameSize
                 + ", connectionOptions=" + connectionOptions
                 + ", logExchangeDump=" + logExchangeDump
                 + ", ansiConsole=" + ansiConsole
@@ -741,6 +844,44 @@ public class Configuration {
         return Collections.unmodifiableList(traceHeaders);
     }
 
+    /**
+     * @return true if the requests are logged by a background thread
+     */
+    public boolean isRequestsLogAsync() {
+        return requestsLogAsync;
+    }
+
+    /**
+     * @return the fraction of requests to log, from 0 to 1
+     */
+    public double getRequestsLogSampleRate() {
+        return requestsLogSampleRate;
+    }
+
+    /**
+     * @return true if the time spent by each stage of the pipelines is
+     * recorded
+     */
+    public boolean isStageTimingsEnabled() {
+        return stageTimingsEnabled;
+    }
+
+    /**
+     * @return true if the stage timings are sent in the Server-Timing
+     * response header
+     */
+    public boolean isStageTimingsServerTimingHeader() {
+        return stageTimingsServerTimingHeader;
+    }
+
+    /**
+     * @return true if the latency, status classes, in-flight requests and
+     * bytes of every pipeline are recorded in the default metrics registry
+     */
+    public boolean isPipelineMetricsEnabled() {
+        return pipelineMetricsEnabled;
+    }
+
     /**
      * @return the ioThreads
      */
@@ -755,6 +896,36 @@ public class Configuration {
         return workerThreads;
     }
 
+    /**
+     * @return the workerExecutor: default, virtual-threads or the class name
+     * of a java.util.concurrent.Executor
+     */
+    public String getWorkerExecutor() {
+        return workerExecutor;
+    }
+
+    /**
+     * @return the number of threads executing the async interceptors
+     */
+    public int getAsyncInterceptorsThreads() {
+        return asyncInterceptorsThreads;
+    }
+
+    /**
+     * @return the size of the queue of the async interceptors
+     */
+    public int getAsyncInterceptorsQueueSize() {
+        return asyncInterceptorsQueueSize;
+    }
+
+    /**
+     * @return the overflow policy of the async interceptors queue: drop,
+     * caller-runs or block
+     */
+    public String getAsyncInterceptorsOverflow() {
+        return asyncInterceptorsOverflow;
+    }
+
     /**
      * @return the bufferSize
      */
@@ -811,6 +982,29 @@ public class Configuration {
         return requestsLimit;
     }
 
+    /**
+     * @return true if the limit of concurrent requests adapts to the latency,
+     * in the range [requestsLimitMin, requestsLimit]
+     */
+    public boolean isRequestsLimitAdaptive() {
+        return requestsLimitAdaptive;
+    }
+
+    /**
+     * @return the minimum limit of concurrent requests when adaptive
+     */
+    public int getRequestsLimitMin() {
+        return requestsLimitMin;
+    }
+
+    /**
+     * @return the Retry-After seconds of requests rejected by the adaptive
+     * limiter
+     */
+    public int getRequestsLimitRetryAfter() {
+        return requestsLimitRetryAfter;
+    }
+
     /**
      * @return the tokenManagers
      */
@@ -826,6 +1020,69 @@ public class Configuration {
         return logExchangeDump;
     }
 
+    /**
+     * @return the minimum size of the responses to compress
+     */
+    public int getCompressionMinSize() {
+        return compressionMinSize;
+    }
+
+    /**
+     * @return the deflate level, -1 for the default
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * @return the content types to compress, empty for all
+     */
+    public List<String> getCompressionMimeTypes() {
+        return Collections.unmodifiableList(compressionMimeTypes);
+    }
+
+    /**
+     * @return the content types not to compress
+     */
+    public List<String> getCompressionExcludedMimeTypes() {
+        return Collections.unmodifiableList(compressionExcludedMimeTypes);
+    }
+
+    /**
+     * @return true if HTTP/2 is enabled
+     */
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    /**
+     * @return the http2MaxConcurrentStreams, -1 to use the undertow default
+     */
+    public int getHttp2MaxConcurrentStreams() {
+        return http2MaxConcurrentStreams;
+    }
+
+    /**
+     * @return the http2HeaderTableSize, -1 to use the undertow default
+     */
+    public int getHttp2HeaderTableSize() {
+        return http2HeaderTableSize;
+    }
+
+    /**
+     * @return the http2InitialWindowSize, -1 to use the undertow default
+     */
+    public int getHttp2InitialWindowSize() {
+        return http2InitialWindowSize;
+    }
+
+    /**
+     * @return the http2MaxFrameSize, -1 to use the undertow default
+     */
+    public int getHttp2MaxFrameSize() {
+        return http2MaxFrameSize;
+    }
+
     /**
      * @return the connectionOptions
      */
@@ -1120,4 +1377,14 @@ public class Configuration {
         return getOrDefault(conf, key, defaultValue);
     }
 
+    private Double getAsDouble(final Map<String, Object> conf, final String key, final Double defaultValue) {
+        String envValue = overriddenValueFromEnv(key);
+        if (envValue != null) {
+            return Double.valueOf(envValue);
+        }
+        // yaml parses 1 as an Integer
+        Object value = getOrDefault(conf, key, (Object) defaultValue);
+        return value instanceof Number ? ((Number) value).doubleValue() : defaultValue;
+    }
+
 }
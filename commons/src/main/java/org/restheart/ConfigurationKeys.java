@@ -123,11 +123,56 @@ public interface ConfigurationKeys {
      */
     public static final String REQUESTS_LOG_TRACE_HEADERS_KEY = "requests-log-trace-headers";
 
+    /**
+     * the key for the requests-log-async property.
+     */
+    public static final String REQUESTS_LOG_ASYNC_KEY = "requests-log-async";
+
+    /**
+     * the key for the requests-log-sample-rate property.
+     */
+    public static final String REQUESTS_LOG_SAMPLE_RATE_KEY = "requests-log-sample-rate";
+
+    /**
+     * the key for the stage-timings-enabled property.
+     */
+    public static final String STAGE_TIMINGS_ENABLED_KEY = "stage-timings-enabled";
+
+    /**
+     * the key for the stage-timings-server-timing-header property.
+     */
+    public static final String STAGE_TIMINGS_SERVER_TIMING_HEADER_KEY = "stage-timings-server-timing-header";
+
+    /**
+     * the key for the pipeline-metrics-enabled property.
+     */
+    public static final String PIPELINE_METRICS_ENABLED_KEY = "pipeline-metrics-enabled";
+
     /**
      * the key for the force-gzip-encoding property.
      */
     public static final String FORCE_GZIP_ENCODING_KEY = "force-gzip-encoding";
 
+    /**
+     * the key for the compression-min-size property.
+     */
+    public static final String COMPRESSION_MIN_SIZE_KEY = "compression-min-size";
+
+    /**
+     * the key for the compression-level property.
+     */
+    public static final String COMPRESSION_LEVEL_KEY = "compression-level";
+
+    /**
+     * the key for the compression-mime-types property.
+     */
+    public static final String COMPRESSION_MIME_TYPES_KEY = "compression-mime-types";
+
+    /**
+     * the key for the compression-excluded-mime-types property.
+     */
+    public static final String COMPRESSION_EXCLUDED_MIME_TYPES_KEY = "compression-excluded-mime-types";
+
     /**
      * the key for the direct-buffers property.
      */
@@ -143,6 +188,54 @@ public interface ConfigurationKeys {
      */
     public static final String WORKER_THREADS_KEY = "worker-threads";
 
+    /**
+     * the key for the worker-executor property.
+     */
+    public static final String WORKER_EXECUTOR_KEY = "worker-executor";
+
+    /**
+     * worker-executor value to use the undertow worker thread pool
+     */
+    public static final String WORKER_EXECUTOR_DEFAULT = "default";
+
+    /**
+     * worker-executor value to use a virtual thread per request
+     */
+    public static final String WORKER_EXECUTOR_VIRTUAL_THREADS = "virtual-threads";
+
+    /**
+     * the key for the async-interceptors-threads property.
+     */
+    public static final String ASYNC_INTERCEPTORS_THREADS_KEY = "async-interceptors-threads";
+
+    /**
+     * the key for the async-interceptors-queue-size property.
+     */
+    public static final String ASYNC_INTERCEPTORS_QUEUE_SIZE_KEY = "async-interceptors-queue-size";
+
+    /**
+     * the key for the async-interceptors-overflow property.
+     */
+    public static final String ASYNC_INTERCEPTORS_OVERFLOW_KEY = "async-interceptors-overflow";
+
+    /**
+     * async-interceptors-overflow value to discard the task when the queue is
+     * full
+     */
+    public static final String ASYNC_INTERCEPTORS_OVERFLOW_DROP = "drop";
+
+    /**
+     * async-interceptors-overflow value to execute the task in the calling
+     * thread when the queue is full
+     */
+    public static final String ASYNC_INTERCEPTORS_OVERFLOW_CALLER_RUNS = "caller-runs";
+
+    /**
+     * async-interceptors-overflow value to wait for room in the queue when it
+     * is full
+     */
+    public static final String ASYNC_INTERCEPTORS_OVERFLOW_BLOCK = "block";
+
     /**
      * the key for the io-threads property.
      */
@@ -153,6 +246,21 @@ public interface ConfigurationKeys {
      */
     public static final String REQUESTS_LIMIT_KEY = "requests-limit";
 
+    /**
+     * the key for the requests-limit-adaptive property.
+     */
+    public static final String REQUESTS_LIMIT_ADAPTIVE_KEY = "requests-limit-adaptive";
+
+    /**
+     * the key for the requests-limit-min property.
+     */
+    public static final String REQUESTS_LIMIT_MIN_KEY = "requests-limit-min";
+
+    /**
+     * the key for the requests-limit-retry-after property.
+     */
+    public static final String REQUESTS_LIMIT_RETRY_AFTER_KEY = "requests-limit-retry-after";
+
     /**
      * the key for the enable-log-file property.
      */
@@ -243,6 +351,48 @@ public interface ConfigurationKeys {
      */
     public static final String PROXY_PROBLEM_SERVER_RETRY = "problem-server-retry";
 
+    /**
+     * the key for the cache property of proxies.
+     */
+    public static final String PROXY_CACHE_KEY = "cache";
+
+    /**
+     * the key for the cache-size property of proxies.
+     */
+    public static final String PROXY_CACHE_SIZE_KEY = "cache-size";
+
+    /**
+     * the key for the cache-max-entry-size property of proxies.
+     */
+    public static final String PROXY_CACHE_MAX_ENTRY_SIZE_KEY = "cache-max-entry-size";
+
+    /**
+     * the key for the load-balancing property of proxies.
+     */
+    public static final String PROXY_LOAD_BALANCING_KEY = "load-balancing";
+
+    /**
+     * the key for the health-check-path property of proxies.
+     */
+    public static final String PROXY_HEALTH_CHECK_PATH_KEY = "health-check-path";
+
+    /**
+     * the key for the health-check-interval property of proxies.
+     */
+    public static final String PROXY_HEALTH_CHECK_INTERVAL_KEY = "health-check-interval";
+
+    /**
+     * the key for the concurrency-limit property of services, proxies and
+     * static resources mounts
+     */
+    public static final String PIPELINE_CONCURRENCY_LIMIT_KEY = "concurrency-limit";
+
+    /**
+     * the key for the concurrency-queue-size property of services, proxies
+     * and static resources mounts
+     */
+    public static final String PIPELINE_CONCURRENCY_QUEUE_SIZE_KEY = "concurrency-queue-size";
+
     /**
      * the key for the static-resources-mounts property.
      */
@@ -268,6 +418,21 @@ public interface ConfigurationKeys {
      */
     public static final String STATIC_RESOURCES_MOUNT_EMBEDDED_KEY = "embedded";
 
+    /**
+     * the key for the cache property of static resources mounts.
+     */
+    public static final String STATIC_RESOURCES_MOUNT_CACHE_KEY = "cache";
+
+    /**
+     * the key for the cache-size property of static resources mounts.
+     */
+    public static final String STATIC_RESOURCES_MOUNT_CACHE_SIZE_KEY = "cache-size";
+
+    /**
+     * the key for the compress property of static resources mounts.
+     */
+    public static final String STATIC_RESOURCES_MOUNT_COMPRESS_KEY = "compress";
+
     /**
      * the key for the pluging-args property.
      */
@@ -373,6 +538,31 @@ public interface ConfigurationKeys {
      */
     public static final String PLUGIN_ENABLED_KEY = "enabled";
 
+    /**
+     * the key for the http2-enabled property.
+     */
+    public static final String HTTP2_ENABLED_KEY = "http2-enabled";
+
+    /**
+     * the key for the http2-max-concurrent-streams property.
+     */
+    public static final String HTTP2_MAX_CONCURRENT_STREAMS_KEY = "http2-max-concurrent-streams";
+
+    /**
+     * the key for the http2-header-table-size property.
+     */
+    public static final String HTTP2_HEADER_TABLE_SIZE_KEY = "http2-header-table-size";
+
+    /**
+     * the key for the http2-initial-window-size property.
+     */
+    public static final String HTTP2_INITIAL_WINDOW_SIZE_KEY = "http2-initial-window-size";
+
+    /**
+     * the key for the http2-max-frame-size property.
+     */
+    public static final String HTTP2_MAX_FRAME_SIZE_KEY = "http2-max-frame-size";
+
     /**
      * undertow connetction options
      *
@@ -21,6 +21,8 @@ package org.restheart.exchange;
 
 import io.undertow.connector.PooledByteBuffer;
 import java.io.IOException;
+import java.io.InputStream;
+import org.restheart.utils.BuffersUtils;
 
 /**
  *
@@ -40,6 +42,25 @@ public interface BufferedExchange<T> {
      */
     public abstract T readContent() throws IOException;
 
+    /**
+     * reads data from the buffer without copying it
+     *
+     * @return an InputStream over the buffered content
+     * @throws IOException
+     */
+    public default InputStream readContentAsStream() throws IOException {
+        return BuffersUtils.toInputStream(getBuffer());
+    }
+
+    /**
+     * @return the size in bytes of the buffered content
+     */
+    public default int getBufferedContentSize() {
+        return isContentAvailable()
+                ? BuffersUtils.remaining(getBuffer())
+                : 0;
+    }
+
     /**
      * writes data the buffer from T 
      * 
@@ -27,6 +27,7 @@ import io.undertow.connector.PooledByteBuffer;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.Headers;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import static org.restheart.exchange.Exchange.LOGGER;
@@ -65,7 +66,9 @@ public class JsonProxyRequest extends ProxyRequest<JsonElement> {
             return JsonNull.INSTANCE;
         } else {
             try {
-                return JsonParser.parseString(BuffersUtils.toString(getBuffer(),
+                // parse the buffered content without copying it
+                return JsonParser.parseReader(new InputStreamReader(
+                        readContentAsStream(),
                         StandardCharsets.UTF_8));
             } catch (JsonParseException ex) {
                 // dump bufferd content
@@ -29,6 +29,7 @@ import com.google.gson.JsonPrimitive;
 import io.undertow.connector.PooledByteBuffer;
 import io.undertow.server.HttpServerExchange;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.nio.ByteBuffer;
@@ -68,11 +69,10 @@ public class JsonProxyResponse extends ProxyResponse<JsonElement> {
             return JsonNull.INSTANCE;
         } else {
             try {
-                String rawContentAsString = BuffersUtils.toString(
-                        getBuffer(),
-                        StandardCharsets.UTF_8);
-
-                return JsonParser.parseString(rawContentAsString);
+                // parse the buffered content without copying it
+                return JsonParser.parseReader(new InputStreamReader(
+                        readContentAsStream(),
+                        StandardCharsets.UTF_8));
             } catch (JsonParseException ex) {
                 throw new IOException("Error parsing json", ex);
             }
@@ -36,6 +36,9 @@ import java.lang.reflect.Field;
  * @param <T>
  */
 public abstract class ProxyRequest<T> extends Request<T> implements BufferedExchange<T> {
+    // HttpServerExchange.BUFFERED_REQUEST_DATA, looked up once
+    private static volatile AttachmentKey<PooledByteBuffer[]> RAW_CONTENT_KEY = null;
+
     public ProxyRequest(HttpServerExchange exchange) {
         super(exchange);
     }
@@ -48,6 +51,10 @@ public abstract class ProxyRequest<T> extends Request<T> implements BufferedExch
     
     @SuppressWarnings("unchecked")
     protected AttachmentKey<PooledByteBuffer[]> getRawContentKey() {
+        if (RAW_CONTENT_KEY != null) {
+            return RAW_CONTENT_KEY;
+        }
+
         Field f;
 
         try {
@@ -58,7 +65,8 @@ public abstract class ProxyRequest<T> extends Request<T> implements BufferedExch
         }
 
         try {
-            return (AttachmentKey<PooledByteBuffer[]>) f.get(getWrappedExchange());
+            RAW_CONTENT_KEY = (AttachmentKey<PooledByteBuffer[]>) f.get(getWrappedExchange());
+            return RAW_CONTENT_KEY;
         } catch (IllegalArgumentException | IllegalAccessException ex) {
             throw new RuntimeException("could not access BUFFERED_REQUEST_DATA field", ex);
         }
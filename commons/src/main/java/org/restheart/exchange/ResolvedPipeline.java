@@ -0,0 +1,176 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2020 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.exchange;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import org.restheart.plugins.InterceptPoint;
+import org.restheart.plugins.Service;
+import org.restheart.utils.PluginUtils;
+
+/**
+ * Binds the PipelineInfo of a plugged pipeline to the Service that handles its
+ * requests, together with the request and response types and the dontIntercept
+ * intercept points of the Service.
+ *
+ * It is computed once when the pipeline is plugged and attached to the exchange
+ * by PipelineInfoInjector, so that the handling service can be retrieved
+ * without looking it up in the plugins registry.
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class ResolvedPipeline {
+    private static final AttachmentKey<ResolvedPipeline> RESOLVED_PIPELINE_KEY
+            = AttachmentKey.create(ResolvedPipeline.class);
+
+    private final PipelineInfo pipelineInfo;
+    private final Service<?, ?> handlingService;
+    private final Type requestType;
+    private final Type responseType;
+    private final Set<InterceptPoint> dontIntercept;
+    private final boolean blocking;
+
+    /**
+     * @param pipelineInfo the PipelineInfo of the pipeline
+     * @param handlingService the service handling the requests, or null if
+     * the pipeline does not involve a service (e.g. a proxy)
+     */
+    public ResolvedPipeline(PipelineInfo pipelineInfo,
+            Service<?, ?> handlingService) {
+        this(pipelineInfo, handlingService, true);
+    }
+
+    /**
+     * @param pipelineInfo the PipelineInfo of the pipeline
+     * @param handlingService the service handling the requests, or null if
+     * the pipeline does not involve a service (e.g. a proxy)
+     * @param blocking false if the pipeline can handle requests in the IO
+     * thread
+     */
+    public ResolvedPipeline(PipelineInfo pipelineInfo,
+            Service<?, ?> handlingService,
+            boolean blocking) {
+        Objects.requireNonNull(pipelineInfo,
+                "argument 'pipelineInfo' cannot be null");
+
+        this.pipelineInfo = pipelineInfo;
+        this.handlingService = handlingService;
+        this.blocking = blocking;
+
+        if (handlingService == null) {
+            this.requestType = ByteArrayProxyRequest.type();
+            this.responseType = ByteArrayProxyResponse.type();
+            this.dontIntercept = Collections.emptySet();
+        } else {
+            this.requestType = PluginUtils.cachedRequestType(handlingService);
+            this.responseType = PluginUtils.cachedResponseType(handlingService);
+
+            var vip = EnumSet.noneOf(InterceptPoint.class);
+            Collections.addAll(vip, PluginUtils.dontIntercept(handlingService));
+            this.dontIntercept = Collections.unmodifiableSet(vip);
+        }
+    }
+
+    /**
+     * @param exchange
+     * @return the ResolvedPipeline attached to the exchange or null if the
+     * request is not handled by a plugged pipeline
+     */
+    public static ResolvedPipeline of(HttpServerExchange exchange) {
+        return exchange.getAttachment(RESOLVED_PIPELINE_KEY);
+    }
+
+    /**
+     * @param exchange
+     * @param resolvedPipeline the ResolvedPipeline to attach to the exchange
+     */
+    public static void attach(HttpServerExchange exchange,
+            ResolvedPipeline resolvedPipeline) {
+        exchange.putAttachment(RESOLVED_PIPELINE_KEY, resolvedPipeline);
+    }
+
+    @Override
+    public String toString() {
+        return "ResolvedPipeline(pipelineInfo: " + getPipelineInfo()
+                + ", handlingService: " + (handlingService == null
+                ? null
+                : handlingService.getClass().getSimpleName()) + ")";
+    }
+
+    /**
+     * @return the pipelineInfo
+     */
+    public PipelineInfo getPipelineInfo() {
+        return pipelineInfo;
+    }
+
+    /**
+     * @return the service handling the requests or null if the pipeline does
+     * not involve a service
+     */
+    public Service<?, ?> getHandlingService() {
+        return handlingService;
+    }
+
+    /**
+     * @return the request type of the handling service or
+     * ByteArrayProxyRequest type if the pipeline does not involve a service
+     */
+    public Type getRequestType() {
+        return requestType;
+    }
+
+    /**
+     * @return the response type of the handling service or
+     * ByteArrayProxyResponse type if the pipeline does not involve a service
+     */
+    public Type getResponseType() {
+        return responseType;
+    }
+
+    /**
+     * @return the intercept points of interceptors that must not be executed
+     * on requests handled by the pipeline
+     */
+    public Set<InterceptPoint> getDontIntercept() {
+        return dontIntercept;
+    }
+
+    /**
+     * @param interceptPoint
+     * @return true if interceptors at interceptPoint must not be executed on
+     * requests handled by the pipeline
+     */
+    public boolean dontIntercept(InterceptPoint interceptPoint) {
+        return dontIntercept.contains(interceptPoint);
+    }
+
+    /**
+     * @return false if the pipeline can handle requests in the IO thread
+     */
+    public boolean isBlocking() {
+        return blocking;
+    }
+}
@@ -0,0 +1,482 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2020 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.predicate.Predicate;
+import io.undertow.server.ConduitWrapper;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.encoding.ContentEncodingProvider;
+import io.undertow.server.handlers.encoding.ContentEncodingRepository;
+import io.undertow.server.handlers.encoding.DeflateEncodingProvider;
+import io.undertow.server.handlers.encoding.GzipEncodingProvider;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.ConduitFactory;
+import io.undertow.util.Headers;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import org.restheart.Configuration;
+import org.xnio.IoUtils;
+import org.xnio.channels.StreamSourceChannel;
+import org.xnio.conduits.AbstractStreamSinkConduit;
+import org.xnio.conduits.ConduitWritableByteChannel;
+import org.xnio.conduits.StreamSinkConduit;
+
+/**
+ * Defines which responses are compressed and how.
+ *
+ * A response is compressed if its size is unknown or at least minSize bytes,
+ * its content type is not excluded and, if mimeTypes is not empty, is one of
+ * mimeTypes. Entries of mimeTypes and excludedMimeTypes can end with a
+ * wildcard, e.g. image/*
+ *
+ * Handlers can bypass the compression of a response with bypass(exchange),
+ * e.g. to send binary content as is.
+ *
+ * It also counts the bytes before and after compression and the time spent
+ * compressing, i.e. in the compressing conduit excluding the writes of the
+ * compressed bytes to the next conduits and the socket.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class CompressionPolicy implements Predicate {
+
+    /**
+     * the content types that are already compressed
+     */
+    public static final List<String> DEFAULT_EXCLUDED_MIME_TYPES = List.of(
+            "image/png",
+            "image/jpeg",
+            "image/gif",
+            "image/webp",
+            "video/*",
+            "audio/*",
+            "font/woff",
+            "font/woff2",
+            "application/zip",
+            "application/gzip",
+            "application/x-gzip",
+            "application/x-bzip2",
+            "application/x-7z-compressed",
+            "application/x-rar-compressed");
+
+    public static final int DEFAULT_MIN_SIZE = 1024;
+
+    private static final AttachmentKey<Boolean> BYPASS_KEY
+            = AttachmentKey.create(Boolean.class);
+
+    private final long minSize;
+    private final int level;
+    private final List<String> mimeTypes;
+    private final List<String> excludedMimeTypes;
+
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder compressionNanos = new LongAdder();
+
+    /**
+     *
+     * @param minSize responses smaller than minSize bytes are not compressed
+     * @param level the deflate level, -1 for the default
+     * @param mimeTypes the content types to compress, empty for all
+     * @param excludedMimeTypes the content types not to compress
+     */
+    public CompressionPolicy(long minSize, int level, List<String> mimeTypes,
+            List<String> excludedMimeTypes) {
+        this.minSize = minSize;
+        this.level = level;
+        this.mimeTypes = normalize(mimeTypes);
+        this.excludedMimeTypes = normalize(excludedMimeTypes);
+    }
+
+    /**
+     * @return the default policy
+     */
+    public static CompressionPolicy defaultPolicy() {
+        return new CompressionPolicy(DEFAULT_MIN_SIZE, -1,
+                Collections.emptyList(),
+                DEFAULT_EXCLUDED_MIME_TYPES);
+    }
+
+    /**
+     *
+     * @param conf
+     * @return the policy defined by the configuration
+     */
+    public static CompressionPolicy of(Configuration conf) {
+        return new CompressionPolicy(conf.getCompressionMinSize(),
+                conf.getCompressionLevel(),
+                conf.getCompressionMimeTypes(),
+                conf.getCompressionExcludedMimeTypes());
+    }
+
+    /**
+     * the response of the exchange will not be compressed
+     *
+     * @param exchange
+     */
+    public static void bypass(HttpServerExchange exchange) {
+        exchange.putAttachment(BYPASS_KEY, true);
+    }
+
+    private static List<String> normalize(List<String> mimeTypes) {
+        return mimeTypes == null
+                ? Collections.emptyList()
+                : mimeTypes.stream()
+                        .map(mt -> mt.trim().toLowerCase(Locale.ROOT))
+                        .collect(Collectors.toUnmodifiableList());
+    }
+
+    /**
+     * resolved when the response starts, i.e. when its headers are set
+     *
+     * @param exchange
+     * @return true if the response must be compressed
+     */
+    @Override
+    public boolean resolve(HttpServerExchange exchange) {
+        if (exchange.getAttachment(BYPASS_KEY) != null) {
+            return false;
+        }
+
+        var length = exchange.getResponseContentLength();
+
+        if (length >= 0 && length < minSize) {
+            return false;
+        }
+
+        var contentType = exchange.getResponseHeaders()
+                .getFirst(Headers.CONTENT_TYPE);
+
+        if (contentType == null) {
+            return mimeTypes.isEmpty();
+        }
+
+        var sc = contentType.indexOf(';');
+
+        var mimeType = (sc < 0 ? contentType : contentType.substring(0, sc))
+                .trim()
+                .toLowerCase(Locale.ROOT);
+
+        if (matches(excludedMimeTypes, mimeType)) {
+            return false;
+        }
+
+        return mimeTypes.isEmpty() || matches(mimeTypes, mimeType);
+    }
+
+    private static boolean matches(List<String> mimeTypes, String mimeType) {
+        for (var mt : mimeTypes) {
+            if (mt.endsWith("/*")
+                    ? mimeType.startsWith(mt.substring(0, mt.length() - 1))
+                    : mimeType.equals(mt)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     *
+     * @param deflate true to also support the deflate encoding
+     * @return the ContentEncodingRepository applying this policy
+     */
+    public ContentEncodingRepository repository(boolean deflate) {
+        var ret = new ContentEncodingRepository()
+                .addEncodingHandler("gzip",
+                        new MeteredEncodingProvider(new GzipEncodingProvider(level)),
+                        60,
+                        this);
+
+        if (deflate) {
+            ret.addEncodingHandler("deflate",
+                    new MeteredEncodingProvider(new DeflateEncodingProvider(level)),
+                    50,
+                    this);
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return the number of bytes of the responses before compression
+     */
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    /**
+     * @return the number of bytes of the responses after compression
+     */
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * @return the number of bytes saved by compression
+     */
+    public long getBytesSaved() {
+        return getBytesIn() - getBytesOut();
+    }
+
+    /**
+     * @return the time spent compressing, in nanoseconds, excluding the time
+     * spent writing the compressed bytes
+     */
+    public long getCompressionNanos() {
+        return compressionNanos.sum();
+    }
+
+    private class MeteredEncodingProvider implements ContentEncodingProvider {
+
+        private final ContentEncodingProvider wrapped;
+
+        MeteredEncodingProvider(ContentEncodingProvider wrapped) {
+            this.wrapped = wrapped;
+        }
+
+        @Override
+        public ConduitWrapper<StreamSinkConduit> getResponseWrapper() {
+            var wrapper = wrapped.getResponseWrapper();
+
+            return (ConduitFactory<StreamSinkConduit> factory,
+                    HttpServerExchange exchange) -> {
+                ConduitFactory<StreamSinkConduit> counting
+                        = () -> new CountingConduit(factory.create());
+
+                return new TimingConduit(wrapper.wrap(counting, exchange));
+            };
+        }
+    }
+
+    /**
+     * counts the bytes written after compression; the time spent writing them
+     * is subtracted from the compression time measured by TimingConduit, that
+     * includes it
+     */
+    private class CountingConduit
+            extends AbstractStreamSinkConduit<StreamSinkConduit> {
+
+        CountingConduit(StreamSinkConduit next) {
+            super(next);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            var start = System.nanoTime();
+
+            try {
+                return count(next.write(src));
+            } finally {
+                compressionNanos.add(start - System.nanoTime());
+            }
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offs, int len)
+                throws IOException {
+            var start = System.nanoTime();
+
+            try {
+                return count(next.write(srcs, offs, len));
+            } finally {
+                compressionNanos.add(start - System.nanoTime());
+            }
+        }
+
+        @Override
+        public int writeFinal(ByteBuffer src) throws IOException {
+            var start = System.nanoTime();
+
+            try {
+                return count(next.writeFinal(src));
+            } finally {
+                compressionNanos.add(start - System.nanoTime());
+            }
+        }
+
+        @Override
+        public long writeFinal(ByteBuffer[] srcs, int offs, int len)
+                throws IOException {
+            var start = System.nanoTime();
+
+            try {
+                return count(next.writeFinal(srcs, offs, len));
+            } finally {
+                compressionNanos.add(start - System.nanoTime());
+            }
+        }
+
+        @Override
+        public boolean flush() throws IOException {
+            var start = System.nanoTime();
+
+            try {
+                return next.flush();
+            } finally {
+                compressionNanos.add(start - System.nanoTime());
+            }
+        }
+
+        @Override
+        public void terminateWrites() throws IOException {
+            var start = System.nanoTime();
+
+            try {
+                next.terminateWrites();
+            } finally {
+                compressionNanos.add(start - System.nanoTime());
+            }
+        }
+
+        private int count(int written) {
+            if (written > 0) {
+                bytesOut.add(written);
+            }
+
+            return written;
+        }
+
+        private long count(long written) {
+            if (written > 0) {
+                bytesOut.add(written);
+            }
+
+            return written;
+        }
+    }
+
+    /**
+     * counts the bytes written before compression and the time spent in the
+     * compressing conduit and in the ones after it
+     */
+    private class TimingConduit
+            extends AbstractStreamSinkConduit<StreamSinkConduit> {
+
+        TimingConduit(StreamSinkConduit next) {
+            super(next);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            var start = System.nanoTime();
+
+            try {
+                return count(next.write(src));
+            } finally {
+                compressionNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offs, int len)
+                throws IOException {
+            var start = System.nanoTime();
+
+            try {
+                return count(next.write(srcs, offs, len));
+            } finally {
+                compressionNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public int writeFinal(ByteBuffer src) throws IOException {
+            var start = System.nanoTime();
+
+            try {
+                return count(next.writeFinal(src));
+            } finally {
+                compressionNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public long writeFinal(ByteBuffer[] srcs, int offs, int len)
+                throws IOException {
+            var start = System.nanoTime();
+
+            try {
+                return count(next.writeFinal(srcs, offs, len));
+            } finally {
+                compressionNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public long transferFrom(FileChannel src, long position, long count)
+                throws IOException {
+            // goes through write() to be counted
+            return src.transferTo(position, count,
+                    new ConduitWritableByteChannel(this));
+        }
+
+        @Override
+        public long transferFrom(StreamSourceChannel source, long count,
+                ByteBuffer throughBuffer) throws IOException {
+            return IoUtils.transfer(source, count, throughBuffer,
+                    new ConduitWritableByteChannel(this));
+        }
+
+        @Override
+        public boolean flush() throws IOException {
+            var start = System.nanoTime();
+
+            try {
+                return next.flush();
+            } finally {
+                compressionNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void terminateWrites() throws IOException {
+            var start = System.nanoTime();
+
+            try {
+                next.terminateWrites();
+            } finally {
+                compressionNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        private int count(int written) {
+            if (written > 0) {
+                bytesIn.add(written);
+            }
+
+            return written;
+        }
+
+        private long count(long written) {
+            if (written > 0) {
+                bytesIn.add(written);
+            }
+
+            return written;
+        }
+    }
+}
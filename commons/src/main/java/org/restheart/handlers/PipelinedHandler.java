@@ -75,10 +75,22 @@ public abstract class PipelinedHandler implements HttpHandler {
 
     protected void next(HttpServerExchange exchange) throws Exception {
         if (this.next != null) {
-            this.next.handleRequest(exchange);
+            if (StageTimings.isEnabled()) {
+                StageTimings.time(this.next, exchange);
+            } else {
+                this.next.handleRequest(exchange);
+            }
         }
     }
 
+    /**
+     * @return the name of this handler in the stage timings, must be a valid
+     * HTTP token to be used in the Server-Timing header
+     */
+    protected String getStageName() {
+        return getClass().getSimpleName();
+    }
+
     /**
      * pipes multiple PipelinedHandler in a pipeline
      *
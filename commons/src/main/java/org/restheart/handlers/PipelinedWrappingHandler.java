@@ -108,6 +108,13 @@ public class PipelinedWrappingHandler extends PipelinedHandler {
         return new PipelinedWrappingHandler(next, service);
     }
 
+    @Override
+    protected String getStageName() {
+        return wrapped == null
+                ? super.getStageName()
+                : StageTimings.stageName(wrapped);
+    }
+
     /**
      *
      * @param exchange
@@ -118,7 +125,11 @@ public class PipelinedWrappingHandler extends PipelinedHandler {
         if (wrapped == null) {
             next(exchange);
         } else {
-            wrapped.handleRequest(exchange);
+            if (StageTimings.isEnabled()) {
+                StageTimings.time(wrapped, getStageName(), exchange);
+            } else {
+                wrapped.handleRequest(exchange);
+            }
 
             if (!exchange.isResponseComplete()) {
                 next(exchange);
@@ -134,6 +145,11 @@ class ServiceWrapper<R extends ServiceRequest<?>, S extends ServiceResponse<?>>
         this.service = service;
     }
 
+    @Override
+    protected String getStageName() {
+        return service.getClass().getSimpleName();
+    }
+
     @Override
     public void handleRequest(HttpServerExchange exchange) throws Exception {
         service.handle(service.request().apply(exchange),
@@ -0,0 +1,80 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2020 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The execution of an authentication mechanism and its outcome.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@Name(AuthMechanismEvent.NAME)
+@Label("Authentication Mechanism")
+@Category({"RESTHeart", "Security"})
+@Description("The execution of an authentication mechanism")
+@StackTrace(false)
+public class AuthMechanismEvent extends Event {
+
+    public static final String NAME = "org.restheart.AuthMechanism";
+
+    @Label("Mechanism")
+    private String mechanism;
+
+    @Label("Outcome")
+    @Description("AUTHENTICATED, NOT_ATTEMPTED or NOT_AUTHENTICATED")
+    private String outcome;
+
+    @Label("Path")
+    private String path;
+
+    /**
+     *
+     * @return a new event, with the start time set
+     */
+    public static AuthMechanismEvent start() {
+        var event = new AuthMechanismEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * ends the event and commits it if it must be recorded
+     *
+     * @param mechanism the name of the authentication mechanism
+     * @param outcome the outcome of the mechanism
+     * @param path the request path
+     */
+    public void end(String mechanism, String outcome, String path) {
+        end();
+
+        if (shouldCommit()) {
+            this.mechanism = mechanism;
+            this.outcome = outcome;
+            this.path = path;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2020 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A lookup in a cache, either a hit or a miss.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@Name(CacheEvent.NAME)
+@Label("Cache Lookup")
+@Category({"RESTHeart", "Caches"})
+@Description("A lookup in a cache")
+@StackTrace(false)
+public class CacheEvent extends Event {
+
+    public static final String NAME = "org.restheart.Cache";
+
+    @Label("Cache")
+    private String cache;
+
+    @Label("Hit")
+    private boolean hit;
+
+    @Label("Key")
+    private String key;
+
+    /**
+     * records a lookup, if it must be recorded
+     *
+     * @param cache the name of the cache, e.g. proxy-cache
+     * @param hit true if the value was found in the cache
+     * @param key the key looked up
+     */
+    public static void record(String cache, boolean hit, Object key) {
+        var event = new CacheEvent();
+
+        if (event.shouldCommit()) {
+            event.cache = cache;
+            event.hit = hit;
+            event.key = String.valueOf(key);
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2020 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.restheart.plugins.InterceptPoint;
+import org.restheart.plugins.Interceptor;
+import org.restheart.utils.PluginUtils;
+
+/**
+ * The execution of an interceptor.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@Name(InterceptorEvent.NAME)
+@Label("Interceptor")
+@Category({"RESTHeart", "Interceptors"})
+@Description("The execution of an interceptor")
+@StackTrace(false)
+public class InterceptorEvent extends Event {
+
+    public static final String NAME = "org.restheart.Interceptor";
+
+    @Label("Interceptor")
+    private String interceptor;
+
+    @Label("Intercept Point")
+    private String interceptPoint;
+
+    @Label("Path")
+    private String path;
+
+    @Label("Failed")
+    @Description("True if the interceptor threw an exception")
+    private boolean failed;
+
+    /**
+     *
+     * @return a new event, with the start time set
+     */
+    public static InterceptorEvent start() {
+        var event = new InterceptorEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * ends the event and commits it if it must be recorded
+     *
+     * @param interceptor
+     * @param interceptPoint
+     * @param path the request path
+     * @param failed true if the interceptor threw an exception
+     */
+    public void end(Interceptor<?, ?> interceptor,
+            InterceptPoint interceptPoint,
+            String path,
+            boolean failed) {
+        end();
+
+        if (shouldCommit()) {
+            var name = PluginUtils.name(interceptor);
+
+            this.interceptor = name != null
+                    ? name
+                    : interceptor.getClass().getSimpleName();
+            this.interceptPoint = interceptPoint.name();
+            this.path = path;
+            this.failed = failed;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2020 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An operation of a MongoDB DAO, e.g. CollectionDAO.getCollectionData.
+ *
+ * Usage:
+ *
+ * <pre>
+ * var event = MongoDAOEvent.start("DocumentDAO.upsertDocument", db, coll);
+ *
+ * try {
+ *     ...
+ * } finally {
+ *     event.commit();
+ * }
+ * </pre>
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@Name(MongoDAOEvent.NAME)
+@Label("MongoDB DAO Operation")
+@Category({"RESTHeart", "MongoDB"})
+@Description("An operation of a MongoDB DAO")
+@StackTrace(false)
+public class MongoDAOEvent extends Event {
+
+    public static final String NAME = "org.restheart.MongoDAO";
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("Database")
+    private String db;
+
+    @Label("Collection")
+    private String collection;
+
+    /**
+     *
+     * @param operation the DAO method, e.g. DocumentDAO.upsertDocument
+     * @param db
+     * @param collection
+     * @return a new event, with the start time set
+     */
+    public static MongoDAOEvent start(String operation,
+            String db,
+            String collection) {
+        var event = new MongoDAOEvent();
+        event.operation = operation;
+        event.db = db;
+        event.collection = collection;
+        event.begin();
+        return event;
+    }
+}
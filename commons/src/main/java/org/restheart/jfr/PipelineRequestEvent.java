@@ -0,0 +1,85 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2020 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.jfr;
+
+import io.undertow.server.HttpServerExchange;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.restheart.exchange.PipelineInfo;
+
+/**
+ * A request handled by a pipeline, from when the pipeline starts handling it
+ * to the completion of the exchange.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@Name(PipelineRequestEvent.NAME)
+@Label("Pipeline Request")
+@Category({"RESTHeart", "Requests"})
+@Description("A request handled by a pipeline")
+@StackTrace(false)
+public class PipelineRequestEvent extends Event {
+
+    public static final String NAME = "org.restheart.PipelineRequest";
+
+    @Label("Pipeline")
+    private String pipeline;
+
+    @Label("Pipeline Type")
+    private String pipelineType;
+
+    @Label("Method")
+    private String method;
+
+    @Label("Path")
+    private String path;
+
+    @Label("Status")
+    private int status;
+
+    @Label("Response Bytes")
+    @DataAmount
+    private long responseBytes;
+
+    /**
+     * ends the event and commits it if it must be recorded
+     *
+     * @param info the pipeline that handled the request
+     * @param exchange the completed exchange
+     */
+    public void complete(PipelineInfo info, HttpServerExchange exchange) {
+        end();
+
+        if (shouldCommit()) {
+            this.pipeline = info.getName() != null ? info.getName() : info.getUri();
+            this.pipelineType = info.getType().name();
+            this.method = exchange.getRequestMethod().toString();
+            this.path = exchange.getRequestPath();
+            this.status = exchange.getStatusCode();
+            this.responseBytes = exchange.getResponseBytesSent();
+            commit();
+        }
+    }
+}
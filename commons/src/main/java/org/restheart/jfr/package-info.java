@@ -0,0 +1,30 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2020 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+/**
+ * Java Flight Recorder events of the request lifecycle: pipelines,
+ * interceptors, authentication mechanisms, MongoDB DAO operations and caches.
+ *
+ * The events are in the RESTHeart category and are recorded by any recording,
+ * e.g. started with -XX:StartFlightRecording or by the jfr service; when no
+ * recording is running, creating and committing them has a negligible cost.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+package org.restheart.jfr;
@@ -0,0 +1,127 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2020 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.plugins;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor that writes the index of the classes annotated with
+ * {@literal @}RegisterPlugin to META-INF/restheart/plugins.idx, one binary
+ * class name per line.
+ *
+ * The PluginsFactory loads the plugins listed in the indexes and scans for
+ * annotated classes only the jars and directories without an index.
+ *
+ * It is registered as a service, so it is executed by javac for every module
+ * that has restheart-commons in its classpath.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@SupportedAnnotationTypes("org.restheart.plugins.RegisterPlugin")
+public class PluginsIndexProcessor extends AbstractProcessor {
+
+    /**
+     * the path of the plugins index
+     */
+    public static final String INDEX = "META-INF/restheart/plugins.idx";
+
+    private final Set<String> plugins = new TreeSet<>();
+    private boolean previousIndexRead = false;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations,
+            RoundEnvironment roundEnv) {
+        if (!previousIndexRead) {
+            readPreviousIndex();
+            previousIndexRead = true;
+        }
+
+        for (var element : roundEnv.getElementsAnnotatedWith(RegisterPlugin.class)) {
+            if (element.getKind() == ElementKind.CLASS) {
+                plugins.add(processingEnv.getElementUtils()
+                        .getBinaryName((TypeElement) element).toString());
+            }
+        }
+
+        if (roundEnv.processingOver() && !plugins.isEmpty()) {
+            writeIndex();
+        }
+
+        return false;
+    }
+
+    /**
+     * keeps the plugins of the index written by a previous compilation that
+     * still exist, since an incremental compilation only processes the
+     * modified classes
+     */
+    private void readPreviousIndex() {
+        try (var reader = new BufferedReader(processingEnv.getFiler()
+                .getResource(StandardLocation.CLASS_OUTPUT, "", INDEX)
+                .openReader(true))) {
+            reader.lines()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .filter(this::isPlugin)
+                    .forEach(plugins::add);
+        } catch (IOException | IllegalArgumentException ex) {
+            // no previous index
+        }
+    }
+
+    private boolean isPlugin(String binaryName) {
+        var type = processingEnv.getElementUtils()
+                .getTypeElement(binaryName.replace('$', '.'));
+
+        return type != null && type.getAnnotation(RegisterPlugin.class) != null;
+    }
+
+    private void writeIndex() {
+        try (Writer writer = processingEnv.getFiler()
+                .createResource(StandardLocation.CLASS_OUTPUT, "", INDEX)
+                .openWriter()) {
+            for (var plugin : plugins) {
+                writer.write(plugin);
+                writer.write('\n');
+            }
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Error writing the plugins index " + INDEX + ": "
+                    + ex.getMessage());
+        }
+    }
+}
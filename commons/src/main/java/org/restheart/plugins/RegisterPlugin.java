@@ -83,6 +83,18 @@ public @interface RegisterPlugin {
      */
     InitPoint initPoint() default InitPoint.AFTER_STARTUP;
 
+    /**
+     * Only used by Initializers
+     *
+     * Set to true to declare that the Initializer can run concurrently with
+     * the other concurrent Initializers with the same initPoint and priority,
+     * i.e. it does not modify the plugins registry or other state shared with
+     * them. Other Initializers are executed one at a time.
+     *
+     * @return true if the Initializer can run concurrently
+     */
+    boolean concurrentInit() default false;
+
     /**
      * Only used by Interceptors of proxied resources (the content is always
      * available to Interceptor of Services)
@@ -103,4 +115,20 @@ public @interface RegisterPlugin {
      * execute
      */
     InterceptPoint[] dontIntercept() default {};
+
+    /**
+     * Only used by Services
+     *
+     * Set to false to declare that the Service does not block, i.e. it does
+     * not perform blocking I/O (reading the request content, querying a
+     * database, etc.). Requests to non blocking services can be handled
+     * directly by the IO thread, avoiding dispatching them to a worker thread.
+     *
+     * Requests are anyway dispatched to a worker thread when they have
+     * content, carry credentials or involve interceptors and when the service
+     * is secured.
+     *
+     * @return false if the Service does not block
+     */
+    boolean blocking() default true;
 }
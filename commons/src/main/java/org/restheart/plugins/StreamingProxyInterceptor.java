@@ -0,0 +1,86 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2020 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.plugins;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.restheart.exchange.ByteArrayProxyRequest;
+import org.restheart.exchange.ByteArrayProxyResponse;
+
+/**
+ * A ProxyInterceptor that receives the content chunk by chunk as it flows
+ * between the client and the backend, without buffering it.
+ *
+ * handle() is invoked as for other interceptors, before the content flows,
+ * and allows to inspect and modify the headers. onChunk() is then invoked for
+ * each chunk of the request content, if the interceptPoint is
+ * REQUEST_BEFORE_AUTH or REQUEST_AFTER_AUTH, or of the response content, if
+ * the interceptPoint is RESPONSE. RESPONSE_ASYNC is not supported.
+ *
+ * Streaming interceptors must not declare requiresContent, otherwise the
+ * content is buffered. onChunk() and onEnd() are invoked in the IO thread and
+ * must not block.
+ *
+ * As for interceptors requiring the content, the response from the backend is
+ * requested with Accept-Encoding: identity when a streaming interceptor at
+ * RESPONSE resolves the request.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public interface StreamingProxyInterceptor extends ProxyInterceptor {
+    /**
+     * @param request
+     * @param response
+     * @param chunk the next chunk of the content; it is only valid during the
+     * invocation. Use absolute get methods or a duplicate to inspect it
+     * without changing its position
+     * @return the chunk to forward, delimited by its position and limit:
+     * either chunk itself, possibly modified in place, or a new buffer if
+     * isTransforming() returns true
+     * @throws IOException to abort the exchange
+     */
+    public ByteBuffer onChunk(final ByteArrayProxyRequest request,
+            final ByteArrayProxyResponse response,
+            final ByteBuffer chunk) throws IOException;
+
+    /**
+     * invoked after the last chunk
+     *
+     * @param request
+     * @param response
+     * @return the data to append to the content or null; it must be null
+     * unless isTransforming() returns true
+     * @throws IOException to abort the exchange
+     */
+    default ByteBuffer onEnd(final ByteArrayProxyRequest request,
+            final ByteArrayProxyResponse response) throws IOException {
+        return null;
+    }
+
+    /**
+     * When true, the Content-Length header is removed and the content is sent
+     * with chunked transfer encoding
+     *
+     * @return true if onChunk() and onEnd() can change the size of the content
+     */
+    default boolean isTransforming() {
+        return false;
+    }
+}
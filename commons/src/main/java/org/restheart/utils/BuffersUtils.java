@@ -22,8 +22,10 @@ package org.restheart.utils;
 import io.undertow.connector.PooledByteBuffer;
 import io.undertow.server.HttpServerExchange;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import static org.restheart.exchange.Exchange.MAX_CONTENT_SIZE;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +41,43 @@ public class BuffersUtils {
             .getLogger(BuffersUtils.class);
 
     /**
+     * @param srcs
+     * @return the number of bytes available in the pooled buffers
+     */
+    public static int remaining(final PooledByteBuffer[] srcs) {
+        if (srcs == null) {
+            return 0;
+        }
+
+        int ret = 0;
+
+        for (PooledByteBuffer src : srcs) {
+            if (src != null) {
+                ret += src.getBuffer().remaining();
+            }
+        }
+
+        return ret;
+    }
+
+    private static int checkedRemaining(final PooledByteBuffer[] srcs)
+            throws IOException {
+        int ret = remaining(srcs);
+
+        if (ret > MAX_CONTENT_SIZE) {
+            LOGGER.error("Request content exceeeded {} bytes limit",
+                    MAX_CONTENT_SIZE);
+            throw new IOException("Request content exceeeded "
+                    + MAX_CONTENT_SIZE + " bytes limit");
+        }
+
+        return ret;
+    }
+
+    /**
+     * copies the content of the pooled buffers to a new ByteBuffer sized to
+     * the actual content. The pooled buffers are not modified.
+     *
      * @param srcs
      * @return
      * @throws IOException
@@ -49,39 +88,44 @@ public class BuffersUtils {
             return null;
         }
 
-        ByteBuffer dst = ByteBuffer.allocate(MAX_CONTENT_SIZE);
+        ByteBuffer dst = ByteBuffer.allocate(checkedRemaining(srcs));
 
-        for (int i = 0; i < srcs.length; i++) {
-            PooledByteBuffer src = srcs[i];
+        for (PooledByteBuffer src : srcs) {
             if (src != null) {
-                final ByteBuffer srcBuffer = src.getBuffer();
-
-                if (srcBuffer.remaining() > dst.remaining()) {
-                    LOGGER.error("Request content exceeeded {} bytes limit",
-                            MAX_CONTENT_SIZE);
-                    throw new IOException("Request content exceeeded "
-                            + MAX_CONTENT_SIZE + " bytes limit");
-                }
-
-                if (srcBuffer.hasRemaining()) {
-                    Buffers.copy(dst, srcBuffer);
-
-                    // very important, I lost a day for this!
-                    srcBuffer.flip();
-                }
+                // duplicate() leaves position and limit of src untouched
+                dst.put(src.getBuffer().duplicate());
             }
         }
 
         return dst.flip();
     }
 
+    /**
+     * copies the content of the pooled buffers to a new byte array sized to
+     * the actual content. The pooled buffers are not modified.
+     *
+     * @param srcs
+     * @return
+     * @throws IOException
+     */
     public static byte[] toByteArray(final PooledByteBuffer[] srcs)
             throws IOException {
-        ByteBuffer content = toByteBuffer(srcs);
+        if (srcs == null) {
+            return null;
+        }
 
-        byte[] ret = new byte[content.limit()];
+        byte[] ret = new byte[checkedRemaining(srcs)];
+        int offset = 0;
 
-        content.get(ret);
+        for (PooledByteBuffer src : srcs) {
+            if (src != null) {
+                // duplicate() leaves position and limit of src untouched
+                ByteBuffer _src = src.getBuffer().duplicate();
+                int length = _src.remaining();
+                _src.get(ret, offset, length);
+                offset += length;
+            }
+        }
 
         return ret;
     }
@@ -91,6 +135,15 @@ public class BuffersUtils {
         return new String(toByteArray(srcs), cs);
     }
 
+    /**
+     * @param srcs
+     * @return an InputStream that reads the content of the pooled buffers
+     * without copying it. The pooled buffers are not modified.
+     */
+    public static InputStream toInputStream(final PooledByteBuffer[] srcs) {
+        return new PooledBuffersInputStream(srcs);
+    }
+
     public static String toString(final byte[] src, Charset cs)
             throws IOException {
         return new String(src, cs);
@@ -236,4 +289,73 @@ public class BuffersUtils {
 
         return copied;
     }
+
+    /**
+     * A read-only InputStream over read-only views of pooled buffers
+     */
+    private static class PooledBuffersInputStream extends InputStream {
+        private final ByteBuffer[] views;
+        private int idx = 0;
+
+        PooledBuffersInputStream(final PooledByteBuffer[] srcs) {
+            if (srcs == null) {
+                this.views = new ByteBuffer[0];
+            } else {
+                this.views = Arrays.stream(srcs)
+                        .filter(src -> src != null)
+                        .map(src -> src.getBuffer().asReadOnlyBuffer())
+                        .toArray(ByteBuffer[]::new);
+            }
+        }
+
+        private ByteBuffer current() {
+            while (idx < views.length && !views[idx].hasRemaining()) {
+                idx++;
+            }
+
+            return idx < views.length ? views[idx] : null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var view = current();
+
+            return view == null ? -1 : view.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            var view = current();
+
+            if (view == null) {
+                return -1;
+            }
+
+            int read = 0;
+
+            while (view != null && read < len) {
+                int n = Math.min(len - read, view.remaining());
+                view.get(b, off + read, n);
+                read += n;
+                view = current();
+            }
+
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            int ret = 0;
+
+            for (int i = idx; i < views.length; i++) {
+                ret += views[i].remaining();
+            }
+
+            return ret;
+        }
+    }
 }
@@ -27,6 +27,7 @@ import org.restheart.cache.CacheFactory;
 import org.restheart.cache.LoadingCache;
 import org.restheart.exchange.ByteArrayProxyRequest;
 import org.restheart.exchange.PipelineInfo;
+import org.restheart.exchange.ResolvedPipeline;
 import static org.restheart.exchange.PipelineInfo.PIPELINE_TYPE.SERVICE;
 import org.restheart.plugins.ExchangeTypeResolver;
 import org.restheart.plugins.InitPoint;
@@ -43,6 +44,8 @@ import org.restheart.plugins.Service;
  * @author Andrea Di Cesare <andrea@softinstigate.com>
  */
 public class PluginUtils {
+    private static final InterceptPoint[] NO_INTERCEPT_POINTS = new InterceptPoint[0];
+
     public static InterceptPoint interceptPoint(Interceptor interceptor) {
         var a = interceptor.getClass()
                 .getDeclaredAnnotation(RegisterPlugin.class);
@@ -65,6 +68,20 @@ public class PluginUtils {
         }
     }
 
+    /**
+     *
+     * @param plugin
+     * @return the plugin priority
+     */
+    public static int priority(Plugin plugin) {
+        var a = plugin.getClass()
+                .getDeclaredAnnotation(RegisterPlugin.class);
+
+        return a == null
+                ? 10
+                : a.priority();
+    }
+
     public static boolean requiresContent(Interceptor interceptor) {
         var a = interceptor.getClass()
                 .getDeclaredAnnotation(RegisterPlugin.class);
@@ -155,12 +172,44 @@ public class PluginUtils {
                 .getDeclaredAnnotation(RegisterPlugin.class);
 
         if (a == null) {
-            return new InterceptPoint[0];
+            return NO_INTERCEPT_POINTS;
         } else {
             return a.dontIntercept();
         }
     }
 
+    /**
+     *
+     * @param initializer
+     * @return true if the initializer declares that it can run concurrently
+     */
+    public static boolean concurrentInit(Initializer initializer) {
+        var a = initializer.getClass()
+                .getDeclaredAnnotation(RegisterPlugin.class);
+
+        if (a == null) {
+            return false;
+        } else {
+            return a.concurrentInit();
+        }
+    }
+
+    /**
+     *
+     * @param service
+     * @return false if the service declares to not block
+     */
+    public static boolean blocking(Service service) {
+        var a = service.getClass()
+                .getDeclaredAnnotation(RegisterPlugin.class);
+
+        if (a == null) {
+            return true;
+        } else {
+            return a.blocking();
+        }
+    }
+
     /**
      *
      * @param registry
@@ -170,6 +219,14 @@ public class PluginUtils {
      */
     public static Service handlingService(PluginsRegistry registry,
             HttpServerExchange exchange) {
+        // the ResolvedPipeline attached by PipelineInfoInjector
+        // avoids looking up the service in the registry
+        var rp = ResolvedPipeline.of(exchange);
+
+        if (rp != null) {
+            return rp.getHandlingService();
+        }
+
         var pi = pipelineInfo(exchange);
 
         if (pi != null && pi.getType() == SERVICE) {
@@ -203,7 +260,7 @@ public class PluginUtils {
         var hs = handlingService(registry, exchange);
 
         return hs == null
-                ? new InterceptPoint[0]
+                ? NO_INTERCEPT_POINTS
                 : dontIntercept(hs);
     }
 
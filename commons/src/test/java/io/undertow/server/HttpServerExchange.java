@@ -22,6 +22,7 @@ package io.undertow.server;
 import io.undertow.security.api.SecurityContext;
 import io.undertow.util.AbstractAttachable;
 import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
 import io.undertow.util.HttpString;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
@@ -46,6 +47,7 @@ public class HttpServerExchange extends AbstractAttachable {
     private String relativePath;
     private HttpString requestMethod;
     private Map<String, Deque<String>> queryParameters;
+    private final HeaderMap responseHeaders = new HeaderMap();
 
     public HttpServerExchange() {
     }
@@ -153,6 +155,20 @@ public class HttpServerExchange extends AbstractAttachable {
         return null;
     }
 
+    public HeaderMap getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    public long getResponseContentLength() {
+        String length = responseHeaders.getFirst(Headers.CONTENT_LENGTH);
+        return length == null ? -1 : Long.parseLong(length);
+    }
+
+    public HttpServerExchange setResponseContentLength(long length) {
+        responseHeaders.put(Headers.CONTENT_LENGTH, length);
+        return this;
+    }
+
     public SecurityContext getSecurityContext() {
         return null;
     }
@@ -0,0 +1,93 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2020 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class CompressionPolicyTest {
+
+    private static HttpServerExchange exchange(String contentType, long length) {
+        var ret = new HttpServerExchange();
+
+        if (contentType != null) {
+            ret.getResponseHeaders().put(Headers.CONTENT_TYPE, contentType);
+        }
+
+        if (length >= 0) {
+            ret.setResponseContentLength(length);
+        }
+
+        return ret;
+    }
+
+    @Test
+    public void testMinSize() {
+        var policy = CompressionPolicy.defaultPolicy();
+
+        assertFalse(policy.resolve(exchange("application/json", 80)));
+        assertTrue(policy.resolve(exchange("application/json", 4096)));
+        // unknown length
+        assertTrue(policy.resolve(exchange("application/json", -1)));
+    }
+
+    @Test
+    public void testExcludedMimeTypes() {
+        var policy = CompressionPolicy.defaultPolicy();
+
+        assertFalse(policy.resolve(exchange("image/png", 4096)));
+        assertFalse(policy.resolve(exchange("video/mp4", 4096)));
+        assertFalse(policy.resolve(exchange("Application/Zip", 4096)));
+        assertTrue(policy.resolve(exchange("image/svg+xml", 4096)));
+        assertTrue(policy.resolve(exchange("text/html; charset=utf-8", 4096)));
+    }
+
+    @Test
+    public void testMimeTypes() {
+        var policy = new CompressionPolicy(0, -1,
+                List.of("application/json", "text/*"),
+                List.of("text/csv"));
+
+        assertTrue(policy.resolve(exchange("application/json", 10)));
+        assertTrue(policy.resolve(exchange("text/plain", 10)));
+        assertFalse(policy.resolve(exchange("text/csv", 10)));
+        assertFalse(policy.resolve(exchange("application/xml", 10)));
+        assertFalse(policy.resolve(exchange(null, 10)));
+    }
+
+    @Test
+    public void testBypass() {
+        var policy = CompressionPolicy.defaultPolicy();
+        var exchange = exchange("application/octet-stream", 4096);
+
+        assertTrue(policy.resolve(exchange));
+
+        CompressionPolicy.bypass(exchange);
+
+        assertFalse(policy.resolve(exchange));
+    }
+}
@@ -0,0 +1,97 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2020 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.server.HttpServerExchange;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class StageTimingsTest {
+
+    private static class Stage extends PipelinedHandler {
+
+        private final long sleep;
+
+        Stage(long sleep) {
+            this.sleep = sleep;
+        }
+
+        @Override
+        public void handleRequest(HttpServerExchange exchange) throws Exception {
+            Thread.sleep(sleep);
+            next(exchange);
+        }
+    }
+
+    private static class SlowStage extends Stage {
+
+        SlowStage() {
+            super(50);
+        }
+    }
+
+    @After
+    public void disable() {
+        StageTimings.setEnabled(false);
+    }
+
+    @Test
+    public void testSelfTimes() throws Exception {
+        StageTimings.setEnabled(true);
+
+        var exchange = new HttpServerExchange();
+        var timings = StageTimings.attach(exchange);
+
+        var head = PipelinedHandler.pipe(new Stage(0),
+                new Stage(10),
+                new SlowStage(),
+                new Stage(10));
+
+        head.handleRequest(exchange);
+
+        // the head is not invoked via next(), stages with the same name are merged
+        assertEquals(2, timings.size());
+        assertEquals("Stage", timings.stage(0));
+        assertEquals("SlowStage", timings.stage(1));
+
+        // self times do not include the next stages
+        assertTrue(timings.nanos(1) >= 50_000_000);
+        assertTrue(timings.nanos(1) < timings.nanos(0) + 50_000_000);
+        assertTrue(timings.nanos(0) >= 20_000_000);
+
+        assertTrue(timings.toServerTiming().startsWith("Stage;dur="));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        var exchange = new HttpServerExchange();
+        var timings = StageTimings.attach(exchange);
+
+        PipelinedHandler.pipe(new Stage(0), new Stage(0))
+                .handleRequest(exchange);
+
+        assertEquals(0, timings.size());
+    }
+}
@@ -0,0 +1,105 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2020 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.utils;
+
+import io.undertow.connector.PooledByteBuffer;
+import io.undertow.util.ImmediatePooledByteBuffer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import static org.junit.Assert.*;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * @author Andrea Di Cesare <andrea@softinstigate.com>
+ */
+public class BuffersUtilsTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BuffersUtilsTest.class);
+
+    @Rule
+    public TestRule watcher = new TestWatcher() {
+        @Override
+        protected void starting(Description description) {
+            LOG.info("executing test {}", description.toString());
+        }
+    };
+
+    private static PooledByteBuffer[] buffers(String... contents) {
+        var ret = new PooledByteBuffer[contents.length + 1];
+
+        for (int i = 0; i < contents.length; i++) {
+            ret[i] = new ImmediatePooledByteBuffer(ByteBuffer
+                    .wrap(contents[i].getBytes(StandardCharsets.UTF_8)));
+        }
+
+        return ret;
+    }
+
+    @Test
+    public void testToByteArray() throws IOException {
+        var srcs = buffers("{\"a\":", "1}");
+
+        var ret = BuffersUtils.toByteArray(srcs);
+
+        assertEquals(7, ret.length);
+        assertEquals("{\"a\":1}", new String(ret, StandardCharsets.UTF_8));
+
+        // pooled buffers are not modified
+        assertEquals(5, srcs[0].getBuffer().remaining());
+        assertEquals(2, srcs[1].getBuffer().remaining());
+    }
+
+    @Test
+    public void testToByteBuffer() throws IOException {
+        var ret = BuffersUtils.toByteBuffer(buffers("ab", "cd", ""));
+
+        assertEquals(4, ret.capacity());
+        assertEquals(4, ret.remaining());
+    }
+
+    @Test
+    public void testToInputStream() throws IOException {
+        var srcs = buffers("ciao", " ", "mondo");
+
+        var is = BuffersUtils.toInputStream(srcs);
+
+        assertEquals(10, is.available());
+        assertEquals('c', is.read());
+        assertEquals("iao mondo", new String(is.readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals(-1, is.read());
+
+        // pooled buffers are not modified
+        assertEquals("ciao mondo", BuffersUtils.toString(srcs, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRemaining() {
+        assertEquals(0, BuffersUtils.remaining(null));
+        assertEquals(6, BuffersUtils.remaining(buffers("abc", "def")));
+    }
+}
@@ -23,6 +23,7 @@ package org.restheart;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
+import com.codahale.metrics.Gauge;
 import com.github.mustachejava.DefaultMustacheFactory;
 import com.github.mustachejava.Mustache;
 import com.github.mustachejava.MustacheNotFoundException;
@@ -35,16 +36,23 @@ import static io.undertow.Handlers.resource;
 import io.undertow.Undertow;
 import io.undertow.Undertow.Builder;
 import io.undertow.UndertowOptions;
+import io.undertow.server.HttpHandler;
 import io.undertow.server.handlers.AllowedMethodsHandler;
-import io.undertow.server.handlers.BlockingHandler;
 import io.undertow.server.handlers.GracefulShutdownHandler;
 import io.undertow.server.handlers.HttpContinueAcceptingHandler;
 import io.undertow.server.handlers.RequestLimit;
 import io.undertow.server.handlers.RequestLimitingHandler;
+import io.undertow.server.handlers.cache.DirectBufferCache;
+import io.undertow.server.handlers.encoding.ContentEncodingRepository;
+import io.undertow.server.handlers.encoding.GzipEncodingProvider;
 import io.undertow.server.handlers.proxy.LoadBalancingProxyClient;
 import io.undertow.server.handlers.proxy.ProxyHandler;
-import io.undertow.server.handlers.resource.FileResourceManager;
+import io.undertow.server.handlers.resource.CachingResourceManager;
+import io.undertow.server.handlers.resource.PathResourceManager;
+import io.undertow.server.handlers.resource.PreCompressedResourceSupplier;
 import io.undertow.server.handlers.resource.ResourceHandler;
+import io.undertow.server.handlers.resource.ResourceManager;
+import io.undertow.util.ETag;
 import io.undertow.util.HttpString;
 import java.io.BufferedReader;
 import java.io.File;
@@ -55,6 +63,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.net.JarURLConnection;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -69,13 +78,17 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
+import java.util.ArrayList;
 import java.util.EnumSet;
-import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManagerFactory;
@@ -84,6 +97,11 @@ import static org.fusesource.jansi.Ansi.Color.MAGENTA;
 import static org.fusesource.jansi.Ansi.Color.RED;
 import static org.fusesource.jansi.Ansi.ansi;
 import org.fusesource.jansi.AnsiConsole;
+import static org.restheart.ConfigurationKeys.PIPELINE_CONCURRENCY_LIMIT_KEY;
+import static org.restheart.ConfigurationKeys.PIPELINE_CONCURRENCY_QUEUE_SIZE_KEY;
+import static org.restheart.ConfigurationKeys.STATIC_RESOURCES_MOUNT_CACHE_KEY;
+import static org.restheart.ConfigurationKeys.STATIC_RESOURCES_MOUNT_CACHE_SIZE_KEY;
+import static org.restheart.ConfigurationKeys.STATIC_RESOURCES_MOUNT_COMPRESS_KEY;
 import static org.restheart.ConfigurationKeys.STATIC_RESOURCES_MOUNT_EMBEDDED_KEY;
 import static org.restheart.ConfigurationKeys.STATIC_RESOURCES_MOUNT_WELCOME_FILE_KEY;
 import static org.restheart.ConfigurationKeys.STATIC_RESOURCES_MOUNT_WHAT_KEY;
@@ -95,12 +113,22 @@ import org.restheart.exchange.PipelineInfo;
 import static org.restheart.exchange.PipelineInfo.PIPELINE_TYPE.PROXY;
 import static org.restheart.exchange.PipelineInfo.PIPELINE_TYPE.SERVICE;
 import static org.restheart.exchange.PipelineInfo.PIPELINE_TYPE.STATIC_RESOURCE;
+import org.restheart.handlers.AdaptiveConcurrencyLimit;
+import org.restheart.handlers.AdaptiveRequestLimitingHandler;
+import org.restheart.handlers.BulkheadHandler;
 import org.restheart.handlers.CORSHandler;
+import org.restheart.handlers.CompressionPolicy;
 import org.restheart.handlers.ConfigurableEncodingHandler;
+import org.restheart.handlers.EmbeddedResourceManager;
 import org.restheart.handlers.ErrorHandler;
+import org.restheart.handlers.LatencyAwareProxyClient;
+import org.restheart.handlers.PipelineMetricsHandler;
 import org.restheart.handlers.PipelinedHandler;
 import static org.restheart.handlers.PipelinedHandler.pipe;
 import org.restheart.handlers.PipelinedWrappingHandler;
+import org.restheart.handlers.ProxyCache;
+import org.restheart.handlers.ProxyCacheHandler;
+import org.restheart.handlers.ProxyHealthChecker;
 import org.restheart.handlers.QueryStringRebuilder;
 import org.restheart.handlers.RequestInterceptorsExecutor;
 import org.restheart.handlers.RequestLogger;
@@ -108,33 +136,47 @@ import org.restheart.handlers.RequestNotManagedHandler;
 import org.restheart.handlers.ResponseInterceptorsExecutor;
 import org.restheart.handlers.ResponseSender;
 import org.restheart.handlers.ServiceExchangeInitializer;
+import org.restheart.handlers.StageTimings;
 import org.restheart.handlers.TracingInstrumentationHandler;
+import org.restheart.handlers.VersionedContentEncodedResourceManager;
+import org.restheart.handlers.WorkerThreadDispatcher;
 import org.restheart.handlers.injectors.AuthHeadersRemover;
 import org.restheart.handlers.injectors.ConduitInjector;
 import org.restheart.handlers.injectors.PipelineInfoInjector;
 import org.restheart.handlers.injectors.RequestContentInjector;
 import static org.restheart.handlers.injectors.RequestContentInjector.Policy.ON_REQUIRES_CONTENT_AFTER_AUTH;
 import static org.restheart.handlers.injectors.RequestContentInjector.Policy.ON_REQUIRES_CONTENT_BEFORE_AUTH;
+import org.restheart.handlers.injectors.StreamingRequestConduitInjector;
 import org.restheart.handlers.injectors.XForwardedHeadersInjector;
 import org.restheart.handlers.injectors.XPoweredByInjector;
+import org.restheart.plugins.InitPoint;
 import static org.restheart.plugins.InitPoint.AFTER_STARTUP;
 import static org.restheart.plugins.InitPoint.BEFORE_STARTUP;
+import org.restheart.plugins.Initializer;
 import static org.restheart.plugins.InterceptPoint.REQUEST_AFTER_AUTH;
 import static org.restheart.plugins.InterceptPoint.REQUEST_BEFORE_AUTH;
 import org.restheart.plugins.PluginRecord;
+import org.restheart.plugins.PluginsFactory;
 import org.restheart.plugins.PluginsRegistryImpl;
 import org.restheart.plugins.security.AuthMechanism;
 import org.restheart.plugins.security.Authorizer;
 import org.restheart.plugins.security.TokenManager;
 import org.restheart.security.handlers.SecurityHandler;
 import org.restheart.security.plugins.authorizers.FullAuthorizer;
+import org.restheart.utils.AppCDS;
+import org.restheart.utils.AsyncInterceptorsExecutor;
 import org.restheart.utils.FileUtils;
 import org.restheart.utils.LoggingInitializer;
+import org.restheart.utils.MetricsUtils;
 import org.restheart.utils.OSChecker;
+import static org.restheart.utils.PluginUtils.blocking;
+import static org.restheart.utils.PluginUtils.concurrentInit;
 import static org.restheart.utils.PluginUtils.defaultURI;
 import static org.restheart.utils.PluginUtils.initPoint;
+import static org.restheart.utils.PluginUtils.priority;
 import org.restheart.utils.RESTHeartDaemon;
-import org.restheart.utils.ResourcesExtractor;
+import org.restheart.utils.StartupTimings;
+import org.restheart.utils.WorkerExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xnio.OptionMap;
@@ -154,8 +196,29 @@ public class Bootstrapper {
             .getLogger(Bootstrapper.class);
 
     private static boolean IS_FORKED;
+    private static boolean CDS_TRAIN;
+    private static Path CDS_ARCHIVE;
 
-    private static final Map<String, File> TMP_EXTRACTED_FILES = new HashMap<>();
+    private static final List<Path> TMP_COMPRESSED_DIRS = new ArrayList<>();
+
+    private static CompressionPolicy compressionPolicy = null;
+
+    private static Executor workerExecutor = null;
+
+    private static boolean workerExecutorCreated = false;
+
+    private static final int STATIC_RESOURCES_DEFAULT_CACHE_SIZE = 16 * 1024 * 1024;
+
+    private static final long STATIC_RESOURCES_MAX_CACHED_FILE_SIZE = 2 * 1024 * 1024;
+
+    private static final int STATIC_RESOURCES_MAX_COMPRESSED_FILE_SIZE = 10 * 1024 * 1024;
+
+    private static final int STATIC_RESOURCES_MIN_COMPRESSED_FILE_SIZE = 1024;
+
+    /**
+     * the cached metadata of a static resource is revalidated after this time
+     */
+    private static final int STATIC_RESOURCES_CACHE_MAX_AGE = 10_000;
 
     private static Path CONFIGURATION_FILE;
     private static Path PROPERTIES_FILE;
@@ -199,6 +262,8 @@ public class Bootstrapper {
             FileUtils.getFileAbsolutePath(parameters.configPath);
 
             IS_FORKED = parameters.isForked;
+            CDS_TRAIN = parameters.cdsTrain;
+            CDS_ARCHIVE = AppCDS.archive(parameters.cdsArchive);
             String propFilePath = (parameters.envFile == null)
                     ? System.getenv("RESTHEART_ENVFILE")
                     : parameters.envFile;
@@ -249,7 +314,10 @@ public class Bootstrapper {
             AnsiConsole.systemInstall();
         }
 
-        if (!hasForkOption()) {
+        if (CDS_TRAIN && !AppCDS.isTrainingRun()) {
+            initLogging(null);
+            trainCDS();
+        } else if (!hasForkOption()) {
             initLogging(null);
             startServer(false);
         } else {
@@ -271,7 +339,7 @@ public class Bootstrapper {
                         null, false, -1);
             }
 
-            RESTHeartDaemon d = new RESTHeartDaemon();
+            RESTHeartDaemon d = new RESTHeartDaemon(CDS_ARCHIVE);
             if (d.isDaemonized()) {
                 try {
                     d.init();
@@ -295,6 +363,21 @@ public class Bootstrapper {
         }
     }
 
+    /**
+     * creates the Class Data Sharing archive and exits
+     */
+    private static void trainCDS() {
+        try {
+            System.exit(AppCDS.train(CDS_ARCHIVE) ? 0 : -5);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            System.exit(-5);
+        } catch (Throwable t) {
+            logErrorAndExit("Error creating the Class Data Sharing archive",
+                    t, false, false, -5);
+        }
+    }
+
     private static void logWindowsStart() {
         String version = Version.getInstance().getVersion() == null
                 ? "Unknown, not packaged"
@@ -500,6 +583,10 @@ public class Bootstrapper {
         logLoggingConfiguration(fork);
         logManifestInfo();
 
+        if (!AppCDS.isTrainingRun()) {
+            AppCDS.logUsage(CDS_ARCHIVE);
+        }
+
         // re-read configuration file, to log errors new that logger is initialized
         try {
             loadConfiguration();
@@ -548,35 +635,10 @@ public class Bootstrapper {
         }
 
         // run pre startup initializers
-        PluginsRegistryImpl.getInstance()
-                .getInitializers()
-                .stream()
-                .filter(i -> initPoint(i.getInstance()) == BEFORE_STARTUP)
-                .forEach(i -> {
-                    try {
-                        i.getInstance().init();
-                    } catch (NoClassDefFoundError iae) {
-                        // this occurs executing interceptors missing external dependencies
-
-                        LOGGER.error("Error executing initializer {} "
-                                + "An external dependency is missing. "
-                                + "Copy the missing dependency jar to the plugins directory to add it to the classpath",
-                                i.getName(), iae);
-                    } catch (LinkageError le) {
-                        // this occurs executing plugin code compiled
-                        // with wrong version of restheart-commons
-
-                        String version = Version.getInstance().getVersion() == null
-                                ? "of correct version"
-                                : "v" + Version.getInstance().getVersion();
-
-                        LOGGER.error("Linkage error executing initializer {} "
-                                + "Check that it was compiled against restheart-commons {}",
-                                i.getName(), version, le);
-                    } catch (Throwable t) {
-                        LOGGER.error("Error executing initializer {}", i.getName());
-                    }
-                });
+        runInitializers(BEFORE_STARTUP);
+
+        var start = System.nanoTime();
+
         try {
             startCoreSystem();
         } catch (Throwable t) {
@@ -586,6 +648,8 @@ public class Bootstrapper {
                     !pidFileAlreadyExists, -2);
         }
 
+        StartupTimings.phase("core-system-start", System.nanoTime() - start);
+
         Runtime.getRuntime()
                 .addShutdownHook(new Thread() {
                     @Override
@@ -608,39 +672,113 @@ public class Bootstrapper {
         }
 
         // run initializers
-        PluginsRegistryImpl.getInstance()
+        runInitializers(AFTER_STARTUP);
+
+        LOGGER.info(ansi().fg(GREEN).bold().a("RESTHeart started").reset().toString());
+
+        StartupTimings.log();
+
+        if (AppCDS.isTrainingRun()) {
+            AppCDS.exercise(configuration);
+            LOGGER.info("Training run completed");
+            // the shutdown hook stops the server
+            System.exit(0);
+        }
+    }
+
+    /**
+     * runs the initializers with the given init point in priority order;
+     * initializers with the same priority that declare concurrentInit are
+     * executed in parallel, after the other ones
+     *
+     * @param initPoint
+     */
+    private static void runInitializers(InitPoint initPoint) {
+        var start = System.nanoTime();
+
+        var groups = PluginsRegistryImpl.getInstance()
                 .getInitializers()
                 .stream()
-                .filter(i -> initPoint(i.getInstance()) == AFTER_STARTUP)
-                .forEach(i -> {
-                    try {
-                        i.getInstance().init();
-                    } catch (NoClassDefFoundError iae) {
-                        // this occurs executing interceptors missing external dependencies
-
-                        LOGGER.error("Error executing initializer {} "
-                                + "An external dependency is missing. "
-                                + "Copy the missing dependency jar to the plugins directory to add it to the classpath",
-                                i.getName(), iae);
-                    } catch (LinkageError le) {
-                        // this occurs executing plugin code compiled
-                        // with wrong version of restheart-commons
-
-                        String version = Version.getInstance().getVersion() == null
-                                ? "of correct version"
-                                : "v" + Version.getInstance().getVersion();
-
-                        LOGGER.error("Linkage error executing initializer {} "
-                                + "Check that it was compiled against restheart-commons {}",
-                                i.getName(), version, le);
-                    } catch (Throwable t) {
-                        LOGGER.error("Error executing initializer {}",
-                                i.getName(),
-                                t);
+                .filter(i -> initPoint(i.getInstance()) == initPoint)
+                .collect(Collectors.groupingBy(i -> priority(i.getInstance()),
+                        TreeMap::new,
+                        Collectors.toList()));
+
+        ForkJoinPool pool = null;
+
+        try {
+            for (var group : groups.values()) {
+                var concurrent = new ArrayList<PluginRecord<Initializer>>();
+
+                // initializers modifying shared state, as the plugins
+                // registry, must not run concurrently
+                for (var i : group) {
+                    if (concurrentInit(i.getInstance())) {
+                        concurrent.add(i);
+                    } else {
+                        runInitializer(i);
                     }
-                });
+                }
 
-        LOGGER.info(ansi().fg(GREEN).bold().a("RESTHeart started").reset().toString());
+                if (concurrent.size() == 1) {
+                    runInitializer(concurrent.get(0));
+                } else if (concurrent.size() > 1) {
+                    if (pool == null) {
+                        // initializers usually block on I/O, parallelism is
+                        // not bound to cpus
+                        pool = new ForkJoinPool(groups.values().stream()
+                                .mapToInt(List::size)
+                                .max()
+                                .orElse(1));
+                    }
+
+                    pool.submit(() -> concurrent.parallelStream()
+                            .forEach(Bootstrapper::runInitializer))
+                            .join();
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+
+        StartupTimings.phase(initPoint == BEFORE_STARTUP
+                ? "before-startup-initializers"
+                : "after-startup-initializers",
+                System.nanoTime() - start);
+    }
+
+    private static void runInitializer(PluginRecord<Initializer> i) {
+        var start = System.nanoTime();
+
+        try {
+            i.getInstance().init();
+        } catch (NoClassDefFoundError iae) {
+            // this occurs executing interceptors missing external dependencies
+
+            LOGGER.error("Error executing initializer {} "
+                    + "An external dependency is missing. "
+                    + "Copy the missing dependency jar to the plugins directory to add it to the classpath",
+                    i.getName(), iae);
+        } catch (LinkageError le) {
+            // this occurs executing plugin code compiled
+            // with wrong version of restheart-commons
+
+            String version = Version.getInstance().getVersion() == null
+                    ? "of correct version"
+                    : "v" + Version.getInstance().getVersion();
+
+            LOGGER.error("Linkage error executing initializer {} "
+                    + "Check that it was compiled against restheart-commons {}",
+                    i.getName(), version, le);
+        } catch (Throwable t) {
+            LOGGER.error("Error executing initializer {}",
+                    i.getName(),
+                    t);
+        }
+
+        StartupTimings.plugin(i.getName(), "init", System.nanoTime() - start);
     }
 
     private static String getInstanceName() {
@@ -685,6 +823,13 @@ public class Bootstrapper {
             }
         }
 
+        if (!silent) {
+            LOGGER.info("Waiting for pending async interceptors "
+                    + "to complete (up to 5 seconds)...");
+        }
+
+        AsyncInterceptorsExecutor.getInstance().shutdown();
+
         Path pidFilePath = FileUtils.getPidFilePath(FileUtils
                 .getFileAbsolutePathHash(CONFIGURATION_FILE, PROPERTIES_FILE));
 
@@ -704,14 +849,13 @@ public class Bootstrapper {
         if (!silent) {
             LOGGER.info("Cleaning up temporary directories...");
         }
-        TMP_EXTRACTED_FILES.keySet().forEach(k -> {
+
+        TMP_COMPRESSED_DIRS.forEach(dir -> {
             try {
-                ResourcesExtractor.deleteTempDir(Bootstrapper.class, 
-                        k, 
-                        TMP_EXTRACTED_FILES.get(k));
-            } catch (URISyntaxException | IOException ex) {
+                FileUtils.deleteDirectory(dir);
+            } catch (IOException ex) {
                 LOGGER.error("Error cleaning up temporary directory {}",
-                        TMP_EXTRACTED_FILES.get(k).toString(), ex);
+                        dir.toString(), ex);
             }
         });
 
@@ -741,6 +885,16 @@ public class Bootstrapper {
             logErrorAndExit("No listener specified. exiting..", null, false, -1);
         }
 
+        try {
+            AsyncInterceptorsExecutor.init(configuration);
+        } catch (ConfigurationException ce) {
+            logErrorAndExit(ce.getMessage(), ce, false, -1);
+        }
+
+        StageTimings.setEnabled(configuration.isStageTimingsEnabled());
+        StageTimings.setServerTimingHeader(configuration.isStageTimingsServerTimingHeader());
+        PipelineMetricsHandler.setEnabled(configuration.isPipelineMetricsEnabled());
+
         final var tokenManager = PluginsRegistryImpl.getInstance()
                 .getTokenManager();
 
@@ -899,6 +1053,11 @@ public class Bootstrapper {
         LOGGER.debug("Allow unescaped characters in URL: {}",
                 configuration.isAllowUnescapedCharactersInUrl());
 
+        ConfigurationHelper.setHttp2Options(builder, configuration);
+
+        LOGGER.debug("HTTP/2 enabled: {}", configuration.isHttp2Enabled());
+
+        // connection-options can override http2-* properties
         ConfigurationHelper.setConnectionOptions(builder, configuration);
 
         undertowServer = builder.build();
@@ -982,15 +1141,15 @@ public class Bootstrapper {
      */
     private static GracefulShutdownHandler getBasePipeline() {
         return new GracefulShutdownHandler(
-                new RequestLimitingHandler(
-                        new RequestLimit(configuration.getRequestsLimit()),
+                requestsLimitingHandler(
                         new AllowedMethodsHandler(
-                                new BlockingHandler(
+                                new WorkerThreadDispatcher(
                                         new ErrorHandler(
                                                 new HttpContinueAcceptingHandler(
                                                         PluginsRegistryImpl
                                                                 .getInstance()
-                                                                .getRootPathHandler()))),
+                                                                .getRootPathHandler())),
+                                        workerExecutor()),
                                 // allowed methods
                                 HttpString.tryFromString(ExchangeKeys.METHOD.GET.name()),
                                 HttpString.tryFromString(ExchangeKeys.METHOD.POST.name()),
@@ -1000,6 +1159,80 @@ public class Bootstrapper {
                                 HttpString.tryFromString(ExchangeKeys.METHOD.OPTIONS.name()))));
     }
 
+    /**
+     * @param next
+     * @return the handler limiting the concurrent requests, adaptive or fixed
+     * according to the requests-limit-adaptive configuration option
+     */
+    private static HttpHandler requestsLimitingHandler(HttpHandler next) {
+        if (configuration.isRequestsLimitAdaptive()) {
+            var limit = new AdaptiveConcurrencyLimit(
+                    Math.min(configuration.getRequestsLimitMin(),
+                            configuration.getRequestsLimit()),
+                    configuration.getRequestsLimit());
+
+            LOGGER.debug("Adaptive requests limit, min {}, max {}",
+                    limit.getMinLimit(),
+                    limit.getMaxLimit());
+
+            return new AdaptiveRequestLimitingHandler(limit,
+                    configuration.getRequestsLimitRetryAfter(),
+                    next);
+        } else {
+            return new RequestLimitingHandler(
+                    new RequestLimit(configuration.getRequestsLimit()),
+                    next);
+        }
+    }
+
+    /**
+     * @return the compression policy defined by the configuration; its
+     * counters are registered in the default metrics registry
+     */
+    private static synchronized CompressionPolicy compressionPolicy() {
+        if (compressionPolicy == null) {
+            var policy = CompressionPolicy.of(configuration);
+            var registry = MetricsUtils.defaultRegistry();
+
+            registry.gauge("compression.bytes-in",
+                    () -> (Gauge<Long>) policy::getBytesIn);
+            registry.gauge("compression.bytes-out",
+                    () -> (Gauge<Long>) policy::getBytesOut);
+            registry.gauge("compression.bytes-saved",
+                    () -> (Gauge<Long>) policy::getBytesSaved);
+            registry.gauge("compression.time-millis",
+                    () -> (Gauge<Long>) () -> policy.getCompressionNanos() / 1_000_000);
+
+            compressionPolicy = policy;
+        }
+
+        return compressionPolicy;
+    }
+
+    /**
+     * @return the executor set via worker-executor configuration option or
+     * null to use the undertow worker thread pool
+     */
+    private static synchronized Executor workerExecutor() {
+        if (!workerExecutorCreated) {
+            try {
+                workerExecutor = WorkerExecutors.create(configuration.getWorkerExecutor(),
+                        PluginsFactory.getInstance().getPluginsClassloader());
+
+                if (workerExecutor != null) {
+                    LOGGER.info("Blocking requests are dispatched to {}",
+                            configuration.getWorkerExecutor());
+                }
+            } catch (ConfigurationException ce) {
+                logErrorAndExit(ce.getMessage(), ce, false, -1);
+            }
+
+            workerExecutorCreated = true;
+        }
+
+        return workerExecutor;
+    }
+
     /**
      * plug services
      *
@@ -1099,22 +1332,67 @@ public class Bootstrapper {
                             .wrap(new ConfigurableEncodingHandler(
                                     PipelinedWrappingHandler
                                             .wrap(srv.getInstance()),
-                                    configuration.isForceGzipEncoding())),
+                                    configuration.isForceGzipEncoding(),
+                                    compressionPolicy())),
                     new ResponseInterceptorsExecutor(),
                     new ResponseSender()
             );
 
+            // authorizers of secured services might block
+            var blocking = blocking(srv.getInstance()) || secured;
+
             PluginsRegistryImpl
                     .getInstance()
-                    .plugPipeline(uri, _srv,
-                            new PipelineInfo(SERVICE, uri, srv.getName()));
+                    .plugPipeline(uri, bulkhead(uri, srvConfArgs, _srv),
+                            new PipelineInfo(SERVICE, uri, srv.getName()),
+                            blocking);
 
             LOGGER.info(ansi().fg(GREEN)
-                    .a("URI {} bound to service {}, secured: {}")
-                    .reset().toString(), uri, srv.getName(), secured);
+                    .a("URI {} bound to service {}, secured: {}, blocking: {}")
+                    .reset().toString(), uri, srv.getName(), secured, blocking);
         });
     }
 
+    /**
+     * @param uri the uri of the pipeline
+     * @param args the configuration of the service, proxy or static resources
+     * mount
+     * @param pipeline
+     * @return the pipeline preceded by a BulkheadHandler if
+     * concurrency-limit is specified in args, otherwise the pipeline
+     */
+    private static PipelinedHandler bulkhead(String uri,
+            Map<String, Object> args,
+            PipelinedHandler pipeline) {
+        if (args == null
+                || !(args.get(PIPELINE_CONCURRENCY_LIMIT_KEY) instanceof Integer)) {
+            return pipeline;
+        }
+
+        var limit = (Integer) args.get(PIPELINE_CONCURRENCY_LIMIT_KEY);
+
+        if (limit < 1) {
+            LOGGER.warn("Ignoring {} of {}, it must be greater than 0",
+                    PIPELINE_CONCURRENCY_LIMIT_KEY,
+                    uri);
+            return pipeline;
+        }
+
+        var queueSize = args.get(PIPELINE_CONCURRENCY_QUEUE_SIZE_KEY) instanceof Integer
+                ? (Integer) args.get(PIPELINE_CONCURRENCY_QUEUE_SIZE_KEY)
+                : 0;
+
+        LOGGER.debug("URI {} concurrency limit {}, queue size {}",
+                uri, limit, queueSize);
+
+        return pipe(new BulkheadHandler(uri,
+                limit,
+                queueSize,
+                configuration.getRequestsLimitRetryAfter(),
+                workerExecutor()),
+                pipeline);
+    }
+
     /**
      * plugProxies
      *
@@ -1177,6 +1455,34 @@ public class Bootstrapper {
                     ConfigurationKeys.PROXY_NAME, null,
                     true);
 
+            boolean cache = Configuration.getOrDefault(proxies,
+                    ConfigurationKeys.PROXY_CACHE_KEY, false, true);
+
+            Number cacheSize = Configuration.getOrDefault(proxies,
+                    ConfigurationKeys.PROXY_CACHE_SIZE_KEY, 64 * 1024 * 1024, true);
+
+            Number cacheMaxEntrySize = Configuration.getOrDefault(proxies,
+                    ConfigurationKeys.PROXY_CACHE_MAX_ENTRY_SIZE_KEY, 1024 * 1024, true);
+
+            String loadBalancing = Configuration.getOrDefault(proxies,
+                    ConfigurationKeys.PROXY_LOAD_BALANCING_KEY, "round-robin", true);
+
+            String healthCheckPath = Configuration.getOrDefault(proxies,
+                    ConfigurationKeys.PROXY_HEALTH_CHECK_PATH_KEY, null, true);
+
+            // Time in seconds between health checks
+            Integer healthCheckInterval = Configuration.getOrDefault(proxies,
+                    ConfigurationKeys.PROXY_HEALTH_CHECK_INTERVAL_KEY, 10, true);
+
+            LatencyAwareProxyClient.Strategy strategy;
+
+            try {
+                strategy = LatencyAwareProxyClient.Strategy.of(loadBalancing);
+            } catch (IllegalArgumentException iae) {
+                LOGGER.warn("{}, location {} not bound", iae.getMessage(), location);
+                return;
+            }
+
             final Xnio xnio = Xnio.getInstance();
 
             final OptionMap optionMap = OptionMap.create(
@@ -1195,19 +1501,25 @@ public class Bootstrapper {
 
             try {
                 LoadBalancingProxyClient proxyClient
-                        = new LoadBalancingProxyClient()
+                        = (strategy == LatencyAwareProxyClient.Strategy.ROUND_ROBIN
+                                ? new LoadBalancingProxyClient()
+                                : new LatencyAwareProxyClient(strategy))
                                 .setConnectionsPerThread(connectionsPerThread)
                                 .setSoftMaxConnectionsPerThread(softMaxConnectionsPerThread)
                                 .setMaxQueueSize(maxQueueSize)
                                 .setProblemServerRetry(problemServerRetry)
                                 .setTtl(ttl);
 
+                var hosts = new ArrayList<URI>();
+
                 if (_proxyPass instanceof String) {
+                    hosts.add(new URI((String) _proxyPass));
                     proxyClient = proxyClient.addHost(
                             new URI((String) _proxyPass), sslProvider);
                 } else if (_proxyPass instanceof List) {
                     for (Object proxyPassURL : ((Iterable<? extends Object>) _proxyPass)) {
                         if (proxyPassURL instanceof String) {
+                            hosts.add(new URI((String) proxyPassURL));
                             proxyClient = proxyClient.addHost(
                                     new URI((String) proxyPassURL), sslProvider);
                         } else {
@@ -1220,11 +1532,25 @@ public class Bootstrapper {
                             _proxyPass);
                 }
 
-                ProxyHandler proxyHandler = ProxyHandler.builder()
+                if (healthCheckPath != null) {
+                    new ProxyHealthChecker(location, proxyClient, hosts,
+                            sslProvider, healthCheckPath,
+                            healthCheckInterval * 1000L).start();
+                }
+
+                HttpHandler proxyHandler = ProxyHandler.builder()
                         .setRewriteHostHeader(rewriteHostHeader)
                         .setProxyClient(proxyClient)
                         .build();
 
+                if (cache) {
+                    proxyHandler = new ProxyCacheHandler(
+                            new ProxyCache(location,
+                                    cacheSize.longValue(),
+                                    cacheMaxEntrySize.longValue()),
+                            proxyHandler);
+                }
+
                 var proxy = pipe(
                         new PipelineInfoInjector(),
                         new TracingInstrumentationHandler(),
@@ -1232,6 +1558,7 @@ public class Bootstrapper {
                         new XPoweredByInjector(),
                         new RequestContentInjector(ON_REQUIRES_CONTENT_BEFORE_AUTH),
                         new RequestInterceptorsExecutor(REQUEST_BEFORE_AUTH),
+                        new StreamingRequestConduitInjector(REQUEST_BEFORE_AUTH),
                         new QueryStringRebuilder(),
                         new SecurityHandler(
                                 authMechanisms,
@@ -1241,15 +1568,17 @@ public class Bootstrapper {
                         new XForwardedHeadersInjector(),
                         new RequestContentInjector(ON_REQUIRES_CONTENT_AFTER_AUTH),
                         new RequestInterceptorsExecutor(REQUEST_AFTER_AUTH),
+                        new StreamingRequestConduitInjector(REQUEST_AFTER_AUTH),
                         new QueryStringRebuilder(),
                         new ConduitInjector(),
                         PipelinedWrappingHandler.wrap(
                                 new ConfigurableEncodingHandler( // Must be after ConduitInjector
                                         proxyHandler,
-                                        configuration.isForceGzipEncoding())));
+                                        configuration.isForceGzipEncoding(),
+                                        compressionPolicy())));
                 PluginsRegistryImpl
                         .getInstance()
-                        .plugPipeline(location, proxy,
+                        .plugPipeline(location, bulkhead(location, proxies, proxy),
                                 new PipelineInfo(PROXY, location, name));
 
                 LOGGER.info(ansi().fg(GREEN)
@@ -1299,6 +1628,7 @@ public class Bootstrapper {
                     }
 
                     File file;
+                    ResourceHandler handler = null;
 
                     if (embedded) {
                         if (path.startsWith("/")) {
@@ -1308,17 +1638,26 @@ public class Bootstrapper {
                             return;
                         }
 
-                        try {
-                            file = ResourcesExtractor.extract(Bootstrapper.class, 
-                                    path);
+                        URL url = Bootstrapper.class.getClassLoader().getResource(path);
+
+                        if (url == null) {
+                            LOGGER.error("Error binding embedded static resource {}. "
+                                    + "Resource not found", path);
+                            return;
+                        }
 
-                            if (ResourcesExtractor.isResourceInJar(Bootstrapper.class, 
-                                    path)) {
-                                TMP_EXTRACTED_FILES.put(path, file);
-                                LOGGER.info("Embedded static resources {} extracted in {}", path, file.toString());
+                        try {
+                            if (EmbeddedResourceManager.isInJar(url)) {
+                                // served directly from the jar
+                                var conn = (JarURLConnection) url.openConnection();
+                                file = new File(conn.getJarFileURL().toURI());
+                                handler = embeddedResourcesHandler(file, conn.getEntryName(), sr);
+                            } else {
+                                // used when run from an expanded folder
+                                file = new File(url.toURI());
                             }
-                        } catch (URISyntaxException | IOException | IllegalStateException ex) {
-                            LOGGER.error("Error extracting embedded static resource {}", path, ex);
+                        } catch (URISyntaxException | IOException ex) {
+                            LOGGER.error("Error binding embedded static resource {}", path, ex);
                             return;
                         }
                     } else if (!path.startsWith("/")) {
@@ -1343,8 +1682,11 @@ public class Bootstrapper {
                     }
 
                     if (file.exists()) {
-                        ResourceHandler handler = resource(new FileResourceManager(file, 3))
-                                .addWelcomeFiles(welcomeFile)
+                        if (handler == null) {
+                            handler = staticResourcesHandler(file, sr);
+                        }
+
+                        handler.addWelcomeFiles(welcomeFile)
                                 .setDirectoryListingEnabled(false);
 
                         PipelinedHandler ph = PipelinedHandler.pipe(
@@ -1355,7 +1697,7 @@ public class Bootstrapper {
 
                         PluginsRegistryImpl
                                 .getInstance()
-                                .plugPipeline(where, ph,
+                                .plugPipeline(where, bulkhead(where, sr, ph),
                                         new PipelineInfo(STATIC_RESOURCE,
                                                 where,
                                                 path));
@@ -1377,6 +1719,128 @@ public class Bootstrapper {
         }
     }
 
+    /**
+     * creates the ResourceHandler of a static resources mount.
+     *
+     * If cache is enabled, the content of files up to
+     * STATIC_RESOURCES_MAX_CACHED_FILE_SIZE is cached in direct buffers with
+     * LRU eviction, together with their metadata; larger files are sent with
+     * transferTo().
+     *
+     * If compress is enabled, precompressed .gz variants are served when
+     * available; otherwise the gzip encoded variants are generated on first
+     * request and stored in a temporary directory, keyed by path and ETag so
+     * that a changed file gets a new variant.
+     *
+     * @param file the directory of the static resources
+     * @param sr the configuration of the static resources mount
+     * @return the ResourceHandler
+     * @throws IOException
+     */
+    static ResourceHandler staticResourcesHandler(File file,
+            Map<String, Object> sr) throws IOException {
+        var cache = Boolean.TRUE.equals(sr.get(STATIC_RESOURCES_MOUNT_CACHE_KEY));
+        var compress = Boolean.TRUE.equals(sr.get(STATIC_RESOURCES_MOUNT_COMPRESS_KEY));
+        var cacheSize = sr.get(STATIC_RESOURCES_MOUNT_CACHE_SIZE_KEY) instanceof Integer
+                ? (Integer) sr.get(STATIC_RESOURCES_MOUNT_CACHE_SIZE_KEY)
+                : STATIC_RESOURCES_DEFAULT_CACHE_SIZE;
+
+        ResourceManager rm = PathResourceManager.builder()
+                .setBase(file.toPath())
+                .setTransferMinSize(3)
+                .setETagFunction(Bootstrapper::staticResourceETag)
+                .build();
+
+        DirectBufferCache dataCache = null;
+
+        if (cache && cacheSize > 0) {
+            dataCache = new DirectBufferCache(1024, 10, cacheSize);
+
+            // also caches metadata, including the ETag computed once
+            rm = new CachingResourceManager(1024,
+                    Math.min(STATIC_RESOURCES_MAX_CACHED_FILE_SIZE, cacheSize),
+                    dataCache,
+                    rm,
+                    STATIC_RESOURCES_CACHE_MAX_AGE);
+        }
+
+        var handler = resource(rm);
+
+        if (compress) {
+            handler.setResourceSupplier(new PreCompressedResourceSupplier(rm)
+                    .addEncoding("gzip", ".gz"));
+
+            var compressedDir = Files.createTempDirectory("restheart-static-");
+            TMP_COMPRESSED_DIRS.add(compressedDir);
+
+            var compressedCache = new CachingResourceManager(1024,
+                    STATIC_RESOURCES_MAX_CACHED_FILE_SIZE,
+                    dataCache,
+                    PathResourceManager.builder()
+                            .setBase(compressedDir)
+                            .build(),
+                    STATIC_RESOURCES_CACHE_MAX_AGE);
+
+            handler.setContentEncodedResourceManager(
+                    new VersionedContentEncodedResourceManager(compressedDir,
+                            compressedCache,
+                            new ContentEncodingRepository()
+                                    .addEncodingHandler("gzip",
+                                            new GzipEncodingProvider(), 50),
+                            STATIC_RESOURCES_MIN_COMPRESSED_FILE_SIZE,
+                            STATIC_RESOURCES_MAX_COMPRESSED_FILE_SIZE,
+                            null));
+        }
+
+        return handler;
+    }
+
+    /**
+     * creates the ResourceHandler of an embedded static resources mount,
+     * serving the resources directly from the jar file.
+     *
+     * Unless cache is false, the content of the entries is kept in memory up
+     * to cache-size bytes; the other entries are streamed from the jar.
+     * Precompressed .gz entries are served when available.
+     *
+     * @param jar the jar file
+     * @param base the path of the resources in the jar
+     * @param sr the configuration of the static resources mount
+     * @return the ResourceHandler
+     * @throws IOException
+     */
+    static ResourceHandler embeddedResourcesHandler(File jar,
+            String base, Map<String, Object> sr) throws IOException {
+        var cache = !Boolean.FALSE.equals(sr.get(STATIC_RESOURCES_MOUNT_CACHE_KEY));
+        var compress = Boolean.TRUE.equals(sr.get(STATIC_RESOURCES_MOUNT_COMPRESS_KEY));
+        var cacheSize = sr.get(STATIC_RESOURCES_MOUNT_CACHE_SIZE_KEY) instanceof Integer
+                ? (Integer) sr.get(STATIC_RESOURCES_MOUNT_CACHE_SIZE_KEY)
+                : STATIC_RESOURCES_DEFAULT_CACHE_SIZE;
+
+        var rm = new EmbeddedResourceManager(jar, base,
+                STATIC_RESOURCES_MAX_CACHED_FILE_SIZE,
+                cache ? cacheSize : 0);
+
+        var handler = resource(rm);
+
+        if (compress) {
+            handler.setResourceSupplier(new PreCompressedResourceSupplier(rm)
+                    .addEncoding("gzip", ".gz"));
+        }
+
+        return handler;
+    }
+
+    private static ETag staticResourceETag(Path path) {
+        try {
+            return new ETag(false, Long.toHexString(Files.size(path))
+                    + "-"
+                    + Long.toHexString(Files.getLastModifiedTime(path).toMillis()));
+        } catch (IOException ioe) {
+            return null;
+        }
+    }
+
     private Bootstrapper() {
     }
 
@@ -1392,6 +1856,12 @@ public class Bootstrapper {
         @Parameter(names = {"--envFile", "--envfile", "-e"}, description = "Environment file name")
         private String envFile = null;
 
+        @Parameter(names = "--cds-train", description = "Create the Class Data Sharing archive running a training startup, then exit")
+        private boolean cdsTrain = false;
+
+        @Parameter(names = "--cds-archive", description = "Class Data Sharing archive file, relative to the directory of restheart.jar")
+        private String cdsArchive = null;
+
         @Parameter(names = {"--help", "-?"}, help = true, description = "This help message")
         private boolean help;
     }
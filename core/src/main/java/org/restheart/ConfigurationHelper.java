@@ -83,6 +83,48 @@ public class ConfigurationHelper {
         LONG_UNDERTOW_OPTIONS.add(UndertowOptions.MULTIPART_MAX_ENTITY_SIZE);
     }
 
+    /**
+     * Sets the HTTP/2 options defined by the http2-* configuration properties.
+     *
+     * When enabled, HTTP/2 is negotiated via ALPN by the HTTPS listener and
+     * the HTTP listener accepts h2c upgrade requests.
+     *
+     * @param builder
+     * @param configuration
+     */
+    public static void setHttp2Options(Builder builder, Configuration configuration) {
+        if (!configuration.isHttp2Enabled()) {
+            return;
+        }
+
+        builder.setServerOption(UndertowOptions.ENABLE_HTTP2, true);
+
+        setPositiveOption(builder,
+                UndertowOptions.HTTP2_SETTINGS_MAX_CONCURRENT_STREAMS,
+                configuration.getHttp2MaxConcurrentStreams());
+
+        setPositiveOption(builder,
+                UndertowOptions.HTTP2_SETTINGS_HEADER_TABLE_SIZE,
+                configuration.getHttp2HeaderTableSize());
+
+        setPositiveOption(builder,
+                UndertowOptions.HTTP2_SETTINGS_INITIAL_WINDOW_SIZE,
+                configuration.getHttp2InitialWindowSize());
+
+        setPositiveOption(builder,
+                UndertowOptions.HTTP2_SETTINGS_MAX_FRAME_SIZE,
+                configuration.getHttp2MaxFrameSize());
+    }
+
+    private static void setPositiveOption(Builder builder,
+            Option<Integer> option,
+            int value) {
+        if (value > 0) {
+            builder.setServerOption(option, value);
+            LOGGER.trace("Connection option {}={}", option.getName(), value);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     public static void setConnectionOptions(Builder builder, Configuration configuration) {
 
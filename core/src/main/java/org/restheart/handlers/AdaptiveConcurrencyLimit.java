@@ -0,0 +1,202 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A limit to the number of concurrent requests that adapts to the observed
+ * latency, using a gradient algorithm.
+ *
+ * Latencies are aggregated in windows. At the end of each window the limit is
+ * multiplied by the gradient between the minimum latency observed (the latency
+ * with no queuing) and the average latency of the window. When latency grows
+ * the limit decreases; when latency is close to the minimum the limit
+ * increases by its square root, but only if the window actually used at least
+ * half of it.
+ *
+ * The minimum latency is periodically reset to track changes of the baseline.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class AdaptiveConcurrencyLimit {
+
+    /**
+     * latency can grow up to TOLERANCE times the minimum before the limit
+     * is decreased
+     */
+    static final double TOLERANCE = 2.0;
+
+    private static final double SMOOTHING = 0.2;
+
+    private static final double MIN_GRADIENT = 0.5;
+
+    static final long MIN_WINDOW_NANOS = 100_000_000;
+
+    static final int MIN_WINDOW_SAMPLES = 10;
+
+    private static final int MIN_RTT_RESET_WINDOWS = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private volatile int limit;
+    private final AtomicInteger inflight = new AtomicInteger(0);
+    private final AtomicInteger windowMaxInflight = new AtomicInteger(0);
+
+    private final LongAdder windowRttSum = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private volatile long windowStart;
+    private final AtomicBoolean updating = new AtomicBoolean(false);
+
+    // guarded by updating
+    private double estimatedLimit;
+    private long minRtt = Long.MAX_VALUE;
+    private long windows = 0;
+
+    /**
+     * @param minLimit the minimum limit
+     * @param maxLimit the maximum limit
+     */
+    public AdaptiveConcurrencyLimit(int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("wrong limits, min: "
+                    + minLimit + ", max: " + maxLimit);
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = Math.max(minLimit, maxLimit / 4);
+        this.limit = (int) estimatedLimit;
+        this.windowStart = System.nanoTime();
+    }
+
+    /**
+     * @return true if the request can be handled, i.e. the number of in flight
+     * requests is below the limit. In this case release() must be invoked when
+     * the request completes
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            var current = inflight.get();
+
+            if (current >= limit) {
+                return false;
+            }
+
+            if (inflight.compareAndSet(current, current + 1)) {
+                windowMaxInflight.accumulateAndGet(current + 1, Math::max);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param rttNanos the latency of the completed request
+     */
+    public void release(long rttNanos) {
+        inflight.decrementAndGet();
+        onSample(rttNanos, System.nanoTime());
+    }
+
+    /**
+     * releases a permit without recording a latency sample, e.g. when the
+     * request is suspended
+     */
+    public void cancel() {
+        inflight.decrementAndGet();
+    }
+
+    void onSample(long rttNanos, long nowNanos) {
+        windowRttSum.add(rttNanos);
+        windowSamples.increment();
+
+        if (nowNanos - windowStart >= MIN_WINDOW_NANOS
+                && windowSamples.sum() >= MIN_WINDOW_SAMPLES
+                && updating.compareAndSet(false, true)) {
+            try {
+                var samples = windowSamples.sumThenReset();
+                var rttSum = windowRttSum.sumThenReset();
+                var maxInflight = windowMaxInflight.getAndSet(inflight.get());
+
+                windowStart = nowNanos;
+
+                if (samples > 0) {
+                    update(rttSum / samples, maxInflight);
+                }
+            } finally {
+                updating.set(false);
+            }
+        }
+    }
+
+    private void update(long avgRtt, int maxInflight) {
+        if (++windows % MIN_RTT_RESET_WINDOWS == 0 || avgRtt < minRtt) {
+            minRtt = Math.max(avgRtt, 1);
+        }
+
+        var gradient = Math.max(MIN_GRADIENT,
+                Math.min(1.0, TOLERANCE * minRtt / Math.max(avgRtt, 1)));
+
+        // don't grow the limit if it was not used
+        if (gradient == 1.0 && maxInflight < estimatedLimit / 2) {
+            return;
+        }
+
+        var newLimit = estimatedLimit * gradient
+                + (gradient == 1.0 ? Math.sqrt(estimatedLimit) : 0);
+
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+                (1 - SMOOTHING) * estimatedLimit + SMOOTHING * newLimit));
+
+        limit = (int) estimatedLimit;
+    }
+
+    /**
+     * @return the current limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return the number of in flight requests
+     */
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * @return the minimum limit
+     */
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    /**
+     * @return the maximum limit
+     */
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+}
@@ -0,0 +1,189 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.Headers;
+import org.restheart.utils.HttpStatus;
+import org.restheart.utils.MetricsUtils;
+
+/**
+ * Limits the number of concurrent requests with an AdaptiveConcurrencyLimit.
+ *
+ * Differently from io.undertow.server.handlers.RequestLimitingHandler, requests
+ * exceeding the limit are not queued: they are rejected with 503 Service
+ * Unavailable and the Retry-After header, shedding load as soon as latency
+ * degrades.
+ *
+ * A request waiting in a queue after this handler, e.g. in the queue of a
+ * BulkheadHandler, can give back its permit with suspend() and get it again
+ * with resume(), so that requests waiting for a saturated pipeline don't count
+ * against the limit of the whole server.
+ *
+ * The current limit, the in flight and the rejected requests are exposed in
+ * the default shared metric registry.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class AdaptiveRequestLimitingHandler implements HttpHandler {
+
+    /**
+     * the prefix of the metrics names
+     */
+    public static final String METRICS_PREFIX = "requests-limit";
+
+    private static final AttachmentKey<Permit> PERMIT_KEY
+            = AttachmentKey.create(Permit.class);
+
+    private final HttpHandler next;
+
+    private final AdaptiveConcurrencyLimit limit;
+
+    private final String retryAfter;
+
+    private final Counter rejected;
+
+    /**
+     * Creates a new instance of AdaptiveRequestLimitingHandler
+     *
+     * @param limit
+     * @param retryAfter the value in seconds of the Retry-After header of
+     * rejected requests
+     * @param next
+     */
+    public AdaptiveRequestLimitingHandler(AdaptiveConcurrencyLimit limit,
+            int retryAfter,
+            HttpHandler next) {
+        this.next = next;
+        this.limit = limit;
+        this.retryAfter = Integer.toString(retryAfter);
+
+        var registry = MetricsUtils.defaultRegistry();
+
+        registry.gauge(MetricRegistry.name(METRICS_PREFIX, "limit"),
+                () -> (Gauge<Integer>) limit::getLimit);
+        registry.gauge(MetricRegistry.name(METRICS_PREFIX, "inflight"),
+                () -> (Gauge<Integer>) limit::getInflight);
+        this.rejected = registry.counter(MetricRegistry.name(METRICS_PREFIX,
+                "rejected"));
+    }
+
+    /**
+     *
+     * @param exchange
+     * @throws Exception
+     */
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        if (!limit.tryAcquire()) {
+            rejected.inc();
+            exchange.setStatusCode(HttpStatus.SC_SERVICE_UNAVAILABLE);
+            exchange.getResponseHeaders().put(Headers.RETRY_AFTER, retryAfter);
+            exchange.endExchange();
+            return;
+        }
+
+        var permit = new Permit(limit);
+
+        exchange.putAttachment(PERMIT_KEY, permit);
+
+        exchange.addExchangeCompleteListener((ex, nextListener) -> {
+            try {
+                permit.release();
+            } finally {
+                nextListener.proceed();
+            }
+        });
+
+        next.handleRequest(exchange);
+    }
+
+    /**
+     * gives back the permit of a request that is going to wait, without
+     * recording its latency
+     *
+     * @param exchange
+     */
+    public static void suspend(HttpServerExchange exchange) {
+        var permit = exchange.getAttachment(PERMIT_KEY);
+
+        if (permit != null) {
+            permit.suspend();
+        }
+    }
+
+    /**
+     * acquires again the permit of a suspended request
+     *
+     * @param exchange
+     * @return false if the permit cannot be acquired because the limit is
+     * reached, in this case the request should be rejected
+     */
+    public static boolean resume(HttpServerExchange exchange) {
+        var permit = exchange.getAttachment(PERMIT_KEY);
+
+        return permit == null || permit.resume();
+    }
+
+    private static class Permit {
+
+        private final AdaptiveConcurrencyLimit limit;
+
+        // guarded by this
+        private boolean held = true;
+
+        // guarded by this
+        private long start = System.nanoTime();
+
+        Permit(AdaptiveConcurrencyLimit limit) {
+            this.limit = limit;
+        }
+
+        synchronized void release() {
+            if (held) {
+                held = false;
+                limit.release(System.nanoTime() - start);
+            }
+        }
+
+        synchronized void suspend() {
+            if (held) {
+                held = false;
+                limit.cancel();
+            }
+        }
+
+        synchronized boolean resume() {
+            if (!held && limit.tryAcquire()) {
+                held = true;
+                // the latency sample does not include the waiting time
+                start = System.nanoTime();
+            }
+
+            return held;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.undertow.server.ExchangeCompletionListener;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.SameThreadExecutor;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import org.restheart.utils.HttpStatus;
+import org.restheart.utils.MetricsUtils;
+
+/**
+ * Limits the number of concurrent requests handled by a pipeline, isolating it
+ * from the other pipelines: a slow pipeline cannot take all the capacity of
+ * the server.
+ *
+ * Requests exceeding the limit wait in a bounded queue and are resumed when a
+ * request completes; when the queue is full they are rejected with 503 Service
+ * Unavailable and the Retry-After header. Requests whose connection was closed
+ * while waiting are dropped.
+ *
+ * A waiting request gives back its permit of the AdaptiveRequestLimitingHandler
+ * and acquires it again when resumed, so that the requests waiting for a
+ * saturated pipeline don't take the capacity of the whole server; if the
+ * global limit is reached at that time, the request is rejected. Resumed
+ * requests are dispatched to the executor set by the worker-executor
+ * configuration option.
+ *
+ * The active, queued and rejected requests are exposed in the default shared
+ * metric registry as bulkhead.&lt;name&gt;.active, .queued and .rejected
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BulkheadHandler extends PipelinedHandler {
+
+    /**
+     * the prefix of the metrics names
+     */
+    public static final String METRICS_PREFIX = "bulkhead";
+
+    private final int maxConcurrentRequests;
+
+    private final int queueSize;
+
+    private final String retryAfter;
+
+    private final Executor executor;
+
+    // guarded by this
+    private int active = 0;
+
+    // guarded by this
+    private final Queue<HttpServerExchange> queue = new ArrayDeque<>();
+
+    private final Counter rejected;
+
+    private final ExchangeCompletionListener completionListener
+            = (exchange, nextListener) -> {
+                try {
+                    resumeNext();
+                } finally {
+                    nextListener.proceed();
+                }
+            };
+
+    /**
+     * Creates a new instance of BulkheadHandler
+     *
+     * @param name the name of the bulkhead, used in metrics names
+     * @param maxConcurrentRequests the maximum number of concurrent requests
+     * @param queueSize the maximum number of requests waiting
+     * @param retryAfter the value in seconds of the Retry-After header of
+     * rejected requests
+     * @param executor the executor to dispatch resumed requests to, null to
+     * use the undertow worker thread pool
+     */
+    public BulkheadHandler(String name,
+            int maxConcurrentRequests,
+            int queueSize,
+            int retryAfter,
+            Executor executor) {
+        super();
+
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("maxConcurrentRequests must be"
+                    + " greater than 0");
+        }
+
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.queueSize = Math.max(queueSize, 0);
+        this.retryAfter = Integer.toString(retryAfter);
+        this.executor = executor;
+
+        var registry = MetricsUtils.defaultRegistry();
+
+        registry.gauge(MetricRegistry.name(METRICS_PREFIX, name, "active"),
+                () -> (Gauge<Integer>) this::getActive);
+        registry.gauge(MetricRegistry.name(METRICS_PREFIX, name, "queued"),
+                () -> (Gauge<Integer>) this::getQueued);
+        this.rejected = registry.counter(MetricRegistry.name(METRICS_PREFIX,
+                name, "rejected"));
+    }
+
+    /**
+     *
+     * @param exchange
+     * @throws Exception
+     */
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        boolean acquired;
+
+        synchronized (this) {
+            acquired = active < maxConcurrentRequests;
+
+            if (acquired) {
+                active++;
+            }
+        }
+
+        if (acquired) {
+            exchange.addExchangeCompleteListener(completionListener);
+            next(exchange);
+        } else {
+            // the request is queued once the call stack returns, so that
+            // it cannot be resumed while this thread is still handling it
+            exchange.dispatch(SameThreadExecutor.INSTANCE, () -> enqueue(exchange));
+        }
+    }
+
+    private void enqueue(HttpServerExchange exchange) {
+        boolean acquired;
+
+        synchronized (this) {
+            acquired = active < maxConcurrentRequests;
+
+            if (acquired) {
+                active++;
+            } else if (queue.size() < queueSize) {
+                // before queuing, so that it cannot be resumed before
+                AdaptiveRequestLimitingHandler.suspend(exchange);
+                queue.add(exchange);
+                return;
+            }
+        }
+
+        if (acquired) {
+            resume(exchange);
+        } else {
+            reject(exchange);
+        }
+    }
+
+    /**
+     * the completed request leaves its slot to the first waiting request that
+     * can be resumed
+     */
+    private void resumeNext() {
+        while (true) {
+            HttpServerExchange next;
+
+            synchronized (this) {
+                next = queue.poll();
+
+                if (next == null) {
+                    active--;
+                    return;
+                }
+            }
+
+            if (next.isComplete()) {
+                continue;
+            } else if (!next.getConnection().isOpen()) {
+                // the client disconnected while waiting
+                next.endExchange();
+            } else if (!AdaptiveRequestLimitingHandler.resume(next)) {
+                // the global limit is reached
+                reject(next);
+            } else {
+                resume(next);
+                return;
+            }
+        }
+    }
+
+    private void resume(HttpServerExchange exchange) {
+        exchange.addExchangeCompleteListener(completionListener);
+        // the dispatch executor set by WorkerThreadDispatcher is reset by
+        // undertow after the dispatch, so it must be passed again
+        exchange.dispatch(executor, getNext());
+    }
+
+    private void reject(HttpServerExchange exchange) {
+        rejected.inc();
+        exchange.setStatusCode(HttpStatus.SC_SERVICE_UNAVAILABLE);
+        exchange.getResponseHeaders().put(Headers.RETRY_AFTER, retryAfter);
+        exchange.endExchange();
+    }
+
+    /**
+     * @return the number of requests being handled
+     */
+    public synchronized int getActive() {
+        return active;
+    }
+
+    /**
+     * @return the number of requests waiting
+     */
+    public synchronized int getQueued() {
+        return queue.size();
+    }
+}
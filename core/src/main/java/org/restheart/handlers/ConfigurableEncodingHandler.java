@@ -22,10 +22,7 @@ package org.restheart.handlers;
 
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
-import io.undertow.server.handlers.encoding.ContentEncodingRepository;
-import io.undertow.server.handlers.encoding.DeflateEncodingProvider;
 import io.undertow.server.handlers.encoding.EncodingHandler;
-import io.undertow.server.handlers.encoding.GzipEncodingProvider;
 import io.undertow.util.HeaderValues;
 import io.undertow.util.Headers;
 import java.util.Arrays;
@@ -52,9 +49,21 @@ public class ConfigurableEncodingHandler extends EncodingHandler {
      * in Accept-Encoding header will be rejected
      */
     public ConfigurableEncodingHandler(HttpHandler next, boolean forceCompression) {
-        super(next, new ContentEncodingRepository()
-                .addEncodingHandler("gzip", new GzipEncodingProvider(), 60)
-                .addEncodingHandler("deflate", new DeflateEncodingProvider(), 50));
+        this(next, forceCompression, CompressionPolicy.defaultPolicy());
+    }
+
+    /**
+     * Creates a new instance of ConfigurableEncodingHandler
+     *
+     * @param next
+     * @param forceCompression if true requests without gzip or deflate encoding
+     * in Accept-Encoding header will be rejected
+     * @param policy the policy defining which responses are compressed
+     */
+    public ConfigurableEncodingHandler(HttpHandler next,
+            boolean forceCompression,
+            CompressionPolicy policy) {
+        super(next, policy.repository(true));
 
         this.forceCompression = forceCompression;
     }
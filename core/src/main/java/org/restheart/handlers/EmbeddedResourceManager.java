@@ -0,0 +1,505 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.UndertowMessages;
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.resource.RangeAwareResource;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.server.handlers.resource.ResourceChangeListener;
+import io.undertow.server.handlers.resource.ResourceManager;
+import io.undertow.util.DateUtils;
+import io.undertow.util.ETag;
+import io.undertow.util.MimeMappings;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A ResourceManager that serves the resources embedded in a jar file without
+ * extracting them.
+ *
+ * The jar entries under the base path are indexed once, together with their
+ * length, last modified date and ETag (derived from the entry CRC). The content
+ * of an entry is read on first request and kept in memory, up to cacheSize
+ * bytes in total; entries larger than maxCachedEntrySize or exceeding the
+ * cacheSize are streamed from the jar on every request, in chunks of
+ * STREAM_BUFFER_SIZE bytes.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class EmbeddedResourceManager implements ResourceManager {
+
+    static final Logger LOGGER = LoggerFactory.getLogger(EmbeddedResourceManager.class);
+
+    static final int STREAM_BUFFER_SIZE = 16 * 1024;
+
+    private final JarFile jar;
+    private final Map<String, EmbeddedResource> index = new HashMap<>();
+    private final long maxCachedEntrySize;
+    private final AtomicLong cacheAvailable;
+
+    /**
+     *
+     * @param jar the jar file
+     * @param base the base path of the resources in the jar, e.g. static/app
+     * @param maxCachedEntrySize the max size of an entry whose content is kept
+     * in memory
+     * @param cacheSize the max number of bytes kept in memory
+     * @throws IOException
+     */
+    public EmbeddedResourceManager(File jar, String base,
+            long maxCachedEntrySize, long cacheSize) throws IOException {
+        this.jar = new JarFile(jar);
+        this.maxCachedEntrySize = maxCachedEntrySize;
+        this.cacheAvailable = new AtomicLong(cacheSize);
+
+        var prefix = base.endsWith("/") ? base : base.concat("/");
+
+        // the root directory
+        index.put("", new EmbeddedResource("", null));
+
+        var entries = this.jar.entries();
+
+        while (entries.hasMoreElements()) {
+            var entry = entries.nextElement();
+            var name = entry.getName();
+
+            if (!name.startsWith(prefix) || name.length() == prefix.length()) {
+                continue;
+            }
+
+            var path = name.substring(prefix.length());
+
+            if (entry.isDirectory()) {
+                addDirectories(path);
+            } else {
+                index.put(path, new EmbeddedResource(path, entry));
+                addDirectories(path);
+            }
+        }
+    }
+
+    /**
+     * adds the parent directories of path, since jars are not required to have
+     * entries for directories
+     */
+    private void addDirectories(String path) {
+        var idx = path.lastIndexOf('/');
+
+        while (idx > 0) {
+            var dir = path.substring(0, idx);
+
+            if (index.putIfAbsent(dir, new EmbeddedResource(dir, null)) != null) {
+                return;
+            }
+
+            idx = dir.lastIndexOf('/');
+        }
+    }
+
+    /**
+     *
+     * @param url the URL of the embedded resources, as returned by
+     * ClassLoader.getResource()
+     * @return true if url points to an entry of a jar file
+     */
+    public static boolean isInJar(URL url) {
+        return url != null && "jar".equals(url.getProtocol());
+    }
+
+    @Override
+    public Resource getResource(String path) throws IOException {
+        if (path == null) {
+            return null;
+        }
+
+        var _path = path;
+
+        while (_path.startsWith("/")) {
+            _path = _path.substring(1);
+        }
+
+        while (_path.endsWith("/")) {
+            _path = _path.substring(0, _path.length() - 1);
+        }
+
+        return index.get(_path);
+    }
+
+    @Override
+    public boolean isResourceChangeListenerSupported() {
+        return false;
+    }
+
+    @Override
+    public void registerResourceChangeListener(ResourceChangeListener listener) {
+        throw UndertowMessages.MESSAGES.resourceChangeListenerNotSupported();
+    }
+
+    @Override
+    public void removeResourceChangeListener(ResourceChangeListener listener) {
+        throw UndertowMessages.MESSAGES.resourceChangeListenerNotSupported();
+    }
+
+    @Override
+    public void close() throws IOException {
+        jar.close();
+    }
+
+    /**
+     * takes size bytes from the cache budget, if available
+     *
+     * @param size
+     * @return true if the bytes were taken
+     */
+    private boolean reserve(long size) {
+        while (true) {
+            var available = cacheAvailable.get();
+
+            if (available < size) {
+                return false;
+            }
+
+            if (cacheAvailable.compareAndSet(available, available - size)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return the number of bytes that can still be kept in memory
+     */
+    long getCacheAvailable() {
+        return cacheAvailable.get();
+    }
+
+    private class EmbeddedResource implements RangeAwareResource {
+
+        private final String path;
+        private final JarEntry entry;
+        private final Date lastModified;
+        private final String lastModifiedString;
+        private final ETag etag;
+        private volatile ByteBuffer content = null;
+
+        EmbeddedResource(String path, JarEntry entry) {
+            this.path = path;
+            this.entry = entry;
+
+            if (entry != null && entry.getTime() >= 0) {
+                this.lastModified = new Date(entry.getTime());
+                this.lastModifiedString = DateUtils.toDateString(lastModified);
+            } else {
+                this.lastModified = null;
+                this.lastModifiedString = null;
+            }
+
+            this.etag = entry != null && entry.getCrc() >= 0
+                    ? new ETag(false, Long.toHexString(entry.getCrc())
+                            + "-" + Long.toHexString(entry.getSize()))
+                    : null;
+        }
+
+        /**
+         * @return the content kept in memory, reading it if it fits in the
+         * cache, or null if the entry must be streamed from the jar
+         */
+        private ByteBuffer content() throws IOException {
+            var _content = this.content;
+
+            if (_content != null) {
+                return _content.duplicate();
+            }
+
+            var size = entry.getSize();
+
+            if (size < 0 || size > maxCachedEntrySize || !reserve(size)) {
+                return null;
+            }
+
+            byte[] data;
+
+            try (InputStream is = jar.getInputStream(entry)) {
+                data = is.readAllBytes();
+            } catch (IOException ioe) {
+                cacheAvailable.addAndGet(size);
+                throw ioe;
+            }
+
+            synchronized (this) {
+                if (this.content == null) {
+                    this.content = ByteBuffer.wrap(data).asReadOnlyBuffer();
+                } else {
+                    // cached by a concurrent first request
+                    cacheAvailable.addAndGet(size);
+                }
+
+                return this.content.duplicate();
+            }
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public Date getLastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public String getLastModifiedString() {
+            return lastModifiedString;
+        }
+
+        @Override
+        public ETag getETag() {
+            return etag;
+        }
+
+        @Override
+        public String getName() {
+            var idx = path.lastIndexOf('/');
+            return idx < 0 ? path : path.substring(idx + 1);
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return entry == null;
+        }
+
+        @Override
+        public List<Resource> list() {
+            var ret = new ArrayList<Resource>();
+
+            if (isDirectory()) {
+                var prefix = path.isEmpty() ? "" : path.concat("/");
+
+                index.forEach((p, r) -> {
+                    if (p.length() > prefix.length()
+                            && p.startsWith(prefix)
+                            && p.indexOf('/', prefix.length()) < 0) {
+                        ret.add(r);
+                    }
+                });
+            }
+
+            return ret;
+        }
+
+        @Override
+        public String getContentType(MimeMappings mimeMappings) {
+            var name = getName();
+            var idx = name.lastIndexOf('.');
+
+            if (idx != -1 && idx != name.length() - 1) {
+                return mimeMappings.getMimeType(name.substring(idx + 1));
+            }
+
+            return null;
+        }
+
+        @Override
+        public void serve(Sender sender, HttpServerExchange exchange,
+                IoCallback completionCallback) {
+            try {
+                var _content = content();
+
+                if (_content != null) {
+                    sender.send(_content, completionCallback);
+                } else {
+                    new EntryStreamer(entry, sender, exchange, 0, entry.getSize(),
+                            completionCallback).send();
+                }
+            } catch (IOException ioe) {
+                completionCallback.onException(exchange, sender, ioe);
+            }
+        }
+
+        @Override
+        public void serveRange(Sender sender, HttpServerExchange exchange,
+                long start, long end, IoCallback completionCallback) {
+            try {
+                var range = content();
+
+                if (range != null) {
+                    range.position((int) start);
+                    range.limit((int) end + 1);
+                    sender.send(range, completionCallback);
+                } else {
+                    new EntryStreamer(entry, sender, exchange, start, end - start + 1,
+                            completionCallback).send();
+                }
+            } catch (IOException ioe) {
+                completionCallback.onException(exchange, sender, ioe);
+            }
+        }
+
+        @Override
+        public boolean isRangeSupported() {
+            return !isDirectory();
+        }
+
+        @Override
+        public Long getContentLength() {
+            return entry == null || entry.getSize() < 0
+                    ? null
+                    : entry.getSize();
+        }
+
+        @Override
+        public String getCacheKey() {
+            return path;
+        }
+
+        @Override
+        public File getFile() {
+            return null;
+        }
+
+        @Override
+        public Path getFilePath() {
+            return null;
+        }
+
+        @Override
+        public File getResourceManagerRoot() {
+            return null;
+        }
+
+        @Override
+        public Path getResourceManagerRootPath() {
+            return null;
+        }
+
+        @Override
+        public URL getUrl() {
+            return null;
+        }
+    }
+
+    /**
+     * sends length bytes of a jar entry from offset, a chunk at a time; the
+     * next chunk is read when the previous one has been written
+     */
+    private class EntryStreamer implements IoCallback {
+
+        private final Sender sender;
+        private final HttpServerExchange exchange;
+        private final IoCallback completionCallback;
+        private final InputStream is;
+        private final byte[] buffer;
+        private long remaining;
+
+        EntryStreamer(JarEntry entry, Sender sender, HttpServerExchange exchange,
+                long offset, long length, IoCallback completionCallback)
+                throws IOException {
+            this.sender = sender;
+            this.exchange = exchange;
+            this.completionCallback = completionCallback;
+            this.remaining = length;
+            this.buffer = new byte[(int) Math.max(0,
+                    Math.min(length, STREAM_BUFFER_SIZE))];
+            this.is = jar.getInputStream(entry);
+
+            try {
+                while (offset > 0) {
+                    var skipped = is.skip(offset);
+
+                    if (skipped <= 0) {
+                        throw new IOException("unexpected end of jar entry "
+                                + entry.getName());
+                    }
+
+                    offset -= skipped;
+                }
+            } catch (IOException ioe) {
+                is.close();
+                throw ioe;
+            }
+        }
+
+        void send() {
+            onComplete(exchange, sender);
+        }
+
+        @Override
+        public void onComplete(HttpServerExchange exchange, Sender sender) {
+            if (remaining <= 0) {
+                close();
+                completionCallback.onComplete(exchange, sender);
+                return;
+            }
+
+            try {
+                var len = (int) Math.min(buffer.length, remaining);
+                var read = 0;
+
+                while (read < len) {
+                    var n = is.read(buffer, read, len - read);
+
+                    if (n < 0) {
+                        throw new IOException("unexpected end of jar entry");
+                    }
+
+                    read += n;
+                }
+
+                remaining -= len;
+                sender.send(ByteBuffer.wrap(buffer, 0, len), this);
+            } catch (IOException ioe) {
+                onException(exchange, sender, ioe);
+            }
+        }
+
+        @Override
+        public void onException(HttpServerExchange exchange, Sender sender,
+                IOException exception) {
+            close();
+            completionCallback.onException(exchange, sender, exception);
+        }
+
+        private void close() {
+            try {
+                is.close();
+            } catch (IOException ioe) {
+                LOGGER.debug("error closing jar entry stream", ioe);
+            }
+        }
+    }
+}
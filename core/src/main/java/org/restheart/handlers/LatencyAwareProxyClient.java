@@ -0,0 +1,234 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.client.UndertowClient;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.proxy.LoadBalancingProxyClient;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * A LoadBalancingProxyClient that selects the host using the requests it
+ * observed: either the host with the least outstanding requests or the one
+ * with the lowest EWMA latency weighted by its outstanding requests.
+ *
+ * The latency of a request is the time between the host selection and the
+ * commit of the response; a sample higher than the average replaces it,
+ * otherwise samples are averaged with a weight that decays exponentially with
+ * their age (peak EWMA). The average also decays with the time elapsed since
+ * the last sample when the host is scored, so that a host recovers after a
+ * slow period even if it is not selected in the meantime. Ties are broken
+ * rotating the first host considered.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class LatencyAwareProxyClient extends LoadBalancingProxyClient {
+
+    /**
+     * the host selection strategies
+     */
+    public enum Strategy {
+        ROUND_ROBIN("round-robin"),
+        LEAST_REQUESTS("least-requests"),
+        EWMA_LATENCY("ewma-latency");
+
+        private final String name;
+
+        Strategy(String name) {
+            this.name = name;
+        }
+
+        /**
+         *
+         * @param name
+         * @return the strategy with the given name
+         * @throws IllegalArgumentException if name is not a valid strategy
+         */
+        public static Strategy of(String name) {
+            for (var s : values()) {
+                if (s.name.equals(name)) {
+                    return s;
+                }
+            }
+
+            throw new IllegalArgumentException("invalid load balancing strategy "
+                    + name + ", valid values are round-robin, least-requests and ewma-latency");
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    // decay time of the latency samples
+    private static final double DECAY_NANOS = 10_000_000_000d;
+
+    private final Selector selector;
+
+    /**
+     *
+     * @param strategy either LEAST_REQUESTS or EWMA_LATENCY
+     */
+    public LatencyAwareProxyClient(Strategy strategy) {
+        this(new Selector(strategy));
+    }
+
+    private LatencyAwareProxyClient(Selector selector) {
+        super(UndertowClient.getInstance(), null, selector);
+        this.selector = selector;
+    }
+
+    @Override
+    protected Host selectHost(HttpServerExchange exchange) {
+        var host = super.selectHost(exchange);
+
+        if (host != null) {
+            var stats = selector.stats(host.getUri());
+            var start = System.nanoTime();
+
+            stats.inFlight.incrementAndGet();
+
+            exchange.addResponseCommitListener(e -> {
+                var now = System.nanoTime();
+                stats.sample(now - start, now);
+            });
+
+            exchange.addExchangeCompleteListener((e, nextListener) -> {
+                stats.inFlight.decrementAndGet();
+                nextListener.proceed();
+            });
+        }
+
+        return host;
+    }
+
+    /**
+     *
+     * @param uri
+     * @return the number of outstanding requests of the host
+     */
+    public int getInFlight(URI uri) {
+        return selector.stats(uri).inFlight.get();
+    }
+
+    /**
+     *
+     * @param uri
+     * @return the EWMA latency of the host in nanoseconds, decayed since the
+     * last sample
+     */
+    public double getLatency(URI uri) {
+        return selector.stats(uri).latency(System.nanoTime());
+    }
+
+    static class Selector implements HostSelector {
+
+        private final Strategy strategy;
+        private final Map<URI, Stats> stats = new ConcurrentHashMap<>();
+        private final AtomicInteger offset = new AtomicInteger();
+
+        Selector(Strategy strategy) {
+            this.strategy = strategy;
+        }
+
+        Stats stats(URI uri) {
+            return stats.computeIfAbsent(uri, k -> new Stats());
+        }
+
+        @Override
+        public int selectHost(Host[] hosts) {
+            return select(hosts.length, idx -> hosts[idx].getUri(),
+                    System.nanoTime());
+        }
+
+        /**
+         * @param count the number of hosts
+         * @param uris the URIs of the hosts by index
+         * @param now
+         * @return the index of the selected host
+         */
+        int select(int count, IntFunction<URI> uris, long now) {
+            var first = Math.floorMod(offset.getAndIncrement(), count);
+
+            if (strategy == Strategy.ROUND_ROBIN) {
+                return first;
+            }
+
+            var selected = first;
+            var min = Double.MAX_VALUE;
+
+            for (int i = 0; i < count; i++) {
+                var idx = (first + i) % count;
+                var score = stats(uris.apply(idx)).score(strategy, now);
+
+                if (score < min) {
+                    min = score;
+                    selected = idx;
+                }
+            }
+
+            return selected;
+        }
+    }
+
+    static class Stats {
+
+        final AtomicInteger inFlight = new AtomicInteger();
+        private volatile double ewma = 0;
+        private volatile long last = System.nanoTime();
+
+        synchronized void sample(long latency, long now) {
+            var w = weight(last, now);
+
+            // slower samples are taken immediately, to react to slowdowns
+            ewma = latency > ewma * w ? latency : ewma * w + latency * (1 - w);
+            last = now;
+        }
+
+        /**
+         * @param now
+         * @return the EWMA latency decayed since the last sample
+         */
+        double latency(long now) {
+            var _last = last;
+            var _ewma = ewma;
+
+            return _ewma * weight(_last, now);
+        }
+
+        double score(Strategy strategy, long now) {
+            var outstanding = inFlight.get();
+
+            return strategy == Strategy.LEAST_REQUESTS
+                    ? outstanding
+                    : (latency(now) + 1) * (outstanding + 1);
+        }
+
+        private static double weight(long last, long now) {
+            return Math.exp(-Math.max(0, now - last) / DECAY_NANOS);
+        }
+    }
+}
@@ -25,15 +25,19 @@ import io.undertow.server.HttpServerExchange;
 import io.undertow.server.protocol.http.ServerFixedLengthStreamSinkConduit;
 import io.undertow.util.Headers;
 import java.io.IOException;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Objects;
 import org.restheart.exchange.ByteArrayProxyResponse;
 import static org.restheart.exchange.Exchange.MAX_BUFFERS;
 import org.restheart.exchange.ProxyResponse;
 import org.restheart.utils.BuffersUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xnio.Buffers;
 import org.xnio.IoUtils;
 import org.xnio.channels.StreamSourceChannel;
 import org.xnio.conduits.AbstractStreamSinkConduit;
@@ -54,11 +58,44 @@ public class ModifiableContentSinkConduit
 
     static final Logger LOGGER = LoggerFactory.getLogger(ModifiableContentSinkConduit.class);
 
-    //private ByteBuffer data = null;
+    /**
+     * ServerFixedLengthStreamSinkConduit.reset(long, HttpServerExchange) is
+     * not public; it is resolved once via reflection
+     */
+    private static final MethodHandle RESET_FIXED_LENGTH;
+
+    static {
+        MethodHandle mh;
+
+        try {
+            var m = ServerFixedLengthStreamSinkConduit.class.getDeclaredMethod(
+                    "reset",
+                    long.class,
+                    HttpServerExchange.class);
+            m.setAccessible(true);
+            mh = MethodHandles.lookup().unreflect(m);
+        } catch (NoSuchMethodException
+                | SecurityException
+                | IllegalAccessException ex) {
+            LOGGER.error("could not find ServerFixedLengthStreamSinkConduit.reset method", ex);
+            mh = null;
+        }
+
+        RESET_FIXED_LENGTH = mh;
+    }
+
     private final HttpServerExchange exchange;
 
     private final ResponseInterceptorsExecutor interceptorsExecutor;
 
+    /**
+     * the buffered response data still to be written to the next conduit,
+     * null until terminateWrites() is called
+     */
+    private ByteBuffer[] pending = null;
+
+    private boolean nextTerminated = false;
+
     /**
      * Construct a new instance.
      *
@@ -94,13 +131,26 @@ public class ModifiableContentSinkConduit
     }
 
     @Override
-    public long write(ByteBuffer[] dsts, int offs, int len) throws IOException {
-        for (int i = offs; i < len; ++i) {
-            if (dsts[i].hasRemaining()) {
-                return write(dsts[i]);
+    public long write(ByteBuffer[] srcs, int offs, int len) throws IOException {
+        long written = 0;
+
+        for (int i = offs; i < offs + len; ++i) {
+            var src = srcs[i];
+
+            if (src.hasRemaining()) {
+                var remaining = src.remaining();
+                var copied = write(src);
+
+                written += copied;
+
+                // the buffers pool is full
+                if (copied < remaining) {
+                    break;
+                }
             }
         }
-        return 0;
+
+        return written;
     }
 
     @Override
@@ -125,6 +175,10 @@ public class ModifiableContentSinkConduit
 
     @Override
     public void terminateWrites() throws IOException {
+        if (pending != null) {
+            return;
+        }
+
         try {
             interceptorsExecutor.handleRequest(exchange);
         } catch (Exception e) {
@@ -134,48 +188,63 @@ public class ModifiableContentSinkConduit
         PooledByteBuffer[] dests = ByteArrayProxyResponse.of(exchange)
                 .getBuffer();
 
-        updateContentLenght(exchange, dests);
+        pending = Arrays.stream(dests)
+                .filter(Objects::nonNull)
+                .map(PooledByteBuffer::getBuffer)
+                .toArray(ByteBuffer[]::new);
 
-        for (PooledByteBuffer dest : dests) {
-            if (dest != null) {
-                next.write(dest.getBuffer());
+        updateContentLenght(exchange, BuffersUtils.remaining(dests));
+
+        terminateNextIfWritten();
+    }
+
+    @Override
+    public boolean flush() throws IOException {
+        if (pending != null && !nextTerminated) {
+            terminateNextIfWritten();
+
+            if (!nextTerminated) {
+                return false;
             }
         }
 
-        next.terminateWrites();
+        return next.flush();
     }
 
-    private void updateContentLenght(HttpServerExchange exchange, PooledByteBuffer[] dests) {
-        long length = 0;
-
-        for (PooledByteBuffer dest : dests) {
-            if (dest != null) {
-                length += dest.getBuffer().limit();
+    /**
+     * writes the buffered data to the next conduit with gathering writes and,
+     * once all of it has been written, terminates the writes of next conduit.
+     * If the next conduit cannot accept more data, the remaining is written
+     * by the following flush()
+     */
+    private void terminateNextIfWritten() throws IOException {
+        while (Buffers.hasRemaining(pending)) {
+            if (next.write(pending, 0, pending.length) == 0) {
+                return;
             }
         }
 
+        nextTerminated = true;
+        next.terminateWrites();
+    }
+
+    private void updateContentLenght(HttpServerExchange exchange, long length) {
         exchange.getResponseHeaders().put(Headers.CONTENT_LENGTH, length);
 
         // need also to update lenght of ServerFixedLengthStreamSinkConduit
         if (next instanceof ServerFixedLengthStreamSinkConduit) {
-            Method m;
-
-            try {
-                m = ServerFixedLengthStreamSinkConduit.class.getDeclaredMethod(
-                        "reset",
-                        long.class,
-                        HttpServerExchange.class);
-                m.setAccessible(true);
-            } catch (NoSuchMethodException | SecurityException ex) {
-                LOGGER.error("could not find ServerFixedLengthStreamSinkConduit.reset method", ex);
-                throw new RuntimeException("could not find ServerFixedLengthStreamSinkConduit.reset method", ex);
+            if (RESET_FIXED_LENGTH == null) {
+                throw new RuntimeException("could not find ServerFixedLengthStreamSinkConduit.reset method");
             }
 
             try {
-                m.invoke(next, length, exchange);
+                RESET_FIXED_LENGTH.invokeExact(
+                        (ServerFixedLengthStreamSinkConduit) next,
+                        length,
+                        exchange);
             } catch (Throwable ex) {
-                LOGGER.error("could not access BUFFERED_REQUEST_DATA field", ex);
-                throw new RuntimeException("could not access BUFFERED_REQUEST_DATA field", ex);
+                LOGGER.error("could not invoke ServerFixedLengthStreamSinkConduit.reset method", ex);
+                throw new RuntimeException("could not invoke ServerFixedLengthStreamSinkConduit.reset method", ex);
             }
         } else {
             LOGGER.warn("updateContentLenght() next is {}", next.getClass().getSimpleName());
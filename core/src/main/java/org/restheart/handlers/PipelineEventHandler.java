@@ -0,0 +1,66 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.server.HttpServerExchange;
+import org.restheart.exchange.PipelineInfo;
+import org.restheart.jfr.PipelineRequestEvent;
+
+/**
+ * Records a PipelineRequestEvent for every request handled by the pipeline,
+ * ending it when the exchange completes. Nothing is done when no flight
+ * recording is enabling the event.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class PipelineEventHandler extends PipelinedHandler {
+
+    private final PipelineInfo info;
+
+    /**
+     *
+     * @param info the info of the pipeline
+     * @param next the first handler of the pipeline
+     */
+    public PipelineEventHandler(PipelineInfo info, PipelinedHandler next) {
+        super(next);
+        this.info = info;
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        var event = new PipelineRequestEvent();
+
+        if (event.isEnabled()) {
+            event.begin();
+
+            exchange.addExchangeCompleteListener((ex, nextListener) -> {
+                try {
+                    event.complete(info, ex);
+                } finally {
+                    nextListener.proceed();
+                }
+            });
+        }
+
+        next(exchange);
+    }
+}
@@ -0,0 +1,132 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.undertow.server.HttpServerExchange;
+import java.util.concurrent.TimeUnit;
+import org.restheart.exchange.PipelineInfo;
+import org.restheart.utils.MetricsUtils;
+
+/**
+ * Records the metrics of a pipeline in the default metrics registry, the one
+ * exposed by /_metrics. Metrics are named pipelines.&lt;pipeline name&gt;:
+ *
+ * <ul>
+ * <li>requests: timer of the requests latency</li>
+ * <li>responses.1xx ... responses.5xx: meters of the response status
+ * classes</li>
+ * <li>in-flight: counter of the requests being handled</li>
+ * <li>request-bytes: histogram of the request content length</li>
+ * <li>response-bytes: histogram of the bytes sent in the response</li>
+ * </ul>
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class PipelineMetricsHandler extends PipelinedHandler {
+
+    private static final String METRICS_PREFIX = "pipelines";
+
+    private static volatile boolean enabled = true;
+
+    private final Timer requests;
+    private final Meter[] statusClasses = new Meter[5];
+    private final Counter inFlight;
+    private final Histogram requestBytes;
+    private final Histogram responseBytes;
+
+    /**
+     *
+     * @param info the info of the pipeline
+     * @param next the first handler of the pipeline
+     */
+    public PipelineMetricsHandler(PipelineInfo info, PipelinedHandler next) {
+        super(next);
+
+        var registry = MetricsUtils.defaultRegistry();
+        var name = MetricRegistry.name(METRICS_PREFIX, info.getName() != null
+                ? info.getName()
+                : info.getUri());
+
+        this.requests = registry.timer(MetricRegistry.name(name, "requests"));
+        this.inFlight = registry.counter(MetricRegistry.name(name, "in-flight"));
+        this.requestBytes = registry.histogram(MetricRegistry.name(name, "request-bytes"));
+        this.responseBytes = registry.histogram(MetricRegistry.name(name, "response-bytes"));
+
+        for (int idx = 0; idx < statusClasses.length; idx++) {
+            statusClasses[idx] = registry.meter(MetricRegistry.name(name,
+                    "responses", (idx + 1) + "xx"));
+        }
+    }
+
+    /**
+     * @return true if the pipelines metrics are recorded
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled true to record the pipelines metrics
+     */
+    public static void setEnabled(boolean enabled) {
+        PipelineMetricsHandler.enabled = enabled;
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        if (!enabled) {
+            next(exchange);
+            return;
+        }
+
+        final long start = System.nanoTime();
+
+        inFlight.inc();
+
+        exchange.addExchangeCompleteListener((ex, nextListener) -> {
+            try {
+                inFlight.dec();
+                requests.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+                var statusClass = ex.getStatusCode() / 100;
+
+                if (statusClass >= 1 && statusClass <= statusClasses.length) {
+                    statusClasses[statusClass - 1].mark();
+                }
+
+                if (ex.getRequestContentLength() >= 0) {
+                    requestBytes.update(ex.getRequestContentLength());
+                }
+
+                responseBytes.update(ex.getResponseBytesSent());
+            } finally {
+                nextListener.proceed();
+            }
+        });
+
+        next(exchange);
+    }
+}
@@ -0,0 +1,588 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.DateUtils;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.restheart.plugins.security.TokenManager.AUTH_TOKEN_HEADER;
+import static org.restheart.plugins.security.TokenManager.AUTH_TOKEN_LOCATION_HEADER;
+import static org.restheart.plugins.security.TokenManager.AUTH_TOKEN_VALID_HEADER;
+import org.restheart.utils.MetricsUtils;
+
+/**
+ * The response cache of a proxy.
+ *
+ * Responses are stored according to their Cache-Control, Expires and Vary
+ * headers and evicted in LRU order when their total size exceeds the size of
+ * the cache.
+ *
+ * Entries are keyed after authentication: responses with Cache-Control:
+ * private are stored and looked up per authenticated user, and so are the
+ * responses to authenticated requests, since the backend receives the account
+ * in the X-Forwarded-Account headers, unless they have Cache-Control: public,
+ * s-maxage or must-revalidate (RFC 7234, section 3.2). The other responses are
+ * shared. Responses with Set-Cookie, Vary: * or Cache-Control: no-store are
+ * never stored.
+ *
+ * Only the headers from the backend are stored: the ones set by RESTHeart
+ * before proxying the request, as the auth token headers, are not.
+ *
+ * The hits, misses and revalidations are exposed in the default shared metric
+ * registry as proxy-cache.&lt;name&gt;.hits, .misses and .revalidations; the
+ * size of the cache as proxy-cache.&lt;name&gt;.bytes
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ProxyCache {
+
+    /**
+     * the prefix of the metrics names
+     */
+    public static final String METRICS_PREFIX = "proxy-cache";
+
+    private static final String SHARED = "*";
+
+    private static final Set<HttpString> NOT_STORED_HEADERS = Set.of(
+            Headers.CONNECTION,
+            Headers.KEEP_ALIVE,
+            Headers.PROXY_AUTHENTICATE,
+            Headers.PROXY_AUTHORIZATION,
+            Headers.TE,
+            Headers.TRAILER,
+            Headers.TRANSFER_ENCODING,
+            Headers.UPGRADE,
+            Headers.CONTENT_LENGTH,
+            Headers.AGE,
+            AUTH_TOKEN_HEADER,
+            AUTH_TOKEN_VALID_HEADER,
+            AUTH_TOKEN_LOCATION_HEADER);
+
+    private static final Set<Integer> CACHEABLE_STATUS_CODES = Set.of(
+            200, 203, 300, 301, 404, 410);
+
+    private final Cache<String, Entry> entries;
+    private final long maxEntrySize;
+    private final AtomicLong generations = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter revalidations;
+
+    /**
+     *
+     * @param name the name of the cache, used in the metrics names
+     * @param size the max number of bytes of the stored responses
+     * @param maxEntrySize the max size of a stored response content
+     */
+    public ProxyCache(String name, long size, long maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+        this.entries = CacheBuilder.newBuilder()
+                .maximumWeight(size)
+                .weigher((String k, Entry e) -> k.length() + e.weight())
+                .build();
+
+        var registry = MetricsUtils.defaultRegistry();
+
+        this.hits = registry.counter(MetricRegistry.name(METRICS_PREFIX, name, "hits"));
+        this.misses = registry.counter(MetricRegistry.name(METRICS_PREFIX, name, "misses"));
+        this.revalidations = registry.counter(MetricRegistry.name(METRICS_PREFIX, name, "revalidations"));
+
+        registry.gauge(MetricRegistry.name(METRICS_PREFIX, name, "bytes"),
+                () -> (Gauge<Long>) () -> entries.asMap().entrySet().stream()
+                        .mapToLong(e -> e.getKey().length() + e.getValue().weight())
+                        .sum());
+    }
+
+    /**
+     * @return the max size of a stored response content
+     */
+    public long getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    /**
+     * Looks up the response to the request, first among the ones stored for
+     * the authenticated user and then among the shared ones
+     *
+     * @param exchange
+     * @return the stored response or null
+     */
+    public Entry get(HttpServerExchange exchange) {
+        var user = user(exchange);
+
+        var ret = user == null ? null : get(key(user, exchange), exchange);
+
+        return ret != null ? ret : get(key(SHARED, exchange), exchange);
+    }
+
+    private Entry get(String key, HttpServerExchange exchange) {
+        var entry = entries.getIfPresent(key);
+
+        if (entry == null || entry.vary == null) {
+            return entry;
+        } else {
+            // entry is the marker of the responses with Vary
+            return entries.getIfPresent(variantKey(key, entry, exchange));
+        }
+    }
+
+    /**
+     * Stores the response to the request
+     *
+     * @param exchange
+     * @param entry
+     */
+    public void put(HttpServerExchange exchange, Entry entry) {
+        var user = user(exchange);
+
+        var key = key(entry.isPrivate() || (user != null && !entry.isShareable())
+                ? user
+                : SHARED, exchange);
+        var vary = entry.getVary();
+
+        if (vary.length == 0) {
+            entries.put(key, entry);
+        } else {
+            // the variants are keyed by the generation of the marker, so
+            // they are no longer found when the marker is replaced or removed
+            var marker = entries.asMap().compute(key, (k, e) -> e != null
+                    && e.vary != null
+                    && Arrays.equals(e.vary, vary)
+                    ? e
+                    : Entry.varyMarker(vary, generations.incrementAndGet()));
+
+            entries.put(variantKey(key, marker, exchange), entry);
+        }
+    }
+
+    /**
+     * Removes the responses to the request URI, both shared and stored for
+     * the authenticated user; invoked for requests with unsafe methods.
+     *
+     * The variants of the responses with Vary are no longer found once their
+     * marker is removed, and are then evicted in LRU order
+     *
+     * @param exchange
+     */
+    public void invalidate(HttpServerExchange exchange) {
+        var user = user(exchange);
+
+        if (user != null) {
+            entries.invalidate(key(user, exchange));
+        }
+
+        entries.invalidate(key(SHARED, exchange));
+    }
+
+    /**
+     * @param exchange
+     * @return true if the response can be stored
+     */
+    public boolean isStorable(HttpServerExchange exchange) {
+        if (!CACHEABLE_STATUS_CODES.contains(exchange.getStatusCode())) {
+            return false;
+        }
+
+        var request = directives(exchange.getRequestHeaders());
+        var response = directives(exchange.getResponseHeaders());
+        var headers = exchange.getResponseHeaders();
+
+        if (request.containsKey("no-store")
+                || response.containsKey("no-store")
+                || headers.contains(Headers.SET_COOKIE)
+                || Arrays.stream(vary(headers))
+                        .anyMatch(h -> "*".equals(h.toString()))) {
+            return false;
+        }
+
+        if (response.containsKey("private") && user(exchange) == null) {
+            return false;
+        }
+
+        var contentLength = headers.getFirst(Headers.CONTENT_LENGTH);
+
+        if (contentLength != null) {
+            try {
+                if (Long.parseLong(contentLength) > maxEntrySize) {
+                    return false;
+                }
+            } catch (NumberFormatException nfe) {
+                return false;
+            }
+        }
+
+        // either fresh for some time or revalidable
+        return freshnessLifetime(headers, response) > 0
+                || headers.contains(Headers.ETAG)
+                || headers.contains(Headers.LAST_MODIFIED);
+    }
+
+    void hit() {
+        hits.inc();
+    }
+
+    void miss() {
+        misses.inc();
+    }
+
+    void revalidation() {
+        revalidations.inc();
+    }
+
+    private static String user(HttpServerExchange exchange) {
+        var sc = exchange.getSecurityContext();
+
+        if (sc == null || sc.getAuthenticatedAccount() == null
+                || sc.getAuthenticatedAccount().getPrincipal() == null) {
+            return null;
+        }
+
+        return sc.getAuthenticatedAccount().getPrincipal().getName();
+    }
+
+    private static String key(String user, HttpServerExchange exchange) {
+        var qs = exchange.getQueryString();
+
+        return user + " " + exchange.getRequestURI()
+                + (qs == null || qs.isEmpty() ? "" : "?".concat(qs));
+    }
+
+    private static String variantKey(String key, Entry marker,
+            HttpServerExchange exchange) {
+        var sb = new StringBuilder(key).append('\n').append(marker.generation);
+
+        for (var header : marker.vary) {
+            sb.append('\n').append(String.join(",",
+                    exchange.getRequestHeaders().eachValue(header)));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * @param headers
+     * @return the values of all the Vary headers, split on commas
+     */
+    static HttpString[] vary(HeaderMap headers) {
+        var values = headers.get(Headers.VARY);
+
+        if (values == null) {
+            return new HttpString[0];
+        }
+
+        return values.stream()
+                .flatMap(v -> Arrays.stream(v.split(",")))
+                .map(String::trim)
+                .filter(v -> !v.isEmpty())
+                .map(HttpString::tryFromString)
+                .toArray(HttpString[]::new);
+    }
+
+    /**
+     * @param headers
+     * @return the Cache-Control directives, names in lowercase
+     */
+    static Map<String, String> directives(HeaderMap headers) {
+        var ret = new HashMap<String, String>();
+        var values = headers.get(Headers.CACHE_CONTROL);
+
+        if (values != null) {
+            for (var value : values) {
+                for (var directive : value.split(",")) {
+                    var idx = directive.indexOf('=');
+
+                    if (idx < 0) {
+                        ret.put(directive.trim().toLowerCase(), null);
+                    } else {
+                        ret.put(directive.substring(0, idx).trim().toLowerCase(),
+                                directive.substring(idx + 1).trim().replace("\"", ""));
+                    }
+                }
+            }
+        }
+
+        if (headers.contains(Headers.PRAGMA)
+                && headers.getFirst(Headers.PRAGMA).contains("no-cache")) {
+            ret.putIfAbsent("no-cache", null);
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return the freshness lifetime in seconds, from s-maxage, max-age or
+     * Expires
+     */
+    private static long freshnessLifetime(HeaderMap headers,
+            Map<String, String> directives) {
+        if (directives.containsKey("no-cache")) {
+            return 0;
+        }
+
+        var maxAge = seconds(directives.get("s-maxage"));
+
+        if (maxAge < 0) {
+            maxAge = seconds(directives.get("max-age"));
+        }
+
+        if (maxAge >= 0) {
+            return maxAge;
+        }
+
+        var expires = date(headers.getFirst(Headers.EXPIRES));
+
+        if (expires == null) {
+            return 0;
+        }
+
+        var date = date(headers.getFirst(Headers.DATE));
+
+        return Math.max(0, (expires.getTime() - (date == null
+                ? System.currentTimeMillis()
+                : date.getTime())) / 1000);
+    }
+
+    private static long seconds(String value) {
+        if (value == null) {
+            return -1;
+        }
+
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException nfe) {
+            return -1;
+        }
+    }
+
+    private static Date date(String value) {
+        return value == null ? null : DateUtils.parseDate(value);
+    }
+
+    /**
+     * A stored response
+     */
+    public static class Entry {
+
+        private final int status;
+        private final HeaderMap headers;
+        private final byte[] content;
+        private final long responseTime;
+        private final long initialAge;
+        private final long freshnessLifetime;
+        private final boolean _private;
+        private final boolean shareable;
+        private final HttpString[] vary;
+        private final long generation;
+
+        private Entry(int status, HeaderMap headers, byte[] content,
+                long responseTime, long initialAge, HttpString[] vary,
+                long generation) {
+            this.status = status;
+            this.headers = headers;
+            this.content = content;
+            this.responseTime = responseTime;
+            this.initialAge = initialAge;
+            this.vary = vary;
+            this.generation = generation;
+
+            if (headers != null) {
+                var directives = directives(headers);
+
+                this.freshnessLifetime = freshnessLifetime(headers, directives);
+                this._private = directives.containsKey("private");
+                this.shareable = directives.containsKey("public")
+                        || directives.containsKey("s-maxage")
+                        || directives.containsKey("must-revalidate");
+            } else {
+                this.freshnessLifetime = 0;
+                this._private = false;
+                this.shareable = false;
+            }
+        }
+
+        /**
+         * @param exchange the exchange whose response is stored, after the
+         * status code and the headers are set
+         * @param proxyHeaders the response headers set before proxying the
+         * request, not stored unless the backend replaced them
+         * @param content the response content
+         * @return the stored response
+         */
+        public static Entry of(HttpServerExchange exchange,
+                HeaderMap proxyHeaders, byte[] content) {
+            var headers = new HeaderMap();
+
+            copy(exchange.getResponseHeaders(), proxyHeaders, headers);
+
+            // the Age header is not stored, since it is set when sending
+            return new Entry(exchange.getStatusCode(), headers, content,
+                    System.currentTimeMillis(),
+                    initialAge(exchange.getResponseHeaders()), null, 0);
+        }
+
+        /**
+         * @param content
+         * @return a copy of this entry with the given content
+         */
+        public Entry withContent(byte[] content) {
+            return new Entry(status, headers, content, responseTime,
+                    initialAge, null, 0);
+        }
+
+        private static Entry varyMarker(HttpString[] vary, long generation) {
+            return new Entry(0, null, null, 0, 0, vary, generation);
+        }
+
+        private static void copy(HeaderMap from, HeaderMap exclude,
+                HeaderMap to) {
+            for (HeaderValues values : from) {
+                var name = values.getHeaderName();
+
+                if (!NOT_STORED_HEADERS.contains(name)
+                        && (exclude == null || !exclude.contains(name)
+                        || !Arrays.equals(exclude.get(name).toArray(), values.toArray()))) {
+                    to.putAll(name, values);
+                }
+            }
+        }
+
+        /**
+         * @param notModified the headers of a 304 Not Modified response
+         * @param proxyHeaders the response headers set before proxying the
+         * request, not stored unless the backend replaced them
+         * @return a new entry with the headers updated from the 304 response
+         */
+        public Entry refresh(HeaderMap notModified, HeaderMap proxyHeaders) {
+            var _headers = new HeaderMap();
+
+            copy(headers, null, _headers);
+            copy(notModified, proxyHeaders, _headers);
+
+            return new Entry(status, _headers, content,
+                    System.currentTimeMillis(), initialAge(notModified), null, 0);
+        }
+
+        private static long initialAge(HeaderMap headers) {
+            return Math.max(0, seconds(headers.getFirst(Headers.AGE)));
+        }
+
+        /**
+         * @return the current age in seconds
+         */
+        public long age() {
+            return initialAge + (System.currentTimeMillis() - responseTime) / 1000;
+        }
+
+        /**
+         * @return true if the entry can be used without revalidation
+         */
+        public boolean isFresh() {
+            return freshnessLifetime > age();
+        }
+
+        /**
+         * @return true if the entry has an ETag or a Last-Modified header
+         */
+        public boolean isRevalidable() {
+            return getETag() != null || getLastModified() != null;
+        }
+
+        /**
+         * @return true if the response has Cache-Control: private
+         */
+        public boolean isPrivate() {
+            return _private;
+        }
+
+        /**
+         * @return true if the response to an authenticated request can be
+         * shared, i.e. it has Cache-Control: public, s-maxage or
+         * must-revalidate
+         */
+        public boolean isShareable() {
+            return shareable && !_private;
+        }
+
+        /**
+         * @return the status code
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the headers, hop-by-hop headers excluded
+         */
+        public HeaderMap getHeaders() {
+            return headers;
+        }
+
+        /**
+         * @return the content
+         */
+        public byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * @return the value of the ETag header
+         */
+        public String getETag() {
+            return headers.getFirst(Headers.ETAG);
+        }
+
+        /**
+         * @return the value of the Last-Modified header
+         */
+        public String getLastModified() {
+            return headers.getFirst(Headers.LAST_MODIFIED);
+        }
+
+        /**
+         * @return the names of the request headers listed in the Vary header
+         */
+        public HttpString[] getVary() {
+            return vary(headers);
+        }
+
+        private int weight() {
+            // rough estimate of the headers size
+            return (content == null ? 0 : content.length)
+                    + (headers == null ? 0 : headers.size() * 64)
+                    + 64;
+        }
+    }
+}
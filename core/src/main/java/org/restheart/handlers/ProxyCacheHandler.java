@@ -0,0 +1,220 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.ConduitFactory;
+import io.undertow.util.DateUtils;
+import io.undertow.util.ETagUtils;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import java.nio.ByteBuffer;
+import org.restheart.jfr.CacheEvent;
+import org.restheart.utils.HttpStatus;
+import org.xnio.conduits.StreamSinkConduit;
+
+/**
+ * Serves the responses of a proxy from its ProxyCache.
+ *
+ * It wraps the ProxyHandler, so it is executed after authentication and
+ * authorization and its responses go through the response interceptors and
+ * the encoding handler as the ones from the backend.
+ *
+ * Fresh stored responses are sent without contacting the backend; stale
+ * responses with ETag or Last-Modified are revalidated with If-None-Match or
+ * If-Modified-Since, and sent if the backend replies 304 Not Modified. Other
+ * cacheable responses from the backend are stored.
+ *
+ * The stored headers are added to the response only when not already set, so
+ * the ones set by RESTHeart for the current request are kept.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ProxyCacheHandler implements HttpHandler {
+
+    private final ProxyCache cache;
+    private final HttpHandler next;
+
+    /**
+     *
+     * @param cache the cache
+     * @param next the ProxyHandler
+     */
+    public ProxyCacheHandler(ProxyCache cache, HttpHandler next) {
+        this.cache = cache;
+        this.next = next;
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        var method = exchange.getRequestMethod();
+
+        if (!Methods.GET.equals(method)) {
+            if (!Methods.HEAD.equals(method) && !Methods.OPTIONS.equals(method)) {
+                cache.invalidate(exchange);
+            }
+
+            next.handleRequest(exchange);
+            return;
+        }
+
+        var directives = ProxyCache.directives(exchange.getRequestHeaders());
+
+        if (directives.containsKey("no-store")) {
+            next.handleRequest(exchange);
+            return;
+        }
+
+        var entry = directives.containsKey("no-cache")
+                || "0".equals(directives.get("max-age"))
+                ? null
+                : cache.get(exchange);
+
+        if (entry != null && entry.isFresh()) {
+            cache.hit();
+            CacheEvent.record("proxy-cache", true, exchange.getRequestPath());
+            send(exchange, entry);
+        } else if (entry != null && entry.isRevalidable()
+                && !exchange.getRequestHeaders().contains(Headers.IF_NONE_MATCH)
+                && !exchange.getRequestHeaders().contains(Headers.IF_MODIFIED_SINCE)) {
+            revalidate(exchange, entry);
+        } else {
+            cache.miss();
+            CacheEvent.record("proxy-cache", false, exchange.getRequestPath());
+            store(exchange);
+        }
+    }
+
+    private void send(HttpServerExchange exchange, ProxyCache.Entry entry) {
+        var etag = entry.getETag();
+        var lastModified = entry.getLastModified();
+
+        var notModified = etag != null
+                ? !ETagUtils.handleIfNoneMatch(exchange, ETagUtils.parseETagList(etag), true)
+                : lastModified != null
+                && !DateUtils.handleIfModifiedSince(exchange, DateUtils.parseDate(lastModified));
+
+        setHeaders(exchange, entry);
+
+        if (notModified) {
+            exchange.getResponseHeaders().remove(Headers.CONTENT_LENGTH);
+            exchange.setStatusCode(HttpStatus.SC_NOT_MODIFIED);
+            exchange.endExchange();
+        } else {
+            exchange.setStatusCode(entry.getStatus());
+            exchange.getResponseSender().send(ByteBuffer.wrap(entry.getContent()));
+        }
+    }
+
+    private void setHeaders(HttpServerExchange exchange, ProxyCache.Entry entry) {
+        var headers = exchange.getResponseHeaders();
+
+        for (HeaderValues values : entry.getHeaders()) {
+            if (!headers.contains(values.getHeaderName())) {
+                headers.putAll(values.getHeaderName(), values);
+            }
+        }
+
+        headers.remove(Headers.TRANSFER_ENCODING);
+        headers.put(Headers.CONTENT_LENGTH, entry.getContent().length);
+        headers.put(Headers.AGE, entry.age());
+    }
+
+    private void revalidate(HttpServerExchange exchange, ProxyCache.Entry entry)
+            throws Exception {
+        var proxyHeaders = proxyHeaders(exchange);
+
+        if (entry.getETag() != null) {
+            exchange.getRequestHeaders().put(Headers.IF_NONE_MATCH, entry.getETag());
+        }
+
+        if (entry.getLastModified() != null) {
+            exchange.getRequestHeaders().put(Headers.IF_MODIFIED_SINCE, entry.getLastModified());
+        }
+
+        exchange.addResponseWrapper((ConduitFactory<StreamSinkConduit> factory,
+                HttpServerExchange cexchange) -> {
+            if (cexchange.getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+                cache.revalidation();
+
+                var refreshed = entry.refresh(cexchange.getResponseHeaders(),
+                        proxyHeaders);
+                cache.put(cexchange, refreshed);
+
+                // headers must be set before creating the next conduits
+                setHeaders(cexchange, refreshed);
+                cexchange.setStatusCode(refreshed.getStatus());
+
+                return new ProxyCacheSinkConduit(factory.create(),
+                        refreshed.getContent());
+            } else {
+                cache.miss();
+                return capture(factory, cexchange, proxyHeaders);
+            }
+        });
+
+        next.handleRequest(exchange);
+    }
+
+    private void store(HttpServerExchange exchange) throws Exception {
+        var proxyHeaders = proxyHeaders(exchange);
+
+        exchange.addResponseWrapper((ConduitFactory<StreamSinkConduit> factory,
+                HttpServerExchange cexchange) -> capture(factory, cexchange,
+                        proxyHeaders));
+
+        next.handleRequest(exchange);
+    }
+
+    /**
+     * @return a copy of the response headers set before proxying the request
+     */
+    private static HeaderMap proxyHeaders(HttpServerExchange exchange) {
+        var ret = new HeaderMap();
+
+        for (HeaderValues values : exchange.getResponseHeaders()) {
+            ret.putAll(values.getHeaderName(), values);
+        }
+
+        return ret;
+    }
+
+    private StreamSinkConduit capture(ConduitFactory<StreamSinkConduit> factory,
+            HttpServerExchange exchange, HeaderMap proxyHeaders) {
+        if (!cache.isStorable(exchange)) {
+            return factory.create();
+        }
+
+        var entry = ProxyCache.Entry.of(exchange, proxyHeaders, null);
+        var contentLength = exchange.getResponseContentLength();
+
+        return new ProxyCacheSinkConduit(factory.create(),
+                cache.getMaxEntrySize(), content -> {
+                    // don't store truncated responses
+                    if (contentLength < 0 || contentLength == content.length) {
+                        cache.put(exchange, entry.withContent(content));
+                    }
+                });
+    }
+}
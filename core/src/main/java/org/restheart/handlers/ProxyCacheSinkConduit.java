@@ -0,0 +1,230 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.Consumer;
+import org.xnio.channels.StreamSourceChannel;
+import org.xnio.conduits.AbstractStreamSinkConduit;
+import org.xnio.conduits.Conduits;
+import org.xnio.conduits.StreamSinkConduit;
+
+/**
+ * conduit used by ProxyCacheHandler, either to store the response content from
+ * the backend or to replace the empty content of a 304 Not Modified response
+ * to a revalidation with the content of the stored response
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ProxyCacheSinkConduit
+        extends AbstractStreamSinkConduit<StreamSinkConduit> {
+
+    private final StreamSinkConduit _next;
+
+    // capture mode
+    private ByteArrayOutputStream captured;
+    private final long maxSize;
+    private final Consumer<byte[]> onCaptured;
+
+    // replay mode
+    private final ByteBuffer replay;
+    private boolean terminating = false;
+    private boolean terminated = false;
+
+    /**
+     * Creates a conduit that captures the content, passing it to onCaptured
+     * when writes are terminated
+     *
+     * @param next
+     * @param maxSize the max size of the content; if exceeded the content is
+     * not captured
+     * @param onCaptured
+     */
+    public ProxyCacheSinkConduit(StreamSinkConduit next, long maxSize,
+            Consumer<byte[]> onCaptured) {
+        super(next);
+        this._next = next;
+        this.captured = new ByteArrayOutputStream();
+        this.maxSize = maxSize;
+        this.onCaptured = onCaptured;
+        this.replay = null;
+    }
+
+    /**
+     * Creates a conduit that discards the content, writing the given content
+     * instead
+     *
+     * @param next
+     * @param content
+     */
+    public ProxyCacheSinkConduit(StreamSinkConduit next, byte[] content) {
+        super(next);
+        this._next = next;
+        this.captured = null;
+        this.maxSize = 0;
+        this.onCaptured = null;
+        this.replay = ByteBuffer.wrap(content);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (replay != null) {
+            return discard(src);
+        }
+
+        var pos = src.position();
+        var ret = _next.write(src);
+
+        capture(src, pos);
+
+        return ret;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offs, int len) throws IOException {
+        if (replay != null) {
+            long ret = 0;
+
+            for (int idx = offs; idx < offs + len; idx++) {
+                ret += discard(srcs[idx]);
+            }
+
+            return ret;
+        }
+
+        var pos = new int[len];
+
+        for (int idx = 0; idx < len; idx++) {
+            pos[idx] = srcs[offs + idx].position();
+        }
+
+        var ret = _next.write(srcs, offs, len);
+
+        for (int idx = 0; idx < len; idx++) {
+            capture(srcs[offs + idx], pos[idx]);
+        }
+
+        return ret;
+    }
+
+    @Override
+    public int writeFinal(ByteBuffer src) throws IOException {
+        return Conduits.writeFinalBasic(this, src);
+    }
+
+    @Override
+    public long writeFinal(ByteBuffer[] srcs, int offs, int len) throws IOException {
+        return Conduits.writeFinalBasic(this, srcs, offs, len);
+    }
+
+    @Override
+    public long transferFrom(final FileChannel src, final long position,
+            final long count) throws IOException {
+        // content transferred from files is not captured
+        captured = null;
+        return _next.transferFrom(src, position, count);
+    }
+
+    @Override
+    public long transferFrom(final StreamSourceChannel src, final long count,
+            final ByteBuffer throughBuffer) throws IOException {
+        captured = null;
+        return _next.transferFrom(src, count, throughBuffer);
+    }
+
+    @Override
+    public void terminateWrites() throws IOException {
+        if (replay == null) {
+            if (captured != null) {
+                onCaptured.accept(captured.toByteArray());
+                captured = null;
+            }
+
+            _next.terminateWrites();
+        } else {
+            // writes are terminated once the replayed content is written
+            terminating = true;
+
+            if (writeReplay()) {
+                _next.terminateWrites();
+                terminated = true;
+            }
+        }
+    }
+
+    @Override
+    public boolean flush() throws IOException {
+        if (terminating && !terminated) {
+            if (!writeReplay()) {
+                return false;
+            }
+
+            _next.terminateWrites();
+            terminated = true;
+        }
+
+        return _next.flush();
+    }
+
+    private boolean writeReplay() throws IOException {
+        while (replay.hasRemaining()) {
+            if (_next.write(replay) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int discard(ByteBuffer src) {
+        var ret = src.remaining();
+        src.position(src.limit());
+        return ret;
+    }
+
+    private void capture(ByteBuffer src, int from) {
+        if (captured == null) {
+            return;
+        }
+
+        var written = src.position() - from;
+
+        if (captured.size() + written > maxSize) {
+            captured = null;
+            return;
+        }
+
+        if (src.hasArray()) {
+            captured.write(src.array(), src.arrayOffset() + from, written);
+        } else {
+            var dup = src.duplicate();
+            dup.position(from);
+            dup.limit(from + written);
+
+            var bytes = new byte[written];
+            dup.get(bytes);
+            captured.write(bytes, 0, written);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.undertow.protocols.ssl.UndertowXnioSsl;
+import io.undertow.server.handlers.proxy.LoadBalancingProxyClient;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.net.ssl.SSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.ssl.JsseXnioSsl;
+import org.xnio.ssl.XnioSsl;
+
+/**
+ * Periodically probes the hosts of a proxy, removing them from the
+ * LoadBalancingProxyClient after consecutive failed probes and adding them
+ * back when a probe succeeds.
+ *
+ * http and https hosts are probed with a GET request to the health check path,
+ * that succeeds with a 2xx or 3xx response; other hosts (e.g. ajp) are probed
+ * opening a TCP connection. The last host in rotation is never removed, so
+ * that requests are still proxied if all probes fail.
+ *
+ * The hosts are probed concurrently, so that the probes of a slow host don't
+ * delay the others; https hosts are probed with the SSLContext of the proxy.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ProxyHealthChecker {
+
+    private static final Logger LOGGER
+            = LoggerFactory.getLogger(ProxyHealthChecker.class);
+
+    // consecutive failed probes after which a host is removed
+    private static final int FAILURES_THRESHOLD = 2;
+
+    private static final long MAX_TIMEOUT = 5000;
+
+    private static final ScheduledExecutorService SCHEDULER
+            = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder()
+                            .setDaemon(true)
+                            .setNameFormat("proxy-health-checker-%d")
+                            .build());
+
+    // runs the TCP probes and the completions of the http ones
+    private static final ExecutorService PROBES_EXECUTOR
+            = Executors.newFixedThreadPool(4,
+                    new ThreadFactoryBuilder()
+                            .setDaemon(true)
+                            .setNameFormat("proxy-health-probe-%d")
+                            .build());
+
+    private final String location;
+    private final LoadBalancingProxyClient proxyClient;
+    private final XnioSsl ssl;
+    private final String path;
+    private final long interval;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+    private final List<HostState> hosts = new ArrayList<>();
+
+    /**
+     *
+     * @param location the location of the proxy
+     * @param proxyClient the client of the proxy, with all hosts added
+     * @param hosts the URIs of the hosts
+     * @param ssl the XnioSsl used to add back the hosts and to probe the
+     * https ones
+     * @param path the path of the health check requests
+     * @param interval the interval between probes in milliseconds
+     */
+    public ProxyHealthChecker(String location,
+            LoadBalancingProxyClient proxyClient,
+            List<URI> hosts,
+            XnioSsl ssl,
+            String path,
+            long interval) {
+        this.location = location;
+        this.proxyClient = proxyClient;
+        this.ssl = ssl;
+        this.path = path.startsWith("/") ? path : "/".concat(path);
+        this.interval = interval;
+        this.timeout = Duration.ofMillis(Math.min(interval, MAX_TIMEOUT));
+
+        var builder = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(PROBES_EXECUTOR);
+
+        var sslContext = sslContext(ssl);
+
+        if (sslContext != null) {
+            builder.sslContext(sslContext);
+        }
+
+        this.httpClient = builder.build();
+
+        hosts.forEach(uri -> this.hosts.add(new HostState(uri)));
+    }
+
+    /**
+     * schedules the probes
+     */
+    public void start() {
+        SCHEDULER.scheduleWithFixedDelay(this::check, interval, interval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param ssl
+     * @return the SSLContext of ssl, or null to use the default one
+     */
+    private static SSLContext sslContext(XnioSsl ssl) {
+        if (ssl instanceof JsseXnioSsl) {
+            return ((JsseXnioSsl) ssl).getSslContext();
+        } else if (ssl instanceof UndertowXnioSsl) {
+            return ((UndertowXnioSsl) ssl).getSslContext();
+        } else {
+            return null;
+        }
+    }
+
+    private void check() {
+        var probes = hosts.stream()
+                .map(host -> {
+                    try {
+                        return probe(host.uri);
+                    } catch (Throwable t) {
+                        return CompletableFuture.<Boolean>failedFuture(t);
+                    }
+                })
+                .collect(Collectors.toList());
+
+        for (int idx = 0; idx < hosts.size(); idx++) {
+            var host = hosts.get(idx);
+            boolean healthy;
+
+            try {
+                healthy = probes.get(idx).get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException ee) {
+                LOGGER.debug("health check of {} failed", host.uri, ee.getCause());
+                healthy = false;
+            }
+
+            if (healthy) {
+                host.failures = 0;
+
+                if (!host.inRotation) {
+                    proxyClient.addHost(host.uri, ssl);
+                    host.inRotation = true;
+                    LOGGER.info("Host {} of proxy {} is healthy, added back",
+                            host.uri, location);
+                }
+            } else if (++host.failures >= FAILURES_THRESHOLD && host.inRotation) {
+                if (hosts.stream().filter(h -> h.inRotation).count() > 1) {
+                    proxyClient.removeHost(host.uri);
+                    host.inRotation = false;
+                    LOGGER.warn("Host {} of proxy {} is unhealthy, removed",
+                            host.uri, location);
+                } else if (host.failures == FAILURES_THRESHOLD) {
+                    LOGGER.warn("Host {} of proxy {} is unhealthy "
+                            + "but it is the last one, not removed",
+                            host.uri, location);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param uri
+     * @return the result of the probe, completed within the timeout
+     */
+    private CompletableFuture<Boolean> probe(URI uri) {
+        var scheme = uri.getScheme();
+
+        if ("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme)) {
+            var request = HttpRequest.newBuilder(uri.resolve(path))
+                    .timeout(timeout)
+                    .GET()
+                    .build();
+
+            return httpClient
+                    .sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenApply(response -> response.statusCode() >= 200
+                            && response.statusCode() < 400);
+        } else {
+            // 8009 is the default ajp port
+            var port = uri.getPort() < 0 ? 8009 : uri.getPort();
+
+            return CompletableFuture.supplyAsync(() -> {
+                try (var socket = new Socket()) {
+                    socket.connect(new InetSocketAddress(uri.getHost(), port),
+                            (int) timeout.toMillis());
+                    return true;
+                } catch (IOException ioe) {
+                    throw new UncheckedIOException(ioe);
+                }
+            }, PROBES_EXECUTOR);
+        }
+    }
+
+    private static class HostState {
+
+        final URI uri;
+        boolean inRotation = true;
+        int failures = 0;
+
+        HostState(URI uri) {
+            this.uri = uri;
+        }
+    }
+}
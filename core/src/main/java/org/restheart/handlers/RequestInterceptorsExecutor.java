@@ -21,7 +21,6 @@
 package org.restheart.handlers;
 
 import io.undertow.server.HttpServerExchange;
-import java.util.Arrays;
 import org.restheart.exchange.ByteArrayProxyRequest;
 import org.restheart.exchange.ByteArrayProxyResponse;
 import org.restheart.exchange.Exchange;
@@ -29,14 +28,13 @@ import org.restheart.exchange.Request;
 import org.restheart.exchange.Response;
 import org.restheart.exchange.ServiceRequest;
 import org.restheart.exchange.ServiceResponse;
+import org.restheart.jfr.InterceptorEvent;
 import org.restheart.plugins.InterceptPoint;
+import org.restheart.plugins.Interceptor;
 import org.restheart.plugins.PluginsRegistryImpl;
 import org.restheart.utils.HttpStatus;
 import org.restheart.utils.LambdaUtils;
 import org.restheart.utils.PluginUtils;
-import static org.restheart.utils.PluginUtils.cachedRequestType;
-import static org.restheart.utils.PluginUtils.cachedResponseType;
-import static org.restheart.utils.PluginUtils.interceptPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,6 +70,11 @@ public class RequestInterceptorsExecutor extends PipelinedHandler {
         this.interceptPoint = interceptPoint;
     }
 
+    @Override
+    protected String getStageName() {
+        return getClass().getSimpleName() + "-" + interceptPoint.name();
+    }
+
     /**
      *
      * @param exchange
@@ -80,15 +83,12 @@ public class RequestInterceptorsExecutor extends PipelinedHandler {
     @Override
     @SuppressWarnings("unchecked")
     public void handleRequest(HttpServerExchange exchange) throws Exception {
-        // if the request is handled by a service set to not execute interceptors
-        // at this interceptPoint, skip interceptors execution
-        var vip = PluginUtils.dontIntercept(
-                PluginsRegistryImpl.getInstance(), exchange);
-
-        if (Arrays.stream(vip).anyMatch(interceptPoint::equals)) {
-            next(exchange);
-            return;
-        }
+        // the chain is computed when the pipeline is plugged
+        // it is empty if the request is handled by a service set to not
+        // execute interceptors at this interceptPoint
+        var interceptors = PluginsRegistryImpl.getInstance()
+                .getPipelineInterceptors(PluginUtils.pipelineInfo(exchange))
+                .get(interceptPoint);
 
         Request request;
         Response response;
@@ -105,56 +105,46 @@ public class RequestInterceptorsExecutor extends PipelinedHandler {
             response = ByteArrayProxyResponse.of(exchange);
         }
 
-        PluginsRegistryImpl
-                .getInstance()
-                .getInterceptors()
-                .stream()
-                .filter(ri -> ri.isEnabled())
-                .map(ri -> ri.getInstance())
-                // IMPORTANT: An interceptor can intercept 
-                // - requests handled by a Service when its request and response 
-                //   types are equal to the ones declared by the Service
-                // - request handled by a Proxy when its request and response 
-                //   are ByteArrayProxyRequest and ByteArrayProxyResponse
-                .filter(ri
-                        -> (handlingService == null
-                && cachedRequestType(ri).equals(ByteArrayProxyRequest.type())
-                && cachedResponseType(ri).equals(ByteArrayProxyResponse.type()))
-                || (handlingService != null
-                && cachedRequestType(ri).equals(cachedRequestType(handlingService))
-                && cachedResponseType(ri).equals(cachedResponseType(handlingService))))
-                .filter(ri -> interceptPoint == interceptPoint(ri))
-                .filter(ri -> {
-                    try {
-                        return ri.resolve(request, response);
-                    } catch (Exception e) {
-                        LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                interceptPoint,
-                                e);
-
-                        return false;
-                    }
-                })
-                .forEachOrdered(ri -> {
-                    try {
-                        LOGGER.debug("Executing request interceptor {} for {} on intercept point {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                interceptPoint);
-
-                        ri.handle(request, response);
-                    } catch (Exception ex) {
-                        LOGGER.error("Error executing request interceptor {} for {} on intercept point {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                interceptPoint,
-                                ex);
-                        Exchange.setInError(exchange);
-                        LambdaUtils.throwsSneakyExcpetion(ex);
-                    }
-                });
+        for (Interceptor ri : interceptors) {
+            boolean resolved;
+
+            try {
+                resolved = ri.resolve(request, response);
+            } catch (Exception e) {
+                LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
+                        ri.getClass().getSimpleName(),
+                        exchange.getRequestPath(),
+                        interceptPoint,
+                        e);
+
+                resolved = false;
+            }
+
+            if (!resolved) {
+                continue;
+            }
+
+            var event = InterceptorEvent.start();
+
+            try {
+                LOGGER.debug("Executing request interceptor {} for {} on intercept point {}",
+                        ri.getClass().getSimpleName(),
+                        exchange.getRequestPath(),
+                        interceptPoint);
+
+                ri.handle(request, response);
+                event.end(ri, interceptPoint, exchange.getRequestPath(), false);
+            } catch (Exception ex) {
+                event.end(ri, interceptPoint, exchange.getRequestPath(), true);
+                LOGGER.error("Error executing request interceptor {} for {} on intercept point {}",
+                        ri.getClass().getSimpleName(),
+                        exchange.getRequestPath(),
+                        interceptPoint,
+                        ex);
+                Exchange.setInError(exchange);
+                LambdaUtils.throwsSneakyExcpetion(ex);
+            }
+        }
 
         // If an interceptor sets the response as errored
         // stop processing the request and send the response
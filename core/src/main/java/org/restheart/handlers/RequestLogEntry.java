@@ -0,0 +1,384 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.Cookie;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import io.undertow.util.LocaleUtils;
+import io.undertow.util.QueryParameterUtils;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import static org.fusesource.jansi.Ansi.Color.GREEN;
+import static org.fusesource.jansi.Ansi.Color.RED;
+import static org.fusesource.jansi.Ansi.ansi;
+import org.restheart.exchange.JsonProxyRequest;
+import org.restheart.exchange.PipelineInfo;
+import static org.restheart.plugins.security.TokenManager.AUTH_TOKEN_HEADER;
+
+/**
+ * An immutable record of a request and its response, logged by RequestLogger.
+ *
+ * The data is captured when the request is received and when the exchange
+ * completes, so that the log message can be formatted later, possibly by
+ * another thread. No DNS resolution is performed.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class RequestLogEntry {
+
+    private static final String MASK = "**********";
+
+    private final int logLevel;
+    private final long start;
+
+    // request, logLevel >= 1
+    private final HttpString method;
+    private final String requestURL;
+    private final String queryString;
+    private final String queryParamEncoding;
+    private final InetSocketAddress sourceAddress;
+
+    // request, logLevel >= 2
+    private final String requestURI;
+    private final PipelineInfo pipelineInfo;
+    private final long requestContentLength;
+    private final String[] requestCookies;
+    private final String[] requestHeaders;
+    private final Map<String, List<String>> queryParameters;
+    private final HttpString protocol;
+    private final String scheme;
+    private final int serverPort;
+
+    // response
+    private long end;
+    private int status;
+    private long responseContentLength;
+    private String responseContentType;
+    private String[] responseCookies;
+    private String[] responseHeaders;
+    private boolean hasSecurityContext;
+    private boolean authenticated;
+    private String mechanismName;
+    private String account;
+
+    /**
+     * captures the request
+     *
+     * @param exchange
+     * @param logLevel
+     */
+    RequestLogEntry(HttpServerExchange exchange, int logLevel) {
+        var request = JsonProxyRequest.of(exchange);
+
+        this.logLevel = logLevel;
+        this.start = request != null && request.getStartTime() != null
+                ? request.getStartTime()
+                : System.currentTimeMillis();
+
+        this.method = exchange.getRequestMethod();
+        this.requestURL = exchange.getRequestURL();
+        this.queryString = exchange.getQueryString();
+        this.queryParamEncoding = QueryParameterUtils.getQueryParamEncoding(exchange);
+        this.sourceAddress = exchange.getSourceAddress();
+
+        if (logLevel >= 2) {
+            this.requestURI = exchange.getRequestURI();
+            this.pipelineInfo = request.getPipelineInfo();
+            this.requestContentLength = exchange.getRequestContentLength();
+            this.requestCookies = cookies(exchange.getRequestCookies(), false);
+            this.requestHeaders = headers(exchange.getRequestHeaders());
+            this.queryParameters = new LinkedHashMap<>();
+            exchange.getQueryParameters().forEach((k, v)
+                    -> queryParameters.put(k, new ArrayList<>(v)));
+            this.protocol = exchange.getProtocol();
+            this.scheme = exchange.getRequestScheme();
+            this.serverPort = exchange.getDestinationAddress().getPort();
+        } else {
+            this.requestURI = null;
+            this.pipelineInfo = null;
+            this.requestContentLength = -1;
+            this.requestCookies = null;
+            this.requestHeaders = null;
+            this.queryParameters = Collections.emptyMap();
+            this.protocol = null;
+            this.scheme = null;
+            this.serverPort = -1;
+        }
+    }
+
+    /**
+     * captures the response; invoked when the exchange completes
+     *
+     * @param exchange
+     */
+    void complete(HttpServerExchange exchange) {
+        this.end = System.currentTimeMillis();
+        this.status = exchange.getStatusCode();
+        this.responseContentLength = exchange.getResponseContentLength();
+
+        // note sc is always null if this handler is chained before
+        // SecurityHandlerDispacher
+        var sc = exchange.getSecurityContext();
+
+        if (sc != null) {
+            this.hasSecurityContext = true;
+            this.authenticated = sc.isAuthenticated();
+            this.mechanismName = sc.getMechanismName();
+            this.account = sc.getAuthenticatedAccount() != null
+                    ? sc.getAuthenticatedAccount().toString()
+                    : null;
+        }
+
+        if (logLevel >= 2) {
+            this.responseContentType = exchange.getResponseHeaders()
+                    .getFirst(Headers.CONTENT_TYPE);
+            this.responseCookies = cookies(exchange.getResponseCookies(), true);
+            this.responseHeaders = headers(exchange.getResponseHeaders());
+        }
+    }
+
+    /**
+     * @return name, value pairs or name, value, domain, path tuples if full
+     */
+    private static String[] cookies(Map<String, Cookie> cookies, boolean full) {
+        if (cookies == null) {
+            return new String[0];
+        }
+
+        var size = full ? 4 : 2;
+        var ret = new String[cookies.size() * size];
+        var idx = 0;
+
+        for (var cookie : cookies.values()) {
+            ret[idx] = cookie.getName();
+            ret[idx + 1] = cookie.getValue();
+
+            if (full) {
+                ret[idx + 2] = cookie.getDomain();
+                ret[idx + 3] = cookie.getPath();
+            }
+
+            idx += size;
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return name, value pairs
+     */
+    private static String[] headers(HeaderMap headers) {
+        var ret = new String[headers.size() * 2];
+        var idx = 0;
+
+        for (HeaderValues header : headers) {
+            for (var value : header) {
+                if (idx == ret.length) {
+                    ret = Arrays.copyOf(ret, Math.max(2, ret.length * 2));
+                }
+
+                ret[idx] = header.getHeaderName().toString();
+                ret[idx + 1] = value;
+                idx += 2;
+            }
+        }
+
+        return idx == ret.length ? ret : Arrays.copyOf(ret, idx);
+    }
+
+    private static List<String> values(String[] headers, HttpString name) {
+        List<String> ret = null;
+
+        for (int idx = 0; idx < headers.length; idx += 2) {
+            if (name.equalToString(headers[idx])) {
+                if (ret == null) {
+                    ret = new ArrayList<>();
+                }
+
+                ret.add(headers[idx + 1]);
+            }
+        }
+
+        return ret;
+    }
+
+    private static String first(String[] headers, HttpString name) {
+        var values = values(headers, name);
+        return values == null ? null : values.get(0);
+    }
+
+    /**
+     * @return the log message
+     */
+    String format() {
+        final var sb = new StringBuilder();
+
+        if (logLevel == 1) {
+            sb.append(method).append(" ").append(requestURL);
+
+            if (queryString != null && !queryString.isEmpty()) {
+                try {
+                    sb.append("?").append(URLDecoder.decode(queryString,
+                            queryParamEncoding));
+                } catch (UnsupportedEncodingException uee) {
+                    sb.append("?").append(queryString);
+                }
+            }
+
+            sb.append(" from ").append(sourceAddress);
+
+            sb.append(" =>").append(" status=");
+
+            if (status >= 300 && status != 304) {
+                sb.append(ansi().fg(RED).bold().a(status).reset().toString());
+            } else {
+                sb.append(ansi().fg(GREEN).bold().a(status).reset().toString());
+            }
+
+            sb.append(" elapsed=").append(end - start).append("ms")
+                    .append(" contentLength=").append(responseContentLength);
+
+            if (hasSecurityContext && account != null) {
+                sb.append(" ").append(account);
+            }
+        } else if (logLevel >= 2) {
+            sb.append("\n----------------------------REQUEST---------------------------\n");
+
+            sb.append("               URI=").append(requestURI).append("\n");
+
+            if (pipelineInfo != null) {
+                sb.append("          servedBy=")
+                        .append(pipelineInfo.getType().name().toLowerCase())
+                        .append(" ");
+
+                if (pipelineInfo.getName() != null) {
+                    sb
+                            .append("'")
+                            .append(pipelineInfo.getName())
+                            .append("' ");
+                }
+
+                sb
+                        .append("bound to '")
+                        .append(pipelineInfo.getUri())
+                        .append("'\n");
+            }
+
+            sb.append(" characterEncoding=").append(values(requestHeaders, Headers.CONTENT_ENCODING))
+                    .append("\n");
+            sb.append("     contentLength=").append(requestContentLength).append("\n");
+            sb.append("       contentType=").append(values(requestHeaders, Headers.CONTENT_TYPE))
+                    .append("\n");
+
+            for (int idx = 0; idx < requestCookies.length; idx += 2) {
+                sb.append("            cookie=").append(requestCookies[idx]).append("=").append(requestCookies[idx + 1])
+                        .append("\n");
+            }
+
+            for (int idx = 0; idx < requestHeaders.length; idx += 2) {
+                var value = Headers.AUTHORIZATION.equalToString(requestHeaders[idx])
+                        ? MASK
+                        : requestHeaders[idx + 1];
+
+                sb.append("            header=").append(requestHeaders[idx]).append("=").append(value)
+                        .append("\n");
+            }
+
+            sb.append("            locale=")
+                    .append(LocaleUtils.getLocalesFromHeader(values(requestHeaders, Headers.ACCEPT_LANGUAGE)))
+                    .append("\n");
+            sb.append("            method=").append(method).append("\n");
+
+            queryParameters.forEach((pname, pvalues) -> {
+                sb.append("         parameter=");
+                sb.append(pname);
+                sb.append('=');
+                sb.append(String.join(", ", pvalues));
+                sb.append("\n");
+            });
+
+            sb.append("          protocol=").append(protocol).append("\n");
+            sb.append("       queryString=").append(queryString).append("\n");
+            sb.append("        remoteAddr=").append(sourceAddress).append("\n");
+            // getHostString() does not perform a reverse DNS lookup
+            sb.append("        remoteHost=").append(sourceAddress == null ? null : sourceAddress.getHostString()).append("\n");
+            sb.append("            scheme=").append(scheme).append("\n");
+            sb.append("              host=").append(first(requestHeaders, Headers.HOST)).append("\n");
+            sb.append("        serverPort=").append(serverPort).append("\n");
+
+            sb.append("--------------------------RESPONSE--------------------------\n");
+
+            if (hasSecurityContext) {
+                if (authenticated) {
+                    sb.append("          authType=").append(mechanismName).append("\n");
+                    sb.append("          account=").append(account)
+                            .append("\n");
+                } else {
+                    sb.append("          authType=none" + "\n");
+                }
+            }
+
+            sb.append("     contentLength=").append(responseContentLength).append("\n");
+            sb.append("       contentType=").append(responseContentType).append("\n");
+
+            for (int idx = 0; idx < responseCookies.length; idx += 4) {
+                sb.append("            cookie=").append(responseCookies[idx]).append("=")
+                        .append(responseCookies[idx + 1]).append("; domain=").append(responseCookies[idx + 2])
+                        .append("; path=").append(responseCookies[idx + 3]).append("\n");
+            }
+
+            for (int idx = 0; idx < responseHeaders.length; idx += 2) {
+                var value = AUTH_TOKEN_HEADER.equalToString(responseHeaders[idx])
+                        ? MASK
+                        : responseHeaders[idx + 1];
+
+                sb.append("            header=").append(responseHeaders[idx]).append("=")
+                        .append(value).append("\n");
+            }
+
+            sb.append("            status=");
+
+            if (status >= 300) {
+                sb.append(ansi().fg(RED).bold().a(status).reset().toString());
+            } else {
+                sb.append(ansi().fg(GREEN).bold().a(status).reset().toString());
+            }
+
+            sb.append("\n");
+
+            sb.append("           elapsed=").append(end - start).append("ms\n");
+            sb.append("==============================================================");
+        }
+
+        return sb.toString();
+    }
+}
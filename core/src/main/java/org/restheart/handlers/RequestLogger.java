@@ -20,30 +20,28 @@
  */
 package org.restheart.handlers;
 
-import io.undertow.security.api.SecurityContext;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
 import io.undertow.server.ExchangeCompletionListener;
 import io.undertow.server.HttpServerExchange;
-import io.undertow.server.handlers.Cookie;
-import io.undertow.util.HeaderValues;
-import io.undertow.util.Headers;
-import io.undertow.util.LocaleUtils;
-import io.undertow.util.QueryParameterUtils;
-import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
-import java.util.Deque;
-import java.util.Iterator;
-import java.util.Map;
-import static org.fusesource.jansi.Ansi.Color.GREEN;
-import static org.fusesource.jansi.Ansi.Color.RED;
-import static org.fusesource.jansi.Ansi.ansi;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 import org.restheart.Bootstrapper;
 import org.restheart.Configuration;
-import org.restheart.exchange.JsonProxyRequest;
-import static org.restheart.plugins.security.TokenManager.AUTH_TOKEN_HEADER;
+import org.restheart.utils.MetricsUtils;
+import org.restheart.utils.MpscRingBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Logs the requests according to the requests-log-level configuration option.
+ *
+ * Only a sample of the requests is logged if requests-log-sample-rate is less
+ * than 1. If requests-log-async is true, the log messages are formatted and
+ * written by a background thread: the request thread just captures an
+ * immutable record of the exchange and puts it in a ring buffer; records are
+ * dropped if the ring buffer is full.
  *
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  */
@@ -77,13 +75,20 @@ public class RequestLogger extends PipelinedHandler {
      */
     @Override
     public void handleRequest(HttpServerExchange exchange) throws Exception {
-        if (configuration.logExchangeDump() > 0) {
+        if (configuration.logExchangeDump() > 0 && sampled()) {
             dumpExchange(exchange, configuration.logExchangeDump());
         }
 
         next(exchange);
     }
 
+    private boolean sampled() {
+        var rate = configuration.getRequestsLogSampleRate();
+
+        return rate >= 1
+                || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
     /**
      * dumpExchange
      *
@@ -97,191 +102,88 @@ public class RequestLogger extends PipelinedHandler {
             return;
         }
 
-        var request = JsonProxyRequest.of(exchange);
+        final var entry = new RequestLogEntry(exchange, logLevel);
+        final var async = configuration.isRequestsLogAsync();
 
-        final StringBuilder sb = new StringBuilder();
-        final long start = request != null && request.getStartTime() != null
-                ? request.getStartTime()
-                : System.currentTimeMillis();
+        exchange.addExchangeCompleteListener(
+                (final HttpServerExchange exchange1, final ExchangeCompletionListener.NextListener nextListener) -> {
+                    entry.complete(exchange1);
 
-        if (logLevel == 1) {
-            sb.append(exchange.getRequestMethod()).append(" ").append(exchange.getRequestURL());
+                    nextListener.proceed();
 
-            if (exchange.getQueryString() != null
-                    && !exchange.getQueryString().isEmpty()) {
-                try {
-                    sb.append("?").append(URLDecoder.decode(exchange.getQueryString(),
-                            QueryParameterUtils
-                                    .getQueryParamEncoding(exchange)));
-                } catch (UnsupportedEncodingException uee) {
-                    sb.append("?").append(exchange.getQueryString());
-                }
-            }
+                    if (async) {
+                        AsyncWriter.INSTANCE.write(entry);
+                    } else {
+                        LOGGER.info(entry.format());
+                    }
+                });
+    }
 
-            sb.append(" from ").append(exchange.getSourceAddress());
-        } else if (logLevel >= 2) {
-            sb.append("\n----------------------------REQUEST---------------------------\n");
+    /**
+     * formats and writes the log messages in a background thread, that parks
+     * when the ring buffer is empty and is unparked by the next write
+     */
+    private static class AsyncWriter implements Runnable {
 
-            sb.append("               URI=").append(exchange.getRequestURI()).append("\n");
+        private static final int CAPACITY = 8192;
 
-            var pb = request.getPipelineInfo();
+        static final AsyncWriter INSTANCE = new AsyncWriter();
 
-            if (pb != null) {
-                sb.append("          servedBy=")
-                        .append(pb.getType().name().toLowerCase())
-                        .append(" ");
+        private final MpscRingBuffer<RequestLogEntry> ring = new MpscRingBuffer<>(CAPACITY);
 
-                if (pb.getName() != null) {
-                    sb
-                            .append("'")
-                            .append(pb.getName())
-                            .append("' ");
-                }
+        private final Counter dropped;
 
-                sb
-                        .append("bound to '")
-                        .append(pb.getUri())
-                        .append("'\n");
-            }
+        private final Thread thread;
 
-            sb.append(" characterEncoding=").append(exchange.getRequestHeaders().get(Headers.CONTENT_ENCODING))
-                    .append("\n");
-            sb.append("     contentLength=").append(exchange.getRequestContentLength()).append("\n");
-            sb.append("       contentType=").append(exchange.getRequestHeaders().get(Headers.CONTENT_TYPE))
-                    .append("\n");
-
-            Map<String, Cookie> cookies = exchange.getRequestCookies();
-            if (cookies != null) {
-                cookies.entrySet().stream().map((entry) -> entry.getValue()).forEach((cookie) -> {
-                    sb.append("            cookie=").append(cookie.getName()).append("=").append(cookie.getValue())
-                            .append("\n");
-                });
-            }
-            for (HeaderValues header : exchange.getRequestHeaders()) {
-                header.stream().forEach((value) -> {
-                    if (header.getHeaderName() != null
-                            && "Authorization".equalsIgnoreCase(header
-                                    .getHeaderName().toString())) {
-                        value = "**********";
-                    }
+        // true when the thread found the ring buffer empty and is parking
+        private final AtomicBoolean idle = new AtomicBoolean(false);
 
-                    sb.append("            header=").append(header.getHeaderName()).append("=").append(value)
-                            .append("\n");
-                });
+        private AsyncWriter() {
+            var registry = MetricsUtils.defaultRegistry();
+
+            registry.gauge("requests-log.queued",
+                    () -> (Gauge<Integer>) ring::size);
+            this.dropped = registry.counter("requests-log.dropped");
+
+            this.thread = new Thread(this, "request-logger");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        void write(RequestLogEntry entry) {
+            if (!ring.offer(entry)) {
+                dropped.inc();
+            } else if (idle.get() && idle.compareAndSet(true, false)) {
+                LockSupport.unpark(thread);
             }
-            sb.append("            locale=")
-                    .append(LocaleUtils.getLocalesFromHeader(exchange.getRequestHeaders().get(Headers.ACCEPT_LANGUAGE)))
-                    .append("\n");
-            sb.append("            method=").append(exchange.getRequestMethod()).append("\n");
-            Map<String, Deque<String>> pnames = exchange.getQueryParameters();
-            pnames.entrySet().stream().map((entry) -> {
-                String pname = entry.getKey();
-                Iterator<String> pvalues = entry.getValue().iterator();
-                sb.append("         parameter=");
-                sb.append(pname);
-                sb.append('=');
-                while (pvalues.hasNext()) {
-                    sb.append(pvalues.next());
-                    if (pvalues.hasNext()) {
-                        sb.append(", ");
-                    }
-                }
-                return entry;
-            }).forEach((_item) -> {
-                sb.append("\n");
-            });
-
-            sb.append("          protocol=").append(exchange.getProtocol()).append("\n");
-            sb.append("       queryString=").append(exchange.getQueryString()).append("\n");
-            sb.append("        remoteAddr=").append(exchange.getSourceAddress()).append("\n");
-            sb.append("        remoteHost=").append(exchange.getSourceAddress().getHostName()).append("\n");
-            sb.append("            scheme=").append(exchange.getRequestScheme()).append("\n");
-            sb.append("              host=").append(exchange.getRequestHeaders().getFirst(Headers.HOST)).append("\n");
-            sb.append("        serverPort=").append(exchange.getDestinationAddress().getPort()).append("\n");
         }
 
-        addExchangeCompleteListener(exchange, logLevel, sb, start);
-    }
+        @Override
+        public void run() {
+            while (true) {
+                var entry = ring.poll();
 
-    private void addExchangeCompleteListener(HttpServerExchange exchange, Integer logLevel, final StringBuilder sb,
-            final long start) {
-        exchange.addExchangeCompleteListener(
-                (final HttpServerExchange exchange1, final ExchangeCompletionListener.NextListener nextListener) -> {
-                    if (logLevel < 1) {
-                        return;
-                    }
+                if (entry == null) {
+                    idle.set(true);
+
+                    // an entry written before idle was set doesn't unpark
+                    entry = ring.poll();
 
-                    // note sc is always null if this handler is chained before
-                    // SecurityHandlerDispacher
-                    final SecurityContext sc = exchange1.getSecurityContext();
-
-                    if (logLevel == 1) {
-                        sb.append(" =>").append(" status=");
-
-                        if (exchange.getStatusCode() >= 300 && exchange.getStatusCode() != 304) {
-                            sb.append(ansi().fg(RED).bold().a(exchange.getStatusCode()).reset().toString());
-                        } else {
-                            sb.append(ansi().fg(GREEN).bold().a(exchange.getStatusCode()).reset().toString());
-                        }
-
-                        sb.append(" elapsed=").append(System.currentTimeMillis() - start).append("ms")
-                                .append(" contentLength=").append(exchange1.getResponseContentLength());
-
-                        if (sc != null && sc.getAuthenticatedAccount() != null) {
-                            sb.append(" ").append(sc.getAuthenticatedAccount().toString());
-                        }
-                    } else if (logLevel >= 2) {
-                        sb.append("--------------------------RESPONSE--------------------------\n");
-                        if (sc != null) {
-                            if (sc.isAuthenticated()) {
-                                sb.append("          authType=").append(sc.getMechanismName()).append("\n");
-                                sb.append("          account=").append(sc.getAuthenticatedAccount().toString())
-                                        .append("\n");
-                            } else {
-                                sb.append("          authType=none" + "\n");
-                            }
-                        }
-
-                        sb.append("     contentLength=").append(exchange1.getResponseContentLength()).append("\n");
-                        sb.append("       contentType=")
-                                .append(exchange1.getResponseHeaders().getFirst(Headers.CONTENT_TYPE)).append("\n");
-                        Map<String, Cookie> cookies1 = exchange1.getResponseCookies();
-                        if (cookies1 != null) {
-                            cookies1.values().stream().forEach((cookie) -> {
-                                sb.append("            cookie=").append(cookie.getName()).append("=")
-                                        .append(cookie.getValue()).append("; domain=").append(cookie.getDomain())
-                                        .append("; path=").append(cookie.getPath()).append("\n");
-                            });
-                        }
-                        for (HeaderValues header : exchange1.getResponseHeaders()) {
-                            header.stream().forEach((value) -> {
-                                if (header.getHeaderName() != null
-                                        && AUTH_TOKEN_HEADER.toString().
-                                                equalsIgnoreCase(header
-                                                        .getHeaderName().toString())) {
-                                    value = "**********";
-                                }
-
-                                sb.append("            header=").append(header.getHeaderName()).append("=")
-                                        .append(value).append("\n");
-                            });
-                        }
-                        sb.append("            status=");
-
-                        if (exchange.getStatusCode() >= 300) {
-                            sb.append(ansi().fg(RED).bold().a(exchange1.getStatusCode()).reset().toString());
-                        } else {
-                            sb.append(ansi().fg(GREEN).bold().a(exchange1.getStatusCode()).reset().toString());
-                        }
-
-                        sb.append("\n");
-
-                        sb.append("           elapsed=").append(System.currentTimeMillis() - start).append("ms\n");
-                        sb.append("==============================================================");
+                    if (entry == null) {
+                        LockSupport.park(this);
+                        idle.set(false);
+                        continue;
                     }
 
-                    nextListener.proceed();
-                    LOGGER.info(sb.toString());
-                });
+                    idle.set(false);
+                }
+
+                try {
+                    LOGGER.info(entry.format());
+                } catch (Throwable t) {
+                    LOGGER.warn("Error logging request", t);
+                }
+            }
+        }
     }
 }
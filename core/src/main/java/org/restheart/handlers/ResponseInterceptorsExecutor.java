@@ -21,7 +21,6 @@
 package org.restheart.handlers;
 
 import io.undertow.server.HttpServerExchange;
-import java.util.Arrays;
 import org.restheart.exchange.ByteArrayProxyRequest;
 import org.restheart.exchange.ByteArrayProxyResponse;
 import org.restheart.exchange.Exchange;
@@ -29,15 +28,14 @@ import org.restheart.exchange.Request;
 import org.restheart.exchange.Response;
 import org.restheart.exchange.ServiceRequest;
 import org.restheart.exchange.ServiceResponse;
+import org.restheart.jfr.InterceptorEvent;
 import org.restheart.plugins.InterceptPoint;
+import org.restheart.plugins.Interceptor;
+import org.restheart.plugins.PipelineInterceptors;
 import org.restheart.plugins.PluginsRegistryImpl;
-import org.restheart.plugins.Service;
+import org.restheart.utils.AsyncInterceptorsExecutor;
 import org.restheart.utils.LambdaUtils;
 import org.restheart.utils.PluginUtils;
-import static org.restheart.utils.PluginUtils.cachedRequestType;
-import static org.restheart.utils.PluginUtils.cachedResponseType;
-import static org.restheart.utils.PluginUtils.interceptPoint;
-import static org.restheart.utils.PluginUtils.requiresContent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -94,8 +92,12 @@ public class ResponseInterceptorsExecutor
 
         if (!Exchange.responseInterceptorsExecuted(exchange)) {
             Exchange.setResponseInterceptorsExecuted(exchange);
-            executeAsyncResponseInterceptor(exchange, handlingService, request, response);
-            executeResponseInterceptor(exchange, handlingService, request, response);
+
+            var pipelineInterceptors = PluginsRegistryImpl.getInstance()
+                    .getPipelineInterceptors(PluginUtils.pipelineInfo(exchange));
+
+            executeAsyncResponseInterceptor(exchange, pipelineInterceptors, request, response);
+            executeResponseInterceptor(exchange, pipelineInterceptors, request, response);
         }
 
         next(exchange);
@@ -103,137 +105,102 @@ public class ResponseInterceptorsExecutor
 
     @SuppressWarnings("unchecked")
     private void executeResponseInterceptor(HttpServerExchange exchange,
-            Service handlingService,
+            PipelineInterceptors pipelineInterceptors,
             Request request,
             Response response) {
-        // if the request is handled by a service set to not execute interceptors
-        // at this interceptPoint, skip interceptors execution
-        var vip = PluginUtils.dontIntercept(
-                PluginsRegistryImpl.getInstance(), exchange);
-
-        if (Arrays.stream(vip).anyMatch(InterceptPoint.RESPONSE::equals)) {
-            return;
+        // the chain is empty if the request is handled by a service set to not
+        // execute interceptors at this interceptPoint
+        var interceptors = this.filterRequiringContent
+                ? pipelineInterceptors.notRequiringContent(InterceptPoint.RESPONSE)
+                : pipelineInterceptors.get(InterceptPoint.RESPONSE);
+
+        for (Interceptor ri : interceptors) {
+            if (!resolve(ri, exchange, request, response, InterceptPoint.RESPONSE)) {
+                continue;
+            }
+
+            LOGGER.debug("Executing interceptor {} for {} on intercept point {}",
+                    ri.getClass().getSimpleName(),
+                    exchange.getRequestPath(),
+                    InterceptPoint.RESPONSE);
+
+            var event = InterceptorEvent.start();
+
+            try {
+                ri.handle(request, response);
+                event.end(ri, InterceptPoint.RESPONSE, exchange.getRequestPath(), false);
+            } catch (Exception ex) {
+                event.end(ri, InterceptPoint.RESPONSE, exchange.getRequestPath(), true);
+                LOGGER.error("Error executing interceptor {} for {} on intercept point {}",
+                        ri.getClass().getSimpleName(),
+                        exchange.getRequestPath(),
+                        InterceptPoint.RESPONSE,
+                        ex);
+
+                Exchange.setInError(exchange);
+                LambdaUtils.throwsSneakyExcpetion(ex);
+            }
         }
-
-        Exchange.setResponseInterceptorsExecuted(exchange);
-        PluginsRegistryImpl.getInstance()
-                .getInterceptors()
-                .stream()
-                .filter(i -> interceptPoint(i.getInstance())
-                == InterceptPoint.RESPONSE)
-                .filter(ri -> ri.isEnabled())
-                .map(ri -> ri.getInstance())
-                // IMPORTANT: An interceptor can intercept 
-                // - requests handled by a Service when its request and response 
-                //   types are equal to the ones declared by the Service
-                // - request handled by a Proxy when its request and response 
-                //   are ByteArrayProxyRequest and ByteArrayProxyResponse
-                .filter(ri -> (handlingService == null
-                && cachedRequestType(ri).equals(ByteArrayProxyRequest.type())
-                && cachedResponseType(ri).equals(ByteArrayProxyResponse.type()))
-                || (handlingService != null && cachedRequestType(ri).equals(cachedRequestType(handlingService))
-                && cachedResponseType(ri).equals(cachedResponseType(handlingService))))
-                .filter(ri -> !this.filterRequiringContent || !requiresContent(ri))
-                .filter(ri -> {
-                    try {
-                        return ri.resolve(request, response);
-                    } catch (Exception e) {
-                        LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                InterceptPoint.RESPONSE,
-                                e);
-
-                        return false;
-                    }
-                })
-                .forEachOrdered(ri -> {
-                    LOGGER.debug("Executing interceptor {} for {} on intercept point {}",
-                            ri.getClass().getSimpleName(),
-                            exchange.getRequestPath(),
-                            InterceptPoint.RESPONSE);
-
-                    try {
-                        ri.handle(request, response);
-                    } catch (Exception ex) {
-                        LOGGER.error("Error executing interceptor {} for {} on intercept point {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                InterceptPoint.RESPONSE,
-                                ex);
-
-                        Exchange.setInError(exchange);
-                        LambdaUtils.throwsSneakyExcpetion(ex);
-                    }
-                });
     }
 
     @SuppressWarnings("unchecked")
     private void executeAsyncResponseInterceptor(HttpServerExchange exchange,
-            Service handlingService,
+            PipelineInterceptors pipelineInterceptors,
             Request request,
             Response response) {
-        // if the request is handled by a service set to not execute interceptors
-        // at this interceptPoint, skip interceptors execution
-        var vip = PluginUtils.dontIntercept(
-                PluginsRegistryImpl.getInstance(), exchange);
+        // the chain is empty if the request is handled by a service set to not
+        // execute interceptors at this interceptPoint
+        var interceptors = this.filterRequiringContent
+                ? pipelineInterceptors.notRequiringContent(InterceptPoint.RESPONSE_ASYNC)
+                : pipelineInterceptors.get(InterceptPoint.RESPONSE_ASYNC);
+
+        for (Interceptor ri : interceptors) {
+            if (!resolve(ri, exchange, request, response, InterceptPoint.RESPONSE_ASYNC)) {
+                continue;
+            }
+
+            AsyncInterceptorsExecutor.getInstance().execute(exchange, () -> {
+                LOGGER.debug("Executing interceptor {} for {} on intercept point {}",
+                        ri.getClass().getSimpleName(),
+                        exchange.getRequestPath(),
+                        InterceptPoint.RESPONSE_ASYNC);
+
+                var event = InterceptorEvent.start();
+
+                try {
+                    ri.handle(request, response);
+                    event.end(ri, InterceptPoint.RESPONSE_ASYNC, exchange.getRequestPath(), false);
+                } catch (Exception ex) {
+                    event.end(ri, InterceptPoint.RESPONSE_ASYNC, exchange.getRequestPath(), true);
+                    LOGGER.error("Error executing interceptor {} for {} on intercept point {}",
+                            ri.getClass().getSimpleName(),
+                            exchange.getRequestPath(),
+                            InterceptPoint.RESPONSE_ASYNC,
+                            ex);
 
-        if (Arrays.stream(vip).anyMatch(InterceptPoint.RESPONSE_ASYNC::equals)) {
-            return;
+                    Exchange.setInError(exchange);
+                    LambdaUtils.throwsSneakyExcpetion(ex);
+                }
+            });
         }
-
-        Exchange.setResponseInterceptorsExecuted(exchange);
-        PluginsRegistryImpl.getInstance()
-                .getInterceptors()
-                .stream()
-                .filter(i -> interceptPoint(
-                i.getInstance()) == InterceptPoint.RESPONSE_ASYNC)
-                .filter(ri -> ri.isEnabled())
-                .map(ri -> ri.getInstance())
-                // IMPORTANT: An interceptor can intercept 
-                // - requests handled by a Service when its request and response 
-                //   types are equal to the ones declared by the Service
-                // - request handled by a Proxy when its request and response 
-                //   are ByteArrayProxyRequest and ByteArrayProxyResponse
-                .filter(ri -> (handlingService == null
-                && cachedRequestType(ri).equals(ByteArrayProxyRequest.type())
-                && cachedResponseType(ri).equals(ByteArrayProxyResponse.type()))
-                || (handlingService != null && cachedRequestType(ri).equals(cachedRequestType(handlingService))
-                && ri.responseType().equals(cachedResponseType(handlingService))))
-                .filter(ri -> !this.filterRequiringContent || !requiresContent(ri))
-                .filter(ri -> {
-                    try {
-                        return ri.resolve(request, response);
-                    } catch (Exception e) {
-                        LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                InterceptPoint.RESPONSE_ASYNC);
-
-                        return false;
-                    }
-                })
-                .forEachOrdered(ri -> {
-                    exchange.getConnection().getWorker().execute(() -> {
-                        LOGGER.debug("Executing interceptor {} for {} on intercept point {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                InterceptPoint.RESPONSE_ASYNC);
-
-                        try {
-                            ri.handle(request, response);
-                        } catch (Exception ex) {
-                            LOGGER.error("Error executing interceptor {} for {} on intercept point {}",
-                                    ri.getClass().getSimpleName(),
-                                    exchange.getRequestPath(),
-                                    InterceptPoint.RESPONSE_ASYNC,
-                                    ex);
-
-                            Exchange.setInError(exchange);
-                            LambdaUtils.throwsSneakyExcpetion(ex);
-                        }
-                    });
-                });
     }
 
+    @SuppressWarnings("unchecked")
+    private boolean resolve(Interceptor ri,
+            HttpServerExchange exchange,
+            Request request,
+            Response response,
+            InterceptPoint interceptPoint) {
+        try {
+            return ri.resolve(request, response);
+        } catch (Exception e) {
+            LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
+                    ri.getClass().getSimpleName(),
+                    exchange.getRequestPath(),
+                    interceptPoint,
+                    e);
+
+            return false;
+        }
+    }
 }
@@ -24,6 +24,7 @@ import io.undertow.server.HttpServerExchange;
 import java.nio.ByteBuffer;
 import org.restheart.exchange.ByteArrayProxyResponse;
 import org.restheart.exchange.PipelineInfo;
+import org.restheart.exchange.ResolvedPipeline;
 import org.restheart.exchange.ServiceResponse;
 import org.restheart.plugins.PluginsRegistryImpl;
 
@@ -57,26 +58,34 @@ public class ResponseSender extends PipelinedHandler {
     @Override
     @SuppressWarnings("unchecked")
     public void handleRequest(HttpServerExchange exchange) throws Exception {
-        var registry = PluginsRegistryImpl.getInstance();
-        var path = exchange.getRequestPath();
+        var rp = ResolvedPipeline.of(exchange);
 
-        var pi = registry.getPipelineInfo(path);
+        if (rp == null) {
+            rp = PluginsRegistryImpl.getInstance()
+                    .getResolvedPipeline(exchange.getRequestPath());
+        }
+
+        var pi = rp.getPipelineInfo();
 
         if (pi.getType() == PipelineInfo.PIPELINE_TYPE.SERVICE) {
-            var srv = registry.getServices().stream()
-                    .filter(s -> s.getName().equals(pi.getName()))
-                    .findAny();
+            var srv = rp.getHandlingService();
 
-            if (srv.isPresent()) {
-                var response = (ServiceResponse) srv.get().getInstance()
-                        .response().apply(exchange);
+            // a service can send the response itself, e.g. streaming a file
+            if (srv != null && !exchange.isResponseStarted()) {
+                var response = (ServiceResponse) srv.response().apply(exchange);
 
                 exchange.setStatusCode(response.getStatusCode());
 
-                var content = response.readContent();
+                if (response.getContent() instanceof byte[]) {
+                    // binary content must not be converted to a string
+                    exchange.getResponseSender().send(
+                            ByteBuffer.wrap((byte[]) response.getContent()));
+                } else {
+                    var content = response.readContent();
 
-                if (content != null) {
-                    exchange.getResponseSender().send(response.readContent());
+                    if (content != null) {
+                        exchange.getResponseSender().send(content);
+                    }
                 }
             }
 
@@ -22,6 +22,7 @@ package org.restheart.handlers;
 
 import io.undertow.server.HttpServerExchange;
 import org.restheart.plugins.PluginsRegistryImpl;
+import org.restheart.utils.PluginUtils;
 
 /**
  * Initializes the Request and the Response invoking requestInitializer() and
@@ -42,23 +43,13 @@ public class ServiceExchangeInitializer extends PipelinedHandler {
     @Override
     @SuppressWarnings("unchecked")
     public void handleRequest(HttpServerExchange exchange) throws Exception {
-        var registry = PluginsRegistryImpl.getInstance();
-        var path = exchange.getRequestPath();
+        var srv = PluginUtils.handlingService(
+                PluginsRegistryImpl.getInstance(),
+                exchange);
 
-        var pi = registry.getPipelineInfo(path);
-
-        var srv = registry.getServices().stream()
-                .filter(s -> s.getName().equals(pi.getName()))
-                .findAny();
-
-        if (srv.isPresent()) {
-            srv.get().getInstance()
-                    .requestInitializer()
-                    .accept(exchange);
-
-            srv.get().getInstance()
-                    .responseInitializer()
-                    .accept(exchange);
+        if (srv != null) {
+            srv.requestInitializer().accept(exchange);
+            srv.responseInitializer().accept(exchange);
         }
 
         next(exchange);
@@ -0,0 +1,98 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HttpString;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.restheart.exchange.PipelineInfo;
+import org.restheart.utils.MetricsUtils;
+
+/**
+ * The first handler of every pipeline: if stage timings are enabled, it
+ * attaches a StageTimings to the exchange and, when the pipeline returns,
+ * updates the timers stage-timings.&lt;pipeline uri&gt;.&lt;stage&gt; of the
+ * default metrics registry.
+ *
+ * The timers are not updated by an exchange completion listener, since the
+ * last stage usually ends the exchange while all stages are still running.
+ *
+ * If the Server-Timing header is enabled, it is set when the response is
+ * committed with the timings of the stages so far, including the running ones.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class StageTimingsHandler extends PipelinedHandler {
+
+    private static final HttpString SERVER_TIMING = HttpString.tryFromString("Server-Timing");
+
+    private static final String METRICS_PREFIX = "stage-timings";
+
+    private final String uri;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     *
+     * @param info the info of the pipeline
+     * @param next the first handler of the pipeline
+     */
+    public StageTimingsHandler(PipelineInfo info, PipelinedHandler next) {
+        super(next);
+        this.uri = info.getUri();
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        if (!StageTimings.isEnabled()) {
+            next(exchange);
+            return;
+        }
+
+        var timings = StageTimings.attach(exchange);
+
+        if (StageTimings.isServerTimingHeader()) {
+            exchange.addResponseCommitListener(ex -> ex.getResponseHeaders()
+                    .put(SERVER_TIMING, timings.toServerTiming()));
+        }
+
+        try {
+            next(exchange);
+        } finally {
+            // the stages dispatched to other threads are not timed
+            exchange.removeAttachment(StageTimings.ATTACHMENT_KEY);
+
+            for (int idx = 0; idx < timings.size(); idx++) {
+                timer(timings.stage(idx)).update(timings.nanos(idx),
+                        TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private Timer timer(String stage) {
+        return timers.computeIfAbsent(stage, s -> MetricsUtils
+                .defaultRegistry()
+                .timer(MetricRegistry.name(METRICS_PREFIX, uri, s)));
+    }
+}
@@ -0,0 +1,163 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.server.HttpServerExchange;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import org.restheart.exchange.ByteArrayProxyRequest;
+import org.restheart.exchange.ByteArrayProxyResponse;
+import org.restheart.plugins.StreamingProxyInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The StreamingProxyInterceptors that resolve a request at an intercept point;
+ * each chunk of content is passed through them in order.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class StreamingInterceptorsChain {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(StreamingInterceptorsChain.class);
+
+    private final StreamingProxyInterceptor[] interceptors;
+    private final ByteArrayProxyRequest request;
+    private final ByteArrayProxyResponse response;
+    private final boolean transforming;
+
+    private StreamingInterceptorsChain(StreamingProxyInterceptor[] interceptors,
+            HttpServerExchange exchange) {
+        this.interceptors = interceptors;
+        this.request = ByteArrayProxyRequest.of(exchange);
+        this.response = ByteArrayProxyResponse.of(exchange);
+
+        var _transforming = false;
+
+        for (var ri : interceptors) {
+            _transforming |= ri.isTransforming();
+        }
+
+        this.transforming = _transforming;
+    }
+
+    /**
+     * @param candidates the streaming interceptors of the pipeline at an
+     * intercept point
+     * @param exchange
+     * @return the chain of the ones that resolve the request or null if none
+     * resolves it
+     */
+    public static StreamingInterceptorsChain of(
+            StreamingProxyInterceptor[] candidates,
+            HttpServerExchange exchange) {
+        if (candidates.length == 0) {
+            return null;
+        }
+
+        var request = ByteArrayProxyRequest.of(exchange);
+        var response = ByteArrayProxyResponse.of(exchange);
+        var resolved = new ArrayList<StreamingProxyInterceptor>();
+
+        for (var ri : candidates) {
+            try {
+                if (ri.resolve(request, response)) {
+                    resolved.add(ri);
+                }
+            } catch (Exception e) {
+                LOGGER.warn("Error resolving streaming interceptor {} for {}",
+                        ri.getClass().getSimpleName(),
+                        exchange.getRequestPath(),
+                        e);
+            }
+        }
+
+        return resolved.isEmpty()
+                ? null
+                : new StreamingInterceptorsChain(resolved
+                        .toArray(StreamingProxyInterceptor[]::new), exchange);
+    }
+
+    /**
+     * @return true if any interceptor can change the size of the content
+     */
+    public boolean isTransforming() {
+        return transforming;
+    }
+
+    /**
+     * @param chunk
+     * @return the chunk to forward
+     * @throws IOException
+     */
+    public ByteBuffer onChunk(ByteBuffer chunk) throws IOException {
+        return onChunk(chunk, 0);
+    }
+
+    private ByteBuffer onChunk(ByteBuffer chunk, int from) throws IOException {
+        var ret = chunk;
+
+        for (int idx = from; idx < interceptors.length && ret != null; idx++) {
+            ret = interceptors[idx].onChunk(request, response, ret);
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return the data to append to the content, or null; the data appended
+     * by an interceptor goes through the following ones
+     * @throws IOException
+     */
+    public ByteBuffer onEnd() throws IOException {
+        ByteBuffer ret = null;
+
+        for (int idx = 0; idx < interceptors.length; idx++) {
+            var tail = interceptors[idx].onEnd(request, response);
+
+            if (tail != null && tail.hasRemaining()) {
+                tail = onChunk(tail, idx + 1);
+            }
+
+            if (ret != null && ret.hasRemaining()) {
+                // the data appended by the previous interceptors has already
+                // gone through this one
+                ret = concat(ret, tail);
+            } else {
+                ret = tail;
+            }
+        }
+
+        return ret;
+    }
+
+    private static ByteBuffer concat(ByteBuffer a, ByteBuffer b) {
+        if (b == null || !b.hasRemaining()) {
+            return a;
+        }
+
+        var ret = ByteBuffer.allocate(a.remaining() + b.remaining());
+        ret.put(a).put(b).flip();
+        return ret;
+    }
+}
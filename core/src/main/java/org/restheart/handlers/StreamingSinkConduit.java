@@ -0,0 +1,198 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.xnio.IoUtils;
+import org.xnio.channels.StreamSourceChannel;
+import org.xnio.conduits.AbstractStreamSinkConduit;
+import org.xnio.conduits.ConduitWritableByteChannel;
+import org.xnio.conduits.Conduits;
+import org.xnio.conduits.StreamSinkConduit;
+
+/**
+ * conduit that passes each chunk of the response content through the
+ * StreamingProxyInterceptors as it is written, without buffering it.
+ *
+ * Only the part of a transformed chunk that the next conduit does not accept
+ * is copied and kept until the next write or flush.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class StreamingSinkConduit
+        extends AbstractStreamSinkConduit<StreamSinkConduit> {
+
+    private final StreamSinkConduit _next;
+    private final StreamingInterceptorsChain chain;
+
+    private ByteBuffer pending = null;
+    private boolean terminating = false;
+    private boolean nextTerminated = false;
+
+    /**
+     *
+     * @param next
+     * @param chain
+     */
+    public StreamingSinkConduit(StreamSinkConduit next,
+            StreamingInterceptorsChain chain) {
+        super(next);
+        this._next = next;
+        this.chain = chain;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (!writePending()) {
+            return 0;
+        }
+
+        var ret = src.remaining();
+
+        if (ret == 0) {
+            return 0;
+        }
+
+        var chunk = chain.onChunk(src.duplicate());
+
+        src.position(src.limit());
+
+        forward(chunk);
+
+        return ret;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offs, int len) throws IOException {
+        long ret = 0;
+
+        for (int idx = offs; idx < offs + len; idx++) {
+            if (srcs[idx].hasRemaining()) {
+                var written = write(srcs[idx]);
+
+                if (written == 0) {
+                    break;
+                }
+
+                ret += written;
+            }
+        }
+
+        return ret;
+    }
+
+    @Override
+    public long transferFrom(final FileChannel src, final long position,
+            final long count) throws IOException {
+        return src.transferTo(position, count, new ConduitWritableByteChannel(this));
+    }
+
+    @Override
+    public long transferFrom(final StreamSourceChannel source, final long count,
+            final ByteBuffer throughBuffer) throws IOException {
+        return IoUtils.transfer(source, count, throughBuffer,
+                new ConduitWritableByteChannel(this));
+    }
+
+    @Override
+    public int writeFinal(ByteBuffer src) throws IOException {
+        return Conduits.writeFinalBasic(this, src);
+    }
+
+    @Override
+    public long writeFinal(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        return Conduits.writeFinalBasic(this, srcs, offset, length);
+    }
+
+    @Override
+    public void terminateWrites() throws IOException {
+        if (terminating) {
+            return;
+        }
+
+        terminating = true;
+
+        var tail = chain.onEnd();
+
+        if (tail != null && tail.hasRemaining()) {
+            if (pending == null || !pending.hasRemaining()) {
+                pending = tail;
+            } else {
+                var _pending = ByteBuffer.allocate(pending.remaining() + tail.remaining());
+                _pending.put(pending).put(tail).flip();
+                pending = _pending;
+            }
+        }
+
+        terminateNextIfWritten();
+    }
+
+    @Override
+    public boolean flush() throws IOException {
+        if (terminating && !terminateNextIfWritten()) {
+            return false;
+        }
+
+        return writePending() && _next.flush();
+    }
+
+    private boolean terminateNextIfWritten() throws IOException {
+        if (nextTerminated) {
+            return true;
+        }
+
+        if (!writePending()) {
+            return false;
+        }
+
+        _next.terminateWrites();
+        nextTerminated = true;
+        return true;
+    }
+
+    private void forward(ByteBuffer chunk) throws IOException {
+        if (chunk == null || !chunk.hasRemaining()) {
+            return;
+        }
+
+        while (chunk.hasRemaining()) {
+            if (_next.write(chunk) == 0) {
+                // the chunk can share the memory of the source buffer
+                pending = ByteBuffer.allocate(chunk.remaining());
+                pending.put(chunk).flip();
+                return;
+            }
+        }
+    }
+
+    private boolean writePending() throws IOException {
+        while (pending != null && pending.hasRemaining()) {
+            if (_next.write(pending) == 0) {
+                return false;
+            }
+        }
+
+        pending = null;
+        return true;
+    }
+}
@@ -0,0 +1,155 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.xnio.IoUtils;
+import org.xnio.channels.StreamSinkChannel;
+import org.xnio.conduits.AbstractStreamSourceConduit;
+import org.xnio.conduits.ConduitReadableByteChannel;
+import org.xnio.conduits.StreamSourceConduit;
+
+/**
+ * conduit that passes each chunk of the request content through the
+ * StreamingProxyInterceptors as it is read, without buffering it.
+ *
+ * Only the part of a transformed chunk that does not fit in the destination
+ * buffer is copied and kept until the next read.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class StreamingSourceConduit
+        extends AbstractStreamSourceConduit<StreamSourceConduit> {
+
+    private final StreamSourceConduit _next;
+    private final StreamingInterceptorsChain chain;
+
+    private ByteBuffer pending = null;
+    private boolean ended = false;
+
+    /**
+     *
+     * @param next
+     * @param chain
+     */
+    public StreamingSourceConduit(StreamSourceConduit next,
+            StreamingInterceptorsChain chain) {
+        super(next);
+        this._next = next;
+        this.chain = chain;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (pending != null && pending.hasRemaining()) {
+            return drainPending(dst);
+        }
+
+        if (ended) {
+            return -1;
+        }
+
+        while (true) {
+            var pos = dst.position();
+            var read = _next.read(dst);
+
+            if (read == -1) {
+                ended = true;
+                pending = chain.onEnd();
+
+                return pending != null && pending.hasRemaining()
+                        ? drainPending(dst)
+                        : -1;
+            } else if (read == 0) {
+                return 0;
+            }
+
+            var chunk = dst.duplicate();
+            chunk.position(pos);
+            chunk.limit(pos + read);
+
+            var out = chain.onChunk(chunk);
+
+            if (out == null || !out.hasRemaining()) {
+                // the chunk has been dropped, read the next one
+                dst.position(pos);
+                continue;
+            }
+
+            if (out == chunk && out.position() == pos
+                    && out.remaining() == read) {
+                // forwarded as read, possibly modified in place
+                return read;
+            }
+
+            dst.position(pos);
+
+            var ret = Math.min(out.remaining(), dst.remaining());
+            var _out = out.duplicate();
+            _out.limit(_out.position() + ret);
+            dst.put(_out);
+
+            if (out.remaining() > ret) {
+                out.position(out.position() + ret);
+                pending = ByteBuffer.allocate(out.remaining());
+                pending.put(out).flip();
+            }
+
+            return ret;
+        }
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offs, int len) throws IOException {
+        for (int idx = offs; idx < offs + len; idx++) {
+            if (dsts[idx].hasRemaining()) {
+                return read(dsts[idx]);
+            }
+        }
+
+        return 0;
+    }
+
+    @Override
+    public long transferTo(long position, long count, FileChannel target)
+            throws IOException {
+        return target.transferFrom(new ConduitReadableByteChannel(this),
+                position, count);
+    }
+
+    @Override
+    public long transferTo(long count, ByteBuffer throughBuffer,
+            StreamSinkChannel target) throws IOException {
+        return IoUtils.transfer(new ConduitReadableByteChannel(this), count,
+                throughBuffer, target);
+    }
+
+    private int drainPending(ByteBuffer dst) {
+        var ret = Math.min(pending.remaining(), dst.remaining());
+        var _pending = pending.duplicate();
+        _pending.limit(_pending.position() + ret);
+        dst.put(_pending);
+        pending.position(pending.position() + ret);
+        return ret;
+    }
+}
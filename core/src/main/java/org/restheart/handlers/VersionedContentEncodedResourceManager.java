@@ -0,0 +1,202 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.predicate.Predicate;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.encoding.ContentEncodedResource;
+import io.undertow.server.handlers.encoding.ContentEncodedResourceManager;
+import io.undertow.server.handlers.encoding.ContentEncodingRepository;
+import io.undertow.server.handlers.resource.CachingResourceManager;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.util.ETag;
+import io.undertow.util.MimeMappings;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A ContentEncodedResourceManager whose encoded variants are keyed by the
+ * path and the version of the resource, i.e. its ETag or, if missing, its
+ * last modified date.
+ *
+ * ContentEncodedResourceManager keys the variants by path only, so a variant
+ * stored before a change of the resource would be served forever. Here the
+ * variant of the changed resource has a different key and is generated again
+ * on first request. Resources without ETag and last modified date are not
+ * encoded.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class VersionedContentEncodedResourceManager
+        extends ContentEncodedResourceManager {
+
+    /**
+     *
+     * @param encodedResourcesRoot the directory where variants are stored
+     * @param encodedResourceCache the cache of the variants
+     * @param contentEncodingRepository the encodings
+     * @param minResourceSize the min size of the resources to encode
+     * @param maxResourceSize the max size of the resources to encode
+     * @param encodingAllowed the predicate of the resources to encode, or null
+     */
+    public VersionedContentEncodedResourceManager(Path encodedResourcesRoot,
+            CachingResourceManager encodedResourceCache,
+            ContentEncodingRepository contentEncodingRepository,
+            int minResourceSize,
+            int maxResourceSize,
+            Predicate encodingAllowed) {
+        super(encodedResourcesRoot, encodedResourceCache,
+                contentEncodingRepository, minResourceSize, maxResourceSize,
+                encodingAllowed);
+    }
+
+    @Override
+    public ContentEncodedResource getResource(Resource resource,
+            HttpServerExchange exchange) throws IOException {
+        var versioned = versioned(resource);
+
+        return versioned == null
+                ? null
+                : super.getResource(versioned, exchange);
+    }
+
+    /**
+     * @param resource
+     * @return the resource with the version appended to its path, or null if
+     * its version is unknown
+     */
+    static Resource versioned(Resource resource) {
+        var etag = resource.getETag();
+        var lastModified = resource.getLastModified();
+
+        String version;
+
+        if (etag != null) {
+            version = etag.getTag();
+        } else if (lastModified != null) {
+            version = Long.toHexString(lastModified.getTime());
+        } else {
+            return null;
+        }
+
+        return new VersionedResource(resource, resource.getPath()
+                + "."
+                + version.replaceAll("[^A-Za-z0-9-]", "_"));
+    }
+
+    private static class VersionedResource implements Resource {
+
+        private final Resource wrapped;
+        private final String path;
+
+        VersionedResource(Resource wrapped, String path) {
+            this.wrapped = wrapped;
+            this.path = path;
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public Date getLastModified() {
+            return wrapped.getLastModified();
+        }
+
+        @Override
+        public String getLastModifiedString() {
+            return wrapped.getLastModifiedString();
+        }
+
+        @Override
+        public ETag getETag() {
+            return wrapped.getETag();
+        }
+
+        @Override
+        public String getName() {
+            return wrapped.getName();
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return wrapped.isDirectory();
+        }
+
+        @Override
+        public List<Resource> list() {
+            return wrapped.list();
+        }
+
+        @Override
+        public String getContentType(MimeMappings mimeMappings) {
+            return wrapped.getContentType(mimeMappings);
+        }
+
+        @Override
+        public void serve(Sender sender, HttpServerExchange exchange,
+                IoCallback completionCallback) {
+            wrapped.serve(sender, exchange, completionCallback);
+        }
+
+        @Override
+        public Long getContentLength() {
+            return wrapped.getContentLength();
+        }
+
+        @Override
+        public String getCacheKey() {
+            return wrapped.getCacheKey();
+        }
+
+        @Override
+        public File getFile() {
+            return wrapped.getFile();
+        }
+
+        @Override
+        public Path getFilePath() {
+            return wrapped.getFilePath();
+        }
+
+        @Override
+        public File getResourceManagerRoot() {
+            return wrapped.getResourceManagerRoot();
+        }
+
+        @Override
+        public Path getResourceManagerRootPath() {
+            return wrapped.getResourceManagerRootPath();
+        }
+
+        @Override
+        public URL getUrl() {
+            return wrapped.getUrl();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.Headers;
+import java.util.concurrent.Executor;
+import org.restheart.exchange.ResolvedPipeline;
+import org.restheart.plugins.InterceptPoint;
+import org.restheart.plugins.PipelineInterceptors;
+import org.restheart.plugins.PluginsRegistryImpl;
+
+/**
+ * Dispatches the request to a worker thread in blocking mode, as
+ * io.undertow.server.handlers.BlockingHandler does, unless it is handled by a
+ * non blocking pipeline and it does not involve any blocking step.
+ *
+ * A request to a non blocking pipeline is handled by the IO thread if it has no
+ * content, it does not carry credentials and no request or response
+ * interceptor can intercept it. Otherwise it is dispatched to a worker thread.
+ *
+ * If an Executor is specified (see worker-executor configuration option) it is
+ * set as the dispatch executor of the exchange, so that it is also used by
+ * later dispatches (e.g. by AuthenticationCallHandler). Otherwise the undertow
+ * worker thread pool is used.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class WorkerThreadDispatcher implements HttpHandler {
+
+    private static final AttachmentKey<Boolean> IN_IO_THREAD_KEY
+            = AttachmentKey.create(Boolean.class);
+
+    private final HttpHandler next;
+
+    private final Executor executor;
+
+    /**
+     * Creates a new instance of WorkerThreadDispatcher that dispatches
+     * requests to the undertow worker thread pool
+     *
+     * @param next
+     */
+    public WorkerThreadDispatcher(HttpHandler next) {
+        this(next, null);
+    }
+
+    /**
+     * Creates a new instance of WorkerThreadDispatcher
+     *
+     * @param next
+     * @param executor the executor to dispatch requests to, null to use the
+     * undertow worker thread pool
+     */
+    public WorkerThreadDispatcher(HttpHandler next, Executor executor) {
+        this.next = next;
+        this.executor = executor;
+    }
+
+    /**
+     *
+     * @param exchange
+     * @throws Exception
+     */
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        var rp = PluginsRegistryImpl.getInstance()
+                .getResolvedPipeline(exchange.getRequestPath());
+
+        // PipelineInfoInjector will use it
+        ResolvedPipeline.attach(exchange, rp);
+
+        if (executor != null) {
+            exchange.setDispatchExecutor(executor);
+        }
+
+        if (exchange.isInIoThread() && canHandleInIoThread(exchange, rp)) {
+            exchange.putAttachment(IN_IO_THREAD_KEY, true);
+            next.handleRequest(exchange);
+        } else {
+            exchange.startBlocking();
+
+            if (exchange.isInIoThread()) {
+                exchange.dispatch(next);
+            } else {
+                next.handleRequest(exchange);
+            }
+        }
+    }
+
+    /**
+     * @param exchange
+     * @return true if the request is being handled by the IO thread because
+     * its pipeline is non blocking
+     */
+    public static boolean isHandledInIoThread(HttpServerExchange exchange) {
+        var ret = exchange.getAttachment(IN_IO_THREAD_KEY);
+
+        return ret != null && ret;
+    }
+
+    private static boolean canHandleInIoThread(HttpServerExchange exchange,
+            ResolvedPipeline rp) {
+        if (rp == null || rp.isBlocking()) {
+            return false;
+        }
+
+        // reading the request content blocks
+        if (!exchange.isRequestComplete()) {
+            return false;
+        }
+
+        // authentication mechanisms might block verifying credentials
+        if (exchange.getRequestHeaders().contains(Headers.AUTHORIZATION)) {
+            return false;
+        }
+
+        // interceptors might block
+        var pis = PluginsRegistryImpl.getInstance()
+                .getPipelineInterceptors(rp.getPipelineInfo());
+
+        return !hasInterceptors(pis,
+                InterceptPoint.REQUEST_BEFORE_AUTH,
+                InterceptPoint.REQUEST_AFTER_AUTH,
+                InterceptPoint.RESPONSE);
+    }
+
+    private static boolean hasInterceptors(PipelineInterceptors pis,
+            InterceptPoint... interceptPoints) {
+        for (var ip : interceptPoints) {
+            if (pis.get(ip).length > 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
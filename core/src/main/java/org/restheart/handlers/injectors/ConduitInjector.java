@@ -30,13 +30,15 @@ import org.restheart.exchange.ByteArrayProxyResponse;
 import org.restheart.handlers.ContentStreamSinkConduit;
 import org.restheart.handlers.ModifiableContentSinkConduit;
 import org.restheart.handlers.PipelinedHandler;
+import org.restheart.handlers.StreamingInterceptorsChain;
+import org.restheart.handlers.StreamingSinkConduit;
+import org.restheart.plugins.InterceptPoint;
 import static org.restheart.plugins.InterceptPoint.RESPONSE;
 import static org.restheart.plugins.InterceptPoint.RESPONSE_ASYNC;
+import org.restheart.plugins.Interceptor;
+import org.restheart.plugins.PipelineInterceptors;
 import org.restheart.plugins.PluginsRegistryImpl;
-import static org.restheart.utils.PluginUtils.cachedRequestType;
-import static org.restheart.utils.PluginUtils.cachedResponseType;
-import static org.restheart.utils.PluginUtils.interceptPoint;
-import static org.restheart.utils.PluginUtils.requiresContent;
+import org.restheart.utils.PluginUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -51,6 +53,10 @@ import org.xnio.conduits.StreamSinkConduit;
  * proxied resources. To mitigate DoS attacks the injector limits the size of
  * the content to ModificableContentSinkConduit.MAX_CONTENT_SIZE bytes
  *
+ * StreamingProxyInterceptors at RESPONSE instead get the response content
+ * chunk by chunk, via StreamingSinkConduit, without buffering it; the request
+ * content is passed to them by StreamingRequestConduitInjector
+ *
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  */
 public class ConduitInjector extends PipelinedHandler {
@@ -74,31 +80,12 @@ public class ConduitInjector extends PipelinedHandler {
     private static void forceIdentityEncodingForInterceptors(
             HttpServerExchange exchange) {
 
-        if (PluginsRegistryImpl.getInstance()
-                .getInterceptors()
-                .stream()
-                .filter(ri -> ri.isEnabled())
-                .map(ri -> ri.getInstance())
-                // IMPORTANT: An interceptor can intercept
-                // - request handled by a Proxy when its request and response
-                //   are ByteArrayProxyRequest and ByteArrayProxyResponse
-                .filter(ri -> cachedRequestType(ri).equals(ByteArrayProxyRequest.type())
-                && cachedResponseType(ri).equals(ByteArrayProxyResponse.type()))
-                .filter(ri -> {
-                    try {
-                        return ri.resolve(
-                                ByteArrayProxyRequest.of(exchange),
-                                ByteArrayProxyResponse.of(exchange));
-                    } catch (Exception e) {
-                        LOGGER.warn("Error resolving interceptor {} for {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                e);
-
-                        return false;
-                    }
-                })
-                .anyMatch(ri -> requiresContent(ri))) {
+        var pipelineInterceptors = PluginsRegistryImpl.getInstance()
+                .getPipelineInterceptors(PluginUtils.pipelineInfo(exchange));
+
+        if (anyResolves(exchange, pipelineInterceptors, InterceptPoint.values())
+                || StreamingInterceptorsChain.of(pipelineInterceptors
+                        .streaming(RESPONSE), exchange) != null) {
             var _before = exchange.getRequestHeaders()
                     .get(Headers.ACCEPT_ENCODING);
 
@@ -120,6 +107,38 @@ public class ConduitInjector extends PipelinedHandler {
         }
     }
 
+    /**
+     * @param exchange
+     * @param pipelineInterceptors
+     * @param interceptPoints
+     * @return true if any interceptor requiring content at the given
+     * interceptPoints resolves the request
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean anyResolves(HttpServerExchange exchange,
+            PipelineInterceptors pipelineInterceptors,
+            InterceptPoint... interceptPoints) {
+        for (var interceptPoint : interceptPoints) {
+            for (Interceptor ri : pipelineInterceptors.requiringContent(interceptPoint)) {
+                try {
+                    if (ri.resolve(
+                            ByteArrayProxyRequest.of(exchange),
+                            ByteArrayProxyResponse.of(exchange))) {
+                        return true;
+                    }
+                } catch (Exception e) {
+                    LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
+                            ri.getClass().getSimpleName(),
+                            exchange.getRequestPath(),
+                            interceptPoint,
+                            e);
+                }
+            }
+        }
+
+        return false;
+    }
+
     /**
      * @param next
      */
@@ -156,43 +175,33 @@ public class ConduitInjector extends PipelinedHandler {
                 MDC.setContextMap(mdcCtx);
             }
 
-            if (PluginsRegistryImpl.getInstance()
-                    .getInterceptors()
-                    .stream()
-                    .filter(ri -> ri.isEnabled())
-                    .map(ri -> ri.getInstance())
-                    .filter(ri -> interceptPoint(ri) == RESPONSE
-                    || interceptPoint(ri) == RESPONSE_ASYNC)
-                    // IMPORTANT: An interceptor can intercept
-                    // - request handled by a Proxy when its request and response
-                    //   are ByteArrayProxyRequest and ByteArrayProxyResponse
-                    .filter(ri -> cachedRequestType(ri).equals(ByteArrayProxyRequest.type())
-                    && cachedResponseType(ri).equals(ByteArrayProxyResponse.type()))
-                    .filter(ri -> {
-                        try {
-                            return ri.resolve(
-                                    ByteArrayProxyRequest.of(exchange),
-                                    ByteArrayProxyResponse.of(exchange));
-                        } catch (Exception e) {
-                            LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
-                                    ri.getClass().getSimpleName(),
-                                    exchange.getRequestPath(),
-                                    interceptPoint(ri),
-                                    e);
-
-                            return false;
-                        }
-                    })
-                    .anyMatch(ri -> requiresContent(ri))) {
+            var pipelineInterceptors = PluginsRegistryImpl.getInstance()
+                    .getPipelineInterceptors(PluginUtils.pipelineInfo(exchange));
+
+            var streamingChain = StreamingInterceptorsChain.of(
+                    pipelineInterceptors.streaming(RESPONSE), cexchange);
 
+            if (streamingChain != null && streamingChain.isTransforming()) {
+                // the content length can change, send it chunked
+                cexchange.getResponseHeaders().remove(Headers.CONTENT_LENGTH);
+            }
+
+            StreamSinkConduit ret;
+
+            if (anyResolves(exchange, pipelineInterceptors, RESPONSE, RESPONSE_ASYNC)) {
                 var mcsc = new ModifiableContentSinkConduit(factory.create(),
                         cexchange);
                 cexchange.putAttachment(MCSC_KEY, mcsc);
-                return mcsc;
+                ret = mcsc;
             } else {
-                return new ContentStreamSinkConduit(factory.create(),
+                ret = new ContentStreamSinkConduit(factory.create(),
                         cexchange);
             }
+
+            // streaming interceptors get the content from the backend
+            return streamingChain == null
+                    ? ret
+                    : new StreamingSinkConduit(ret, streamingChain);
         });
 
         forceIdentityEncodingForInterceptors(exchange);
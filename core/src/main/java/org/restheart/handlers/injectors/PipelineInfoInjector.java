@@ -22,6 +22,7 @@ package org.restheart.handlers.injectors;
 
 import io.undertow.server.HttpServerExchange;
 import org.restheart.exchange.ByteArrayProxyRequest;
+import org.restheart.exchange.ResolvedPipeline;
 import org.restheart.handlers.PipelinedHandler;
 import org.restheart.plugins.PluginsRegistryImpl;
 
@@ -32,6 +33,8 @@ import org.restheart.plugins.PluginsRegistryImpl;
  * Injects the PipelineInfo to allows to programmatically understand which
  * pipeline (service, proxy or static resource) is handling the request via
  * Request.getPipelineInfo()
+ *
+ * Also attaches the ResolvedPipeline that binds it to the handling service
  */
 public class PipelineInfoInjector extends PipelinedHandler {
 
@@ -59,9 +62,18 @@ public class PipelineInfoInjector extends PipelinedHandler {
      */
     @Override
     public void handleRequest(HttpServerExchange exchange) throws Exception {
+        // already attached by WorkerThreadDispatcher
+        var rp = ResolvedPipeline.of(exchange);
+
+        if (rp == null) {
+            rp = PluginsRegistryImpl.getInstance()
+                    .getResolvedPipeline(exchange.getRequestPath());
+
+            ResolvedPipeline.attach(exchange, rp);
+        }
+
         ByteArrayProxyRequest.of(exchange)
-                .setPipelineInfo(PluginsRegistryImpl.getInstance()
-                .getPipelineInfo(exchange.getRequestPath()));
+                .setPipelineInfo(rp == null ? null : rp.getPipelineInfo());
 
         next(exchange);
     }
@@ -36,12 +36,9 @@ import static org.restheart.handlers.injectors.RequestContentInjector.Policy.ALW
 import static org.restheart.handlers.injectors.RequestContentInjector.Policy.ON_REQUIRES_CONTENT_AFTER_AUTH;
 import static org.restheart.handlers.injectors.RequestContentInjector.Policy.ON_REQUIRES_CONTENT_BEFORE_AUTH;
 import org.restheart.plugins.InterceptPoint;
+import org.restheart.plugins.Interceptor;
 import org.restheart.plugins.PluginsRegistryImpl;
 import org.restheart.utils.PluginUtils;
-import static org.restheart.utils.PluginUtils.cachedRequestType;
-import static org.restheart.utils.PluginUtils.cachedResponseType;
-import static org.restheart.utils.PluginUtils.interceptPoint;
-import static org.restheart.utils.PluginUtils.requiresContent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -127,6 +124,14 @@ public class RequestContentInjector extends PipelinedHandler {
     @SuppressWarnings("unchecked")
     private boolean isContentRequired(HttpServerExchange exchange,
             InterceptPoint interceptPoint) {
+        var interceptors = PluginsRegistryImpl.getInstance()
+                .getPipelineInterceptors(PluginUtils.pipelineInfo(exchange))
+                .requiringContent(interceptPoint);
+
+        if (interceptors.length == 0) {
+            return false;
+        }
+
         Request request;
         Response response;
 
@@ -142,38 +147,21 @@ public class RequestContentInjector extends PipelinedHandler {
             response = ByteArrayProxyResponse.of(exchange);
         }
 
-        return PluginsRegistryImpl
-                .getInstance()
-                .getInterceptors().stream()
-                .filter(ri -> ri.isEnabled())
-                .map(ri -> ri.getInstance())
-                .filter(ri -> interceptPoint == interceptPoint(ri))
-                // IMPORTANT: An interceptor can intercept
-                // - requests handled by a Service when its request and response
-                //   types are equal to the ones declared by the Service
-                // - request handled by a Proxy when its request and response
-                //   are ByteArrayProxyRequest and ByteArrayProxyResponse
-                .filter(ri
-                        -> (handlingService == null
-                && cachedRequestType(ri).equals(ByteArrayProxyRequest.type())
-                && cachedResponseType(ri).equals(ByteArrayProxyResponse.type()))
-                || (handlingService != null
-                && cachedRequestType(ri).equals(cachedRequestType(handlingService))
-                && cachedResponseType(ri).equals(cachedRequestType(handlingService))))
-                .filter(ri -> {
-                    try {
-                        return ri.resolve(request, response);
-                    } catch (Exception e) {
-                        LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                interceptPoint,
-                                e);
-
-                        return false;
-                    }
-                })
-                .anyMatch(ri -> requiresContent(ri));
+        for (Interceptor ri : interceptors) {
+            try {
+                if (ri.resolve(request, response)) {
+                    return true;
+                }
+            } catch (Exception e) {
+                LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
+                        ri.getClass().getSimpleName(),
+                        exchange.getRequestPath(),
+                        interceptPoint,
+                        e);
+            }
+        }
+
+        return false;
     }
 
     private void markInjected(HttpServerExchange exchange) {
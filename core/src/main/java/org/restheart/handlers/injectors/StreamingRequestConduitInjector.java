@@ -0,0 +1,92 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers.injectors;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.ConduitFactory;
+import io.undertow.util.Headers;
+import org.restheart.handlers.PipelinedHandler;
+import org.restheart.handlers.StreamingInterceptorsChain;
+import org.restheart.handlers.StreamingSourceConduit;
+import org.restheart.plugins.InterceptPoint;
+import org.restheart.plugins.PluginsRegistryImpl;
+import org.restheart.utils.PluginUtils;
+import org.xnio.conduits.StreamSourceConduit;
+
+/**
+ * If any StreamingProxyInterceptor at the interceptPoint resolves the request,
+ * passes the request content through them as it is read by the ProxyHandler.
+ *
+ * It must follow the RequestInterceptorsExecutor of the same interceptPoint,
+ * so that the interceptors at REQUEST_AFTER_AUTH are resolved after
+ * authentication. The content goes through the interceptors at
+ * REQUEST_BEFORE_AUTH first, since their conduit is added first.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class StreamingRequestConduitInjector extends PipelinedHandler {
+
+    private final InterceptPoint interceptPoint;
+
+    /**
+     *
+     * @param interceptPoint either REQUEST_BEFORE_AUTH or REQUEST_AFTER_AUTH
+     */
+    public StreamingRequestConduitInjector(InterceptPoint interceptPoint) {
+        super(null);
+        this.interceptPoint = interceptPoint;
+    }
+
+    @Override
+    protected String getStageName() {
+        return getClass().getSimpleName() + "-" + interceptPoint.name();
+    }
+
+    /**
+     *
+     * @param exchange
+     * @throws Exception
+     */
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        var pipelineInterceptors = PluginsRegistryImpl.getInstance()
+                .getPipelineInterceptors(PluginUtils.pipelineInfo(exchange));
+
+        var chain = StreamingInterceptorsChain.of(
+                pipelineInterceptors.streaming(interceptPoint), exchange);
+
+        if (chain != null) {
+            if (chain.isTransforming()
+                    && exchange.getRequestHeaders().contains(Headers.CONTENT_LENGTH)) {
+                // the content length can change, forward it chunked
+                exchange.getRequestHeaders().remove(Headers.CONTENT_LENGTH);
+                exchange.getRequestHeaders().put(Headers.TRANSFER_ENCODING,
+                        Headers.CHUNKED.toString());
+            }
+
+            exchange.addRequestWrapper((ConduitFactory<StreamSourceConduit> factory,
+                    HttpServerExchange cexchange)
+                    -> new StreamingSourceConduit(factory.create(), chain));
+        }
+
+        next(exchange);
+    }
+}
@@ -0,0 +1,171 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.plugins;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Set;
+import org.restheart.exchange.ResolvedPipeline;
+import static org.restheart.utils.PluginUtils.cachedRequestType;
+import static org.restheart.utils.PluginUtils.cachedResponseType;
+import static org.restheart.utils.PluginUtils.interceptPoint;
+import static org.restheart.utils.PluginUtils.requiresContent;
+
+/**
+ * Holds, for each InterceptPoint, the ordered interceptors that can intercept
+ * requests handled by a pipeline.
+ *
+ * The chains are computed once when the pipeline is plugged, so that at request
+ * time only Interceptor.resolve() and Interceptor.handle() are invoked.
+ *
+ * IMPORTANT: An interceptor can intercept
+ * - requests handled by a Service when its request and response types are
+ *   equal to the ones declared by the Service
+ * - request handled by a Proxy when its request and response are
+ *   ByteArrayProxyRequest and ByteArrayProxyResponse
+ *
+ * The returned arrays are shared and must not be modified.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class PipelineInterceptors {
+    /**
+     * chains of a pipeline not intercepted at all
+     */
+    public static final PipelineInterceptors EMPTY = new PipelineInterceptors();
+
+    private static final Interceptor[] NONE = new Interceptor[0];
+
+    private static final StreamingProxyInterceptor[] NO_STREAMING
+            = new StreamingProxyInterceptor[0];
+
+    private final EnumMap<InterceptPoint, Interceptor[]> all
+            = new EnumMap<>(InterceptPoint.class);
+
+    private final EnumMap<InterceptPoint, Interceptor[]> requiringContent
+            = new EnumMap<>(InterceptPoint.class);
+
+    private final EnumMap<InterceptPoint, Interceptor[]> notRequiringContent
+            = new EnumMap<>(InterceptPoint.class);
+
+    private final EnumMap<InterceptPoint, StreamingProxyInterceptor[]> streaming
+            = new EnumMap<>(InterceptPoint.class);
+
+    private PipelineInterceptors() {
+        for (var ip : InterceptPoint.values()) {
+            all.put(ip, NONE);
+            requiringContent.put(ip, NONE);
+            notRequiringContent.put(ip, NONE);
+            streaming.put(ip, NO_STREAMING);
+        }
+    }
+
+    /**
+     * @param interceptors the registered interceptors, ordered by priority
+     * @param resolvedPipeline the pipeline, bound to its handling service
+     * @return the interceptors chains of the pipeline
+     */
+    @SuppressWarnings("rawtypes")
+    public static PipelineInterceptors of(
+            Set<PluginRecord<Interceptor>> interceptors,
+            ResolvedPipeline resolvedPipeline) {
+        var ret = new PipelineInterceptors();
+
+        for (var ip : InterceptPoint.values()) {
+            // if the request is handled by a service set to not execute
+            // interceptors at this interceptPoint, the chain is empty
+            if (resolvedPipeline.dontIntercept(ip)) {
+                continue;
+            }
+
+            var _all = new ArrayList<Interceptor>();
+            var _requiringContent = new ArrayList<Interceptor>();
+            var _notRequiringContent = new ArrayList<Interceptor>();
+            var _streaming = new ArrayList<StreamingProxyInterceptor>();
+
+            interceptors.stream()
+                    .filter(ri -> ri.isEnabled())
+                    .map(ri -> ri.getInstance())
+                    .filter(ri -> interceptPoint(ri) == ip)
+                    .filter(ri -> canIntercept(ri, resolvedPipeline))
+                    .forEachOrdered(ri -> {
+                        _all.add(ri);
+
+                        if (requiresContent(ri)) {
+                            _requiringContent.add(ri);
+                        } else {
+                            _notRequiringContent.add(ri);
+                        }
+
+                        if (ri instanceof StreamingProxyInterceptor) {
+                            _streaming.add((StreamingProxyInterceptor) ri);
+                        }
+                    });
+
+            ret.all.put(ip, _all.toArray(NONE));
+            ret.requiringContent.put(ip, _requiringContent.toArray(NONE));
+            ret.notRequiringContent.put(ip, _notRequiringContent.toArray(NONE));
+            ret.streaming.put(ip, _streaming.toArray(NO_STREAMING));
+        }
+
+        return ret;
+    }
+
+    private static boolean canIntercept(Interceptor ri,
+            ResolvedPipeline resolvedPipeline) {
+        // the types of the pipeline are the ones of the handling service
+        // or ByteArrayProxyRequest and ByteArrayProxyResponse for proxies
+        return cachedRequestType(ri).equals(resolvedPipeline.getRequestType())
+                && cachedResponseType(ri).equals(resolvedPipeline.getResponseType());
+    }
+
+    /**
+     * @param interceptPoint
+     * @return the interceptors at interceptPoint
+     */
+    public Interceptor[] get(InterceptPoint interceptPoint) {
+        return all.get(interceptPoint);
+    }
+
+    /**
+     * @param interceptPoint
+     * @return the interceptors at interceptPoint that require content
+     */
+    public Interceptor[] requiringContent(InterceptPoint interceptPoint) {
+        return requiringContent.get(interceptPoint);
+    }
+
+    /**
+     * @param interceptPoint
+     * @return the interceptors at interceptPoint that don't require content
+     */
+    public Interceptor[] notRequiringContent(InterceptPoint interceptPoint) {
+        return notRequiringContent.get(interceptPoint);
+    }
+
+    /**
+     * @param interceptPoint
+     * @return the StreamingProxyInterceptors at interceptPoint
+     */
+    public StreamingProxyInterceptor[] streaming(InterceptPoint interceptPoint) {
+        return streaming.get(interceptPoint);
+    }
+}
@@ -21,37 +21,46 @@
 package org.restheart.plugins;
 
 import io.github.classgraph.ClassGraph;
-import io.github.classgraph.ClassInfo;
-import io.github.classgraph.ClassInfoList;
-import io.github.classgraph.ScanResult;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import org.restheart.Bootstrapper;
 import org.restheart.ConfigurationException;
 import org.restheart.plugins.security.AuthMechanism;
 import org.restheart.plugins.security.Authenticator;
 import org.restheart.plugins.security.Authorizer;
 import org.restheart.plugins.security.TokenManager;
+import org.restheart.utils.StartupTimings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Finds and instantiates the plugins.
+ *
+ * The plugin classes are read from the plugins indexes
+ * (META-INF/restheart/plugins.idx) written at build time by the
+ * PluginsIndexProcessor; the jars and directories of the classpath and of the
+ * plugins directory without an index are scanned for classes annotated with
+ * {@literal @}RegisterPlugin.
  *
  * @author Andrea Di Cesare <andrea@softinstigate.com>
  */
@@ -66,6 +75,18 @@ public class PluginsFactory implements AutoCloseable {
     private static final Map<String, Map<String, Object>> PLUGINS_CONFS
             = consumePluginsConfiguration();
 
+    /**
+     * the order of the types of plugins to inject dependencies to
+     */
+    private static final List<Class<?>> INJECTION_ORDER = List.of(
+            Initializer.class,
+            AuthMechanism.class,
+            Authorizer.class,
+            TokenManager.class,
+            Authenticator.class,
+            Interceptor.class,
+            Service.class);
+
     private static final PluginsFactory SINGLETON = new PluginsFactory();
 
     public static PluginsFactory getInstance() {
@@ -132,33 +153,106 @@ public class PluginsFactory implements AutoCloseable {
         return confs;
     }
 
-    private final ScanResult scanResult;
+    private final List<Class<?>> pluginClasses;
     /**
-     * A deque containing the instantiated plugins than have to be injected
+     * The instantiated plugins, by type, than have to be injected
      * dependecies. this is done after instantiation because using a dependency,
      * eg the plugin registry, can change the order of plugins instantiation
      * causing all sort of weird issues
      */
-    private final Deque<InstatiatedPlugin> PLUGINS_TO_INJECT_DEPS
-            = new LinkedList<>();
+    private final Map<Class<?>, List<InstatiatedPlugin>> PLUGINS_TO_INJECT_DEPS
+            = new ConcurrentHashMap<>();
     private URLClassLoader PLUGINS_CL_CACHE = null;
 
     private PluginsFactory() {
-        this.scanResult = new ClassGraph()
-                .addClassLoader(getPluginsClassloader())
-                .enableAnnotationInfo()
-                .enableMethodInfo()
-                .initializeLoadedClasses()
-                .scan();
+        var start = System.nanoTime();
+
+        var names = new LinkedHashSet<String>();
+
+        readPluginsIndexes(names);
+        scanNotIndexed(names);
+
+        this.pluginClasses = loadPluginClasses(names);
+
+        StartupTimings.phase("plugins-discovery", System.nanoTime() - start);
+
+        LOGGER.debug("Found {} plugins", pluginClasses.size());
     }
 
     @Override
     public void close() {
-        if (this.scanResult != null) {
-            this.scanResult.close();
+        // nothing to close, the scan result is closed after the scan
+    }
+
+    /**
+     * adds to names the plugin classes listed in the plugins indexes
+     */
+    private void readPluginsIndexes(Set<String> names) {
+        try {
+            var indexes = getPluginsClassloader()
+                    .getResources(PluginsIndexProcessor.INDEX);
+
+            while (indexes.hasMoreElements()) {
+                var index = indexes.nextElement();
+
+                LOGGER.debug("Reading plugins index {}", index);
+
+                try (var reader = new BufferedReader(new InputStreamReader(
+                        index.openStream(), StandardCharsets.UTF_8))) {
+                    reader.lines()
+                            .map(String::trim)
+                            .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                            .forEach(names::add);
+                }
+            }
+        } catch (IOException ioe) {
+            LOGGER.error("Error reading plugins indexes: {}", ioe.getMessage());
         }
     }
 
+    /**
+     * adds to names the classes annotated with @RegisterPlugin of the jars and
+     * directories without a plugins index
+     */
+    private void scanNotIndexed(Set<String> names) {
+        try (var scanResult = new ClassGraph()
+                .addClassLoader(getPluginsClassloader())
+                .blacklistClasspathElementsContainingResourcePath(
+                        PluginsIndexProcessor.INDEX)
+                .enableAnnotationInfo()
+                .scan()) {
+            names.addAll(scanResult
+                    .getClassesWithAnnotation(REGISTER_PLUGIN_CLASS_NAME)
+                    .getNames());
+        } catch (Throwable t) {
+            LOGGER.error("Error deploying plugins: {}", t.getMessage());
+            throw t;
+        }
+    }
+
+    private List<Class<?>> loadPluginClasses(Set<String> names) {
+        var ret = new ArrayList<Class<?>>();
+
+        for (var name : names) {
+            try {
+                var clazz = Class.forName(name, false, getPluginsClassloader());
+
+                if (clazz.isAnnotationPresent(RegisterPlugin.class)) {
+                    ret.add(clazz);
+                } else {
+                    LOGGER.warn("Plugin class {} is not annotated with "
+                            + "@RegisterPlugin, ignoring it", name);
+                }
+            } catch (ClassNotFoundException | LinkageError ex) {
+                LOGGER.error("Error loading plugin class {}: {}",
+                        name,
+                        getRootException(ex).toString());
+            }
+        }
+
+        return ret;
+    }
+
     /**
      *
      * @return the AuthenticationMechanisms
@@ -240,99 +334,98 @@ public class PluginsFactory implements AutoCloseable {
 
         var _type = type.getSimpleName();
 
-        ClassInfoList registeredPlugins;
+        var plugins = pluginClasses.stream()
+                .filter(c -> type.isAssignableFrom(c) && !type.equals(c))
+                // token managers are also authenticators
+                .filter(c -> !type.equals(Authenticator.class)
+                || !TokenManager.class.isAssignableFrom(c))
+                // sort by priority
+                .sorted(Comparator.comparingInt(c -> registration(c).priority()))
+                .collect(Collectors.toList());
+
+        // plugins are instantiated in parallel, collecting them in priority order
+        var instantiated = plugins.parallelStream()
+                .map(plugin -> createPlugin(plugin, _type, confs))
+                .filter(ip -> ip != null)
+                .collect(Collectors.toList());
+
+        instantiated.stream()
+                .filter(ip -> ip.pluginRecord.isEnabled())
+                .forEachOrdered(ip -> {
+                    ret.add(ip.pluginRecord);
+                    LOGGER.debug("Registered {} {}: {}",
+                            _type,
+                            ip.pluginName,
+                            ip.pluginRecord.getDescription());
+                });
+
+        PLUGINS_TO_INJECT_DEPS.put(type, instantiated);
 
-        try {
-            registeredPlugins = scanResult
-                    .getClassesWithAnnotation(REGISTER_PLUGIN_CLASS_NAME);
-        } catch (Throwable t) {
-            LOGGER.error("Error deploying plugins: {}", t.getMessage());
-            throw t;
-        }
-
-        ClassInfoList listOfType;
-
-        if (type.isInterface()) {
-            if (type.equals(Authenticator.class)) {
-                var tms = scanResult.getClassesImplementing(TokenManager.class.getName());
+        return ret;
+    }
 
-                listOfType = scanResult
-                        .getClassesImplementing(type.getName())
-                        .exclude(tms);
-            } else {
-                listOfType = scanResult.getClassesImplementing(type.getName());
-            }
-        } else {
-            listOfType = scanResult.getSubclasses(type.getName());
+    /**
+     * @return the instantiated plugin or null if it is disabled or cannot be
+     * instantiated
+     */
+    @SuppressWarnings("unchecked")
+    private InstatiatedPlugin createPlugin(Class<?> plugin, String _type,
+            Map<String, Map<String, Object>> confs) {
+        var registration = registration(plugin);
+        String name = registration.name();
+        String description = registration.description();
+        Boolean enabledByDefault = registration.enabledByDefault();
+
+        var enabled = PluginRecord.isEnabled(enabledByDefault,
+                confs != null ? confs.get(name) : null);
+
+        if (!enabled) {
+            LOGGER.debug("{} {} is disabled", _type, name);
+            return null;
         }
 
-        var plugins = registeredPlugins.intersect(listOfType);
-
-        // sort by priority
-        plugins.sort((ClassInfo ci1, ClassInfo ci2) -> {
-            return Integer.compare(annotationParam(ci1, "priority"),
-                    annotationParam(ci2, "priority"));
-        });
-
-        plugins.stream().forEachOrdered(plugin -> {
-            Object i;
-
-            try {
-                String name = annotationParam(plugin,
-                        "name");
-                String description = annotationParam(plugin,
-                        "description");
-                Boolean enabledByDefault = annotationParam(plugin,
-                        "enabledByDefault");
-
-                var enabled = PluginRecord.isEnabled(enabledByDefault,
-                        confs != null ? confs.get(name) : null);
-
-                if (enabled) {
-                    i = instantiatePlugin(plugin, _type, name, confs);
-
-                    var pr = new PluginRecord(
-                            name,
-                            description,
-                            enabledByDefault,
-                            plugin.getName(),
-                            (T) i,
-                            confs != null
-                                    ? confs.get(name)
-                                    : null);
-
-                    if (pr.isEnabled()) {
-                        ret.add(pr);
-                        LOGGER.debug("Registered {} {}: {}",
-                                _type,
-                                name,
-                                description);
-                    }
-                } else {
-                    LOGGER.debug("{} {} is disabled", _type, name);
-                }
-            } catch (ConfigurationException
-                    | InstantiationException
-                    | IllegalAccessException
-                    | InvocationTargetException t) {
-                LOGGER.error("Error registering {} {}: {}",
-                        _type,
-                        annotationParam(plugin, "name") != null
-                        ? annotationParam(plugin, "name")
-                        : plugin.getSimpleName(),
-                        getRootException(t).getMessage(),
-                        t);
-            }
-        });
+        try {
+            var start = System.nanoTime();
+
+            var i = instantiatePlugin(plugin, _type, name);
+
+            StartupTimings.plugin(name, "instantiation",
+                    System.nanoTime() - start);
+
+            var pr = new PluginRecord(
+                    name,
+                    description,
+                    enabledByDefault,
+                    plugin.getName(),
+                    i,
+                    confs != null
+                            ? confs.get(name)
+                            : null);
+
+            return new InstatiatedPlugin(name,
+                    _type,
+                    plugin,
+                    i,
+                    confs,
+                    pr);
+        } catch (ConfigurationException
+                | InstantiationException
+                | IllegalAccessException
+                | InvocationTargetException t) {
+            LOGGER.error("Error registering {} {}: {}",
+                    _type,
+                    name,
+                    getRootException(t).getMessage(),
+                    t);
 
-        return ret;
+            return null;
+        }
     }
 
     private Plugin instantiatePlugin(
-            ClassInfo pluginClassInfo,
+            Class<?> pluginClass,
             String pluginType,
-            String pluginName,
-            Map confs)
+            String pluginName)
             throws ConfigurationException,
             InstantiationException,
             IllegalAccessException,
@@ -340,66 +433,81 @@ public class PluginsFactory implements AutoCloseable {
         final Plugin plugin;
 
         try {
-            plugin = (Plugin) pluginClassInfo.loadClass(false)
+            plugin = (Plugin) pluginClass
                     .getDeclaredConstructor()
                     .newInstance();
-
-            PLUGINS_TO_INJECT_DEPS.add(
-                    new InstatiatedPlugin(pluginName,
-                            pluginType,
-                            pluginClassInfo,
-                            plugin,
-                            confs));
         } catch (NoSuchMethodException nme) {
             throw new ConfigurationException(
                     pluginType
                     + " " + pluginName
                     + " does not have default constructor "
-                    + pluginClassInfo.getSimpleName()
+                    + pluginClass.getSimpleName()
                     + "()");
         }
 
         return plugin;
     }
 
+    /**
+     * invokes the @InjectConfiguration and @InjectPluginsRegistry methods of
+     * the instantiated plugins, sequentially and in the order given by
+     * INJECTION_ORDER and priority, since the methods of a plugin can depend on
+     * the ones of the plugins injected before
+     */
     public void injectDependencies() {
-        for (Iterator<InstatiatedPlugin> it = PLUGINS_TO_INJECT_DEPS.iterator();
-                it.hasNext();) {
-            var ip = it.next();
+        var types = new ArrayList<Class<?>>(INJECTION_ORDER);
 
-            try {
-                invokeInjectMethods(ip);
-            } catch(InvocationTargetException ite) {
-                if (ite.getCause() != null 
-                        && ite.getCause() instanceof NoClassDefFoundError) {
-                    var errMsg = "Error handling the request. "
-                        + "An external dependency is missing for "
-                        + ip.pluginType
-                        + " "
-                        + ip.pluginName
-                        + ". Copy the missing dependency jar to the plugins directory "
-                        + "to add it to the classpath";
-                    
-                    LOGGER.error(errMsg, ite);
-                }  else {
-                    LOGGER.error("Error injecting dependency to {} {}: {}",
-                        ip.pluginType,
-                        ip.pluginName,
-                        getRootException(ite).getMessage(),
-                        ite);
-                }
-            }catch (ConfigurationException
-                    | InstantiationException
-                    | IllegalAccessException ex) {
-                LOGGER.error("Error injecting dependency to {} {}: {}",
-                        ip.pluginType,
-                        ip.pluginName,
-                        getRootException(ex).getMessage(),
-                        ex);
+        PLUGINS_TO_INJECT_DEPS.keySet().stream()
+                .filter(type -> !types.contains(type))
+                .forEachOrdered(types::add);
+
+        for (var type : types) {
+            var toInject = PLUGINS_TO_INJECT_DEPS.remove(type);
+
+            if (toInject != null) {
+                toInject.forEach(this::injectDependencies);
             }
+        }
+    }
+
+    private void injectDependencies(InstatiatedPlugin ip) {
+        var start = System.nanoTime();
 
-            it.remove();
+        try {
+            invokeInjectMethods(ip);
+        } catch(InvocationTargetException | NoClassDefFoundError ite) {
+            // getDeclaredMethods() throws NoClassDefFoundError if
+            // the signature of a method refers to a missing class
+            if (ite instanceof NoClassDefFoundError
+                    || ite.getCause() instanceof NoClassDefFoundError) {
+                var errMsg = "Error handling the request. "
+                    + "An external dependency is missing for "
+                    + ip.pluginType
+                    + " "
+                    + ip.pluginName
+                    + ". Copy the missing dependency jar to the plugins directory "
+                    + "to add it to the classpath";
+                
+                LOGGER.error(errMsg, ite);
+            }  else {
+                LOGGER.error("Error injecting dependency to {} {}: {}",
+                    ip.pluginType,
+                    ip.pluginName,
+                    getRootException(ite).getMessage(),
+                    ite);
+            }
+        }catch (ConfigurationException
+                | InstantiationException
+                | IllegalAccessException ex) {
+            LOGGER.error("Error injecting dependency to {} {}: {}",
+                    ip.pluginType,
+                    ip.pluginName,
+                    getRootException(ex).getMessage(),
+                    ex);
         }
+
+        StartupTimings.plugin(ip.pluginName, "injection",
+                System.nanoTime() - start);
     }
 
     private void invokeInjectMethods(InstatiatedPlugin ip) throws ConfigurationException,
@@ -408,25 +516,25 @@ public class PluginsFactory implements AutoCloseable {
             InvocationTargetException {
         invokeInjectConfigurationMethods(ip.pluginName,
                 ip.pluginType,
-                ip.pluginClassInfo,
+                ip.pluginClass,
                 ip.pluingInstance,
                 ip.confs);
 
         invokeInjectPluginsRegistryMethods(ip.pluginName,
                 ip.pluginType,
-                ip.pluginClassInfo,
+                ip.pluginClass,
                 ip.pluingInstance);
 
         invokeInjectConfigurationAndPluginsRegistryMethods(ip.pluginName,
                 ip.pluginType,
-                ip.pluginClassInfo,
+                ip.pluginClass,
                 ip.pluingInstance,
                 ip.confs);
     }
 
     private void invokeInjectConfigurationMethods(String pluginName,
             String pluginType,
-            ClassInfo pluginClassInfo,
+            Class<?> pluginClass,
             Object pluingInstance,
             Map confs) throws ConfigurationException,
             InstantiationException,
@@ -434,19 +542,15 @@ public class PluginsFactory implements AutoCloseable {
             InvocationTargetException {
 
         // finds @InjectConfiguration methods
-        var mil = pluginClassInfo.getDeclaredMethodInfo();
+        var mil = pluginClass.getDeclaredMethods();
 
         for (var mi : mil) {
-            if (mi.hasAnnotation(InjectConfiguration.class.getName())
-                    && !mi.hasAnnotation(InjectPluginsRegistry.class.getName())) {
-                var ai = mi.getAnnotationInfo(InjectConfiguration.class.getName());
+            if (mi.isAnnotationPresent(InjectConfiguration.class)
+                    && !mi.isAnnotationPresent(InjectPluginsRegistry.class)) {
+                var ai = mi.getAnnotation(InjectConfiguration.class);
 
                 // check configuration scope
-                var allConfScope = ai.getParameterValues().stream()
-                        .anyMatch(p -> "scope".equals(p.getName())
-                        && (ConfigurationScope.class.getName()
-                                + "." + ConfigurationScope.ALL.name()).equals(
-                                p.getValue().toString()));
+                var allConfScope = ai.scope() == ConfigurationScope.ALL;
 
                 var scopedConf = (Map) (allConfScope
                         ? Bootstrapper.getConfiguration().toMap()
@@ -464,7 +568,7 @@ public class PluginsFactory implements AutoCloseable {
 
                 // try to inovke @InjectConfiguration method
                 try {
-                    pluginClassInfo.loadClass(false)
+                    pluginClass
                             .getDeclaredMethod(mi.getName(),
                                     Map.class)
                             .invoke(pluingInstance, scopedConf);
@@ -483,21 +587,21 @@ public class PluginsFactory implements AutoCloseable {
 
     private void invokeInjectPluginsRegistryMethods(String pluginName,
             String pluginType,
-            ClassInfo pluginClassInfo,
+            Class<?> pluginClass,
             Object pluingInstance) throws ConfigurationException,
             InstantiationException,
             IllegalAccessException,
             InvocationTargetException {
 
         // finds @InjectPluginRegistry methods
-        var mil = pluginClassInfo.getDeclaredMethodInfo();
+        var mil = pluginClass.getDeclaredMethods();
 
         for (var mi : mil) {
-            if (mi.hasAnnotation(InjectPluginsRegistry.class.getName())
-                    && !mi.hasAnnotation(InjectConfiguration.class.getName())) {
+            if (mi.isAnnotationPresent(InjectPluginsRegistry.class)
+                    && !mi.isAnnotationPresent(InjectConfiguration.class)) {
                 // try to inovke @InjectPluginRegistry method
                 try {
-                    pluginClassInfo.loadClass(false)
+                    pluginClass
                             .getDeclaredMethod(mi.getName(),
                                     PluginsRegistry.class)
                             .invoke(pluingInstance,
@@ -517,7 +621,7 @@ public class PluginsFactory implements AutoCloseable {
 
     private void invokeInjectConfigurationAndPluginsRegistryMethods(String pluginName,
             String pluginType,
-            ClassInfo pluginClassInfo,
+            Class<?> pluginClass,
             Object pluingInstance,
             Map confs) throws ConfigurationException,
             InstantiationException,
@@ -525,19 +629,15 @@ public class PluginsFactory implements AutoCloseable {
             InvocationTargetException {
 
         // finds @InjectConfiguration methods
-        var mil = pluginClassInfo.getDeclaredMethodInfo();
+        var mil = pluginClass.getDeclaredMethods();
 
         for (var mi : mil) {
-            if (mi.hasAnnotation(InjectConfiguration.class.getName())
-                    && mi.hasAnnotation(InjectPluginsRegistry.class.getName())) {
-                var ai = mi.getAnnotationInfo(InjectConfiguration.class.getName());
+            if (mi.isAnnotationPresent(InjectConfiguration.class)
+                    && mi.isAnnotationPresent(InjectPluginsRegistry.class)) {
+                var ai = mi.getAnnotation(InjectConfiguration.class);
 
                 // check configuration scope
-                var allConfScope = ai.getParameterValues().stream()
-                        .anyMatch(p -> "scope".equals(p.getName())
-                        && (ConfigurationScope.class.getName()
-                                + "." + ConfigurationScope.ALL.name()).equals(
-                                p.getValue().toString()));
+                var allConfScope = ai.scope() == ConfigurationScope.ALL;
 
                 var scopedConf = (Map) (allConfScope
                         ? Bootstrapper.getConfiguration().toMap()
@@ -555,7 +655,7 @@ public class PluginsFactory implements AutoCloseable {
 
                 // try to inovke @InjectConfiguration method
                 try {
-                    pluginClassInfo.loadClass(false)
+                    pluginClass
                             .getDeclaredMethod(mi.getName(),
                                     Map.class, PluginsRegistry.class)
                             .invoke(pluingInstance, scopedConf,
@@ -583,14 +683,8 @@ public class PluginsFactory implements AutoCloseable {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private <T extends Object> T annotationParam(ClassInfo ci,
-            String param) {
-        var annotationInfo = ci.getAnnotationInfo(REGISTER_PLUGIN_CLASS_NAME);
-        var annotationParamVals = annotationInfo.getParameterValues();
-
-        // The Route annotation has a parameter named "path"
-        return (T) annotationParamVals.getValue(param);
+    private static RegisterPlugin registration(Class<?> pluginClass) {
+        return pluginClass.getAnnotation(RegisterPlugin.class);
     }
 
     private Path getPluginsDirectory() {
@@ -623,7 +717,7 @@ public class PluginsFactory implements AutoCloseable {
      *
      * @return the URLClassLoader that resolve plugins classes
      */
-    private URLClassLoader getPluginsClassloader() {
+    public URLClassLoader getPluginsClassloader() {
         if (PLUGINS_CL_CACHE == null) {
             PLUGINS_CL_CACHE = new URLClassLoader(
                     findPluginsJars(
@@ -637,20 +731,23 @@ public class PluginsFactory implements AutoCloseable {
 
         private final String pluginName;
         private final String pluginType;
-        private final ClassInfo pluginClassInfo;
+        private final Class<?> pluginClass;
         private final Object pluingInstance;
         private final Map confs;
+        private final PluginRecord pluginRecord;
 
         InstatiatedPlugin(String pluginName,
                 String pluginType,
-                ClassInfo pluginClassInfo,
+                Class<?> pluginClass,
                 Object pluingInstance,
-                Map confs) {
+                Map confs,
+                PluginRecord pluginRecord) {
             this.pluginName = pluginName;
             this.pluginType = pluginType;
-            this.pluginClassInfo = pluginClassInfo;
+            this.pluginClass = pluginClass;
             this.pluingInstance = pluingInstance;
             this.confs = confs;
+            this.pluginRecord = pluginRecord;
         }
     }
 }
@@ -26,14 +26,25 @@ import io.undertow.server.handlers.PathHandler;
 import io.undertow.util.PathMatcher;
 import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 import org.restheart.ConfigurationException;
 import org.restheart.exchange.PipelineInfo;
+import org.restheart.exchange.ResolvedPipeline;
+import static org.restheart.exchange.PipelineInfo.PIPELINE_TYPE.SERVICE;
 import org.restheart.handlers.PipelinedHandler;
+import org.restheart.handlers.PipelineEventHandler;
+import org.restheart.handlers.PipelineMetricsHandler;
+import org.restheart.handlers.StageTimingsHandler;
 import org.restheart.plugins.security.AuthMechanism;
 import org.restheart.plugins.security.Authenticator;
 import org.restheart.plugins.security.Authorizer;
 import org.restheart.plugins.security.TokenManager;
+import org.restheart.utils.StartupTimings;
 
 /**
  *
@@ -43,8 +54,10 @@ public class PluginsRegistryImpl implements PluginsRegistry {
 
     private static PluginsRegistryImpl HOLDER;
     private static final PathHandler ROOT_PATH_HANDLER = path();
-    private static final PathMatcher<PipelineInfo> PIPELINE_INFOS
+    private static final PathMatcher<ResolvedPipeline> RESOLVED_PIPELINES
             = new PathMatcher<>();
+    private static final Map<PipelineInfo, PipelineInterceptors> PIPELINE_INTERCEPTORS
+            = new ConcurrentHashMap<>();
 
     public static synchronized PluginsRegistryImpl getInstance() {
         if (HOLDER == null) {
@@ -53,19 +66,28 @@ public class PluginsRegistryImpl implements PluginsRegistry {
 
         return HOLDER;
     }
-    private Set<PluginRecord<AuthMechanism>> authMechanisms;
+    // the plugins are instantiated lazily and concurrently by instantiateAll()
+    // each field is set once, holding its own lock, after the set is filled
+    private volatile Set<PluginRecord<AuthMechanism>> authMechanisms;
+    private final Object authMechanismsLock = new Object();
 
-    private Set<PluginRecord<Authenticator>> authenticators;
+    private volatile Set<PluginRecord<Authenticator>> authenticators;
+    private final Object authenticatorsLock = new Object();
 
-    private Set<PluginRecord<Authorizer>> authorizers;
+    private volatile Set<PluginRecord<Authorizer>> authorizers;
+    private final Object authorizersLock = new Object();
 
-    private PluginRecord<TokenManager> tokenManager;
+    private volatile PluginRecord<TokenManager> tokenManager;
+    private final Object tokenManagerLock = new Object();
 
-    private Set<PluginRecord<Service>> services;
+    private volatile Set<PluginRecord<Service>> services;
+    private final Object servicesLock = new Object();
 
-    private Set<PluginRecord<Initializer>> initializers;
+    private volatile Set<PluginRecord<Initializer>> initializers;
+    private final Object initializersLock = new Object();
 
-    private Set<PluginRecord<Interceptor>> interceptors;
+    private volatile Set<PluginRecord<Interceptor>> interceptors;
+    private final Object interceptorsLock = new Object();
 
     private final Set<Predicate> globalSecurityPredicates
             = new LinkedHashSet<>();
@@ -75,20 +97,52 @@ public class PluginsRegistryImpl implements PluginsRegistry {
 
     /**
      * force plugin objects instantiation
+     *
+     * The plugins are instantiated in parallel, since they cannot use their
+     * dependencies until these are injected; dependencies are then injected
+     * sequentially.
      */
     public void instantiateAll() {
         try (var pluginFactory = PluginsFactory.getInstance()) {
-            getInitializers();
-
-            getAuthMechanisms();
-            getAuthorizers();
-            getTokenManager();
-            getAuthenticators();
-
-            getInterceptors();
-            getServices();
+            var start = System.nanoTime();
+
+            var pool = new ForkJoinPool(Runtime.getRuntime()
+                    .availableProcessors());
+
+            try {
+                pool.submit(() -> Stream.<Runnable>of(
+                        this::getInitializers,
+                        this::getAuthMechanisms,
+                        this::getAuthorizers,
+                        this::getTokenManager,
+                        this::getAuthenticators,
+                        this::getInterceptors,
+                        this::getServices)
+                        .parallel()
+                        .forEach(Runnable::run))
+                        .get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Plugins instantiation interrupted", ie);
+            } catch (ExecutionException ee) {
+                if (ee.getCause() instanceof Error) {
+                    throw (Error) ee.getCause();
+                } else if (ee.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ee.getCause();
+                } else {
+                    throw new IllegalStateException(ee.getCause());
+                }
+            } finally {
+                pool.shutdown();
+            }
+
+            StartupTimings.phase("plugins-instantiation", System.nanoTime() - start);
+
+            start = System.nanoTime();
 
             pluginFactory.injectDependencies();
+
+            StartupTimings.phase("plugins-injection", System.nanoTime() - start);
         }
     }
 
@@ -98,9 +152,14 @@ public class PluginsRegistryImpl implements PluginsRegistry {
     @Override
     public Set<PluginRecord<AuthMechanism>> getAuthMechanisms() {
         if (this.authMechanisms == null) {
-            this.authMechanisms = new LinkedHashSet<>();
-            this.authMechanisms.addAll(PluginsFactory.getInstance()
-                    .authMechanisms());
+            synchronized (authMechanismsLock) {
+                if (this.authMechanisms == null) {
+                    var _authMechanisms = new LinkedHashSet<PluginRecord<AuthMechanism>>();
+                    _authMechanisms.addAll(PluginsFactory.getInstance()
+                            .authMechanisms());
+                    this.authMechanisms = _authMechanisms;
+                }
+            }
         }
 
         return Collections.unmodifiableSet(this.authMechanisms);
@@ -112,9 +171,14 @@ public class PluginsRegistryImpl implements PluginsRegistry {
     @Override
     public Set<PluginRecord<Authenticator>> getAuthenticators() {
         if (this.authenticators == null) {
-            this.authenticators = new LinkedHashSet<>();
-            this.authenticators.addAll(PluginsFactory.getInstance()
-                    .authenticators());
+            synchronized (authenticatorsLock) {
+                if (this.authenticators == null) {
+                    var _authenticators = new LinkedHashSet<PluginRecord<Authenticator>>();
+                    _authenticators.addAll(PluginsFactory.getInstance()
+                            .authenticators());
+                    this.authenticators = _authenticators;
+                }
+            }
         }
 
         return Collections.unmodifiableSet(this.authenticators);
@@ -151,8 +215,12 @@ public class PluginsRegistryImpl implements PluginsRegistry {
     @Override
     public PluginRecord<TokenManager> getTokenManager() {
         if (this.tokenManager == null) {
-            this.tokenManager = PluginsFactory.getInstance()
-                    .tokenManager();
+            synchronized (tokenManagerLock) {
+                if (this.tokenManager == null) {
+                    this.tokenManager = PluginsFactory.getInstance()
+                            .tokenManager();
+                }
+            }
         }
 
         return this.tokenManager;
@@ -164,8 +232,12 @@ public class PluginsRegistryImpl implements PluginsRegistry {
     @Override
     public Set<PluginRecord<Authorizer>> getAuthorizers() {
         if (this.authorizers == null) {
-            this.authorizers = PluginsFactory.getInstance()
-                    .authorizers();
+            synchronized (authorizersLock) {
+                if (this.authorizers == null) {
+                    this.authorizers = PluginsFactory.getInstance()
+                            .authorizers();
+                }
+            }
         }
 
         return Collections.unmodifiableSet(this.authorizers);
@@ -177,9 +249,14 @@ public class PluginsRegistryImpl implements PluginsRegistry {
     @Override
     public Set<PluginRecord<Initializer>> getInitializers() {
         if (this.initializers == null) {
-            this.initializers = new LinkedHashSet<>();
-            this.initializers.addAll(PluginsFactory.getInstance()
-                    .initializers());
+            synchronized (initializersLock) {
+                if (this.initializers == null) {
+                    var _initializers = new LinkedHashSet<PluginRecord<Initializer>>();
+                    _initializers.addAll(PluginsFactory.getInstance()
+                            .initializers());
+                    this.initializers = _initializers;
+                }
+            }
         }
 
         return Collections.unmodifiableSet(this.initializers);
@@ -188,9 +265,14 @@ public class PluginsRegistryImpl implements PluginsRegistry {
     @Override
     public Set<PluginRecord<Interceptor>> getInterceptors() {
         if (this.interceptors == null) {
-            this.interceptors = new LinkedHashSet<>();
-            this.interceptors.addAll(PluginsFactory.getInstance()
-                    .interceptors());
+            synchronized (interceptorsLock) {
+                if (this.interceptors == null) {
+                    var _interceptors = new LinkedHashSet<PluginRecord<Interceptor>>();
+                    _interceptors.addAll(PluginsFactory.getInstance()
+                            .interceptors());
+                    this.interceptors = _interceptors;
+                }
+            }
         }
 
         return this.interceptors;
@@ -202,9 +284,14 @@ public class PluginsRegistryImpl implements PluginsRegistry {
     @Override
     public Set<PluginRecord<Service>> getServices() {
         if (this.services == null) {
-            this.services = new LinkedHashSet<>();
-            this.services.addAll(PluginsFactory.getInstance()
-                    .services());
+            synchronized (servicesLock) {
+                if (this.services == null) {
+                    var _services = new LinkedHashSet<PluginRecord<Service>>();
+                    _services.addAll(PluginsFactory.getInstance()
+                            .services());
+                    this.services = _services;
+                }
+            }
         }
 
         return Collections.unmodifiableSet(this.services);
@@ -230,13 +317,79 @@ public class PluginsRegistryImpl implements PluginsRegistry {
     public void plugPipeline(String path,
             PipelinedHandler handler,
             PipelineInfo info) {
-        ROOT_PATH_HANDLER.addPrefixPath(path, handler);
-        PIPELINE_INFOS.addPrefixPath(path, info);
+        plugPipeline(path, handler, info, true);
+    }
+
+    /**
+     * @param path
+     * @param handler
+     * @param info
+     * @param blocking false if the pipeline can handle requests in the IO
+     * thread
+     */
+    public void plugPipeline(String path,
+            PipelinedHandler handler,
+            PipelineInfo info,
+            boolean blocking) {
+        ROOT_PATH_HANDLER.addPrefixPath(path,
+                new PipelineMetricsHandler(info,
+                        new PipelineEventHandler(info,
+                                new StageTimingsHandler(info, handler))));
+
+        var rp = new ResolvedPipeline(info, handlingService(info), blocking);
+
+        RESOLVED_PIPELINES.addPrefixPath(path, rp);
+        PIPELINE_INTERCEPTORS.put(info, PipelineInterceptors.of(
+                getInterceptors(), rp));
+    }
+
+    private Service handlingService(PipelineInfo info) {
+        if (info.getType() != SERVICE || info.getName() == null) {
+            return null;
+        }
+
+        return getServices().stream()
+                .filter(s -> info.getName().equals(s.getName()))
+                .map(s -> s.getInstance())
+                .findAny()
+                .orElse(null);
+    }
+
+    /**
+     * @param info the PipelineInfo of a pipeline plugged via plugPipeline()
+     * @return the interceptors chains of the pipeline, computed when it was
+     * plugged
+     */
+    public PipelineInterceptors getPipelineInterceptors(PipelineInfo info) {
+        if (info == null) {
+            return PipelineInterceptors.EMPTY;
+        }
+
+        var ret = PIPELINE_INTERCEPTORS.get(info);
+
+        return ret == null ? PipelineInterceptors.EMPTY : ret;
+    }
+
+    /**
+     * @return the PipelineInfos of the pipelines plugged via plugPipeline()
+     */
+    public Set<PipelineInfo> getPipelineInfos() {
+        return Collections.unmodifiableSet(PIPELINE_INTERCEPTORS.keySet());
     }
 
     @Override
     public PipelineInfo getPipelineInfo(String path) {
-        var m = PIPELINE_INFOS.match(path);
+        var rp = getResolvedPipeline(path);
+
+        return rp == null ? null : rp.getPipelineInfo();
+    }
+
+    /**
+     * @param path
+     * @return the ResolvedPipeline of the pipeline handling the request
+     */
+    public ResolvedPipeline getResolvedPipeline(String path) {
+        var m = RESOLVED_PIPELINES.match(path);
 
         return m.getValue();
     }
@@ -25,6 +25,7 @@ import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
 import org.restheart.handlers.CORSHandler;
 import org.restheart.handlers.PipelinedHandler;
+import org.restheart.handlers.WorkerThreadDispatcher;
 import org.restheart.utils.HttpStatus;
 
 /**
@@ -52,7 +53,10 @@ public class AuthenticationCallHandler extends PipelinedHandler {
      */
     @Override
     public void handleRequest(HttpServerExchange exchange) throws Exception {
-        if (exchange.isInIoThread()) {
+        // requests to non blocking pipelines without credentials are
+        // authenticated in the IO thread
+        if (exchange.isInIoThread()
+                && !WorkerThreadDispatcher.isHandledInIoThread(exchange)) {
             exchange.dispatch(this);
             return;
         }
@@ -25,6 +25,7 @@ import static io.undertow.security.api.AuthenticationMechanism.AuthenticationMec
 import io.undertow.security.api.AuthenticationMechanism.ChallengeResult;
 import io.undertow.security.api.SecurityContext;
 import io.undertow.server.HttpServerExchange;
+import org.restheart.jfr.AuthMechanismEvent;
 import org.restheart.plugins.security.AuthMechanism;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,9 +71,14 @@ public class AuthenticatorMechanismWrapper implements AuthMechanism {
     @Override
     public AuthenticationMechanismOutcome authenticate(HttpServerExchange exchange,
             SecurityContext securityContext) {
+        var event = AuthMechanismEvent.start();
+
         AuthenticationMechanismOutcome outcome = wrapped.authenticate(exchange,
                 securityContext);
 
+        event.end(wrapped.getMechanismName(), outcome.name(),
+                exchange.getRequestPath());
+
         LOGGER.debug(wrapped.getMechanismName()
                 + " -> "
                 + outcome.name());
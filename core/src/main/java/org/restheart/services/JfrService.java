@@ -0,0 +1,342 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.services;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.restheart.exchange.ByteArrayRequest;
+import org.restheart.exchange.ByteArrayResponse;
+import org.restheart.plugins.ByteArrayService;
+import org.restheart.plugins.RegisterPlugin;
+import org.restheart.utils.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Controls the Java Flight Recorder recordings of the running node:
+ *
+ * <ul>
+ * <li>GET /_jfr lists the recordings</li>
+ * <li>POST /_jfr starts a recording; the optional query parameters are name,
+ * settings (default or profile, default is default), duration in seconds and
+ * maxsize in bytes (default is 64 MiB, at most 1 GiB)</li>
+ * <li>POST /_jfr/&lt;id&gt;/stop stops a recording</li>
+ * <li>GET /_jfr/&lt;id&gt; downloads the data of a running or stopped
+ * recording, to be opened with JDK Mission Control or the jfr tool; the data
+ * is streamed from a file, without going through the response
+ * interceptors</li>
+ * <li>DELETE /_jfr/&lt;id&gt; closes a recording started by the service and
+ * deletes its data</li>
+ * </ul>
+ *
+ * Recordings include the RESTHeart events of the org.restheart.jfr package.
+ * Since they expose the requests and the internals of the node, the service
+ * only handles authenticated requests and must be configured with secured:
+ * true.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@RegisterPlugin(
+        name = "jfr",
+        description = "starts, stops and downloads Java Flight Recorder recordings",
+        enabledByDefault = false,
+        defaultURI = "/_jfr")
+public class JfrService implements ByteArrayService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JfrService.class);
+
+    private static final long DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+
+    // maxsize 0 would mean unlimited
+    private static final long MAX_MAX_SIZE = 1024 * 1024 * 1024;
+
+    // the ids of the recordings started by the service
+    private final Set<Long> started = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void handle(ByteArrayRequest request, ByteArrayResponse response)
+            throws Exception {
+        if (request.getAuthenticatedAccount() == null) {
+            response.setInError(HttpStatus.SC_UNAUTHORIZED,
+                    "the jfr service requires authentication, set secured: true in its configuration");
+            return;
+        }
+
+        if (!FlightRecorder.isAvailable()) {
+            response.setInError(HttpStatus.SC_SERVICE_UNAVAILABLE,
+                    "Flight Recorder is not available");
+            return;
+        }
+
+        var path = request.getPath()
+                .substring(request.getPipelineInfo().getUri().length());
+
+        var segments = Arrays.stream(path.split("/"))
+                .filter(s -> !s.isEmpty())
+                .toArray(String[]::new);
+
+        if (segments.length == 0) {
+            if (request.isGet()) {
+                list(response);
+            } else if (request.isPost()) {
+                start(request, response);
+            } else {
+                response.setStatusCode(HttpStatus.SC_METHOD_NOT_ALLOWED);
+            }
+
+            return;
+        }
+
+        var recording = recording(segments[0]);
+
+        if (recording == null || segments.length > 2
+                || (segments.length == 2 && !"stop".equals(segments[1]))) {
+            response.setInError(HttpStatus.SC_NOT_FOUND, "recording not found");
+        } else if (segments.length == 2) {
+            if (request.isPost()) {
+                stop(recording, response);
+            } else {
+                response.setStatusCode(HttpStatus.SC_METHOD_NOT_ALLOWED);
+            }
+        } else if (request.isGet()) {
+            download(recording, response);
+        } else if (request.isDelete()) {
+            delete(recording, response);
+        } else {
+            response.setStatusCode(HttpStatus.SC_METHOD_NOT_ALLOWED);
+        }
+    }
+
+    private void list(ByteArrayResponse response) {
+        var recordings = new JsonArray();
+
+        FlightRecorder.getFlightRecorder()
+                .getRecordings()
+                .forEach(r -> recordings.add(toJson(r)));
+
+        sendJson(response, HttpStatus.SC_OK, recordings.toString());
+    }
+
+    private void start(ByteArrayRequest request, ByteArrayResponse response) {
+        var params = request.getExchange().getQueryParameters();
+
+        var settings = params.containsKey("settings")
+                ? params.get("settings").getFirst()
+                : "default";
+
+        Configuration configuration;
+
+        try {
+            configuration = Configuration.getConfiguration(settings);
+        } catch (IOException | ParseException ex) {
+            response.setInError(HttpStatus.SC_BAD_REQUEST,
+                    "invalid settings " + settings
+                    + ", valid values are default and profile");
+            return;
+        }
+
+        var recording = new Recording(configuration);
+
+        try {
+            recording.setName(params.containsKey("name")
+                    ? params.get("name").getFirst()
+                    : "restheart");
+
+            recording.setToDisk(true);
+
+            var maxSize = params.containsKey("maxsize")
+                    ? Long.parseLong(params.get("maxsize").getFirst())
+                    : DEFAULT_MAX_SIZE;
+
+            if (maxSize <= 0 || maxSize > MAX_MAX_SIZE) {
+                throw new IllegalArgumentException("maxsize must be between 1 and "
+                        + MAX_MAX_SIZE);
+            }
+
+            recording.setMaxSize(maxSize);
+
+            if (params.containsKey("duration")) {
+                recording.setDuration(Duration.ofSeconds(
+                        Long.parseLong(params.get("duration").getFirst())));
+            }
+        } catch (IllegalArgumentException ex) {
+            recording.close();
+            response.setInError(HttpStatus.SC_BAD_REQUEST,
+                    "invalid maxsize or duration", ex);
+            return;
+        }
+
+        recording.start();
+        started.add(recording.getId());
+
+        LOGGER.info("Flight recording {} started with settings {}",
+                recording.getId(), settings);
+
+        request.getExchange().getResponseHeaders().put(Headers.LOCATION,
+                request.getPath().replaceAll("/+$", "") + "/" + recording.getId());
+
+        sendJson(response, HttpStatus.SC_CREATED, toJson(recording).toString());
+    }
+
+    private void stop(Recording recording, ByteArrayResponse response) {
+        if (recording.getState() != RecordingState.RUNNING) {
+            response.setInError(HttpStatus.SC_CONFLICT,
+                    "recording is " + recording.getState());
+            return;
+        }
+
+        recording.stop();
+
+        LOGGER.info("Flight recording {} stopped", recording.getId());
+
+        sendJson(response, HttpStatus.SC_OK, toJson(recording).toString());
+    }
+
+    private void delete(Recording recording, ByteArrayResponse response) {
+        if (!started.contains(recording.getId())) {
+            response.setInError(HttpStatus.SC_FORBIDDEN,
+                    "recording not started by the jfr service");
+            return;
+        }
+
+        recording.close();
+        started.remove(recording.getId());
+
+        LOGGER.info("Flight recording {} closed", recording.getId());
+
+        response.setStatusCode(HttpStatus.SC_NO_CONTENT);
+    }
+
+    private void download(Recording recording, ByteArrayResponse response)
+            throws IOException {
+        var state = recording.getState();
+
+        if (state != RecordingState.RUNNING && state != RecordingState.STOPPED) {
+            response.setInError(HttpStatus.SC_CONFLICT,
+                    "recording is " + state);
+            return;
+        }
+
+        var tmp = Files.createTempFile("restheart-", ".jfr");
+
+        try {
+            recording.dump(tmp);
+
+            var exchange = response.getExchange();
+
+            exchange.setStatusCode(HttpStatus.SC_OK);
+            exchange.getResponseHeaders()
+                    .put(Headers.CONTENT_TYPE, "application/octet-stream")
+                    .put(Headers.CONTENT_LENGTH, Files.size(tmp))
+                    .put(Headers.CONTENT_DISPOSITION,
+                            "attachment; filename=\"" + recording.getName()
+                            + "-" + recording.getId() + ".jfr\"");
+
+            // the service is blocking, so the exchange is in blocking mode
+            // and the transfer completes before transferFrom() returns
+            try (var channel = FileChannel.open(tmp, StandardOpenOption.READ)) {
+                exchange.getResponseSender().transferFrom(channel,
+                        new IoCallback() {
+                    @Override
+                    public void onComplete(HttpServerExchange exchange,
+                            Sender sender) {
+                        IoCallback.END_EXCHANGE.onComplete(exchange, sender);
+                    }
+
+                    @Override
+                    public void onException(HttpServerExchange exchange,
+                            Sender sender, IOException exception) {
+                        LOGGER.warn("Error sending flight recording {}",
+                                recording.getId(), exception);
+                        IoCallback.END_EXCHANGE.onException(exchange, sender,
+                                exception);
+                    }
+                });
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static Recording recording(String id) {
+        try {
+            var _id = Long.parseLong(id);
+
+            return FlightRecorder.getFlightRecorder()
+                    .getRecordings()
+                    .stream()
+                    .filter(r -> r.getId() == _id)
+                    .findFirst()
+                    .orElse(null);
+        } catch (NumberFormatException nfe) {
+            return null;
+        }
+    }
+
+    private static JsonObject toJson(Recording recording) {
+        var ret = new JsonObject();
+
+        ret.addProperty("id", recording.getId());
+        ret.addProperty("name", recording.getName());
+        ret.addProperty("state", recording.getState().name());
+
+        if (recording.getStartTime() != null) {
+            ret.addProperty("startTime", recording.getStartTime().toString());
+        }
+
+        if (recording.getStopTime() != null) {
+            ret.addProperty("stopTime", recording.getStopTime().toString());
+        }
+
+        if (recording.getDuration() != null) {
+            ret.addProperty("duration", recording.getDuration().getSeconds());
+        }
+
+        ret.addProperty("size", recording.getSize());
+        ret.addProperty("maxSize", recording.getMaxSize());
+
+        return ret;
+    }
+
+    private static void sendJson(ByteArrayResponse response, int status,
+            String json) {
+        response.setStatusCode(status);
+        response.setContentTypeAsJson();
+        response.setContent(json.getBytes());
+    }
+}
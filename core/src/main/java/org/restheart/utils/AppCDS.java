@@ -0,0 +1,288 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.utils;
+
+import com.sun.akuma.Daemon;
+import com.sun.akuma.JavaVMArguments;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.restheart.Configuration;
+import org.restheart.plugins.PluginsRegistryImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates and detects the Application Class Data Sharing archive, that allows
+ * the JVM to map the classes loaded at startup from a file instead of loading
+ * and verifying them from the jar.
+ *
+ * A JVM cannot create the archive of the classes it is using, so train()
+ * relaunches the JVM twice: the first training run starts RESTHeart with the
+ * same configuration and -XX:DumpLoadedClassList, sends a request to every
+ * mounted pipeline and exits; the second run dumps the archive of the listed
+ * classes with -Xshare:dump.
+ *
+ * Only the classes loaded by the application class loader are archived, the
+ * ones of the jars in the plugins directory are loaded from the jars.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class AppCDS {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AppCDS.class);
+
+    /**
+     * the system property that marks the training run
+     */
+    public static final String TRAINING_RUN_PROPERTY = AppCDS.class.getName();
+
+    /**
+     * the default archive file, in the directory of restheart.jar
+     */
+    public static final String DEFAULT_ARCHIVE = "restheart.jsa";
+
+    private static final String SHARED_ARCHIVE_FILE = "-XX:SharedArchiveFile=";
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     *
+     * @return true if the JVM was launched by train() to record the classes
+     * loaded by the training requests
+     */
+    public static boolean isTrainingRun() {
+        return System.getProperty(TRAINING_RUN_PROPERTY) != null;
+    }
+
+    /**
+     *
+     * @param archive the archive path, relative to the directory of
+     * restheart.jar, or null for the default archive
+     * @return the absolute path of the archive
+     */
+    public static Path archive(String archive) {
+        var path = Path.of(archive == null ? DEFAULT_ARCHIVE : archive);
+
+        if (path.isAbsolute()) {
+            return path;
+        }
+
+        // the directory of the jar, also working when running from classes
+        var location = new File(AppCDS.class.getProtectionDomain()
+                .getCodeSource()
+                .getLocation()
+                .getPath());
+
+        return location.toPath().getParent().resolve(path).normalize();
+    }
+
+    /**
+     *
+     * @return the archive passed with -XX:SharedArchiveFile to this JVM or
+     * null
+     */
+    public static String archiveInUse() {
+        return ManagementFactory.getRuntimeMXBean()
+                .getInputArguments()
+                .stream()
+                .filter(arg -> arg.startsWith(SHARED_ARCHIVE_FILE))
+                .map(arg -> arg.substring(SHARED_ARCHIVE_FILE.length()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * adds -XX:SharedArchiveFile to the arguments of a JVM relaunched by this
+     * one, if the archive exists and the arguments don't specify an archive
+     *
+     * @param args
+     * @param archive
+     */
+    public static void useArchive(JavaVMArguments args, Path archive) {
+        if (Files.isRegularFile(archive)
+                && args.stream().noneMatch(a -> a.startsWith(SHARED_ARCHIVE_FILE))) {
+            args.add(1, SHARED_ARCHIVE_FILE + archive);
+        }
+    }
+
+    /**
+     * logs whether the archive is used and, if it exists but is not used,
+     * how to use it
+     *
+     * @param archive
+     */
+    public static void logUsage(Path archive) {
+        var inUse = archiveInUse();
+
+        if (inUse != null) {
+            LOGGER.info("Class Data Sharing archive {}", inUse);
+        } else if (Files.isRegularFile(archive)) {
+            LOGGER.info("Class Data Sharing archive {} not used, "
+                    + "add the JVM option {}{} to reduce the startup time",
+                    archive, SHARED_ARCHIVE_FILE, archive);
+        }
+    }
+
+    /**
+     * creates the archive relaunching the JVM for the training run and for
+     * dumping the archive
+     *
+     * @param archive the archive to create
+     * @return true if the archive was created
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static boolean train(Path archive)
+            throws IOException, InterruptedException {
+        var classList = archive.resolveSibling(archive.getFileName() + ".classlist");
+
+        Files.deleteIfExists(classList);
+
+        var training = JavaVMArguments.current();
+        training.set(0, Daemon.getCurrentExecutable());
+        training.removeIf(arg -> isSharingOption(arg) || "--fork".equals(arg));
+        training.setSystemProperty(TRAINING_RUN_PROPERTY, "training");
+        training.add(1, "-Xshare:off");
+        training.add(2, "-XX:DumpLoadedClassList=" + classList);
+
+        LOGGER.info("Starting the training run, recording the loaded classes to {}",
+                classList);
+
+        if (exec(training) != 0 || !Files.isRegularFile(classList)) {
+            LOGGER.error("Training run failed");
+            return false;
+        }
+
+        // the archive must be created with the same JVM options and classpath
+        var dump = new ArrayList<String>();
+        dump.add(Daemon.getCurrentExecutable());
+        ManagementFactory.getRuntimeMXBean()
+                .getInputArguments()
+                .stream()
+                .filter(arg -> !isSharingOption(arg))
+                .forEach(dump::add);
+        dump.add("-Xshare:dump");
+        dump.add("-XX:SharedClassListFile=" + classList);
+        dump.add(SHARED_ARCHIVE_FILE + archive);
+        dump.add("-cp");
+        dump.add(System.getProperty("java.class.path"));
+
+        LOGGER.info("Dumping the Class Data Sharing archive {}", archive);
+
+        if (exec(dump) != 0 || !Files.isRegularFile(archive)) {
+            LOGGER.error("Error dumping the Class Data Sharing archive {}", archive);
+            return false;
+        }
+
+        Files.deleteIfExists(classList);
+
+        LOGGER.info("Class Data Sharing archive {} created, "
+                + "start RESTHeart with the JVM option {}{} to use it",
+                archive, SHARED_ARCHIVE_FILE, archive);
+
+        return true;
+    }
+
+    /**
+     * sends a GET request to the URI of every mounted pipeline, to load the
+     * classes used to handle requests; the responses are ignored
+     *
+     * @param conf
+     */
+    public static void exercise(Configuration conf) {
+        String base;
+
+        if (conf.isHttpListener()) {
+            var host = conf.getHttpHost();
+
+            base = "http://"
+                    + ("0.0.0.0".equals(host) ? "127.0.0.1" : host)
+                    + ":" + conf.getHttpPort();
+        } else {
+            LOGGER.warn("The http listener is disabled, no training requests sent: "
+                    + "the archive will only include the classes loaded at startup");
+            return;
+        }
+
+        var client = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+
+        List<String> uris = PluginsRegistryImpl.getInstance()
+                .getPipelineInfos()
+                .stream()
+                .map(pi -> pi.getUri())
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+
+        for (var uri : uris) {
+            try {
+                var request = HttpRequest.newBuilder(URI.create(base + uri))
+                        .timeout(REQUEST_TIMEOUT)
+                        .GET()
+                        .build();
+
+                var status = client
+                        .send(request, HttpResponse.BodyHandlers.discarding())
+                        .statusCode();
+
+                LOGGER.info("Training request GET {} -> {}", uri, status);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable t) {
+                LOGGER.warn("Training request GET {} failed: {}", uri,
+                        t.getMessage());
+            }
+        }
+    }
+
+    private static boolean isSharingOption(String arg) {
+        return arg.startsWith("-Xshare:")
+                || arg.startsWith(SHARED_ARCHIVE_FILE)
+                || arg.startsWith("-XX:SharedClassListFile=")
+                || arg.startsWith("-XX:DumpLoadedClassList=");
+    }
+
+    private static int exec(List<String> command)
+            throws IOException, InterruptedException {
+        return new ProcessBuilder(command)
+                .inheritIO()
+                .start()
+                .waitFor();
+    }
+
+    private AppCDS() {
+    }
+}
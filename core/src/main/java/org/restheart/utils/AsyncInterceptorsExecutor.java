@@ -0,0 +1,268 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.utils;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.undertow.server.HttpServerExchange;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.restheart.Configuration;
+import org.restheart.ConfigurationException;
+import static org.restheart.ConfigurationKeys.ASYNC_INTERCEPTORS_OVERFLOW_BLOCK;
+import static org.restheart.ConfigurationKeys.ASYNC_INTERCEPTORS_OVERFLOW_CALLER_RUNS;
+import static org.restheart.ConfigurationKeys.ASYNC_INTERCEPTORS_OVERFLOW_DROP;
+import static org.restheart.ConfigurationKeys.ASYNC_INTERCEPTORS_OVERFLOW_KEY;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes the RESPONSE_ASYNC interceptors in a dedicated thread pool with a
+ * bounded queue, so that slow async interceptors cannot steal the worker
+ * threads that handle requests.
+ *
+ * When the queue is full, the task is handled according to the overflow
+ * policy:
+ * <ul>
+ * <li>drop: the task is discarded</li>
+ * <li>caller-runs: the task is executed by the calling thread</li>
+ * <li>block: the calling thread waits for room in the queue</li>
+ * </ul>
+ * The calling thread never runs or waits for a task if it is an IO thread: in
+ * this case the task is executed by the worker thread pool.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class AsyncInterceptorsExecutor {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(AsyncInterceptorsExecutor.class);
+
+    private static final String METRICS_PREFIX = "async-interceptors";
+
+    private static final int DEFAULT_THREADS = 8;
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    // how often the block policy checks the shutdown while waiting, in ms
+    private static final long BLOCK_CHECK_INTERVAL = 100;
+
+    private static AsyncInterceptorsExecutor instance = null;
+
+    private final ThreadPoolExecutor executor;
+    private final ArrayBlockingQueue<Runnable> queue;
+    private final String overflow;
+
+    private final Counter rejected;
+    private final Timer latency;
+
+    /**
+     *
+     * @param threads the number of threads
+     * @param queueSize the size of the queue
+     * @param overflow the overflow policy: drop, caller-runs or block
+     * @throws ConfigurationException if the overflow policy is not valid
+     */
+    AsyncInterceptorsExecutor(int threads, int queueSize, String overflow)
+            throws ConfigurationException {
+        if (!ASYNC_INTERCEPTORS_OVERFLOW_DROP.equals(overflow)
+                && !ASYNC_INTERCEPTORS_OVERFLOW_CALLER_RUNS.equals(overflow)
+                && !ASYNC_INTERCEPTORS_OVERFLOW_BLOCK.equals(overflow)) {
+            throw new ConfigurationException("Wrong value for "
+                    + ASYNC_INTERCEPTORS_OVERFLOW_KEY + ": " + overflow
+                    + ", allowed values are "
+                    + ASYNC_INTERCEPTORS_OVERFLOW_DROP + ", "
+                    + ASYNC_INTERCEPTORS_OVERFLOW_CALLER_RUNS + " and "
+                    + ASYNC_INTERCEPTORS_OVERFLOW_BLOCK);
+        }
+
+        this.overflow = overflow;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.executor = new ThreadPoolExecutor(Math.max(1, threads),
+                Math.max(1, threads),
+                60, TimeUnit.SECONDS,
+                queue,
+                new AsyncInterceptorsThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.executor.allowCoreThreadTimeOut(true);
+
+        var registry = MetricsUtils.defaultRegistry();
+
+        // replaces the gauges of a previous instance
+        registry.removeMatching((name, metric) -> metric instanceof Gauge
+                && name.startsWith(METRICS_PREFIX + "."));
+
+        registry.gauge(MetricRegistry.name(METRICS_PREFIX, "queued"),
+                () -> (Gauge<Integer>) queue::size);
+        registry.gauge(MetricRegistry.name(METRICS_PREFIX, "active"),
+                () -> (Gauge<Integer>) executor::getActiveCount);
+        this.rejected = registry.counter(MetricRegistry.name(METRICS_PREFIX,
+                "rejected"));
+        this.latency = registry.timer(MetricRegistry.name(METRICS_PREFIX,
+                "latency"));
+    }
+
+    /**
+     * initializes the executor according to the configuration
+     *
+     * @param conf
+     * @throws ConfigurationException if the overflow policy is not valid
+     */
+    public static synchronized void init(Configuration conf)
+            throws ConfigurationException {
+        if (instance != null) {
+            instance.shutdown();
+        }
+
+        instance = new AsyncInterceptorsExecutor(
+                conf.getAsyncInterceptorsThreads(),
+                conf.getAsyncInterceptorsQueueSize(),
+                conf.getAsyncInterceptorsOverflow());
+    }
+
+    /**
+     * @return the executor, with default settings if not initialized
+     */
+    public static synchronized AsyncInterceptorsExecutor getInstance() {
+        if (instance == null) {
+            try {
+                instance = new AsyncInterceptorsExecutor(DEFAULT_THREADS,
+                        DEFAULT_QUEUE_SIZE,
+                        ASYNC_INTERCEPTORS_OVERFLOW_CALLER_RUNS);
+            } catch (ConfigurationException ce) {
+                throw new IllegalStateException(ce);
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * executes the task of an async interceptor
+     *
+     * @param exchange the exchange the interceptor is executed for
+     * @param task
+     */
+    public void execute(HttpServerExchange exchange, Runnable task) {
+        var submitted = System.nanoTime();
+
+        Runnable timed = () -> {
+            try {
+                task.run();
+            } finally {
+                latency.update(System.nanoTime() - submitted,
+                        TimeUnit.NANOSECONDS);
+            }
+        };
+
+        try {
+            executor.execute(timed);
+        } catch (RejectedExecutionException ree) {
+            rejected.inc();
+            overflow(exchange, timed);
+        }
+    }
+
+    private void overflow(HttpServerExchange exchange, Runnable task) {
+        if (ASYNC_INTERCEPTORS_OVERFLOW_DROP.equals(overflow)
+                || executor.isShutdown()) {
+            LOGGER.warn("Async interceptors queue full, "
+                    + "dropping interceptor for {}",
+                    exchange.getRequestPath());
+        } else if (exchange.isInIoThread()) {
+            // never run or wait in the IO thread
+            exchange.getConnection().getWorker().execute(task);
+        } else if (ASYNC_INTERCEPTORS_OVERFLOW_CALLER_RUNS.equals(overflow)) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                // already logged, must not affect the request
+            }
+        } else {
+            block(exchange, task);
+        }
+    }
+
+    /**
+     * waits for room in the queue; the queue is used directly, bypassing the
+     * checks of the executor, so the shutdown is checked here: a task queued
+     * after it might never be executed
+     */
+    private void block(HttpServerExchange exchange, Runnable task) {
+        try {
+            while (!executor.isShutdown()) {
+                if (queue.offer(task, BLOCK_CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+                    if (executor.isShutdown() && queue.remove(task)) {
+                        break;
+                    }
+
+                    return;
+                }
+            }
+
+            LOGGER.warn("Async interceptors executor shut down, "
+                    + "dropping interceptor for {}",
+                    exchange.getRequestPath());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted waiting for the async interceptors "
+                    + "queue, dropping interceptor for {}",
+                    exchange.getRequestPath());
+        }
+    }
+
+    /**
+     * stops accepting tasks and waits for the queued ones to complete
+     */
+    public void shutdown() {
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOGGER.warn("{} async interceptors not executed at shutdown",
+                        executor.shutdownNow().size());
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class AsyncInterceptorsThreadFactory
+            implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            var ret = new Thread(r, "async-interceptors-"
+                    + count.incrementAndGet());
+
+            ret.setDaemon(true);
+            return ret;
+        }
+    }
+}
@@ -39,6 +39,7 @@ import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -157,6 +158,24 @@ public class FileUtils {
         return null;
     }
 
+    /**
+     * deletes a directory and its content
+     *
+     * @param dir
+     * @throws IOException
+     */
+    public static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+
+        try (var paths = Files.walk(dir)) {
+            for (var p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+
     public static Path getTmpDirPath() {
         return TMP_DIR;
     }
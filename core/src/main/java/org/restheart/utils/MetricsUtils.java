@@ -0,0 +1,60 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.utils;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class MetricsUtils {
+
+    private static final String DEFAULT_REGISTRY_NAME = "default";
+
+    /**
+     * @return the default shared metric registry, setting it if not already
+     * set
+     */
+    public static MetricRegistry defaultRegistry() {
+        var registry = SharedMetricRegistries.tryGetDefault();
+
+        if (registry != null) {
+            return registry;
+        }
+
+        synchronized (MetricsUtils.class) {
+            try {
+                if (SharedMetricRegistries.tryGetDefault() == null) {
+                    SharedMetricRegistries.setDefault(DEFAULT_REGISTRY_NAME);
+                }
+            } catch (IllegalStateException ise) {
+                // set concurrently by code not using this method
+            }
+        }
+
+        return SharedMetricRegistries.getDefault();
+    }
+
+    private MetricsUtils() {
+    }
+}
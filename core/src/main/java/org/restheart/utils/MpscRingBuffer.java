@@ -0,0 +1,131 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free ring buffer for multiple producers and a single
+ * consumer.
+ *
+ * Producers claim a slot by advancing the tail with a CAS and then publish the
+ * element in it; the consumer takes the element from the slot at the head.
+ * poll() returns null if the slot at the head has been claimed but not yet
+ * published, so the consumer never spins waiting for a producer.
+ *
+ * The element is published with a volatile write, so a consumer that flags
+ * itself as idle and then finds the buffer empty can rely on the producer
+ * reading the flag after offer() to wake it up.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ * @param <T> the type of the elements
+ */
+public class MpscRingBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     *
+     * @param capacity the capacity, rounded up to a power of two
+     */
+    public MpscRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+
+        var size = Integer.highestOneBit(capacity);
+
+        if (size < capacity) {
+            size <<= 1;
+        }
+
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * @param element the element to add, not null
+     * @return false if the buffer is full
+     */
+    public boolean offer(T element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+
+        long t;
+
+        do {
+            t = tail.get();
+
+            if (t - head.get() > mask) {
+                return false;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+
+        slots.set((int) t & mask, element);
+        return true;
+    }
+
+    /**
+     * must be invoked by a single consumer thread
+     *
+     * @return the next element or null if the buffer is empty or the next
+     * element is not yet published
+     */
+    public T poll() {
+        var h = head.get();
+
+        if (h == tail.get()) {
+            return null;
+        }
+
+        var idx = (int) h & mask;
+        var ret = slots.get(idx);
+
+        if (ret == null) {
+            // the slot is claimed but not yet published by the producer
+            return null;
+        }
+
+        slots.lazySet(idx, null);
+        head.lazySet(h + 1);
+
+        return ret;
+    }
+
+    /**
+     * @return the number of elements in the buffer
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * @return the capacity of the buffer
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+}
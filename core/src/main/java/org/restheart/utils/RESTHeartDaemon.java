@@ -28,6 +28,7 @@ package org.restheart.utils;
  */
 import com.sun.akuma.Daemon;
 import com.sun.akuma.JavaVMArguments;
+import java.nio.file.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +36,21 @@ public class RESTHeartDaemon extends Daemon {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RESTHeartDaemon.class);
 
+    private final Path cdsArchive;
+
+    public RESTHeartDaemon() {
+        this(null);
+    }
+
+    /**
+     *
+     * @param cdsArchive the Class Data Sharing archive used by the forked
+     * process if it exists, or null
+     */
+    public RESTHeartDaemon(Path cdsArchive) {
+        this.cdsArchive = cdsArchive;
+    }
+
     /**
      * Returns true if the current process is already launched as a daemon via
      * {@link #daemonize()}.
@@ -62,6 +78,10 @@ public class RESTHeartDaemon extends Daemon {
             JavaVMArguments args = JavaVMArguments.current();
             args.setSystemProperty(RESTHeartDaemon.class.getName(), "daemonized");
 
+            if (cdsArchive != null) {
+                AppCDS.useArchive(args, cdsArchive);
+            }
+
             String _args[] = args.toArray(new String[args.size()]);
 
             _args[0] = getCurrentExecutable();
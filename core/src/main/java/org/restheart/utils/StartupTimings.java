@@ -0,0 +1,138 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the duration of the startup phases and of the instantiation,
+ * dependency injection and initialization of each plugin.
+ *
+ * The durations are logged by log() and are exposed by the
+ * startup.phases.&lt;phase&gt; and startup.plugins.&lt;plugin&gt;.&lt;step&gt;
+ * timers of the default metrics registry.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class StartupTimings {
+
+    private static final Logger LOGGER
+            = LoggerFactory.getLogger(StartupTimings.class);
+
+    /**
+     * the number of slowest plugins logged at info level
+     */
+    private static final int SLOWEST_PLUGINS = 5;
+
+    private static final Map<String, Long> PHASES = new LinkedHashMap<>();
+
+    private static final Map<String, Map<String, Long>> PLUGINS
+            = new ConcurrentHashMap<>();
+
+    /**
+     * records the duration of a startup phase
+     *
+     * @param phase the name of the phase
+     * @param nanos the duration in nanoseconds
+     */
+    public static void phase(String phase, long nanos) {
+        synchronized (PHASES) {
+            PHASES.merge(phase, nanos, Long::sum);
+        }
+
+        MetricsUtils.defaultRegistry()
+                .timer("startup.phases." + phase)
+                .update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * records the duration of a startup step of a plugin
+     *
+     * @param plugin the name of the plugin
+     * @param step the step, e.g. instantiation
+     * @param nanos the duration in nanoseconds
+     */
+    public static void plugin(String plugin, String step, long nanos) {
+        PLUGINS.computeIfAbsent(plugin, k -> new ConcurrentHashMap<>())
+                .merge(step, nanos, Long::sum);
+
+        MetricsUtils.defaultRegistry()
+                .timer("startup.plugins." + plugin + "." + step)
+                .update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * logs the startup timings: the phases and the slowest plugins at info
+     * level, the other plugins at debug level
+     */
+    public static void log() {
+        synchronized (PHASES) {
+            var total = PHASES.values().stream().mapToLong(l -> l).sum();
+
+            LOGGER.info("Startup timings, {} ms", millis(total));
+
+            PHASES.forEach((phase, nanos)
+                    -> LOGGER.info("  {}: {} ms", phase, millis(nanos)));
+        }
+
+        var plugins = new ArrayList<>(PLUGINS.entrySet());
+
+        plugins.sort((p1, p2) -> Long.compare(total(p2.getValue()),
+                total(p1.getValue())));
+
+        for (int idx = 0; idx < plugins.size(); idx++) {
+            var plugin = plugins.get(idx);
+
+            if (idx < SLOWEST_PLUGINS) {
+                LOGGER.info("  plugin {}: {} ms {}", plugin.getKey(),
+                        millis(total(plugin.getValue())),
+                        steps(plugin.getValue()));
+            } else {
+                LOGGER.debug("  plugin {}: {} ms {}", plugin.getKey(),
+                        millis(total(plugin.getValue())),
+                        steps(plugin.getValue()));
+            }
+        }
+    }
+
+    private static long total(Map<String, Long> steps) {
+        return steps.values().stream().mapToLong(l -> l).sum();
+    }
+
+    private static Map<String, Long> steps(Map<String, Long> steps) {
+        var ret = new LinkedHashMap<String, Long>();
+        steps.forEach((step, nanos) -> ret.put(step, millis(nanos)));
+        return ret;
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private StartupTimings() {
+    }
+}
@@ -0,0 +1,117 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.restheart.ConfigurationException;
+import static org.restheart.ConfigurationKeys.WORKER_EXECUTOR_DEFAULT;
+import static org.restheart.ConfigurationKeys.WORKER_EXECUTOR_KEY;
+import static org.restheart.ConfigurationKeys.WORKER_EXECUTOR_VIRTUAL_THREADS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the Executor used to dispatch blocking requests, according to the
+ * worker-executor configuration option
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class WorkerExecutors {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(WorkerExecutors.class);
+
+    /**
+     * @param workerExecutor the value of the worker-executor configuration
+     * option: default, virtual-threads or the class name of an Executor
+     * @param classLoader the class loader of the custom Executor, i.e. the
+     * plugins class loader that also resolves the jars in the plugins
+     * directory
+     * @return the Executor or null to use the undertow worker thread pool
+     * @throws ConfigurationException if the custom Executor cannot be
+     * instantiated
+     */
+    public static Executor create(String workerExecutor,
+            ClassLoader classLoader)
+            throws ConfigurationException {
+        if (workerExecutor == null
+                || WORKER_EXECUTOR_DEFAULT.equals(workerExecutor)) {
+            return null;
+        } else if (WORKER_EXECUTOR_VIRTUAL_THREADS.equals(workerExecutor)) {
+            var ret = virtualThreadPerTaskExecutor();
+
+            if (ret == null) {
+                LOGGER.warn("Virtual threads are not supported by this JVM, "
+                        + "{} falls back to {}",
+                        WORKER_EXECUTOR_KEY,
+                        WORKER_EXECUTOR_DEFAULT);
+            }
+
+            return ret;
+        } else {
+            try {
+                var clazz = Class.forName(workerExecutor, true, classLoader);
+
+                if (!Executor.class.isAssignableFrom(clazz)) {
+                    throw new ConfigurationException("Wrong "
+                            + WORKER_EXECUTOR_KEY + " "
+                            + workerExecutor
+                            + ", it does not implement java.util.concurrent.Executor");
+                }
+
+                return (Executor) clazz.getConstructor().newInstance();
+            } catch (ReflectiveOperationException ex) {
+                throw new ConfigurationException("Error instantiating "
+                        + WORKER_EXECUTOR_KEY + " "
+                        + workerExecutor, ex);
+            }
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() is looked up reflectively
+     * since it is not available on the JDK version the code is compiled for
+     *
+     * @return the virtual thread per task executor or null if not supported
+     */
+    private static Executor virtualThreadPerTaskExecutor() {
+        try {
+            var mh = MethodHandles.publicLookup().findStatic(Executors.class,
+                    "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+
+            return (Executor) mh.invoke();
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            return null;
+        } catch (Throwable t) {
+            // on JDKs where virtual threads are a preview feature
+            LOGGER.debug("Error creating the virtual thread per task executor", t);
+            return null;
+        }
+    }
+
+    private WorkerExecutors() {
+    }
+}
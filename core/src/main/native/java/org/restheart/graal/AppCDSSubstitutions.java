@@ -0,0 +1,57 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.graal;
+
+import com.oracle.svm.core.annotate.Substitute;
+import com.oracle.svm.core.annotate.TargetClass;
+import java.nio.file.Path;
+import org.restheart.utils.AppCDS;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Substitutions of AppCDS for the native image, that has neither a jar nor a
+ * JVM to create a Class Data Sharing archive for.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class AppCDSSubstitutions {
+}
+
+@TargetClass(AppCDS.class)
+final class Target_org_restheart_utils_AppCDS {
+
+    @Substitute
+    public static Path archive(String archive) {
+        return Path.of(archive == null ? AppCDS.DEFAULT_ARCHIVE : archive)
+                .toAbsolutePath();
+    }
+
+    @Substitute
+    public static void logUsage(Path archive) {
+    }
+
+    @Substitute
+    public static boolean train(Path archive) {
+        LoggerFactory.getLogger(AppCDS.class)
+                .error("--cds-train is not supported by the native executable");
+        return false;
+    }
+}
@@ -0,0 +1,75 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.graal;
+
+import com.oracle.svm.core.annotate.Alias;
+import com.oracle.svm.core.annotate.Substitute;
+import com.oracle.svm.core.annotate.TargetClass;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Set;
+import org.restheart.Bootstrapper;
+import org.restheart.plugins.PluginsFactory;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Substitutions of the PluginsFactory for the native image, where classes
+ * cannot be loaded at runtime: the plugins are the ones compiled in the image
+ * and listed in the plugins indexes, the classpath is not scanned and the
+ * plugins directory is not supported.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class PluginsFactorySubstitutions {
+}
+
+@TargetClass(PluginsFactory.class)
+final class Target_org_restheart_plugins_PluginsFactory {
+
+    @Alias
+    private URLClassLoader PLUGINS_CL_CACHE;
+
+    /**
+     * all plugins in the image are indexed, nothing to scan
+     */
+    @Substitute
+    private void scanNotIndexed(Set<String> names) {
+    }
+
+    /**
+     * the plugins directory is ignored, since the jars in it cannot be loaded
+     */
+    @Substitute
+    public URLClassLoader getPluginsClassloader() {
+        if (PLUGINS_CL_CACHE == null) {
+            if (Bootstrapper.getConfiguration().getPluginsDirectory() != null) {
+                LoggerFactory.getLogger(PluginsFactory.class)
+                        .warn("The plugins directory is not supported "
+                                + "by the native executable, ignoring it");
+            }
+
+            PLUGINS_CL_CACHE = new URLClassLoader(new URL[0],
+                    PluginsFactory.class.getClassLoader());
+        }
+
+        return PLUGINS_CL_CACHE;
+    }
+}
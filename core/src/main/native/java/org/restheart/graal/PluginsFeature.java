@@ -0,0 +1,94 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.graal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.graalvm.nativeimage.hosted.Feature;
+import org.graalvm.nativeimage.hosted.RuntimeReflection;
+import org.restheart.plugins.PluginsIndexProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers for reflection the plugins listed in the plugins indexes
+ * (META-INF/restheart/plugins.idx) of the image classpath, so that the
+ * PluginsFactory can load, instantiate and inject dependencies to them in the
+ * native image.
+ *
+ * The reflection configuration is computed when the image is built from the
+ * same indexes read by the PluginsFactory at runtime.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class PluginsFeature implements Feature {
+
+    private static final Logger LOGGER
+            = LoggerFactory.getLogger(PluginsFeature.class);
+
+    @Override
+    public void beforeAnalysis(BeforeAnalysisAccess access) {
+        for (var name : pluginNames()) {
+            var clazz = access.findClassByName(name);
+
+            if (clazz == null) {
+                LOGGER.warn("Plugin class {} not found in the image classpath, "
+                        + "ignoring it", name);
+                continue;
+            }
+
+            // the PluginsFactory instantiates the plugins with the default
+            // constructor and invokes the methods annotated with @Inject*
+            RuntimeReflection.register(clazz);
+            RuntimeReflection.register(clazz.getDeclaredConstructors());
+            RuntimeReflection.register(clazz.getDeclaredMethods());
+        }
+    }
+
+    private static Set<String> pluginNames() {
+        var names = new LinkedHashSet<String>();
+
+        try {
+            var indexes = PluginsFeature.class.getClassLoader()
+                    .getResources(PluginsIndexProcessor.INDEX);
+
+            while (indexes.hasMoreElements()) {
+                try (var reader = new BufferedReader(new InputStreamReader(
+                        indexes.nextElement().openStream(),
+                        StandardCharsets.UTF_8))) {
+                    reader.lines()
+                            .map(String::trim)
+                            .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                            .forEach(names::add);
+                }
+            }
+        } catch (IOException ioe) {
+            throw new IllegalStateException("Error reading the plugins indexes",
+                    ioe);
+        }
+
+        return names;
+    }
+}
@@ -20,17 +20,27 @@
  */
 package io.undertow.server;
 
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
 import io.undertow.security.api.SecurityContext;
 import io.undertow.util.AbstractAttachable;
 import io.undertow.util.HeaderMap;
 import io.undertow.util.HttpString;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Executor;
 
 /**
  * A mock for io.undertow.server.HttpServerExchange The original class is final
@@ -44,17 +54,188 @@ public class HttpServerExchange extends AbstractAttachable {
     private int statusCode = 0;
     private String queryString;
     private String requestPath;
+    private String requestURI;
     private String relativePath;
     private HttpString requestMethod;
     private Map<String, Deque<String>> queryParameters;
+    private final HeaderMap requestHeaders = new HeaderMap();
+    private final HeaderMap responseHeaders = new HeaderMap();
+    private SecurityContext securityContext;
+    private final List<ResponseCommitListener> commitListeners = new ArrayList<>();
+    private final List<ExchangeCompletionListener> completionListeners = new ArrayList<>();
+    private final ByteArrayOutputStream responseContent = new ByteArrayOutputStream();
+    private boolean responseStarted = false;
+    private boolean complete = false;
+    private final ServerConnection connection = new FakeServerConnection();
 
     public HttpServerExchange() {
     }
 
+    /**
+     * commits the response, if not already committed, and invokes the
+     * completion listeners, the last added first as undertow does
+     *
+     * @return this
+     */
     public HttpServerExchange endExchange() {
+        if (!complete) {
+            complete = true;
+            commit();
+            proceed(completionListeners.size() - 1);
+        }
+
+        return this;
+    }
+
+    private void proceed(int idx) {
+        if (idx >= 0) {
+            completionListeners.get(idx).exchangeEvent(this, () -> proceed(idx - 1));
+        }
+    }
+
+    private void commit() {
+        if (!responseStarted) {
+            responseStarted = true;
+            commitListeners.forEach(l -> l.beforeCommit(this));
+        }
+    }
+
+    public ServerConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * runs the task right away, in the calling thread
+     *
+     * @param executor ignored
+     * @param runnable
+     * @return this
+     */
+    public HttpServerExchange dispatch(final Executor executor,
+            final Runnable runnable) {
+        runnable.run();
         return this;
     }
 
+    /**
+     * handles the exchange right away, in the calling thread
+     *
+     * @param executor ignored
+     * @param handler
+     * @return this
+     */
+    public HttpServerExchange dispatch(final Executor executor,
+            final HttpHandler handler) {
+        try {
+            handler.handleRequest(this);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        return this;
+    }
+
+    public void addResponseCommitListener(ResponseCommitListener listener) {
+        commitListeners.add(listener);
+    }
+
+    public HttpServerExchange addExchangeCompleteListener(ExchangeCompletionListener listener) {
+        completionListeners.add(listener);
+        return this;
+    }
+
+    public boolean isResponseStarted() {
+        return responseStarted;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public HeaderMap getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    /**
+     * @return the content sent with the response sender
+     */
+    public byte[] getResponseContent() {
+        return responseContent.toByteArray();
+    }
+
+    /**
+     * @return a sender that commits the response on first send, collects the
+     * content and ends the exchange as the undertow one does
+     */
+    public Sender getResponseSender() {
+        var exchange = this;
+
+        return new Sender() {
+            @Override
+            public void send(ByteBuffer buffer, IoCallback callback) {
+                send(new ByteBuffer[]{buffer}, callback);
+            }
+
+            @Override
+            public void send(ByteBuffer[] buffers, IoCallback callback) {
+                commit();
+
+                for (var buffer : buffers) {
+                    var bytes = new byte[buffer.remaining()];
+                    buffer.get(bytes);
+                    responseContent.writeBytes(bytes);
+                }
+
+                callback.onComplete(exchange, this);
+            }
+
+            @Override
+            public void send(ByteBuffer buffer) {
+                send(buffer, IoCallback.END_EXCHANGE);
+            }
+
+            @Override
+            public void send(ByteBuffer[] buffers) {
+                send(buffers, IoCallback.END_EXCHANGE);
+            }
+
+            @Override
+            public void send(String data, IoCallback callback) {
+                send(data, StandardCharsets.UTF_8, callback);
+            }
+
+            @Override
+            public void send(String data, Charset charset, IoCallback callback) {
+                send(ByteBuffer.wrap(data.getBytes(charset)), callback);
+            }
+
+            @Override
+            public void send(String data) {
+                send(data, IoCallback.END_EXCHANGE);
+            }
+
+            @Override
+            public void send(String data, Charset charset) {
+                send(data, charset, IoCallback.END_EXCHANGE);
+            }
+
+            @Override
+            public void transferFrom(FileChannel channel, IoCallback callback) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close(IoCallback callback) {
+                callback.onComplete(exchange, this);
+            }
+
+            @Override
+            public void close() {
+                endExchange();
+            }
+        };
+    }
+
     /**
      * Returns a mutable map of query parameters.
      *
@@ -79,9 +260,6 @@ public class HttpServerExchange extends AbstractAttachable {
         return this;
     }
 
-    void addExchangeCompleteListener(ExchangeCompletionListener listener) {
-    }
-
     /**
      * @return the statusCode
      */
@@ -150,12 +328,33 @@ public class HttpServerExchange extends AbstractAttachable {
         return new ByteArrayInputStream("FAKE_STREAM".getBytes());
     }
 
+    /**
+     * @return the requestURI
+     */
+    public String getRequestURI() {
+        return requestURI;
+    }
+
+    /**
+     * @param requestURI the requestURI to set
+     */
+    public void setRequestURI(String requestURI) {
+        this.requestURI = requestURI;
+    }
+
     public HeaderMap getRequestHeaders() {
-        return null;
+        return requestHeaders;
     }
 
     public SecurityContext getSecurityContext() {
-        return null;
+        return securityContext;
+    }
+
+    /**
+     * @param securityContext the securityContext to set
+     */
+    public void setSecurityContext(SecurityContext securityContext) {
+        this.securityContext = securityContext;
     }
 
     /**
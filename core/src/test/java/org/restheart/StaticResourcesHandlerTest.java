@@ -0,0 +1,83 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart;
+
+import io.undertow.server.handlers.resource.CachingResourceManager;
+import io.undertow.server.handlers.resource.PathResourceManager;
+import io.undertow.server.handlers.resource.PreCompressedResourceSupplier;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restheart.handlers.VersionedContentEncodedResourceManager;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class StaticResourcesHandlerTest {
+
+    private Path dir;
+
+    @Before
+    public void createDir() throws IOException {
+        dir = Files.createTempDirectory("restheart-test-");
+    }
+
+    @After
+    public void deleteDir() throws IOException {
+        Files.deleteIfExists(dir);
+    }
+
+    @Test
+    public void testDefaults() throws IOException {
+        var handler = Bootstrapper.staticResourcesHandler(dir.toFile(),
+                Map.of());
+
+        assertTrue(handler.getResourceManager() instanceof PathResourceManager);
+        assertNull(handler.getContentEncodedResourceManager());
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        var handler = Bootstrapper.staticResourcesHandler(dir.toFile(),
+                Map.of("cache", true));
+
+        assertTrue(handler.getResourceManager() instanceof CachingResourceManager);
+        assertTrue(((CachingResourceManager) handler.getResourceManager())
+                .getMaxAge() > 0);
+    }
+
+    @Test
+    public void testCompress() throws IOException {
+        var handler = Bootstrapper.staticResourcesHandler(dir.toFile(),
+                Map.of("cache", true, "compress", true));
+
+        assertTrue(handler.getResourceSupplier()
+                instanceof PreCompressedResourceSupplier);
+        assertTrue(handler.getContentEncodedResourceManager()
+                instanceof VersionedContentEncodedResourceManager);
+    }
+}
@@ -0,0 +1,133 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class AdaptiveConcurrencyLimitTest {
+
+    private static final long MS = 1_000_000;
+
+    /**
+     * acquires all permits, so that the window uses the whole limit
+     */
+    private static void saturate(AdaptiveConcurrencyLimit limit) {
+        while (limit.tryAcquire()) {
+        }
+    }
+
+    /**
+     * feeds a window of samples with the given latency
+     */
+    private static long window(AdaptiveConcurrencyLimit limit, long now,
+            long rtt) {
+        now += AdaptiveConcurrencyLimit.MIN_WINDOW_NANOS;
+
+        for (int i = 0; i < AdaptiveConcurrencyLimit.MIN_WINDOW_SAMPLES; i++) {
+            limit.onSample(rtt, now);
+        }
+
+        return now;
+    }
+
+    @Test
+    public void testRejectsOverLimit() {
+        var limit = new AdaptiveConcurrencyLimit(10, 100);
+
+        saturate(limit);
+
+        assertEquals(limit.getLimit(), limit.getInflight());
+        assertFalse(limit.tryAcquire());
+
+        limit.release(MS);
+
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    public void testIncreasesWithStableLatency() {
+        var limit = new AdaptiveConcurrencyLimit(10, 100);
+        var initial = limit.getLimit();
+        var now = System.nanoTime();
+
+        for (int i = 0; i < 50; i++) {
+            saturate(limit);
+            now = window(limit, now, 10 * MS);
+        }
+
+        assertTrue(limit.getLimit() > initial);
+        assertTrue(limit.getLimit() <= limit.getMaxLimit());
+    }
+
+    @Test
+    public void testDoesNotIncreaseIfUnused() {
+        var limit = new AdaptiveConcurrencyLimit(10, 100);
+        var initial = limit.getLimit();
+        var now = System.nanoTime();
+
+        for (int i = 0; i < 50; i++) {
+            now = window(limit, now, 10 * MS);
+        }
+
+        assertEquals(initial, limit.getLimit());
+    }
+
+    @Test
+    public void testDecreasesWhenLatencyGrows() {
+        var limit = new AdaptiveConcurrencyLimit(10, 100);
+        var initial = limit.getLimit();
+        var now = System.nanoTime();
+
+        now = window(limit, now, 10 * MS);
+
+        for (int i = 0; i < 50; i++) {
+            saturate(limit);
+            now = window(limit, now, 100 * MS);
+        }
+
+        assertTrue(limit.getLimit() < initial);
+        assertEquals(limit.getMinLimit(), limit.getLimit());
+    }
+
+    @Test
+    public void testCancelReleasesWithoutSample() {
+        var limit = new AdaptiveConcurrencyLimit(10, 100);
+
+        saturate(limit);
+
+        var initial = limit.getLimit();
+
+        // canceled permits record no latency, so the limit does not change
+        for (int i = 0; i < 2 * AdaptiveConcurrencyLimit.MIN_WINDOW_SAMPLES; i++) {
+            limit.cancel();
+            assertTrue(limit.tryAcquire());
+        }
+
+        assertEquals(initial, limit.getInflight());
+        assertFalse(limit.tryAcquire());
+        assertEquals(initial, limit.getLimit());
+    }
+}
@@ -0,0 +1,190 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.restheart.utils.HttpStatus;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BulkheadHandlerTest {
+
+    /**
+     * records the handled exchanges, without completing them
+     */
+    private static class Recorder extends PipelinedHandler {
+
+        final List<HttpServerExchange> handled = new ArrayList<>();
+
+        @Override
+        public void handleRequest(HttpServerExchange exchange) {
+            handled.add(exchange);
+        }
+    }
+
+    private static BulkheadHandler bulkhead(String name, int max, int queue,
+            Recorder recorder) {
+        return (BulkheadHandler) PipelinedHandler.pipe(
+                new BulkheadHandler(name, max, queue, 1, null), recorder);
+    }
+
+    private static boolean rejected(HttpServerExchange exchange) {
+        return exchange.isComplete()
+                && exchange.getStatusCode() == HttpStatus.SC_SERVICE_UNAVAILABLE
+                && "1".equals(exchange.getResponseHeaders()
+                        .getFirst(Headers.RETRY_AFTER));
+    }
+
+    @Test
+    public void testEnqueue() throws Exception {
+        var recorder = new Recorder();
+        var bulkhead = bulkhead("testEnqueue", 1, 1, recorder);
+
+        var first = new HttpServerExchange();
+        var second = new HttpServerExchange();
+        var third = new HttpServerExchange();
+
+        bulkhead.handleRequest(first);
+        bulkhead.handleRequest(second);
+
+        assertEquals(List.of(first), recorder.handled);
+        assertEquals(1, bulkhead.getActive());
+        assertEquals(1, bulkhead.getQueued());
+
+        // the queue is full
+        bulkhead.handleRequest(third);
+
+        assertTrue(rejected(third));
+        assertEquals(1, bulkhead.getQueued());
+
+        first.endExchange();
+
+        assertEquals(List.of(first, second), recorder.handled);
+        assertEquals(1, bulkhead.getActive());
+        assertEquals(0, bulkhead.getQueued());
+
+        second.endExchange();
+
+        assertEquals(0, bulkhead.getActive());
+    }
+
+    @Test
+    public void testResumeSkipsCompletedAndClosed() throws Exception {
+        var recorder = new Recorder();
+        var bulkhead = bulkhead("testResumeSkipsCompletedAndClosed", 1, 3,
+                recorder);
+
+        var first = new HttpServerExchange();
+        var completed = new HttpServerExchange();
+        var closed = new HttpServerExchange();
+        var waiting = new HttpServerExchange();
+
+        bulkhead.handleRequest(first);
+        bulkhead.handleRequest(completed);
+        bulkhead.handleRequest(closed);
+        bulkhead.handleRequest(waiting);
+
+        assertEquals(3, bulkhead.getQueued());
+
+        completed.endExchange();
+        closed.getConnection().close();
+
+        first.endExchange();
+
+        // the completed and the closed exchanges don't take the slot
+        assertEquals(List.of(first, waiting), recorder.handled);
+        assertTrue(closed.isComplete());
+        assertFalse(rejected(closed));
+        assertEquals(1, bulkhead.getActive());
+        assertEquals(0, bulkhead.getQueued());
+
+        waiting.endExchange();
+
+        assertEquals(0, bulkhead.getActive());
+    }
+
+    /**
+     * a queued request gives back its global permit and acquires it again
+     * when resumed
+     */
+    @Test
+    public void testPermitReacquired() throws Exception {
+        var recorder = new Recorder();
+        var limit = new AdaptiveConcurrencyLimit(10, 100);
+        var limiter = new AdaptiveRequestLimitingHandler(limit, 1,
+                bulkhead("testPermitReacquired", 1, 1, recorder));
+
+        var first = new HttpServerExchange();
+        var second = new HttpServerExchange();
+
+        limiter.handleRequest(first);
+        limiter.handleRequest(second);
+
+        // the permit of the queued request is given back
+        assertEquals(1, limit.getInflight());
+
+        first.endExchange();
+
+        assertEquals(List.of(first, second), recorder.handled);
+        assertEquals(1, limit.getInflight());
+
+        second.endExchange();
+
+        assertEquals(0, limit.getInflight());
+    }
+
+    /**
+     * a queued request is rejected when resumed if the global limit is
+     * reached
+     */
+    @Test
+    public void testRejectedIfPermitNotReacquired() throws Exception {
+        var recorder = new Recorder();
+        var limit = new AdaptiveConcurrencyLimit(10, 100);
+        var bulkhead = bulkhead("testRejectedIfPermitNotReacquired", 1, 1,
+                recorder);
+        var limiter = new AdaptiveRequestLimitingHandler(limit, 1, bulkhead);
+
+        var first = new HttpServerExchange();
+        var second = new HttpServerExchange();
+
+        limiter.handleRequest(first);
+        limiter.handleRequest(second);
+
+        // other requests take all the global permits
+        while (limit.tryAcquire()) {
+        }
+
+        first.endExchange();
+
+        assertEquals(List.of(first), recorder.handled);
+        assertTrue(rejected(second));
+        assertEquals(0, bulkhead.getActive());
+        assertEquals(0, bulkhead.getQueued());
+    }
+}
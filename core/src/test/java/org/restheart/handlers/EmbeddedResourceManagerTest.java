@@ -0,0 +1,225 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.resource.RangeAwareResource;
+import io.undertow.server.handlers.resource.Resource;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import static org.junit.Assert.*;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class EmbeddedResourceManagerTest {
+
+    private static final String BIG = "0123456789abcdef".repeat(
+            EmbeddedResourceManager.STREAM_BUFFER_SIZE / 4 + 3);
+
+    private static File jar;
+    private static EmbeddedResourceManager rm;
+
+    @BeforeClass
+    public static void createJar() throws IOException {
+        jar = File.createTempFile("restheart-test-", ".jar");
+
+        try (var jos = new JarOutputStream(new FileOutputStream(jar))) {
+            entry(jos, "static/app/index.html", "<html></html>");
+            entry(jos, "static/app/js/app.js", "var a = 1;");
+            entry(jos, "static/app/js/big.txt", BIG);
+            entry(jos, "static/other.txt", "other");
+        }
+
+        rm = new EmbeddedResourceManager(jar, "static/app", 1024, 1024);
+    }
+
+    @AfterClass
+    public static void deleteJar() throws IOException {
+        rm.close();
+        jar.delete();
+    }
+
+    private static void entry(JarOutputStream jos, String name, String content)
+            throws IOException {
+        jos.putNextEntry(new JarEntry(name));
+        jos.write(content.getBytes(StandardCharsets.UTF_8));
+        jos.closeEntry();
+    }
+
+    @Test
+    public void testGetFile() throws IOException {
+        var r = rm.getResource("/index.html");
+
+        assertNotNull(r);
+        assertFalse(r.isDirectory());
+        assertEquals("index.html", r.getName());
+        assertEquals(13l, (long) r.getContentLength());
+        assertNotNull(r.getETag());
+        assertNotNull(r.getLastModified());
+
+        assertNotNull(rm.getResource("/js/app.js"));
+    }
+
+    @Test
+    public void testGetDirectory() throws IOException {
+        assertTrue(rm.getResource("/").isDirectory());
+        assertTrue(rm.getResource("/js/").isDirectory());
+        assertEquals(2, rm.getResource("/").list().size());
+    }
+
+    @Test
+    public void testOutsideBase() throws IOException {
+        assertNull(rm.getResource("/other.txt"));
+        assertNull(rm.getResource("/../other.txt"));
+        assertNull(rm.getResource("/missing.html"));
+    }
+
+    /**
+     * index.html (13 bytes) and app.js (10 bytes) are served concurrently on
+     * first request: each must take its size from the cache budget once
+     */
+    @Test
+    public void testConcurrentFirstRequestsReserveCacheOnce()
+            throws Exception {
+        // a sender that ignores the content
+        var sender = (Sender) Proxy.newProxyInstance(
+                Sender.class.getClassLoader(),
+                new Class<?>[]{Sender.class},
+                (proxy, method, args) -> null);
+
+        for (int run = 0; run < 20; run++) {
+            try (var budgeted = new EmbeddedResourceManager(jar, "static/app",
+                    1024, 30)) {
+                var resources = new Resource[]{
+                    budgeted.getResource("/index.html"),
+                    budgeted.getResource("/js/app.js")};
+
+                var threads = 8;
+                var start = new CountDownLatch(1);
+                var executor = Executors.newFixedThreadPool(threads);
+
+                try {
+                    for (int t = 0; t < threads; t++) {
+                        var r = resources[t % 2];
+
+                        executor.execute(() -> {
+                            try {
+                                start.await();
+                                r.serve(sender, null, IoCallback.END_EXCHANGE);
+                            } catch (InterruptedException ie) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+                    }
+
+                    start.countDown();
+                } finally {
+                    executor.shutdown();
+                    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+                }
+
+                assertEquals(30 - 13 - 10, budgeted.getCacheAvailable());
+            }
+        }
+    }
+
+    /**
+     * with no cache budget the entries are streamed from the jar in chunks
+     */
+    @Test
+    public void testServeUncached() throws Exception {
+        try (var uncached = new EmbeddedResourceManager(jar, "static/app",
+                1024, 0)) {
+            var r = (RangeAwareResource) uncached
+                    .getResource("/js/big.txt");
+
+            assertEquals(BIG, serve(r, -1, -1));
+            assertEquals(BIG.substring(5, 40_001), serve(r, 5, 40_000));
+            assertEquals(0, uncached.getCacheAvailable());
+        }
+    }
+
+    /**
+     * @return the content sent, serving the range start-end if start >= 0
+     */
+    private static String serve(RangeAwareResource r,
+            long start, long end) {
+        var out = new ByteArrayOutputStream();
+        var completed = new boolean[1];
+
+        // a sender that collects the content, completing each send
+        var sender = (Sender) Proxy.newProxyInstance(
+                Sender.class.getClassLoader(),
+                new Class<?>[]{Sender.class},
+                (proxy, method, args) -> {
+                    if ("send".equals(method.getName())
+                            && args.length == 2
+                            && args[0] instanceof ByteBuffer) {
+                        var buf = (ByteBuffer) args[0];
+                        var bytes = new byte[buf.remaining()];
+                        buf.get(bytes);
+                        out.write(bytes, 0, bytes.length);
+                        ((IoCallback) args[1]).onComplete(null, (Sender) proxy);
+                    }
+                    return null;
+                });
+
+        var callback = new IoCallback() {
+            @Override
+            public void onComplete(HttpServerExchange exchange,
+                    Sender sender) {
+                completed[0] = true;
+            }
+
+            @Override
+            public void onException(HttpServerExchange exchange,
+                    Sender sender, IOException exception) {
+                fail(exception.getMessage());
+            }
+        };
+
+        if (start < 0) {
+            r.serve(sender, null, callback);
+        } else {
+            r.serveRange(sender, null, start, end, callback);
+        }
+
+        assertTrue(completed[0]);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,174 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import org.xnio.XnioIoThread;
+import org.xnio.XnioWorker;
+import org.xnio.channels.StreamSourceChannel;
+import org.xnio.conduits.Conduits;
+import org.xnio.conduits.StreamSinkConduit;
+import org.xnio.conduits.WriteReadyHandler;
+
+/**
+ * A sink conduit that collects the written bytes, accepting at most
+ * capacity bytes until the capacity is set again, to test the conduits that
+ * wrap it
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class FakeStreamSinkConduit implements StreamSinkConduit {
+
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    private int capacity = Integer.MAX_VALUE;
+    private boolean terminated = false;
+
+    /**
+     * @param capacity the max number of bytes accepted by the next writes
+     */
+    void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    byte[] getWritten() {
+        return written.toByteArray();
+    }
+
+    boolean isTerminated() {
+        return terminated;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        var ret = Math.min(capacity, src.remaining());
+
+        if (capacity != Integer.MAX_VALUE) {
+            capacity -= ret;
+        }
+
+        for (int idx = 0; idx < ret; idx++) {
+            written.write(src.get());
+        }
+
+        return ret;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offs, int len) throws IOException {
+        long ret = 0;
+
+        for (int idx = offs; idx < offs + len; idx++) {
+            var _ret = write(srcs[idx]);
+            ret += _ret;
+
+            if (srcs[idx].hasRemaining()) {
+                break;
+            }
+        }
+
+        return ret;
+    }
+
+    @Override
+    public int writeFinal(ByteBuffer src) throws IOException {
+        return Conduits.writeFinalBasic(this, src);
+    }
+
+    @Override
+    public long writeFinal(ByteBuffer[] srcs, int offs, int len) throws IOException {
+        return Conduits.writeFinalBasic(this, srcs, offs, len);
+    }
+
+    @Override
+    public long transferFrom(FileChannel src, long position, long count)
+            throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long transferFrom(StreamSourceChannel source, long count,
+            ByteBuffer throughBuffer) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void terminateWrites() throws IOException {
+        terminated = true;
+    }
+
+    @Override
+    public boolean isWriteShutdown() {
+        return terminated;
+    }
+
+    @Override
+    public void truncateWrites() throws IOException {
+        terminated = true;
+    }
+
+    @Override
+    public boolean flush() throws IOException {
+        return true;
+    }
+
+    @Override
+    public void resumeWrites() {
+    }
+
+    @Override
+    public void suspendWrites() {
+    }
+
+    @Override
+    public void wakeupWrites() {
+    }
+
+    @Override
+    public boolean isWriteResumed() {
+        return false;
+    }
+
+    @Override
+    public void awaitWritable() throws IOException {
+    }
+
+    @Override
+    public void awaitWritable(long time, TimeUnit timeUnit) throws IOException {
+    }
+
+    @Override
+    public XnioIoThread getWriteThread() {
+        return null;
+    }
+
+    @Override
+    public void setWriteReadyHandler(WriteReadyHandler handler) {
+    }
+
+    @Override
+    public XnioWorker getWorker() {
+        return null;
+    }
+}
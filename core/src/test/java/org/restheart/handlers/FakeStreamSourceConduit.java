@@ -0,0 +1,153 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import org.xnio.XnioIoThread;
+import org.xnio.XnioWorker;
+import org.xnio.channels.StreamSinkChannel;
+import org.xnio.conduits.ReadReadyHandler;
+import org.xnio.conduits.StreamSourceConduit;
+
+/**
+ * A source conduit that returns the given chunks, one per read, to test the
+ * conduits that wrap it. An empty chunk is a read of 0 bytes; after the last
+ * chunk reads return -1
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class FakeStreamSourceConduit implements StreamSourceConduit {
+
+    private final Deque<byte[]> chunks = new ArrayDeque<>();
+    private int reads = 0;
+
+    FakeStreamSourceConduit(String... chunks) {
+        for (var chunk : chunks) {
+            this.chunks.add(chunk.getBytes());
+        }
+    }
+
+    /**
+     * @return the number of reads from this conduit
+     */
+    int getReads() {
+        return reads;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        reads++;
+
+        var chunk = chunks.poll();
+
+        if (chunk == null) {
+            return -1;
+        }
+
+        var ret = Math.min(chunk.length, dst.remaining());
+        dst.put(chunk, 0, ret);
+
+        if (ret < chunk.length) {
+            var rest = new byte[chunk.length - ret];
+            System.arraycopy(chunk, ret, rest, 0, rest.length);
+            chunks.push(rest);
+        }
+
+        return ret;
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offs, int len) throws IOException {
+        for (int idx = offs; idx < offs + len; idx++) {
+            if (dsts[idx].hasRemaining()) {
+                return read(dsts[idx]);
+            }
+        }
+
+        return 0;
+    }
+
+    @Override
+    public long transferTo(long position, long count, FileChannel target)
+            throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long transferTo(long count, ByteBuffer throughBuffer,
+            StreamSinkChannel target) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void terminateReads() throws IOException {
+        chunks.clear();
+    }
+
+    @Override
+    public boolean isReadShutdown() {
+        return chunks.isEmpty();
+    }
+
+    @Override
+    public void resumeReads() {
+    }
+
+    @Override
+    public void suspendReads() {
+    }
+
+    @Override
+    public void wakeupReads() {
+    }
+
+    @Override
+    public boolean isReadResumed() {
+        return false;
+    }
+
+    @Override
+    public void awaitReadable() throws IOException {
+    }
+
+    @Override
+    public void awaitReadable(long time, TimeUnit timeUnit) throws IOException {
+    }
+
+    @Override
+    public XnioIoThread getReadThread() {
+        return null;
+    }
+
+    @Override
+    public void setReadReadyHandler(ReadReadyHandler handler) {
+    }
+
+    @Override
+    public XnioWorker getWorker() {
+        return null;
+    }
+}
@@ -0,0 +1,147 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import java.net.URI;
+import static org.restheart.handlers.LatencyAwareProxyClient.Strategy.EWMA_LATENCY;
+import static org.restheart.handlers.LatencyAwareProxyClient.Strategy.LEAST_REQUESTS;
+import static org.restheart.handlers.LatencyAwareProxyClient.Strategy.ROUND_ROBIN;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class LatencyAwareProxyClientTest {
+
+    private static final long MS = 1_000_000;
+    private static final long S = 1_000 * MS;
+
+    private static final URI[] HOSTS = {
+        URI.create("http://a"),
+        URI.create("http://b"),
+        URI.create("http://c")
+    };
+
+    private static int select(LatencyAwareProxyClient.Selector selector,
+            long now) {
+        return selector.select(HOSTS.length, idx -> HOSTS[idx], now);
+    }
+
+    @Test
+    public void testRotatesTies() {
+        for (var strategy : new LatencyAwareProxyClient.Strategy[]{
+            ROUND_ROBIN, LEAST_REQUESTS, EWMA_LATENCY}) {
+            var selector = new LatencyAwareProxyClient.Selector(strategy);
+            var now = System.nanoTime();
+
+            assertEquals(0, select(selector, now));
+            assertEquals(1, select(selector, now));
+            assertEquals(2, select(selector, now));
+            assertEquals(0, select(selector, now));
+        }
+    }
+
+    @Test
+    public void testLeastRequests() {
+        var selector = new LatencyAwareProxyClient.Selector(LEAST_REQUESTS);
+        var now = System.nanoTime();
+
+        selector.stats(HOSTS[0]).inFlight.set(2);
+        selector.stats(HOSTS[1]).inFlight.set(1);
+        selector.stats(HOSTS[2]).inFlight.set(3);
+
+        for (int i = 0; i < HOSTS.length; i++) {
+            assertEquals(1, select(selector, now));
+        }
+    }
+
+    @Test
+    public void testEwmaLatency() {
+        var selector = new LatencyAwareProxyClient.Selector(EWMA_LATENCY);
+        var now = System.nanoTime();
+
+        selector.stats(HOSTS[0]).sample(50 * MS, now);
+        selector.stats(HOSTS[1]).sample(10 * MS, now);
+        selector.stats(HOSTS[2]).sample(30 * MS, now);
+
+        for (int i = 0; i < HOSTS.length; i++) {
+            assertEquals(1, select(selector, now));
+        }
+
+        // the outstanding requests weight the latency
+        selector.stats(HOSTS[1]).inFlight.set(4);
+
+        assertEquals(2, select(selector, now));
+    }
+
+    @Test
+    public void testPeakSample() {
+        var stats = new LatencyAwareProxyClient.Stats();
+        var now = System.nanoTime();
+
+        stats.sample(10 * MS, now);
+        assertEquals(10 * MS, stats.latency(now), 1);
+
+        // a slower sample replaces the average
+        stats.sample(100 * MS, now + MS);
+        assertEquals(100 * MS, stats.latency(now + MS), 1);
+
+        // a faster one is averaged
+        stats.sample(10 * MS, now + 2 * MS);
+        assertTrue(stats.latency(now + 2 * MS) > 90 * MS);
+    }
+
+    @Test
+    public void testDecay() {
+        var stats = new LatencyAwareProxyClient.Stats();
+        var now = System.nanoTime();
+
+        stats.sample(S, now);
+
+        assertTrue(stats.latency(now + 10 * S) < 400 * MS);
+        assertTrue(stats.latency(now + 60 * S) < 5 * MS);
+    }
+
+    @Test
+    public void testSlowHostRecovers() {
+        var selector = new LatencyAwareProxyClient.Selector(EWMA_LATENCY);
+        var now = System.nanoTime();
+
+        // one slow response from a
+        selector.stats(HOSTS[0]).sample(S, now);
+        selector.stats(HOSTS[1]).sample(20 * MS, now);
+        selector.stats(HOSTS[2]).sample(20 * MS, now);
+
+        for (int i = 0; i < HOSTS.length; i++) {
+            assertNotEquals(0, select(selector, now));
+        }
+
+        // b and c keep on serving requests, a gets none
+        for (int t = 1; t <= 60; t++) {
+            selector.stats(HOSTS[1]).sample(20 * MS, now + t * S);
+            selector.stats(HOSTS[2]).sample(20 * MS, now + t * S);
+        }
+
+        assertEquals(0, select(selector, now + 60 * S));
+    }
+}
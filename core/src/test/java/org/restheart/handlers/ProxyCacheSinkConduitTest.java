@@ -0,0 +1,110 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ProxyCacheSinkConduitTest {
+
+    private static ByteBuffer buffer(String content) {
+        return ByteBuffer.wrap(content.getBytes());
+    }
+
+    @Test
+    public void testCapture() throws IOException {
+        var next = new FakeStreamSinkConduit();
+        var captured = new AtomicReference<byte[]>();
+
+        var conduit = new ProxyCacheSinkConduit(next, 1024, captured::set);
+
+        // only the bytes accepted by the next conduit are captured
+        next.setCapacity(3);
+        var src = buffer("abcdef");
+        assertEquals(3, conduit.write(src));
+
+        next.setCapacity(Integer.MAX_VALUE);
+        conduit.write(src);
+        // heap and direct buffers
+        var direct = ByteBuffer.allocateDirect(2).put("ij".getBytes()).flip();
+        conduit.write(new ByteBuffer[]{buffer("gh"), direct}, 0, 2);
+
+        assertNull(captured.get());
+
+        conduit.terminateWrites();
+
+        assertEquals("abcdefghij", new String(captured.get()));
+        assertEquals("abcdefghij", new String(next.getWritten()));
+        assertTrue(next.isTerminated());
+    }
+
+    @Test
+    public void testCaptureExceedingMaxSize() throws IOException {
+        var next = new FakeStreamSinkConduit();
+        var captured = new AtomicReference<byte[]>();
+
+        var conduit = new ProxyCacheSinkConduit(next, 4, captured::set);
+
+        conduit.write(buffer("abc"));
+        conduit.write(buffer("def"));
+        conduit.terminateWrites();
+
+        assertNull(captured.get());
+        assertEquals("abcdef", new String(next.getWritten()));
+        assertTrue(next.isTerminated());
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        var next = new FakeStreamSinkConduit();
+
+        var conduit = new ProxyCacheSinkConduit(next, "stored".getBytes());
+
+        // the content of the 304 response is discarded
+        var src = buffer("xy");
+        assertEquals(2, conduit.write(src));
+        assertFalse(src.hasRemaining());
+        assertEquals(0, next.getWritten().length);
+
+        // the next conduit accepts the replayed content in chunks
+        next.setCapacity(0);
+        conduit.terminateWrites();
+        assertFalse(next.isTerminated());
+        assertFalse(conduit.flush());
+
+        next.setCapacity(4);
+        assertFalse(conduit.flush());
+        assertEquals("stor", new String(next.getWritten()));
+        assertFalse(next.isTerminated());
+
+        next.setCapacity(Integer.MAX_VALUE);
+        assertTrue(conduit.flush());
+        assertEquals("stored", new String(next.getWritten()));
+        assertTrue(next.isTerminated());
+    }
+}
@@ -0,0 +1,252 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.security.api.SecurityContext;
+import io.undertow.security.idm.Account;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
+import java.lang.reflect.Proxy;
+import java.security.Principal;
+import java.util.Set;
+import static org.restheart.plugins.security.TokenManager.AUTH_TOKEN_HEADER;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ProxyCacheTest {
+
+    private static final byte[] CONTENT = "content".getBytes();
+
+    private static HttpServerExchange exchange(String user) {
+        var ret = new HttpServerExchange();
+        ret.setRequestURI("/proxy/resource");
+        ret.setStatusCode(200);
+
+        if (user != null) {
+            ret.setSecurityContext(securityContext(user));
+        }
+
+        return ret;
+    }
+
+    private static SecurityContext securityContext(String user) {
+        var account = new Account() {
+            @Override
+            public Principal getPrincipal() {
+                return () -> user;
+            }
+
+            @Override
+            public Set<String> getRoles() {
+                return Set.of();
+            }
+        };
+
+        return (SecurityContext) Proxy.newProxyInstance(
+                SecurityContext.class.getClassLoader(),
+                new Class<?>[]{SecurityContext.class},
+                (proxy, method, args) -> "getAuthenticatedAccount"
+                .equals(method.getName()) ? account : null);
+    }
+
+    /**
+     * stores the response of the exchange, if storable
+     */
+    private static boolean store(ProxyCache cache, HttpServerExchange exchange) {
+        if (!cache.isStorable(exchange)) {
+            return false;
+        }
+
+        cache.put(exchange, ProxyCache.Entry.of(exchange, new HeaderMap(), CONTENT));
+        return true;
+    }
+
+    @Test
+    public void testFreshness() {
+        var cache = new ProxyCache("testFreshness", 1024 * 1024, 1024);
+
+        var exchange = exchange(null);
+        assertFalse("neither fresh nor revalidable", cache.isStorable(exchange));
+
+        exchange.getResponseHeaders().put(Headers.CACHE_CONTROL, "max-age=60");
+        assertTrue(store(cache, exchange));
+
+        var entry = cache.get(exchange(null));
+        assertNotNull(entry);
+        assertTrue(entry.isFresh());
+        assertArrayEquals(CONTENT, entry.getContent());
+
+        // Age is added to the age of the entry
+        exchange.getResponseHeaders().put(Headers.AGE, "120");
+        assertFalse(ProxyCache.Entry.of(exchange, null, CONTENT).isFresh());
+
+        exchange.getResponseHeaders().put(Headers.CACHE_CONTROL, "max-age=60, no-store");
+        assertFalse(cache.isStorable(exchange));
+
+        exchange.getResponseHeaders().put(Headers.CACHE_CONTROL, "max-age=60");
+        exchange.getResponseHeaders().put(Headers.CONTENT_LENGTH, 2048);
+        assertFalse("larger than max entry size", cache.isStorable(exchange));
+    }
+
+    @Test
+    public void testRevalidation() {
+        var cache = new ProxyCache("testRevalidation", 1024 * 1024, 1024);
+
+        var exchange = exchange(null);
+        exchange.getResponseHeaders().put(Headers.CACHE_CONTROL, "no-cache");
+        exchange.getResponseHeaders().put(Headers.ETAG, "\"1\"");
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/plain");
+        assertTrue(store(cache, exchange));
+
+        var entry = cache.get(exchange(null));
+        assertFalse(entry.isFresh());
+        assertTrue(entry.isRevalidable());
+
+        var notModified = new HeaderMap();
+        notModified.put(Headers.CACHE_CONTROL, "max-age=60");
+        notModified.put(Headers.ETAG, "\"1\"");
+        notModified.put(AUTH_TOKEN_HEADER, "token");
+
+        var refreshed = entry.refresh(notModified, new HeaderMap());
+
+        assertTrue(refreshed.isFresh());
+        assertEquals(200, refreshed.getStatus());
+        assertArrayEquals(CONTENT, refreshed.getContent());
+        assertEquals("text/plain", refreshed.getHeaders().getFirst(Headers.CONTENT_TYPE));
+        assertFalse(refreshed.getHeaders().contains(AUTH_TOKEN_HEADER));
+    }
+
+    @Test
+    public void testProxyHeadersNotStored() {
+        var exchange = exchange("alice");
+
+        // set before proxying
+        exchange.getResponseHeaders().put(AUTH_TOKEN_HEADER, "token");
+        exchange.getResponseHeaders().put(Headers.CONTENT_LOCATION, "/a");
+        exchange.getResponseHeaders().put(Headers.CONTENT_LANGUAGE, "en");
+
+        var proxyHeaders = new HeaderMap();
+        exchange.getResponseHeaders().forEach(v -> proxyHeaders.putAll(v.getHeaderName(), v));
+
+        // set by the backend
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/plain");
+        exchange.getResponseHeaders().put(Headers.CONTENT_LOCATION, "/b");
+
+        var headers = ProxyCache.Entry.of(exchange, proxyHeaders, CONTENT).getHeaders();
+
+        assertFalse(headers.contains(AUTH_TOKEN_HEADER));
+        assertFalse(headers.contains(Headers.CONTENT_LANGUAGE));
+        assertEquals("text/plain", headers.getFirst(Headers.CONTENT_TYPE));
+        assertEquals("/b", headers.getFirst(Headers.CONTENT_LOCATION));
+    }
+
+    @Test
+    public void testPrivate() {
+        var cache = new ProxyCache("testPrivate", 1024 * 1024, 1024);
+
+        var anonymous = exchange(null);
+        anonymous.getResponseHeaders().put(Headers.CACHE_CONTROL, "private, max-age=60");
+        assertFalse(cache.isStorable(anonymous));
+
+        var alice = exchange("alice");
+        alice.getResponseHeaders().put(Headers.CACHE_CONTROL, "private, max-age=60");
+        assertTrue(store(cache, alice));
+
+        assertNotNull(cache.get(exchange("alice")));
+        assertNull(cache.get(exchange("bob")));
+        assertNull(cache.get(exchange(null)));
+    }
+
+    @Test
+    public void testAuthenticatedRequests() {
+        var cache = new ProxyCache("testAuthenticatedRequests", 1024 * 1024, 1024);
+
+        var alice = exchange("alice");
+        alice.getResponseHeaders().put(Headers.CACHE_CONTROL, "max-age=60");
+        assertTrue(store(cache, alice));
+
+        // stored for alice only
+        assertNotNull(cache.get(exchange("alice")));
+        assertNull(cache.get(exchange("bob")));
+        assertNull(cache.get(exchange(null)));
+
+        for (var cc : new String[]{"public, max-age=60", "s-maxage=60",
+            "max-age=60, must-revalidate"}) {
+            cache.invalidate(exchange("alice"));
+
+            alice.getResponseHeaders().put(Headers.CACHE_CONTROL, cc);
+            assertTrue(store(cache, alice));
+
+            assertNotNull(cc, cache.get(exchange("bob")));
+            assertNotNull(cc, cache.get(exchange(null)));
+        }
+    }
+
+    @Test
+    public void testVary() {
+        var cache = new ProxyCache("testVary", 1024 * 1024, 1024);
+
+        var gzip = exchange(null);
+        gzip.getRequestHeaders().put(Headers.ACCEPT_ENCODING, "gzip");
+        gzip.getResponseHeaders().put(Headers.CACHE_CONTROL, "max-age=60");
+        gzip.getResponseHeaders().put(Headers.VARY, "Accept-Encoding");
+
+        var br = exchange(null);
+        br.getRequestHeaders().put(Headers.ACCEPT_ENCODING, "br");
+        br.getResponseHeaders().put(Headers.CACHE_CONTROL, "max-age=60");
+        br.getResponseHeaders().put(Headers.VARY, "Accept-Encoding");
+
+        assertTrue(store(cache, gzip));
+        assertTrue(store(cache, br));
+
+        assertNotNull(cache.get(gzip));
+        assertNotNull(cache.get(br));
+        assertNull(cache.get(exchange(null)));
+
+        cache.invalidate(exchange(null));
+
+        assertNull(cache.get(gzip));
+        assertNull(cache.get(br));
+
+        // the variants stored before the invalidation are not found again
+        assertTrue(store(cache, br));
+
+        assertNull(cache.get(gzip));
+        assertNotNull(cache.get(br));
+
+        var star = exchange(null);
+        star.getResponseHeaders().put(Headers.CACHE_CONTROL, "max-age=60");
+        star.getResponseHeaders().put(Headers.VARY, "*");
+        assertFalse(cache.isStorable(star));
+
+        star.getResponseHeaders().put(Headers.VARY, "Accept, *");
+        assertFalse(cache.isStorable(star));
+
+        star.getResponseHeaders().put(Headers.VARY, "Accept");
+        star.getResponseHeaders().add(Headers.VARY, "*");
+        assertFalse(cache.isStorable(star));
+    }
+}
@@ -0,0 +1,115 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HttpString;
+import org.restheart.exchange.ByteArrayRequest;
+import org.restheart.exchange.ByteArrayResponse;
+import org.restheart.exchange.PipelineInfo;
+import static org.restheart.exchange.PipelineInfo.PIPELINE_TYPE.SERVICE;
+import org.restheart.exchange.ResolvedPipeline;
+import org.restheart.plugins.ByteArrayService;
+import org.restheart.utils.MetricsUtils;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the stage timings of a service pipeline whose response is sent, and
+ * the exchange ended, by ResponseSender while all stages are running
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class StageTimingsHandlerTest {
+
+    private static final String URI = "/stage-timings-test";
+
+    private static final PipelineInfo INFO = new PipelineInfo(SERVICE, URI,
+            "stageTimingsTest");
+
+    private static class TestService implements ByteArrayService {
+
+        @Override
+        public void handle(ByteArrayRequest request, ByteArrayResponse response)
+                throws Exception {
+            response.setStatusCode(200);
+            response.setContent("ok".getBytes());
+        }
+    }
+
+    /**
+     * initializes the response and invokes the service
+     */
+    private static class ServiceStage extends PipelinedHandler {
+
+        private final TestService service = new TestService();
+
+        @Override
+        public void handleRequest(HttpServerExchange exchange) throws Exception {
+            service.responseInitializer().accept(exchange);
+            service.handle(null, service.response().apply(exchange));
+            Thread.sleep(20);
+            next(exchange);
+        }
+    }
+
+    @After
+    public void disable() {
+        StageTimings.setEnabled(false);
+        StageTimings.setServerTimingHeader(false);
+    }
+
+    @Test
+    public void testServiceTimings() throws Exception {
+        StageTimings.setEnabled(true);
+        StageTimings.setServerTimingHeader(true);
+
+        var timer = MetricsUtils.defaultRegistry()
+                .timer("stage-timings." + URI + ".ServiceStage");
+
+        var count = timer.getCount();
+
+        var exchange = new HttpServerExchange();
+        ResolvedPipeline.attach(exchange, new ResolvedPipeline(INFO,
+                new TestService()));
+
+        new StageTimingsHandler(INFO, PipelinedHandler.pipe(
+                new ServiceStage(),
+                new ResponseSender())).handleRequest(exchange);
+
+        assertTrue(exchange.isComplete());
+        assertEquals(200, exchange.getStatusCode());
+        assertEquals("ok", new String(exchange.getResponseContent()));
+
+        // the stages are running when the response is committed
+        var serverTiming = exchange.getResponseHeaders()
+                .getFirst(HttpString.tryFromString("Server-Timing"));
+
+        assertNotNull(serverTiming);
+        assertTrue(serverTiming, serverTiming.contains("ServiceStage;dur="));
+        assertTrue(serverTiming, serverTiming.contains("ResponseSender;dur="));
+
+        // the timers are updated when the pipeline returns
+        assertEquals(count + 1, timer.getCount());
+        assertTrue(timer.getSnapshot().getMax() >= 20_000_000);
+    }
+}
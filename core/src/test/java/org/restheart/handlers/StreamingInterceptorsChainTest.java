@@ -0,0 +1,159 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.server.HttpServerExchange;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.UnaryOperator;
+import org.restheart.exchange.ByteArrayProxyRequest;
+import org.restheart.exchange.ByteArrayProxyResponse;
+import org.restheart.plugins.StreamingProxyInterceptor;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class StreamingInterceptorsChainTest {
+
+    /**
+     * A streaming interceptor that applies onChunk to each chunk and appends
+     * tail at the end
+     */
+    static class TestInterceptor implements StreamingProxyInterceptor {
+
+        private final UnaryOperator<ByteBuffer> onChunk;
+        private final String tail;
+        private final boolean resolve;
+        int chunks = 0;
+
+        TestInterceptor(UnaryOperator<ByteBuffer> onChunk, String tail,
+                boolean resolve) {
+            this.onChunk = onChunk;
+            this.tail = tail;
+            this.resolve = resolve;
+        }
+
+        @Override
+        public ByteBuffer onChunk(ByteArrayProxyRequest request,
+                ByteArrayProxyResponse response, ByteBuffer chunk)
+                throws IOException {
+            chunks++;
+            return onChunk.apply(chunk);
+        }
+
+        @Override
+        public ByteBuffer onEnd(ByteArrayProxyRequest request,
+                ByteArrayProxyResponse response) throws IOException {
+            return tail == null ? null : buffer(tail);
+        }
+
+        @Override
+        public boolean isTransforming() {
+            return tail != null || onChunk != IDENTITY;
+        }
+
+        @Override
+        public void handle(ByteArrayProxyRequest request,
+                ByteArrayProxyResponse response) throws Exception {
+        }
+
+        @Override
+        public boolean resolve(ByteArrayProxyRequest request,
+                ByteArrayProxyResponse response) {
+            return resolve;
+        }
+    }
+
+    static final UnaryOperator<ByteBuffer> IDENTITY = chunk -> chunk;
+
+    /**
+     * returns a new buffer with the chunk in upper case
+     */
+    static final UnaryOperator<ByteBuffer> UPPER_CASE = chunk
+            -> buffer(string(chunk).toUpperCase());
+
+    /**
+     * drops the chunks containing "drop"
+     */
+    static final UnaryOperator<ByteBuffer> DROP = chunk
+            -> string(chunk.duplicate()).contains("drop") ? null : chunk;
+
+    static ByteBuffer buffer(String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String string(ByteBuffer buffer) {
+        if (buffer == null) {
+            return null;
+        }
+
+        var bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static StreamingInterceptorsChain chain(StreamingProxyInterceptor... interceptors) {
+        return StreamingInterceptorsChain.of(interceptors, new HttpServerExchange());
+    }
+
+    @Test
+    public void testResolve() throws IOException {
+        assertNull(chain());
+        assertNull(chain(new TestInterceptor(IDENTITY, null, false)));
+
+        var chain = chain(new TestInterceptor(IDENTITY, null, false),
+                new TestInterceptor(IDENTITY, null, true));
+
+        assertNotNull(chain);
+        assertFalse(chain.isTransforming());
+        assertTrue(chain(new TestInterceptor(UPPER_CASE, null, true))
+                .isTransforming());
+    }
+
+    @Test
+    public void testOnChunk() throws IOException {
+        var last = new TestInterceptor(UPPER_CASE, null, true);
+        var chain = chain(new TestInterceptor(DROP, null, true), last);
+
+        assertEquals("ABC", string(chain.onChunk(buffer("abc"))));
+        assertEquals(1, last.chunks);
+
+        // dropped chunks don't reach the following interceptors
+        assertNull(chain.onChunk(buffer("drop")));
+        assertEquals(1, last.chunks);
+    }
+
+    @Test
+    public void testOnEnd() throws IOException {
+        var chain = chain(new TestInterceptor(IDENTITY, "a", true),
+                new TestInterceptor(UPPER_CASE, "b", true),
+                new TestInterceptor(IDENTITY, null, true));
+
+        // the tail of an interceptor goes through the following ones only
+        assertEquals("Ab", string(chain.onEnd()));
+
+        assertNull(chain(new TestInterceptor(IDENTITY, null, true)).onEnd());
+    }
+}
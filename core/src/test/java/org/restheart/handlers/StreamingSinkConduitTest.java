@@ -0,0 +1,116 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import static org.restheart.handlers.StreamingInterceptorsChainTest.DROP;
+import static org.restheart.handlers.StreamingInterceptorsChainTest.IDENTITY;
+import static org.restheart.handlers.StreamingInterceptorsChainTest.UPPER_CASE;
+import static org.restheart.handlers.StreamingInterceptorsChainTest.buffer;
+import static org.restheart.handlers.StreamingInterceptorsChainTest.chain;
+import org.restheart.handlers.StreamingInterceptorsChainTest.TestInterceptor;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class StreamingSinkConduitTest {
+
+    @Test
+    public void testPending() throws IOException {
+        var next = new FakeStreamSinkConduit();
+        var conduit = new StreamingSinkConduit(next,
+                chain(new TestInterceptor(UPPER_CASE, null, true)));
+
+        // the part of the chunk not accepted is kept
+        next.setCapacity(2);
+        var src = buffer("abcd");
+        assertEquals(4, conduit.write(src));
+        assertFalse(src.hasRemaining());
+        assertEquals("AB", new String(next.getWritten()));
+
+        // no more writes until the pending data is written
+        assertEquals(0, conduit.write(buffer("ef")));
+        assertFalse(conduit.flush());
+
+        next.setCapacity(Integer.MAX_VALUE);
+        assertTrue(conduit.flush());
+        assertEquals("ABCD", new String(next.getWritten()));
+
+        assertEquals(2, conduit.write(buffer("ef")));
+        assertEquals("ABCDEF", new String(next.getWritten()));
+    }
+
+    @Test
+    public void testPendingIsCopied() throws IOException {
+        var next = new FakeStreamSinkConduit();
+        var conduit = new StreamingSinkConduit(next,
+                chain(new TestInterceptor(IDENTITY, null, true)));
+
+        next.setCapacity(1);
+        var src = buffer("ab");
+        assertEquals(2, conduit.write(src));
+
+        // the caller can reuse the source buffer
+        src.clear();
+        src.put("xy".getBytes());
+
+        next.setCapacity(Integer.MAX_VALUE);
+        assertTrue(conduit.flush());
+        assertEquals("ab", new String(next.getWritten()));
+    }
+
+    @Test
+    public void testDroppedChunks() throws IOException {
+        var next = new FakeStreamSinkConduit();
+        var conduit = new StreamingSinkConduit(next,
+                chain(new TestInterceptor(DROP, null, true)));
+
+        var srcs = new ByteBuffer[]{buffer("a"), buffer("drop"), buffer("b")};
+
+        assertEquals(6, conduit.write(srcs, 0, 3));
+        assertEquals("ab", new String(next.getWritten()));
+    }
+
+    @Test
+    public void testTerminateWithTail() throws IOException {
+        var next = new FakeStreamSinkConduit();
+        var conduit = new StreamingSinkConduit(next,
+                chain(new TestInterceptor(IDENTITY, "end", true)));
+
+        conduit.write(buffer("content "));
+
+        // the next conduit is terminated once the tail is written
+        next.setCapacity(2);
+        conduit.terminateWrites();
+        assertFalse(next.isTerminated());
+        assertFalse(conduit.flush());
+        assertFalse(next.isTerminated());
+
+        next.setCapacity(Integer.MAX_VALUE);
+        assertTrue(conduit.flush());
+        assertTrue(next.isTerminated());
+        assertEquals("content end", new String(next.getWritten()));
+    }
+}
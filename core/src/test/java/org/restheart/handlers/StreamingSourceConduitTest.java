@@ -0,0 +1,122 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import static org.restheart.handlers.StreamingInterceptorsChainTest.DROP;
+import static org.restheart.handlers.StreamingInterceptorsChainTest.chain;
+import org.restheart.handlers.StreamingInterceptorsChainTest.TestInterceptor;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class StreamingSourceConduitTest {
+
+    private static String read(ByteBuffer dst) {
+        dst.flip();
+        var ret = StandardCharsets.UTF_8.decode(dst).toString();
+        dst.clear();
+        return ret;
+    }
+
+    @Test
+    public void testInPlace() throws IOException {
+        var chunks = new ByteBuffer[1];
+
+        // modifies the chunk in place
+        var conduit = new StreamingSourceConduit(
+                new FakeStreamSourceConduit("abc"),
+                chain(new TestInterceptor(chunk -> {
+                    chunks[0] = chunk;
+                    chunk.put(chunk.position(), (byte) 'A');
+                    return chunk;
+                }, null, true)));
+
+        var dst = ByteBuffer.allocate(8);
+        dst.put((byte) '>');
+
+        assertEquals(3, conduit.read(dst));
+        assertEquals(4, dst.position());
+
+        // the chunk is the read part of the destination buffer
+        assertEquals(1, chunks[0].position());
+        assertEquals(4, chunks[0].limit());
+
+        assertEquals(">Abc", read(dst));
+        assertEquals(-1, conduit.read(dst));
+    }
+
+    @Test
+    public void testCopied() throws IOException {
+        var source = new FakeStreamSourceConduit("ab");
+
+        // doubles each byte
+        var conduit = new StreamingSourceConduit(source,
+                chain(new TestInterceptor(chunk -> {
+                    var ret = ByteBuffer.allocate(chunk.remaining() * 2);
+
+                    while (chunk.hasRemaining()) {
+                        var b = chunk.get();
+                        ret.put(b).put(b);
+                    }
+
+                    return ret.flip();
+                }, "!", true)));
+
+        var dst = ByteBuffer.allocate(3);
+
+        assertEquals(3, conduit.read(dst));
+        assertEquals("aab", read(dst));
+
+        // the rest is read from the pending data
+        assertEquals(1, conduit.read(dst));
+        assertEquals("b", read(dst));
+        assertEquals(1, source.getReads());
+
+        // then the tail
+        assertEquals(1, conduit.read(dst));
+        assertEquals("!", read(dst));
+        assertEquals(-1, conduit.read(dst));
+    }
+
+    @Test
+    public void testDroppedChunks() throws IOException {
+        var source = new FakeStreamSourceConduit("drop", "a", "", "drop");
+
+        var conduit = new StreamingSourceConduit(source,
+                chain(new TestInterceptor(DROP, null, true)));
+
+        var dst = ByteBuffer.allocate(8);
+
+        // the dropped chunk is skipped
+        assertEquals(1, conduit.read(dst));
+        assertEquals("a", read(dst));
+
+        assertEquals(0, conduit.read(dst));
+        assertEquals(-1, conduit.read(dst));
+        assertEquals(0, dst.position());
+    }
+}
@@ -0,0 +1,78 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.handlers;
+
+import io.undertow.server.handlers.resource.PathResourceManager;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class VersionedContentEncodedResourceManagerTest {
+
+    private Path dir;
+    private Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        dir = Files.createTempDirectory("restheart-test-");
+        file = Files.writeString(dir.resolve("app.js"), "var a = 1;");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000));
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+
+    /**
+     * the variant of a changed file must have a different key
+     */
+    @Test
+    public void testVersionChangesWithFile() throws IOException {
+        var rm = new PathResourceManager(dir);
+
+        var before = VersionedContentEncodedResourceManager
+                .versioned(rm.getResource("/app.js"));
+
+        assertTrue(before.getPath()
+                .startsWith(rm.getResource("/app.js").getPath() + "."));
+        assertEquals(before.getPath(), VersionedContentEncodedResourceManager
+                .versioned(rm.getResource("/app.js")).getPath());
+        assertEquals(file, before.getFilePath());
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(2_000_000));
+
+        var after = VersionedContentEncodedResourceManager
+                .versioned(rm.getResource("/app.js"));
+
+        assertNotEquals(before.getPath(), after.getPath());
+    }
+}
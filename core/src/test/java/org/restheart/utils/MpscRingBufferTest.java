@@ -0,0 +1,114 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-core
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.utils;
+
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class MpscRingBufferTest {
+
+    @Test
+    public void testCapacity() {
+        assertEquals(8, new MpscRingBuffer<String>(5).capacity());
+        assertEquals(8, new MpscRingBuffer<String>(8).capacity());
+    }
+
+    @Test
+    public void testOfferPoll() {
+        var ring = new MpscRingBuffer<Integer>(4);
+
+        assertNull(ring.poll());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+
+        // full
+        assertFalse(ring.offer(4));
+        assertEquals(4, ring.size());
+
+        assertEquals(0, (int) ring.poll());
+        assertTrue(ring.offer(4));
+
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, (int) ring.poll());
+        }
+
+        assertNull(ring.poll());
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void testMultipleProducers() throws InterruptedException {
+        final int producers = 4;
+        final int perProducer = 1_000;
+
+        var ring = new MpscRingBuffer<Integer>(64);
+        var start = new CountDownLatch(1);
+        var threads = new Thread[producers];
+
+        for (int p = 0; p < producers; p++) {
+            final int base = p * perProducer;
+
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ie) {
+                    return;
+                }
+
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+
+            threads[p].start();
+        }
+
+        start.countDown();
+
+        var received = new HashSet<Integer>();
+
+        while (received.size() < producers * perProducer) {
+            var e = ring.poll();
+
+            if (e != null) {
+                assertTrue(received.add(e));
+            } else {
+                Thread.yield();
+            }
+        }
+
+        for (var t : threads) {
+            t.join();
+        }
+
+        assertNull(ring.poll());
+    }
+}
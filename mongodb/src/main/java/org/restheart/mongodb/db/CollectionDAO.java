@@ -44,6 +44,7 @@ import static org.restheart.exchange.ExchangeKeys.COLL_META_DOCID_PREFIX;
 import org.restheart.exchange.ExchangeKeys.EAGER_CURSOR_ALLOCATION_POLICY;
 import static org.restheart.exchange.ExchangeKeys.META_COLLNAME;
 import org.restheart.exchange.OperationResult;
+import org.restheart.jfr.MongoDAOEvent;
 import org.restheart.mongodb.MongoServiceConfiguration;
 import static org.restheart.mongodb.MongoServiceConfigurationKeys.DEFAULT_CURSOR_BATCH_SIZE;
 import org.restheart.utils.HttpStatus;
@@ -146,6 +147,21 @@ class CollectionDAO {
             final ClientSession cs,
             final MongoCollection<BsonDocument> coll,
             final BsonDocument filters) {
+        var event = MongoDAOEvent.start("CollectionDAO.getCollectionSize",
+                coll.getNamespace().getDatabaseName(),
+                coll.getNamespace().getCollectionName());
+
+        try {
+            return _getCollectionSize(cs, coll, filters);
+        } finally {
+            event.commit();
+        }
+    }
+
+    private long _getCollectionSize(
+            final ClientSession cs,
+            final MongoCollection<BsonDocument> coll,
+            final BsonDocument filters) {
         return cs == null
                 ? coll.countDocuments(filters)
                 : coll.countDocuments(cs, filters);
@@ -194,6 +210,36 @@ class CollectionDAO {
             final BsonDocument keys,
             final EAGER_CURSOR_ALLOCATION_POLICY eager)
             throws JsonParseException {
+        var event = MongoDAOEvent.start("CollectionDAO.getCollectionData",
+                coll.getNamespace().getDatabaseName(),
+                coll.getNamespace().getCollectionName());
+
+        try {
+            return _getCollectionData(cs,
+                    coll,
+                    page,
+                    pagesize,
+                    sortBy,
+                    filters,
+                    hint,
+                    keys,
+                    eager);
+        } finally {
+            event.commit();
+        }
+    }
+
+    private BsonArray _getCollectionData(
+            final ClientSession cs,
+            final MongoCollection<BsonDocument> coll,
+            final int page,
+            final int pagesize,
+            final BsonDocument sortBy,
+            final BsonDocument filters,
+            final BsonDocument hint,
+            final BsonDocument keys,
+            final EAGER_CURSOR_ALLOCATION_POLICY eager)
+            throws JsonParseException {
 
         var ret = new BsonArray();
 
@@ -345,7 +391,6 @@ class CollectionDAO {
      * @param checkEtag true if etag must be checked
      * @return the HttpStatus code to set in the http response
      */
-    @SuppressWarnings("unchecked")
     OperationResult upsertCollection(
             final ClientSession cs,
             final String dbName,
@@ -355,6 +400,33 @@ class CollectionDAO {
             boolean updating,
             final boolean patching,
             final boolean checkEtag) {
+        var event = MongoDAOEvent.start("CollectionDAO.upsertCollection",
+                dbName, collName);
+
+        try {
+            return _upsertCollection(cs,
+                    dbName,
+                    collName,
+                    properties,
+                    requestEtag,
+                    updating,
+                    patching,
+                    checkEtag);
+        } finally {
+            event.commit();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private OperationResult _upsertCollection(
+            final ClientSession cs,
+            final String dbName,
+            final String collName,
+            final BsonDocument properties,
+            final String requestEtag,
+            boolean updating,
+            final boolean patching,
+            final boolean checkEtag) {
 
         if (patching && !updating) {
             return new OperationResult(HttpStatus.SC_NOT_FOUND);
@@ -521,6 +593,26 @@ class CollectionDAO {
             final String collName,
             final String requestEtag,
             final boolean checkEtag) {
+        var event = MongoDAOEvent.start("CollectionDAO.deleteCollection",
+                dbName, collName);
+
+        try {
+            return _deleteCollection(cs,
+                    dbName,
+                    collName,
+                    requestEtag,
+                    checkEtag);
+        } finally {
+            event.commit();
+        }
+    }
+
+    private OperationResult _deleteCollection(
+            final ClientSession cs,
+            final String dbName,
+            final String collName,
+            final String requestEtag,
+            final boolean checkEtag) {
         MongoDatabase mdb = client.getDatabase(dbName);
         MongoCollection<Document> mcoll = mdb.getCollection(META_COLLNAME);
 
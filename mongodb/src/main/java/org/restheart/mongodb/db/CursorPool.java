@@ -43,6 +43,7 @@ import org.restheart.cache.Cache;
 import org.restheart.cache.CacheFactory;
 import org.restheart.cache.LoadingCache;
 import org.restheart.exchange.ExchangeKeys.EAGER_CURSOR_ALLOCATION_POLICY;
+import org.restheart.jfr.CacheEvent;
 import org.restheart.mongodb.MongoServiceConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -179,6 +180,8 @@ public class CursorPool {
                         _bestKey.get().getSkipped());
                 cache.invalidate(_bestKey.get());
 
+                CacheEvent.record("cursor-pool", true, key);
+
                 LOGGER.debug("{} cursor in pool. id {}, saving {} skips",
                         ansi().fg(GREEN).bold().a("found").reset().toString(),
                         _bestKey.get().getCursorId(),
@@ -187,12 +190,16 @@ public class CursorPool {
             } else {
                 ret = null;
 
+                CacheEvent.record("cursor-pool", false, key);
+
                 LOGGER.debug("{} cursor in pool.",
                         ansi().fg(RED).bold().a("no").reset().toString());
             }
         } else {
             ret = null;
 
+            CacheEvent.record("cursor-pool", false, key);
+
             LOGGER.debug(ansi().fg(RED).bold().a("no").reset().toString()
                     + " cursor in pool.");
         }
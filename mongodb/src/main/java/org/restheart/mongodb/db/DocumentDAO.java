@@ -45,6 +45,7 @@ import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import org.restheart.exchange.OperationResult;
+import org.restheart.jfr.MongoDAOEvent;
 import static org.restheart.mongodb.db.DAOUtils.BAD_VALUE_KEY_ERROR;
 import org.restheart.mongodb.utils.ResponseHelper;
 import org.restheart.utils.HttpStatus;
@@ -109,7 +110,6 @@ public class DocumentDAO implements DocumentRepository {
      * @return the HttpStatus code
      */
     @Override
-    @SuppressWarnings("unchecked")
     public OperationResult upsertDocument(
             final ClientSession cs,
             final String dbName,
@@ -121,6 +121,37 @@ public class DocumentDAO implements DocumentRepository {
             final String requestEtag,
             final boolean patching,
             final boolean checkEtag) {
+        var event = MongoDAOEvent.start("DocumentDAO.upsertDocument",
+                dbName, collName);
+
+        try {
+            return _upsertDocument(cs,
+                    dbName,
+                    collName,
+                    documentId,
+                    filter,
+                    shardKeys,
+                    newContent,
+                    requestEtag,
+                    patching,
+                    checkEtag);
+        } finally {
+            event.commit();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private OperationResult _upsertDocument(
+            final ClientSession cs,
+            final String dbName,
+            final String collName,
+            final Object documentId,
+            final BsonDocument filter,
+            final BsonDocument shardKeys,
+            final BsonDocument newContent,
+            final String requestEtag,
+            final boolean patching,
+            final boolean checkEtag) {
         MongoDatabase mdb = client.getDatabase(dbName);
         MongoCollection<BsonDocument> mcoll
                 = mdb.getCollection(collName, BsonDocument.class);
@@ -212,7 +243,6 @@ public class DocumentDAO implements DocumentRepository {
      * @return
      */
     @Override
-    @SuppressWarnings("unchecked")
     public OperationResult upsertDocumentPost(
             final ClientSession cs,
             final String dbName,
@@ -222,6 +252,33 @@ public class DocumentDAO implements DocumentRepository {
             final BsonDocument newContent,
             final String requestEtag,
             final boolean checkEtag) {
+        var event = MongoDAOEvent.start("DocumentDAO.upsertDocumentPost",
+                dbName, collName);
+
+        try {
+            return _upsertDocumentPost(cs,
+                    dbName,
+                    collName,
+                    filter,
+                    shardKeys,
+                    newContent,
+                    requestEtag,
+                    checkEtag);
+        } finally {
+            event.commit();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private OperationResult _upsertDocumentPost(
+            final ClientSession cs,
+            final String dbName,
+            final String collName,
+            final BsonDocument filter,
+            final BsonDocument shardKeys,
+            final BsonDocument newContent,
+            final String requestEtag,
+            final boolean checkEtag) {
         MongoDatabase mdb = client.getDatabase(dbName);
         MongoCollection<BsonDocument> mcoll
                 = mdb.getCollection(collName, BsonDocument.class);
@@ -290,7 +347,6 @@ public class DocumentDAO implements DocumentRepository {
      * @return
      */
     @Override
-    @SuppressWarnings("unchecked")
     public BulkOperationResult bulkUpsertDocumentsPost(
             final ClientSession cs,
             final String dbName,
@@ -298,6 +354,29 @@ public class DocumentDAO implements DocumentRepository {
             final BsonArray documents,
             final BsonDocument filter,
             final BsonDocument shardKeys) {
+        var event = MongoDAOEvent.start("DocumentDAO.bulkUpsertDocumentsPost",
+                dbName, collName);
+
+        try {
+            return _bulkUpsertDocumentsPost(cs,
+                    dbName,
+                    collName,
+                    documents,
+                    filter,
+                    shardKeys);
+        } finally {
+            event.commit();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private BulkOperationResult _bulkUpsertDocumentsPost(
+            final ClientSession cs,
+            final String dbName,
+            final String collName,
+            final BsonArray documents,
+            final BsonDocument filter,
+            final BsonDocument shardKeys) {
         Objects.requireNonNull(documents);
 
         MongoDatabase mdb = client.getDatabase(dbName);
@@ -345,6 +424,33 @@ public class DocumentDAO implements DocumentRepository {
             final BsonDocument shardedKeys,
             final String requestEtag,
             final boolean checkEtag
+    ) {
+        var event = MongoDAOEvent.start("DocumentDAO.deleteDocument",
+                dbName, collName);
+
+        try {
+            return _deleteDocument(cs,
+                    dbName,
+                    collName,
+                    documentId,
+                    filter,
+                    shardedKeys,
+                    requestEtag,
+                    checkEtag);
+        } finally {
+            event.commit();
+        }
+    }
+
+    private OperationResult _deleteDocument(
+            final ClientSession cs,
+            final String dbName,
+            final String collName,
+            final Object documentId,
+            final BsonDocument filter,
+            final BsonDocument shardedKeys,
+            final String requestEtag,
+            final boolean checkEtag
     ) {
         MongoDatabase mdb = client.getDatabase(dbName);
         MongoCollection<BsonDocument> mcoll
@@ -406,6 +512,26 @@ public class DocumentDAO implements DocumentRepository {
             final String collName,
             final BsonDocument filter,
             final BsonDocument shardedKeys) {
+        var event = MongoDAOEvent.start("DocumentDAO.bulkDeleteDocuments",
+                dbName, collName);
+
+        try {
+            return _bulkDeleteDocuments(cs,
+                    dbName,
+                    collName,
+                    filter,
+                    shardedKeys);
+        } finally {
+            event.commit();
+        }
+    }
+
+    private BulkOperationResult _bulkDeleteDocuments(
+            final ClientSession cs,
+            final String dbName,
+            final String collName,
+            final BsonDocument filter,
+            final BsonDocument shardedKeys) {
         MongoDatabase mdb = client.getDatabase(dbName);
         MongoCollection<BsonDocument> mcoll
                 = mdb.getCollection(collName, BsonDocument.class);
@@ -447,6 +573,28 @@ public class DocumentDAO implements DocumentRepository {
             final BsonDocument filter,
             final BsonDocument shardedKeys,
             final BsonDocument data) {
+        var event = MongoDAOEvent.start("DocumentDAO.bulkPatchDocuments",
+                dbName, collName);
+
+        try {
+            return _bulkPatchDocuments(cs,
+                    dbName,
+                    collName,
+                    filter,
+                    shardedKeys,
+                    data);
+        } finally {
+            event.commit();
+        }
+    }
+
+    private BulkOperationResult _bulkPatchDocuments(
+            final ClientSession cs,
+            final String dbName,
+            final String collName,
+            final BsonDocument filter,
+            final BsonDocument shardedKeys,
+            final BsonDocument data) {
         MongoDatabase mdb = client.getDatabase(dbName);
         MongoCollection<BsonDocument> mcoll
                 = mdb.getCollection(collName, BsonDocument.class);
@@ -23,8 +23,6 @@ package org.restheart.mongodb.db;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientURI;
 import com.mongodb.MongoCommandException;
-import io.github.classgraph.ClassGraph;
-import io.github.classgraph.ScanResult;
 import java.util.LinkedHashSet;
 import java.util.Set;
 import org.bson.BsonDocument;
@@ -98,6 +96,9 @@ public class MongoClientSingleton {
 
     private MongoClient mongoClient;
 
+    // true when setup() is completed
+    private volatile boolean ready = false;
+
     private MongoClientSingleton() {
         if (!initialized) {
             throw new IllegalStateException("not initialized");
@@ -204,30 +205,17 @@ public class MongoClientSingleton {
             MongoClient mongoClient) {
         var plugin = pluginRecord.getInstance();
 
-        MongoClientSingleton.getInstance().getClient();
-
-        try (ScanResult result = new ClassGraph()
-                .enableClassInfo()
-                .enableAnnotationInfo()
-                .enableMethodInfo()
-                .whitelistClasses(plugin.getClass().getName())
-                .scan()) {
-            var classInfo = result.getClassInfo(plugin.getClass().getName());
-
-            var mis = classInfo.getDeclaredMethodInfo();
-
-            for (var mi : mis) {
-                if (mi.hasAnnotation(InjectMongoClient.class.getName())) {
-                    try {
-                        plugin.getClass()
-                                .getDeclaredMethod(mi.getName(), MongoClient.class)
-                                .invoke(plugin, mongoClient);
-                    } catch (Throwable t) {
-                        LOGGER.error("Cannot set MongoClient to "
-                                + plugin.getClass().getName()
-                                + "." + mi.getName()
-                                + "()", t);
-                    }
+        for (var mi : plugin.getClass().getDeclaredMethods()) {
+            if (mi.isAnnotationPresent(InjectMongoClient.class)) {
+                try {
+                    plugin.getClass()
+                            .getDeclaredMethod(mi.getName(), MongoClient.class)
+                            .invoke(plugin, mongoClient);
+                } catch (Throwable t) {
+                    LOGGER.error("Cannot set MongoClient to "
+                            + plugin.getClass().getName()
+                            + "." + mi.getName()
+                            + "()", t);
                 }
             }
         }
@@ -242,8 +230,15 @@ public class MongoClientSingleton {
             throw new IllegalStateException("MongoClientSingleton is not initialized");
         }
 
-        if (this.mongoClient == null) {
-            setup();
+        // initializers can get the client concurrently; setup() also gets the
+        // client, from the same thread, injecting it to plugins
+        if (!ready) {
+            synchronized (this) {
+                if (this.mongoClient == null) {
+                    setup();
+                    ready = true;
+                }
+            }
         }
 
         return this.mongoClient;
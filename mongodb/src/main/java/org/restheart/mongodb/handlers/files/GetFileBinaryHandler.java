@@ -31,6 +31,7 @@ import org.bson.BsonObjectId;
 import org.bson.types.ObjectId;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
+import org.restheart.handlers.CompressionPolicy;
 import org.restheart.handlers.PipelinedHandler;
 import org.restheart.mongodb.db.MongoClientSingleton;
 import org.restheart.mongodb.utils.RequestHelper;
@@ -197,6 +198,9 @@ public class GetFileBinaryHandler extends PipelinedHandler {
 
         request.setStatusCode(HttpStatus.SC_OK);
 
+        // the file is sent as stored, whatever its content type
+        CompressionPolicy.bypass(exchange);
+
         gridFSBucket.downloadToStream(
                 file.getId(),
                 exchange.getOutputStream());
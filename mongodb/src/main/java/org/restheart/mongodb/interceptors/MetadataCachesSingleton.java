@@ -26,6 +26,7 @@ import org.bson.BsonDocument;
 import org.restheart.cache.Cache;
 import org.restheart.cache.CacheFactory;
 import org.restheart.cache.LoadingCache;
+import org.restheart.jfr.CacheEvent;
 import org.restheart.mongodb.MongoServiceConfiguration;
 import org.restheart.mongodb.db.Database;
 import org.restheart.mongodb.db.DatabaseImpl;
@@ -117,6 +118,8 @@ public class MetadataCachesSingleton {
 
         Optional<BsonDocument> _dbProps = dbPropsCache.get(dbName);
 
+        CacheEvent.record("db-props", _dbProps != null, dbName);
+
         if (_dbProps != null) {
             if (_dbProps.isPresent()) {
                 return _dbProps.get();
@@ -155,6 +158,9 @@ public class MetadataCachesSingleton {
 
         Optional<BsonDocument> _collProps = collectionPropsCache.get(dbName + SEPARATOR + collName);
 
+        CacheEvent.record("collection-props", _collProps != null,
+                dbName + SEPARATOR + collName);
+
         if (_collProps != null) {
             if (_collProps.isPresent()) {
                 return _collProps.get();
@@ -38,7 +38,8 @@ import org.restheart.utils.HttpStatus;
         name = "ping",
         description = "simple ping service",
         enabledByDefault = true,
-        defaultURI = "/ping")
+        defaultURI = "/ping",
+        blocking = false)
 public class PingService implements ByteArrayService {
 
     private String msg = null;